@@ -31,6 +31,7 @@ import java.net.URL;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.jar.JarEntry;
@@ -39,15 +40,24 @@ import java.util.jar.JarFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.audio.AudioEngine;
 import com.shootoff.camera.CameraFactory;
+import com.shootoff.camera.CameraRegistry;
+import com.shootoff.camera.batch.BatchDetection;
+import com.shootoff.camera.batch.BenchmarkResult;
+import com.shootoff.camera.batch.DetectionBenchmark;
+import com.shootoff.camera.batch.DetectionTuner;
 import com.shootoff.camera.cameratypes.OptiTrackCamera;
 import com.shootoff.camera.cameratypes.PS3EyeCamera;
+import com.shootoff.camera.cameratypes.ReplayCamera;
 import com.shootoff.config.Configuration;
 import com.shootoff.config.ConfigurationException;
 import com.shootoff.gui.controller.ShootOFFController;
 import com.shootoff.headless.HeadlessController;
+import com.shootoff.metrics.MetricsReporter;
 import com.shootoff.plugins.TextToSpeech;
 import com.shootoff.util.HardwareData;
+import com.shootoff.util.StartupOrchestrator;
 import com.shootoff.util.SystemInfo;
 import com.shootoff.util.VersionChecker;
 import com.sun.deploy.uitoolkit.impl.fx.HostServicesFactory;
@@ -77,8 +87,6 @@ import javafx.stage.Stage;
 public class Main extends Application {
 	private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
-	private static final int MINIMUM_CPU_SCORE_EXCELLENT = 4000;
-	private static final int MINIMUM_CPU_SCORE_PASSABLE = 3000;
 	private static final long MINIMUM_RAM_EXCELLENT = 11712; // MB
 	private static final long MINIMUM_RAM_PASSABLE = 4096; // MB
 
@@ -491,68 +499,95 @@ public class Main extends Application {
 		return Optional.of(versionXML.toString());
 	}
 
+	/**
+	 * Fetches the current stable version and tells the user if this version is
+	 * older. The fetch blocks, so call this off of the JavaFX thread.
+	 */
 	public void checkVersion() {
 		final Optional<String> versionXML = getVersionXML(SHOOTOFF_DOMAIN + VERSION_METADATA_NAME);
 
-		if (versionXML.isPresent()) {
-			final Optional<String> stableVersion = parseField(versionXML.get(), "stableRelease", "version");
+		if (versionXML.isPresent()) Platform.runLater(() -> showVersionStatus(versionXML.get()));
+	}
 
-			if (stableVersion.isPresent() && VersionChecker.compareVersions(stableVersion.get(), version.get()) > 0) {
-				final Optional<String> downloadLink = parseField(versionXML.get(), "stableRelease", "download");
+	private void showVersionStatus(String versionXML) {
+		final Optional<String> stableVersion = parseField(versionXML, "stableRelease", "version");
 
-				final String link;
+		if (stableVersion.isPresent() && VersionChecker.compareVersions(stableVersion.get(), version.get()) > 0) {
+			final Optional<String> downloadLink = parseField(versionXML, "stableRelease", "download");
 
-				if (downloadLink.isPresent())
-					link = downloadLink.get();
-				else
-					link = SHOOTOFF_DOMAIN;
+			final String link;
 
-				final Alert shootoffWelcome = new Alert(AlertType.INFORMATION);
-				shootoffWelcome.setTitle("ShootOFF Updated");
-				shootoffWelcome.setHeaderText("This version of ShootOFF is outdated!");
-				shootoffWelcome.setResizable(true);
+			if (downloadLink.isPresent())
+				link = downloadLink.get();
+			else
+				link = SHOOTOFF_DOMAIN;
 
-				final FlowPane fp = new FlowPane();
-				final Label lbl = new Label(
-						"The current stable release of ShootOFF is " + stableVersion.get() + ", but you are running "
-								+ version.get() + ". " + "You can download the current version of ShootOFF here:\n\n");
+			final Alert shootoffWelcome = new Alert(AlertType.INFORMATION);
+			shootoffWelcome.setTitle("ShootOFF Updated");
+			shootoffWelcome.setHeaderText("This version of ShootOFF is outdated!");
+			shootoffWelcome.setResizable(true);
 
-				final Hyperlink lnk = new Hyperlink(link);
+			final FlowPane fp = new FlowPane();
+			final Label lbl = new Label(
+					"The current stable release of ShootOFF is " + stableVersion.get() + ", but you are running "
+							+ version.get() + ". " + "You can download the current version of ShootOFF here:\n\n");
 
-				lnk.setOnAction((event) -> {
-					final HostServicesDelegate hostServices = HostServicesFactory.getInstance(this);
-					hostServices.showDocument(link);
-					lnk.setVisited(true);
-				});
+			final Hyperlink lnk = new Hyperlink(link);
 
-				fp.getChildren().addAll(lbl, lnk);
+			lnk.setOnAction((event) -> {
+				final HostServicesDelegate hostServices = HostServicesFactory.getInstance(this);
+				hostServices.showDocument(link);
+				lnk.setVisited(true);
+			});
 
-				shootoffWelcome.getDialogPane().contentProperty().set(fp);
-				shootoffWelcome.showAndWait();
-			} else if (stableVersion.isPresent() && stableVersion.get().compareTo(version.get()) < 0) {
-				logger.warn("Future version of ShootOFF? stableVersion = {}, this.version = {}", stableVersion.get(),
-						version.get());
-			} else {
-				logger.debug("ShootOFF is up to date");
-			}
+			fp.getChildren().addAll(lbl, lnk);
+
+			shootoffWelcome.getDialogPane().contentProperty().set(fp);
+			shootoffWelcome.showAndWait();
+		} else if (stableVersion.isPresent() && stableVersion.get().compareTo(version.get()) < 0) {
+			logger.warn("Future version of ShootOFF? stableVersion = {}, this.version = {}", stableVersion.get(),
+					version.get());
+		} else {
+			logger.debug("ShootOFF is up to date");
 		}
 	}
 
 	public void runShootOFF() {
+		final StartupOrchestrator startup = StartupOrchestrator.getStartup();
 		final String[] args = getParameters().getRaw().toArray(new String[getParameters().getRaw().size()]);
-		Configuration config;
+		final Configuration config;
 		try {
-			config = new Configuration(System.getProperty("shootoff.home") + File.separator + "shootoff.properties",
-					args);
-		} catch (IOException | ConfigurationException e) {
+			config = startup.runPhase("config", () -> new Configuration(
+					System.getProperty("shootoff.home") + File.separator + "shootoff.properties", args));
+		} catch (final Exception e) {
 			logger.error("Error fetching ShootOFF configuration to run ShootOFF", e);
 			return;
 		}
 
-		if (version.isPresent() && !config.inDebugMode() && !isJWS) checkVersion();
+		if (version.isPresent() && !config.inDebugMode() && !isJWS) {
+			startup.addDeferredPhase("versionCheck", this::checkVersion);
+		}
+
+		if (config.getMetricsReportInterval() > 0) {
+			MetricsReporter.start(config.getMetricsReportInterval(),
+					new File(System.getProperty("shootoff.home") + File.separator + "metrics.csv"));
+		}
+
+		if (config.getReplaySource().isPresent()) {
+			ReplayCamera.register(config.getReplaySource().get(), config.getReplayPacing(), config.loopReplay(),
+					config.getReplayCameraCount());
+		}
+
+		// Decode sound effects before the first shot needs one
+		startup.addDeferredPhase("sounds", () -> {
+			final List<File> sounds = AudioEngine
+					.findSounds(new File(System.getProperty("shootoff.home") + File.separator + "sounds"));
+			sounds.add(config.getRedLaserSound());
+			sounds.add(config.getGreenLaserSound());
+			AudioEngine.getEngine().preload(sounds);
+		});
 
-		// This initializes the TTS engine
-		TextToSpeech.say("");
+		startup.addDeferredPhase("tts", TextToSpeech::init);
 
 		if (config.isFirstRun()) {
 			if (shouldShowV4lWarning) showV4lWarning();
@@ -578,17 +613,27 @@ public class Main extends Application {
 			logger.info("Error reporting has been disabled.");
 		}
 
+		// Cameras are opened from here on
+		startup.await("opencv");
+
 		if (config.isHeadless()) {
 			new HeadlessController();
+			startup.startDeferredPhases();
 		} else {
 			startGui(config);
 		}
 	}
 
 	private void startGui(Configuration config) {
+		final StartupOrchestrator startup = StartupOrchestrator.getStartup();
+
 		try {
-			final FXMLLoader loader = new FXMLLoader(Main.class.getResource("/com/shootoff/gui/ShootOFF.fxml"));
-			loader.load();
+			final FXMLLoader loader = startup.runPhase("fxml", () -> {
+				final FXMLLoader fxmlLoader = new FXMLLoader(
+						Main.class.getResource("/com/shootoff/gui/ShootOFF.fxml"));
+				fxmlLoader.load();
+				return fxmlLoader;
+			});
 
 			final Scene scene = new Scene(loader.getRoot());
 
@@ -598,24 +643,47 @@ public class Main extends Application {
 				primaryStage.setTitle("ShootOFF");
 			primaryStage.setScene(scene);
 			final ShootOFFController controller = (ShootOFFController) loader.getController();
-			controller.init(config);
+			startup.runPhase("controller", () -> {
+				controller.init(config);
+				return controller;
+			});
 			primaryStage.show();
+
+			// Let the first frame render before deferred work competes with it
+			Platform.runLater(startup::startDeferredPhases);
 		} catch (final IOException e) {
 			logger.error("Error loading ShootOFF FXML file", e);
 			return;
+		} catch (final Exception e) {
+			logger.error("Error starting ShootOFF's main window", e);
+			return;
 		}
 	}
 
-	private void setHardwareMessage(Label hardwareMessageLabel, int cpuScore) {
-		if (cpuScore < MINIMUM_CPU_SCORE_PASSABLE) {
-			hardwareMessageLabel.setText(POOR_HARDWARE_MESSAGE);
+	private void setHardwareMessage(Label hardwareMessageLabel, BenchmarkResult benchmarkResult) {
+		final String recommendation;
+		final Optional<BenchmarkResult.Recommendation> r = benchmarkResult.getRecommendation();
+		if (r.isPresent()) {
+			recommendation = "\n\nRecommended camera settings: " + r.get().toString() + ".";
+		} else {
+			recommendation = "";
+		}
+
+		switch (benchmarkResult.getHardwareStatus()) {
+		case POOR:
+			hardwareMessageLabel.setText(POOR_HARDWARE_MESSAGE + recommendation);
 			hardwareMessageLabel.setTextFill(Color.RED);
-		} else if (cpuScore < MINIMUM_CPU_SCORE_EXCELLENT) {
-			hardwareMessageLabel.setText(PASSABLE_HARDWARE_MESSAGE);
+			break;
+
+		case PASSABLE:
+			hardwareMessageLabel.setText(PASSABLE_HARDWARE_MESSAGE + recommendation);
 			hardwareMessageLabel.setTextFill(Color.GOLD);
-		} else {
-			hardwareMessageLabel.setText(EXCELLENT_HARDWARE_MESSAGE);
+			break;
+
+		case EXCELLENT:
+			hardwareMessageLabel.setText(EXCELLENT_HARDWARE_MESSAGE + recommendation);
 			hardwareMessageLabel.setTextFill(Color.DARKGREEN);
+			break;
 		}
 	}
 
@@ -646,25 +714,26 @@ public class Main extends Application {
 	}
 
 	private boolean showFirstRunMessage() {
-		final Label hardwareMessageLabel = new Label("Fetching hardware status to determine how well ShootOFF\n"
-				+ "will run on this machine. This may take a moment...");
+		final Label hardwareMessageLabel = new Label("Measuring how fast this machine detects shots to determine\n"
+				+ "how well ShootOFF will run. This may take a few seconds...");
 
 		new Thread(() -> {
 			final String cpuName = HardwareData.getCpuName();
-			final Optional<Integer> cpuScore = HardwareData.getCpuScore();
 			final long installedRam = HardwareData.getMegabytesOfRam();
+			final Optional<BenchmarkResult> benchmarkResult = DetectionBenchmark
+					.getResult(new File(System.getProperty("shootoff.home"), DetectionBenchmark.RESULT_FILE));
 
-			if (cpuScore.isPresent()) {
-				if (logger.isDebugEnabled()) logger.debug("Processor: {}, Processor Score: {}, installed RAM: {} MB",
-						cpuName, cpuScore.get(), installedRam);
+			if (benchmarkResult.isPresent()) {
+				if (logger.isDebugEnabled()) logger.debug("Processor: {}, installed RAM: {} MB, detection benchmark:\n{}",
+						cpuName, installedRam, benchmarkResult.get());
 
-				Platform.runLater(() -> setHardwareMessage(hardwareMessageLabel, cpuScore.get()));
+				Platform.runLater(() -> setHardwareMessage(hardwareMessageLabel, benchmarkResult.get()));
 			} else {
 				if (logger.isDebugEnabled()) logger.debug("Processor: {}, installed RAM: {} MB", cpuName, installedRam);
 
 				Platform.runLater(() -> setHardwareMessage(hardwareMessageLabel, installedRam));
 			}
-		}).start();
+		}, "DetectionBenchmark").start();
 
 		final Alert shootoffWelcome = new Alert(AlertType.INFORMATION);
 		shootoffWelcome.setTitle("Welcome to ShootOFF");
@@ -710,14 +779,25 @@ public class Main extends Application {
 
 	@Override
 	public void start(Stage primaryStage) {
-		OptiTrackCamera.init();
+		final StartupOrchestrator startup = StartupOrchestrator.getStartup();
+
+		// Cameras webcam-capture can't discover have to be registered before
+		// cameras are enumerated. Enumeration is slow, but webcam-capture
+		// caches it, so doing it now means it's ready by the time the
+		// configuration or the camera tabs need it.
+		startup.addPhase("optitrack", OptiTrackCamera::init);
+		if (SystemInfo.isWindows()) {
+			startup.addPhase("ps3eye", PS3EyeCamera::init);
+			startup.addPhase("cameras", CameraRegistry.getRegistry()::start, "optitrack", "ps3eye");
+		} else {
+			startup.addPhase("cameras", CameraRegistry.getRegistry()::start, "optitrack");
+		}
 
 		this.primaryStage = primaryStage;
 
-		if (SystemInfo.isMacOsX() && CameraFactory.getWebcams().isEmpty()) {
-			closeNoCamera();
-		} else if (SystemInfo.isWindows()) {
-			PS3EyeCamera.init();
+		if (SystemInfo.isMacOsX()) {
+			startup.await("cameras");
+			if (CameraFactory.getWebcams().isEmpty()) closeNoCamera();
 		}
 
 		if (System.getProperty("javawebstart.version", null) != null) {
@@ -810,7 +890,9 @@ public class Main extends Application {
 			}
 		}
 
-		nu.pattern.OpenCV.loadShared();
+		// Extracting OpenCV's native library takes a while, so let it happen
+		// while JavaFX starts
+		StartupOrchestrator.getStartup().addPhase("opencv", nu.pattern.OpenCV::loadShared);
 
 		// Read ShootOFF's version number
 		final Properties prop = new Properties();
@@ -822,6 +904,52 @@ public class Main extends Application {
 			logger.error("Couldn't read version properties", ioe);
 		}
 
+		if (isBatchDetection(args)) {
+			StartupOrchestrator.getStartup().await("opencv");
+			System.exit(runBatchDetection(args));
+		}
+
 		launch(args);
 	}
+
+	private static boolean isBatchDetection(String[] args) {
+		for (final String arg : args) {
+			if ("-b".equals(arg) || arg.startsWith("--batch-detect") || "-t".equals(arg)
+					|| arg.startsWith("--tune-detection"))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Detect shots in a directory of recordings or tune detection on them
+	 * without starting JavaFX. Detection still reads its settings from
+	 * shootoff.properties.
+	 *
+	 * @return the process exit code
+	 */
+	private static int runBatchDetection(String[] args) {
+		if (System.getProperty("shootoff.home") == null)
+			System.setProperty("shootoff.home", System.getProperty("user.dir"));
+
+		final Configuration config;
+		try {
+			config = new Configuration(System.getProperty("shootoff.home") + File.separator + "shootoff.properties",
+					args);
+		} catch (IOException | ConfigurationException e) {
+			logger.error("Error fetching ShootOFF configuration to run batch detection", e);
+			return 1;
+		}
+
+		Configuration.disableErrorReporting();
+
+		if (config.getTuningDirectory().isPresent()) {
+			return DetectionTuner.run(config.getTuningDirectory().get(), config.getTuningOutputDirectory(),
+					config.getBatchThreads(), config.getTuningTrials(), config.getTuningGridParameters());
+		}
+
+		return BatchDetection.run(config.getBatchDetectionDirectory().get(), config.getBatchOutputDirectory(),
+				config.getBatchThreads());
+	}
 }
\ No newline at end of file
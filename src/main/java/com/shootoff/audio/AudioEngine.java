@@ -0,0 +1,279 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
+
+/**
+ * Plays sound effects with as little delay as possible. Sounds are decoded
+ * into {@link PcmClip}s once and cached, and a single output line is opened
+ * the first time anything plays and then kept open. A real-time mixer thread
+ * sums every playing clip into short chunks and writes them to the line, so
+ * overlapping shots and beeps don't each need their own line and thread.
+ * While nothing is playing the mixer thread blocks instead of writing
+ * silence.
+ * 
+ * The time from {@link #play(PcmClip, Optional)} until the clip's first
+ * samples have been handed to the line is recorded in the
+ * <code>audio.triggerLatency</code> histogram.
+ */
+public final class AudioEngine {
+	private static final Logger logger = LoggerFactory.getLogger(AudioEngine.class);
+
+	private static final int LINE_BUFFER_MILLIS = 20;
+	private static final int MIX_CHUNK_MILLIS = 5;
+
+	private static final AudioEngine engine = new AudioEngine();
+
+	private static final LatencyHistogram triggerLatency = MetricsRegistry.getRegistry()
+			.histogram("audio.triggerLatency");
+	private static final Counter decodeCounter = MetricsRegistry.getRegistry().counter("audio.clipDecodes");
+	private static final Counter cacheHitCounter = MetricsRegistry.getRegistry().counter("audio.clipCacheHits");
+
+	// Completion callbacks often start the next sound, which may have to be
+	// decoded or open a line, so they never run on the mixer thread
+	private static final ExecutorService callbackExecutor = Executors.newSingleThreadExecutor((r) -> {
+		final Thread thread = new Thread(r, "AudioCallbacks");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Map<String, PcmClip> clips = new ConcurrentHashMap<>();
+	private final BlockingQueue<ClipMixer.Voice> triggered = new LinkedBlockingQueue<>();
+
+	// Guarded by this
+	private SourceDataLine line;
+	private Thread mixerThread;
+	private boolean lineUnavailable = false;
+	private boolean closed = false;
+
+	private AudioEngine() {}
+
+	public static AudioEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Get the decoded clip for a sound file, decoding it if it isn't cached or
+	 * the file changed since it was decoded.
+	 * 
+	 * @return the clip, or empty if the file can't be read or isn't in a
+	 *         format Java Sound can convert to PCM
+	 */
+	public Optional<PcmClip> getClip(File soundFile) {
+		final String key = soundFile.getAbsolutePath();
+		final PcmClip cached = clips.get(key);
+
+		if (cached != null && cached.getLastModified() == soundFile.lastModified()) {
+			cacheHitCounter.increment();
+			return Optional.of(cached);
+		}
+
+		if (!soundFile.isFile()) return Optional.empty();
+
+		try {
+			final PcmClip clip = PcmClip.decode(soundFile);
+			decodeCounter.increment();
+			clips.put(key, clip);
+
+			return Optional.of(clip);
+		} catch (IOException | UnsupportedAudioFileException e) {
+			logger.debug("Can't decode {} for the audio engine", soundFile, e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Decode sounds so they are cached before they first play. This blocks
+	 * until every sound is decoded, so it should run in the background (e.g.
+	 * as a deferred startup phase).
+	 */
+	public void preload(Collection<File> soundFiles) {
+		final long startTime = System.currentTimeMillis();
+		soundFiles.forEach(this::getClip);
+
+		if (logger.isDebugEnabled()) logger.debug("Decoded {} sounds totaling {} bytes in {} ms", clips.size(),
+				getCachedSize(), System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * @return every WAV file in <code>directory</code> and its subdirectories
+	 */
+	public static List<File> findSounds(File directory) {
+		final List<File> sounds = new ArrayList<>();
+		final File[] files = directory.listFiles();
+
+		if (files == null) return sounds;
+
+		for (final File file : files) {
+			if (file.isDirectory()) {
+				sounds.addAll(findSounds(file));
+			} else if (file.getName().toLowerCase().endsWith(".wav")) {
+				sounds.add(file);
+			}
+		}
+
+		return sounds;
+	}
+
+	public long getCachedSize() {
+		return clips.values().stream().mapToLong(PcmClip::getSize).sum();
+	}
+
+	/**
+	 * Start playing a clip, mixed with whatever else is playing.
+	 * 
+	 * @param onFinished
+	 *            run once the clip's last samples are handed to the output
+	 *            line. Callbacks run one at a time on a thread of their own,
+	 *            so they may play further sounds.
+	 * @return <tt>false</tt> if no output line could be opened, in which case
+	 *         the clip won't play
+	 */
+	public boolean play(PcmClip clip, Optional<Runnable> onFinished) {
+		final long triggerTime = System.nanoTime();
+
+		if (!ensureStarted()) return false;
+
+		triggered.add(new ClipMixer.Voice(clip, onFinished, triggerTime));
+
+		return true;
+	}
+
+	private synchronized boolean ensureStarted() {
+		if (mixerThread != null) return true;
+		if (closed || lineUnavailable) return false;
+
+		final int frameSize = PcmClip.OUTPUT_FORMAT.getFrameSize();
+		final int framesPerMilli = (int) (PcmClip.OUTPUT_FORMAT.getSampleRate() / 1000);
+
+		try {
+			line = (SourceDataLine) AudioSystem
+					.getLine(new DataLine.Info(SourceDataLine.class, PcmClip.OUTPUT_FORMAT));
+			line.open(PcmClip.OUTPUT_FORMAT, LINE_BUFFER_MILLIS * framesPerMilli * frameSize);
+			line.start();
+		} catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+			logger.error("Can't open an output line for the audio engine", e);
+			if (line != null) line.close();
+			line = null;
+			lineUnavailable = true;
+			return false;
+		}
+
+		if (logger.isDebugEnabled()) logger.debug("Opened audio output line with a {} byte buffer", line.getBufferSize());
+
+		final SourceDataLine outputLine = line;
+		final byte[] chunk = new byte[MIX_CHUNK_MILLIS * framesPerMilli * frameSize];
+
+		mixerThread = new Thread(() -> runMixer(outputLine, chunk), "AudioMixer");
+		mixerThread.setDaemon(true);
+		mixerThread.setPriority(Thread.MAX_PRIORITY);
+		mixerThread.start();
+
+		return true;
+	}
+
+	private void runMixer(SourceDataLine outputLine, byte[] chunk) {
+		final ClipMixer mixer = new ClipMixer();
+		final List<ClipMixer.Voice> started = new ArrayList<>();
+		final List<ClipMixer.Voice> finished = new ArrayList<>();
+
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				// Block until something plays instead of spinning on silence
+				if (mixer.isIdle()) mixer.add(triggered.take());
+
+				ClipMixer.Voice voice;
+				while ((voice = triggered.poll()) != null) {
+					mixer.add(voice);
+				}
+
+				mixer.mix(chunk, started, finished);
+				outputLine.write(chunk, 0, chunk.length);
+
+				for (final ClipMixer.Voice s : started) {
+					triggerLatency.recordSince(s.getTriggerTime());
+				}
+
+				for (final ClipMixer.Voice f : finished) {
+					if (f.getOnFinished().isPresent()) runCallback(f.getOnFinished().get());
+				}
+
+				started.clear();
+				finished.clear();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void runCallback(Runnable onFinished) {
+		callbackExecutor.execute(() -> {
+			try {
+				onFinished.run();
+			} catch (final Exception e) {
+				logger.error("Error running sound completion callback", e);
+			}
+		});
+	}
+
+	/**
+	 * Stop the mixer thread and close the output line. Nothing plays through
+	 * the engine afterwards.
+	 */
+	public synchronized void close() {
+		closed = true;
+		triggered.clear();
+
+		if (mixerThread != null) {
+			mixerThread.interrupt();
+			mixerThread = null;
+		}
+
+		if (line != null) {
+			line.stop();
+			line.close();
+			line = null;
+		}
+	}
+}
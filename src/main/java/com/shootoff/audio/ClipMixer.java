@@ -0,0 +1,117 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.audio;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sums every playing voice into chunks of output. Only the engine's mixer
+ * thread touches an instance, so nothing here is synchronized.
+ */
+final class ClipMixer {
+	static final class Voice {
+		private final PcmClip clip;
+		private final Optional<Runnable> onFinished;
+		private final long triggerTime;
+		private int position = 0;
+
+		Voice(PcmClip clip, Optional<Runnable> onFinished, long triggerTime) {
+			this.clip = clip;
+			this.onFinished = onFinished;
+			this.triggerTime = triggerTime;
+		}
+
+		long getTriggerTime() {
+			return triggerTime;
+		}
+
+		Optional<Runnable> getOnFinished() {
+			return onFinished;
+		}
+
+		boolean isStarted() {
+			return position > 0;
+		}
+	}
+
+	private final List<Voice> voices = new ArrayList<>();
+	private int[] accumulator = new int[0];
+
+	void add(Voice voice) {
+		voices.add(voice);
+	}
+
+	boolean isIdle() {
+		return voices.isEmpty();
+	}
+
+	int getVoiceCount() {
+		return voices.size();
+	}
+
+	/**
+	 * Mix the next chunk of every voice into <code>chunk</code> as
+	 * little-endian 16-bit samples, clamping rather than wrapping where voices
+	 * overlap loudly. The whole chunk is always filled, with silence after the
+	 * last voice ends.
+	 * 
+	 * @param started
+	 *            receives the voices whose first samples are in this chunk
+	 * @param finished
+	 *            receives the voices whose last samples are in this chunk,
+	 *            which are no longer mixed afterwards
+	 */
+	void mix(byte[] chunk, List<Voice> started, List<Voice> finished) {
+		final int sampleCount = chunk.length / 2;
+		if (accumulator.length != sampleCount) accumulator = new int[sampleCount];
+
+		for (int i = 0; i < sampleCount; i++)
+			accumulator[i] = 0;
+
+		final Iterator<Voice> it = voices.iterator();
+		while (it.hasNext()) {
+			final Voice voice = it.next();
+			final short[] samples = voice.clip.getSamples();
+
+			if (!voice.isStarted()) started.add(voice);
+
+			final int count = Math.min(sampleCount, samples.length - voice.position);
+			for (int i = 0; i < count; i++) {
+				accumulator[i] += samples[voice.position + i];
+			}
+
+			voice.position += count;
+
+			if (voice.position >= samples.length) {
+				it.remove();
+				finished.add(voice);
+			}
+		}
+
+		for (int i = 0; i < sampleCount; i++) {
+			final int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, accumulator[i]));
+
+			chunk[i * 2] = (byte) sample;
+			chunk[i * 2 + 1] = (byte) (sample >> 8);
+		}
+	}
+}
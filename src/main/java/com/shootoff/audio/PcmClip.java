@@ -0,0 +1,179 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A sound decoded once into signed 16-bit stereo PCM at the sample rate of the
+ * engine's output line, so playing it is only a matter of mixing samples.
+ * Clips are immutable and may be played by any number of voices at once.
+ */
+public final class PcmClip {
+	public static final AudioFormat OUTPUT_FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+
+	private static final int OUTPUT_CHANNELS = OUTPUT_FORMAT.getChannels();
+
+	// Interleaved left and right samples
+	private final short[] samples;
+	private final long lastModified;
+
+	PcmClip(short[] samples, long lastModified) {
+		this.samples = samples;
+		this.lastModified = lastModified;
+	}
+
+	public static PcmClip decode(File soundFile) throws IOException, UnsupportedAudioFileException {
+		final long lastModified = soundFile.lastModified();
+
+		try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(soundFile)) {
+			return decode(audioInputStream, lastModified);
+		}
+	}
+
+	public static PcmClip decode(AudioInputStream audioInputStream) throws IOException, UnsupportedAudioFileException {
+		return decode(audioInputStream, 0);
+	}
+
+	private static PcmClip decode(AudioInputStream audioInputStream, long lastModified)
+			throws IOException, UnsupportedAudioFileException {
+		final AudioFormat sourceFormat = audioInputStream.getFormat();
+		final int channels = sourceFormat.getChannels();
+		final float sampleRate = sourceFormat.getSampleRate();
+
+		AudioInputStream pcmStream = audioInputStream;
+		if (!AudioFormat.Encoding.PCM_SIGNED.equals(sourceFormat.getEncoding())
+				|| sourceFormat.getSampleSizeInBits() != 16 || sourceFormat.isBigEndian()) {
+			final AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, 16, channels,
+					channels * 2, sampleRate, false);
+
+			if (!AudioSystem.isConversionSupported(pcmFormat, sourceFormat)) {
+				throw new UnsupportedAudioFileException("Can't convert " + sourceFormat + " to 16-bit PCM");
+			}
+
+			pcmStream = AudioSystem.getAudioInputStream(pcmFormat, audioInputStream);
+		}
+
+		final ByteArrayOutputStream pcmBytes = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[16 * 1024];
+		int bytesRead;
+		while ((bytesRead = pcmStream.read(buffer)) != -1) {
+			pcmBytes.write(buffer, 0, bytesRead);
+		}
+
+		final short[] stereo = toStereo(pcmBytes.toByteArray(), channels);
+
+		return new PcmClip(resample(stereo, sampleRate, OUTPUT_FORMAT.getSampleRate()), lastModified);
+	}
+
+	/**
+	 * Converts little-endian 16-bit samples to interleaved stereo. Mono is
+	 * copied to both channels and any channels past the second are dropped.
+	 */
+	static short[] toStereo(byte[] pcm, int channels) {
+		final int frames = pcm.length / (channels * 2);
+		final short[] stereo = new short[frames * OUTPUT_CHANNELS];
+
+		for (int frame = 0; frame < frames; frame++) {
+			final int offset = frame * channels * 2;
+			final short left = (short) ((pcm[offset] & 0xFF) | (pcm[offset + 1] << 8));
+			final short right = channels == 1 ? left : (short) ((pcm[offset + 2] & 0xFF) | (pcm[offset + 3] << 8));
+
+			stereo[frame * OUTPUT_CHANNELS] = left;
+			stereo[frame * OUTPUT_CHANNELS + 1] = right;
+		}
+
+		return stereo;
+	}
+
+	/**
+	 * Linearly interpolates interleaved stereo samples to a new rate. This is
+	 * crude compared to a windowed sinc, but the clips are short effects and
+	 * it only runs once per clip.
+	 */
+	static short[] resample(short[] stereo, float sourceRate, float targetRate) {
+		if (sourceRate == targetRate) return stereo;
+
+		final int sourceFrames = stereo.length / OUTPUT_CHANNELS;
+		if (sourceFrames == 0) return stereo;
+
+		final double step = sourceRate / targetRate;
+		final int targetFrames = (int) (sourceFrames / step);
+		final short[] resampled = new short[targetFrames * OUTPUT_CHANNELS];
+
+		for (int frame = 0; frame < targetFrames; frame++) {
+			final double position = frame * step;
+			final int index = Math.min((int) position, sourceFrames - 1);
+			final int next = Math.min(index + 1, sourceFrames - 1);
+			final double fraction = position - index;
+
+			for (int channel = 0; channel < OUTPUT_CHANNELS; channel++) {
+				final short a = stereo[index * OUTPUT_CHANNELS + channel];
+				final short b = stereo[next * OUTPUT_CHANNELS + channel];
+
+				resampled[frame * OUTPUT_CHANNELS + channel] = (short) Math.round(a + (b - a) * fraction);
+			}
+		}
+
+		return resampled;
+	}
+
+	/**
+	 * @return a stream of this clip in {@link #OUTPUT_FORMAT} for playing it
+	 *         somewhere other than the audio engine
+	 */
+	public AudioInputStream getAudioInputStream() {
+		final byte[] pcm = new byte[samples.length * 2];
+
+		for (int i = 0; i < samples.length; i++) {
+			pcm[i * 2] = (byte) samples[i];
+			pcm[i * 2 + 1] = (byte) (samples[i] >> 8);
+		}
+
+		return new AudioInputStream(new ByteArrayInputStream(pcm), OUTPUT_FORMAT, getFrameCount());
+	}
+
+	short[] getSamples() {
+		return samples;
+	}
+
+	long getLastModified() {
+		return lastModified;
+	}
+
+	public int getFrameCount() {
+		return samples.length / OUTPUT_CHANNELS;
+	}
+
+	public long getDurationMillis() {
+		return (long) (getFrameCount() * 1000 / OUTPUT_FORMAT.getSampleRate());
+	}
+
+	public long getSize() {
+		return samples.length * 2L;
+	}
+}
@@ -23,5 +23,5 @@ import java.awt.image.BufferedImage;
 public interface CameraDebuggerListener {
 	public void updateDebugView(BufferedImage thresholdImg);
 
-	public void updateFeedData(double fps);
+	public void updateFeedData(double fps, FrameIntervalHistogram.Summary frameIntervals);
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,8 +58,9 @@ public final class CameraFactory {
 	// This list contains cameras that are not discoverable by webcam-capture
 	// because they are non-UVC cameras with no webcam-capture driver (e.g.
 	// Omnitrack). Adding such cameras to this list ensures they are returned
-	// by CameraFactory.getWebcams().
-	private final static List<Camera> registeredCameras = new ArrayList<>();
+	// by CameraFactory.getWebcams(). Cameras register from startup threads
+	// while others may be enumerating them.
+	private final static List<Camera> registeredCameras = new CopyOnWriteArrayList<>();
 
 	public static void registerCamera(Camera camera) {
 		registeredCameras.add(camera);
@@ -106,9 +108,7 @@ public final class CameraFactory {
 			else
 				defaultCam = new SarxosCaptureCamera(defaultWebcam.getName());
 		} else {
-			final Webcam cam = Webcam.getDefault();
-
-			defaultCam = cam == null ? null : new SarxosCaptureCamera(cam.getName());
+			defaultCam = CameraRegistry.getRegistry().getDefault().orElse(null);
 		}
 
 		if (defaultCam == null && !registeredCameras.isEmpty()) {
@@ -118,9 +118,27 @@ public final class CameraFactory {
 		return Optional.ofNullable(defaultCam);
 	}
 
+	/**
+	 * @return the cameras webcam-capture can see plus registered cameras.
+	 *         Webcams come from the {@link CameraRegistry} so this doesn't
+	 *         probe devices.
+	 */
 	public static List<Camera> getWebcams() {
 		if (isMac) return knownWebcams;
 
+		final List<Camera> webcams = new ArrayList<>(CameraRegistry.getRegistry().getCameras());
+		webcams.addAll(registeredCameras);
+
+		return webcams;
+	}
+
+	/**
+	 * Probe for every camera webcam-capture can see, which can take a while.
+	 * Use {@link #getWebcams()} instead.
+	 */
+	static List<Camera> discoverWebcams() {
+		if (isMac) return knownWebcams;
+
 		final List<Camera> webcams = new ArrayList<>();
 
 		int cameraIndex = 0;
@@ -148,8 +166,6 @@ public final class CameraFactory {
 			cameraIndex++;
 		}
 
-		webcams.addAll(registeredCameras);
-
 		return webcams;
 	}
 
@@ -20,7 +20,6 @@ package com.shootoff.camera;
 
 import java.awt.Dimension;
 import java.awt.Point;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -29,6 +28,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.opencv.core.CvException;
@@ -53,14 +53,14 @@ import com.shootoff.camera.shotdetection.JavaShotDetector;
 import com.shootoff.camera.shotdetection.ShotDetector;
 import com.shootoff.camera.shotdetection.ShotYieldingShotDetector;
 import com.shootoff.config.Configuration;
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
 import com.shootoff.util.TimerPool;
 import com.xuggle.mediatool.IMediaWriter;
 import com.xuggle.mediatool.ToolFactory;
 import com.xuggle.xuggler.ICodec;
-import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IVideoPicture;
-import com.xuggle.xuggler.video.ConverterFactory;
-import com.xuggle.xuggler.video.IConverter;
 
 import com.shootoff.util.SwingFXUtils;
 import javafx.geometry.Bounds;
@@ -79,6 +79,13 @@ import javafx.scene.paint.Color;
 public class CameraManager implements ObservableCloseable, CameraEventListener, CameraCalibrationListener {
 	private static final int MAXIMUM_CONSECUTIVE_CAMERA_ERRORS = 5;
 	private static final Logger logger = LoggerFactory.getLogger(CameraManager.class);
+
+	private static final LatencyHistogram handleFrameTime = MetricsRegistry.getRegistry()
+			.histogram("camera.handleFrame");
+	private static final LatencyHistogram streamRecordTime = MetricsRegistry.getRegistry()
+			.histogram("recorder.stream.recordFrame");
+	private static final Counter frameCounter = MetricsRegistry.getRegistry().counter("camera.frames");
+	private static final Counter invalidFrameCounter = MetricsRegistry.getRegistry().counter("camera.invalidFrames");
 	public static final int DEFAULT_FEED_WIDTH = 640;
 	public static final int DEFAULT_FEED_HEIGHT = 480;
 	public static final int MIN_SHOT_DETECTION_FPS = 5;
@@ -93,6 +100,11 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 	protected final ShotDetector shotDetector;
 	private long startTime = 0;
 
+	private final FrameIntervalHistogram frameIntervals = new FrameIntervalHistogram();
+	// Summarizing updates the histogram's state, so monitoring only reads
+	// the summary last computed on the capture thread
+	private volatile long droppedFrames = 0;
+
 	protected final Camera camera;
 	private final Optional<CameraErrorView> cameraErrorView;
 	private Optional<CloseListener> closeListener = Optional.empty();
@@ -128,6 +140,9 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 	protected AutoCalibrationManager acm = null;
 	private final AtomicBoolean isAutoCalibrating = new AtomicBoolean(false);
 	protected boolean cameraAutoCalibrated = false;
+	// ms between the projector showing an image and this camera seeing it,
+	// measured during auto-calibration
+	private volatile long projectorDelay = -1;
 
 	protected final DeduplicationProcessor deduplicationProcessor = new DeduplicationProcessor(this);
 
@@ -163,6 +178,16 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 		if (shotDetector == null) logger.error("No suitable shot detector found for camera {}", camera.getName());
 
+		MetricsRegistry.getRegistry().gauge(getFPSMetricName(), this::getFPS);
+		MetricsRegistry.getRegistry().gauge(getDroppedFramesMetricName(), () -> droppedFrames);
+	}
+
+	private String getFPSMetricName() {
+		return "camera." + camera.getName() + ".fps";
+	}
+
+	private String getDroppedFramesMetricName() {
+		return "camera." + camera.getName() + ".droppedFrames";
 	}
 
 	public String getName() {
@@ -253,7 +278,7 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 	// Used by click-to-shoot and tests to inject a shot via the shot detector
 	public void injectShot(ShotColor color, double x, double y, boolean scaleShot) {
-		shotDetector.addShot(color, x, y, System.currentTimeMillis(), scaleShot);
+		shotDetector.addShot(color, x, y, System.nanoTime(), scaleShot);
 	}
 
 	public void clearShots() {
@@ -293,6 +318,9 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 		if (recordingCalibratedArea) stopRecordingCalibratedArea();
 
+		MetricsRegistry.getRegistry().removeGauge(getFPSMetricName());
+		MetricsRegistry.getRegistry().removeGauge(getDroppedFramesMetricName());
+
 		if (closeListener.isPresent()) closeListener.get().closing();
 	}
 
@@ -381,6 +409,16 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		return projectionBounds;
 	}
 
+	/**
+	 * @return the delay between the projector showing an image and this camera
+	 *         seeing it in milliseconds, if auto-calibration measured it
+	 */
+	public Optional<Long> getProjectorDelay() {
+		if (projectorDelay < 0) return Optional.empty();
+
+		return Optional.of(projectorDelay);
+	}
+
 	public void startRecordingStream(File videoFile) {
 		if (logger.isDebugEnabled()) logger.debug("Writing Video Feed To: {}", videoFile.getAbsoluteFile());
 		videoWriterStream = ToolFactory.makeWriter(videoFile.getName());
@@ -506,7 +544,15 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 	@Override
 	public void newFrame(Frame frame, boolean shouldDedistort) {
-		if (!handleFrame(frame, shouldDedistort)) logger.warn("Invalid frame yielded from {}", camera.getName());
+		final long handleStartTime = System.nanoTime();
+		final boolean validFrame = handleFrame(frame, shouldDedistort);
+		handleFrameTime.recordSince(handleStartTime);
+		frameCounter.increment();
+
+		if (!validFrame) {
+			invalidFrameCounter.increment();
+			logger.warn("Invalid frame yielded from {}", camera.getName());
+		}
 	}
 
 	private int consecutiveCameraErrors = 0;
@@ -545,7 +591,9 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 			consecutiveCameraErrors = 0;
 		}
 
-		BufferedImage currentImage = processFrame(currentFrame, shouldDedistort);
+		frameIntervals.record(currentFrame.getCaptureTime());
+
+		Frame displayFrame = processFrame(currentFrame, shouldDedistort);
 
 		Bounds b;
 
@@ -558,12 +606,14 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		}
 
 		if (cropFeedToProjection && b != null) {
-			currentImage = currentImage.getSubimage((int) b.getMinX(), (int) b.getMinY(), (int) b.getWidth(),
-					(int) b.getHeight());
+			final int minX = (int) b.getMinX();
+			final int minY = (int) b.getMinY();
+			displayFrame = new Frame(displayFrame.getOriginalMat().submat(minY, minY + (int) b.getHeight(), minX,
+					minX + (int) b.getWidth()), displayFrame.getCaptureTime(), TimeUnit.NANOSECONDS);
 		}
 
 		if (recordingShots) {
-			rollingRecorder.recordFrame(currentImage);
+			rollingRecorder.recordFrame(displayFrame);
 
 			final List<Shot> removeKeys = new ArrayList<>();
 			for (final Entry<Shot, ShotRecorder> r : shotRecorders.entrySet()) {
@@ -571,7 +621,7 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 					r.getValue().close();
 					removeKeys.add(r.getKey());
 				} else {
-					r.getValue().recordFrame(currentImage);
+					r.getValue().recordFrame(displayFrame);
 				}
 			}
 
@@ -580,36 +630,40 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		}
 
 		if (recordingStream) {
-			final BufferedImage image = ConverterFactory.convertToType(currentImage, BufferedImage.TYPE_3BYTE_BGR);
-			final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
-
-			final IVideoPicture frame = converter.toPicture(image,
-					(System.currentTimeMillis() - recordingStartTime) * 1000);
+			final long recordStartTime = System.nanoTime();
+			final IVideoPicture frame = displayFrame
+					.getVideoPicture((System.currentTimeMillis() - recordingStartTime) * 1000);
 			frame.setKeyFrame(isFirstStreamFrame);
 			frame.setQuality(0);
 			isFirstStreamFrame = false;
 
 			videoWriterStream.encodeVideo(0, frame);
+			streamRecordTime.recordSince(recordStartTime);
 		}
 
 		if (!config.isHeadless()) {
 			if (cropFeedToProjection && projectionBounds.isPresent()) {
-				cameraView.updateBackground(currentImage, projectionBounds);
+				cameraView.updateBackground(displayFrame.getOriginalBufferedImage(), projectionBounds);
 			} else {
-				cameraView.updateBackground(currentImage, Optional.empty());
+				cameraView.updateBackground(displayFrame.getOriginalBufferedImage(), Optional.empty());
 			}
 		}
 
 		return true;
 	}
 
-	protected BufferedImage processFrame(Frame currentFrame, boolean shouldDedistort) {
+	/**
+	 * @return the frame to show the user and record, which may be an
+	 *         undistorted copy of <code>currentFrame</code>
+	 */
+	protected Frame processFrame(Frame currentFrame, boolean shouldDedistort) {
 		if (isAutoCalibrating.get()) {
 			acm.processFrame(currentFrame);
-			return currentFrame.getOriginalBufferedImage();
+			return currentFrame;
 		}
 
 		Mat submatFrameBGR = null;
+		Frame submatFrame = null;
 
 		Bounds projectionBounds;
 
@@ -637,13 +691,14 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 						+ currentFrame.getOriginalMat().size().toString(), e);
 			}
 			
-			if (recordingCalibratedArea) {
-				final BufferedImage image = ConverterFactory.convertToType(Camera.matToBufferedImage(submatFrameBGR),
-						BufferedImage.TYPE_3BYTE_BGR);
-				final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
-
-				final IVideoPicture frame = converter.toPicture(image,
-						(System.currentTimeMillis() - recordingCalibratedAreaStartTime) * 1000);
+			// The submat frame is shared by recording, the debugger, and shot
+			// detection so that each conversion of it is done once
+			if (submatFrameBGR != null)
+				submatFrame = new Frame(submatFrameBGR, currentFrame.getCaptureTime(), TimeUnit.NANOSECONDS);
+
+			if (recordingCalibratedArea && submatFrame != null) {
+				final IVideoPicture frame = submatFrame
+						.getVideoPicture((System.currentTimeMillis() - recordingCalibratedAreaStartTime) * 1000);
 				frame.setKeyFrame(isFirstCalibratedAreaFrame);
 				frame.setQuality(0);
 				isFirstCalibratedAreaFrame = false;
@@ -651,17 +706,18 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 				videoWriterCalibratedArea.encodeVideo(0, frame);
 			}
 
-			if (debuggerListener.isPresent()) {
-				debuggerListener.get().updateDebugView(Camera.matToBufferedImage(submatFrameBGR));
+			if (debuggerListener.isPresent() && submatFrame != null) {
+				debuggerListener.get().updateDebugView(submatFrame.getOriginalBufferedImage());
 			}
 		}
 
 		if ((isLimitingDetectionToProjection() || isCroppingFeedToProjection()) && projectionBounds != null) {
-			if (submatFrameBGR == null) {
+			if (submatFrame == null) {
 				try {
 					submatFrameBGR = currentFrame.getOriginalMat().submat((int) projectionBounds.getMinY(),
 							(int) projectionBounds.getMaxY(), (int) projectionBounds.getMinX(),
 							(int) projectionBounds.getMaxX());
+					submatFrame = new Frame(submatFrameBGR, currentFrame.getCaptureTime(), TimeUnit.NANOSECONDS);
 				} catch (CvException e) {
 					logger.error("Failed to get submat for frame to limit detection bounds, projectionBounds = "
 							+ projectionBounds.toString() + ", frameSize = "
@@ -670,9 +726,8 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 			}
 
 			if (shotDetector instanceof FrameProcessingShotDetector) {
-				if (submatFrameBGR != null) {
-					((FrameProcessingShotDetector) shotDetector)
-							.processFrame(new Frame(submatFrameBGR, currentFrame.getTimestamp()), isDetecting.get());
+				if (submatFrame != null) {
+					((FrameProcessingShotDetector) shotDetector).processFrame(submatFrame, isDetecting.get());
 				} else {
 					logger.warn("Due to errors fetching frame submat, falling back to using full frame");
 					((FrameProcessingShotDetector) shotDetector).processFrame(currentFrame, isDetecting.get());
@@ -683,9 +738,8 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 				((FrameProcessingShotDetector) shotDetector).processFrame(currentFrame, isDetecting.get());
 		}
 
-		// currentFrame is showing the colored pixels for brightness and motion,
-		// hence why we need to return the converted version
-		return currentFrame.getOriginalBufferedImage();
+		// currentFrame is showing the colored pixels for brightness and motion
+		return currentFrame;
 	}
 
 	private void checkIfMinimumFPS(double cameraFPS) {
@@ -750,6 +804,7 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 					paperDims.isPresent());
 
 			cameraAutoCalibrated = true;
+			if (delay > -1) projectorDelay = delay;
 			cameraCalibrationListener.calibrate(arenaBounds, paperDims, false, delay);
 
 			if (recordCalibratedArea && !recordingCalibratedArea)
@@ -796,18 +851,38 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		return camera.getFrameCount();
 	}
 
-	public long cameraTimeToShotTime(long timestamp) {
+	public FrameIntervalHistogram getFrameIntervals() {
+		return frameIntervals;
+	}
+
+	/**
+	 * Convert a capture time to the shot timer's time. This is the only place
+	 * capture times are converted to milliseconds.
+	 *
+	 * @param captureTime
+	 *            the time a frame was captured on the {@link System#nanoTime()}
+	 *            clock
+	 * @return the milliseconds since the shot timer was last reset
+	 */
+	public long cameraTimeToShotTime(long captureTime) {
 		if (startTime == 0) {
-			resetStartTime(timestamp);
+			resetStartTime(captureTime);
 			return 0;
 		}
 
-		return timestamp - startTime;
+		return TimeUnit.NANOSECONDS.toMillis(captureTime - startTime);
 	}
 
 	@Override
 	public void newFPS(double cameraFPS) {
-		if (debuggerListener.isPresent()) debuggerListener.get().updateFeedData(cameraFPS);
+		// Summarizing also refreshes the interval used to estimate dropped
+		// frames, so it happens even when nobody is looking
+		final FrameIntervalHistogram.Summary intervals = frameIntervals.summarize();
+		droppedFrames = intervals.getDroppedFrames();
+
+		if (logger.isTraceEnabled()) logger.trace("Frame intervals for {}: {}", camera.getName(), intervals);
+
+		if (debuggerListener.isPresent()) debuggerListener.get().updateFeedData(cameraFPS, intervals);
 
 		checkIfMinimumFPS(cameraFPS);
 	}
@@ -0,0 +1,319 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.cameratypes.Camera;
+import com.shootoff.util.SystemInfo;
+
+/**
+ * Keeps the list of cameras webcam-capture can see so that listing cameras
+ * doesn't probe every device each time. Devices are discovered once, and on
+ * Linux a watcher cheaply polls <code>/dev/video*</code> and only discovers
+ * again when that changes. Elsewhere the list changes only on
+ * {@link #refresh()} or {@link #requestRefresh()}. Cameras that are still
+ * present keep the same instance across discoveries.
+ * 
+ * Each camera's thumbnail and capabilities are probed once, one camera at a
+ * time on the registry's thread, and kept until the device disappears.
+ */
+public final class CameraRegistry {
+	private static final Logger logger = LoggerFactory.getLogger(CameraRegistry.class);
+
+	private static final long HOTPLUG_POLL_INTERVAL = 2000; // ms
+	private static final File DEVICE_DIRECTORY = new File("/dev");
+	private static final String VIDEO_DEVICE_PREFIX = "video";
+
+	private static final CameraRegistry registry = new CameraRegistry(CameraFactory::discoverWebcams,
+			SystemInfo.isLinux() ? CameraRegistry::listVideoDevices : Optional::empty);
+
+	public interface CameraRegistryListener {
+		void camerasChanged(List<Camera> cameras);
+	}
+
+	/**
+	 * What was learned about a camera by opening it once.
+	 */
+	public static final class CameraInfo {
+		private final Optional<BufferedImage> thumbnail;
+		private final Optional<Dimension> viewSize;
+		private final boolean isMonochrome;
+		private final boolean supportsExposureAdjustment;
+		private final boolean limitsFrames;
+
+		CameraInfo(Optional<BufferedImage> thumbnail, Optional<Dimension> viewSize, boolean isMonochrome,
+				boolean supportsExposureAdjustment, boolean limitsFrames) {
+			this.thumbnail = thumbnail;
+			this.viewSize = viewSize;
+			this.isMonochrome = isMonochrome;
+			this.supportsExposureAdjustment = supportsExposureAdjustment;
+			this.limitsFrames = limitsFrames;
+		}
+
+		public Optional<BufferedImage> getThumbnail() {
+			return thumbnail;
+		}
+
+		public Optional<Dimension> getViewSize() {
+			return viewSize;
+		}
+
+		public boolean isMonochrome() {
+			return isMonochrome;
+		}
+
+		public boolean supportsExposureAdjustment() {
+			return supportsExposureAdjustment;
+		}
+
+		public boolean limitsFrames() {
+			return limitsFrames;
+		}
+	}
+
+	private final Supplier<List<Camera>> discoverer;
+	private final Supplier<Optional<Set<String>>> deviceLister;
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((r) -> {
+		final Thread thread = new Thread(r, "CameraRegistry");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Object discoveryLock = new Object();
+	private volatile List<Camera> cameras = null;
+	private Optional<Set<String>> lastDevices = Optional.empty(); // Guarded by discoveryLock
+
+	private final Map<Camera, CameraInfo> infos = new ConcurrentHashMap<>();
+	private final List<CameraRegistryListener> listeners = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+	private boolean watching = false;
+
+	/**
+	 * @param discoverer
+	 *            probes for every camera, which may be slow
+	 * @param deviceLister
+	 *            cheaply lists the devices present, or returns empty if that
+	 *            isn't possible on this platform
+	 */
+	CameraRegistry(Supplier<List<Camera>> discoverer, Supplier<Optional<Set<String>>> deviceLister) {
+		this.discoverer = discoverer;
+		this.deviceLister = deviceLister;
+	}
+
+	public static CameraRegistry getRegistry() {
+		return registry;
+	}
+
+	private static Optional<Set<String>> listVideoDevices() {
+		final String[] devices = DEVICE_DIRECTORY.list((dir, name) -> name.startsWith(VIDEO_DEVICE_PREFIX));
+
+		if (devices == null) return Optional.empty();
+
+		final Set<String> deviceSet = new TreeSet<>();
+		Collections.addAll(deviceSet, devices);
+
+		return Optional.of(deviceSet);
+	}
+
+	/**
+	 * Discover cameras if that hasn't happened yet and start watching for
+	 * cameras being plugged in or removed where that is supported.
+	 */
+	public synchronized void start() {
+		getCameras();
+
+		if (watching || !lastDevices.isPresent()) return;
+		watching = true;
+
+		executor.scheduleWithFixedDelay(this::pollDevices, HOTPLUG_POLL_INTERVAL, HOTPLUG_POLL_INTERVAL,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the discovered cameras, discovering them first if that hasn't
+	 *         happened yet
+	 */
+	public List<Camera> getCameras() {
+		final List<Camera> current = cameras;
+		if (current != null) return current;
+
+		synchronized (discoveryLock) {
+			if (cameras == null) discover();
+
+			return cameras;
+		}
+	}
+
+	/**
+	 * Probe for cameras again on the registry's thread, e.g. after an IP
+	 * camera was added. Requests made while a refresh is waiting to run are
+	 * handled by that refresh. Listeners are notified if the cameras changed.
+	 */
+	public void requestRefresh() {
+		if (!refreshPending.compareAndSet(false, true)) return;
+
+		executor.execute(() -> {
+			refreshPending.set(false);
+			refresh();
+		});
+	}
+
+	/**
+	 * Probe for cameras again on the calling thread, which may take a while.
+	 */
+	public void refresh() {
+		final boolean changed;
+		synchronized (discoveryLock) {
+			changed = discover();
+		}
+
+		if (changed) notifyListeners();
+	}
+
+	void pollDevices() {
+		final Optional<Set<String>> devices = deviceLister.get();
+
+		synchronized (discoveryLock) {
+			if (devices.equals(lastDevices)) return;
+		}
+
+		if (logger.isDebugEnabled()) logger.debug("Video devices changed to {}, discovering cameras", devices);
+
+		refresh();
+	}
+
+	// Must hold discoveryLock
+	private boolean discover() {
+		lastDevices = deviceLister.get();
+
+		final long startTime = System.currentTimeMillis();
+		final List<Camera> discovered = discoverer.get();
+		final List<Camera> previous = cameras == null ? Collections.emptyList() : cameras;
+		final List<Camera> merged = new ArrayList<>(discovered.size());
+
+		// Keep the instances of cameras that are still present because they
+		// may be open
+		for (final Camera camera : discovered) {
+			final int i = previous.indexOf(camera);
+			merged.add(i >= 0 ? previous.get(i) : camera);
+		}
+
+		infos.keySet().retainAll(merged);
+		cameras = Collections.unmodifiableList(merged);
+
+		if (logger.isDebugEnabled())
+			logger.debug("Discovered {} cameras in {} ms", merged.size(), System.currentTimeMillis() - startTime);
+
+		return !merged.equals(previous);
+	}
+
+	private void notifyListeners() {
+		final List<Camera> current = cameras;
+
+		for (final CameraRegistryListener listener : listeners) {
+			listener.camerasChanged(current);
+		}
+	}
+
+	public Optional<Camera> getDefault() {
+		final List<Camera> current = getCameras();
+
+		return current.isEmpty() ? Optional.empty() : Optional.of(current.get(0));
+	}
+
+	public void addListener(CameraRegistryListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(CameraRegistryListener listener) {
+		listeners.remove(listener);
+	}
+
+	public Optional<CameraInfo> getInfo(Camera camera) {
+		return Optional.ofNullable(infos.get(camera));
+	}
+
+	/**
+	 * Get a camera's thumbnail and capabilities, opening it to probe them on
+	 * the registry's thread if they aren't cached.
+	 * 
+	 * @param callback
+	 *            called with the camera's information, on the registry's
+	 *            thread unless it was already cached
+	 */
+	public void fetchInfo(Camera camera, Consumer<CameraInfo> callback) {
+		final CameraInfo cached = infos.get(camera);
+
+		if (cached != null) {
+			callback.accept(cached);
+			return;
+		}
+
+		executor.execute(() -> {
+			final CameraInfo info = infos.computeIfAbsent(camera, CameraRegistry::probe);
+			callback.accept(info);
+		});
+	}
+
+	private static CameraInfo probe(Camera camera) {
+		synchronized (camera) {
+			boolean cameraOpened = false;
+
+			if (!camera.isOpen()) {
+				camera.setViewSize(new Dimension(CameraManager.DEFAULT_FEED_WIDTH, CameraManager.DEFAULT_FEED_HEIGHT));
+				camera.open();
+				cameraOpened = true;
+			}
+
+			if (!camera.isOpen()) {
+				logger.warn("Couldn't open {} to probe it", camera.getName());
+				return new CameraInfo(Optional.empty(), Optional.empty(), false, false, camera.limitsFrames());
+			}
+
+			final CameraInfo info = new CameraInfo(Optional.ofNullable(camera.getBufferedImage()),
+					Optional.ofNullable(camera.getViewSize()), camera.isMonochrome(),
+					camera.supportsExposureAdjustment(), camera.limitsFrames());
+
+			if (cameraOpened) camera.close();
+
+			return info;
+		}
+	}
+}
@@ -1,32 +1,101 @@
 package com.shootoff.camera;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
 
 import org.opencv.core.Mat;
 import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
 
 import com.shootoff.camera.cameratypes.Camera;
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
+import com.xuggle.xuggler.IPixelFormat;
+import com.xuggle.xuggler.IVideoPicture;
+import com.xuggle.xuggler.video.ConverterFactory;
 
+/**
+ * A frame from a camera along with the time it was captured. Cameras stamp
+ * frames with {@link System#nanoTime()} as they are grabbed so that frame
+ * intervals and shot times are not skewed by wall clock adjustments or
+ * millisecond granularity.
+ * 
+ * Conversions of the frame (e.g. to a {@link BufferedImage} or to HSV) are
+ * computed the first time they are requested and then shared by every other
+ * consumer of the same frame. Whoever changes the frame's pixels must call
+ * {@link #invalidateDerivedViews()} afterwards.
+ */
 public class Frame {
+	private static final Counter conversionCounter = MetricsRegistry.getRegistry().counter("frame.conversions");
+	private static final Counter avoidedConversionCounter = MetricsRegistry.getRegistry()
+			.counter("frame.conversionsAvoided");
+
 	protected Mat mat;
-	final protected long timestamp;
+	final protected long captureTime;
+
+	private BufferedImage bufferedImage;
+	private BufferedImage recordingImage;
+	private IVideoPicture videoPicture;
+	private Mat hsvMat;
 
+	/**
+	 * @param timestamp
+	 *            the capture time in milliseconds
+	 */
 	public Frame(Mat mat, long timestamp) {
+		this(mat, timestamp, TimeUnit.MILLISECONDS);
+	}
+
+	public Frame(Mat mat, long captureTime, TimeUnit unit) {
 		this.mat = mat;
-		this.timestamp = timestamp;
+		this.captureTime = unit.toNanos(captureTime);
 	}
 
+	/**
+	 * @param timestamp
+	 *            the capture time in milliseconds
+	 */
 	public Frame(BufferedImage bimg, long timestamp) {
+		this(bimg, timestamp, TimeUnit.MILLISECONDS);
+	}
+
+	public Frame(BufferedImage bimg, long captureTime, TimeUnit unit) {
 		mat = Camera.bufferedImageToMat(bimg);
-		this.timestamp = timestamp;
+		this.captureTime = unit.toNanos(captureTime);
 	}
 
 	public void setMat(Mat mat) {
 		this.mat = mat;
+		invalidateDerivedViews();
 	}
 
+	/**
+	 * Drop every conversion computed so far because the frame's pixels
+	 * changed.
+	 */
+	public synchronized void invalidateDerivedViews() {
+		bufferedImage = null;
+		recordingImage = null;
+		videoPicture = null;
+
+		if (hsvMat != null) {
+			hsvMat.release();
+			hsvMat = null;
+		}
+	}
+
+	/**
+	 * @return the capture time of this frame in milliseconds
+	 */
 	public long getTimestamp() {
-		return timestamp;
+		return TimeUnit.NANOSECONDS.toMillis(captureTime);
+	}
+
+	/**
+	 * @return the capture time of this frame in nanoseconds
+	 */
+	public long getCaptureTime() {
+		return captureTime;
 	}
 
 	public Mat getOriginalMat() {
@@ -37,8 +106,94 @@ public class Frame {
 		return mat.clone();
 	}
 
-	public BufferedImage getOriginalBufferedImage() {
-		return Camera.matToBufferedImage(mat);
+	/**
+	 * @return <code>true</code> if this frame has a single luminance channel
+	 *         (e.g. from an infrared camera) instead of blue, green, and red
+	 *         channels
+	 */
+	public boolean isGrayscale() {
+		return mat.channels() == 1;
+	}
+
+	/**
+	 * @return this frame as a BGR or grayscale image. The image is shared, it
+	 *         must not be modified.
+	 */
+	public synchronized BufferedImage getOriginalBufferedImage() {
+		if (bufferedImage == null) {
+			bufferedImage = Camera.matToBufferedImage(mat);
+			conversionCounter.increment();
+		} else {
+			avoidedConversionCounter.increment();
+		}
+
+		return bufferedImage;
+	}
+
+	/**
+	 * @return this frame in the hue, saturation, value color space. The mat is
+	 *         shared, it must not be modified.
+	 */
+	public synchronized Mat getHSVMat() {
+		if (hsvMat == null) {
+			hsvMat = new Mat();
+			Imgproc.cvtColor(mat, hsvMat, Imgproc.COLOR_BGR2HSV);
+			conversionCounter.increment();
+		} else {
+			avoidedConversionCounter.increment();
+		}
+
+		return hsvMat;
+	}
+
+	/**
+	 * @return this frame as a 3 byte BGR image, which is what video encoders
+	 *         expect even for grayscale frames. The image is shared, it must
+	 *         not be modified.
+	 */
+	public synchronized BufferedImage getRecordingImage() {
+		if (recordingImage == null) {
+			final BufferedImage image = getOriginalBufferedImage();
+
+			if (image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+				recordingImage = image;
+			} else {
+				recordingImage = ConverterFactory.convertToType(image, BufferedImage.TYPE_3BYTE_BGR);
+				conversionCounter.increment();
+			}
+		} else {
+			avoidedConversionCounter.increment();
+		}
+
+		return recordingImage;
+	}
+
+	/**
+	 * Get this frame as a YUV420P picture ready to be encoded. Only the first
+	 * caller pays for the color space conversion, later callers get a copy of
+	 * the converted picture because encoders and recorders hold on to and
+	 * modify the pictures they are given.
+	 * 
+	 * @param timestamp
+	 *            the picture's timestamp in microseconds
+	 */
+	public synchronized IVideoPicture getVideoPicture(long timestamp) {
+		if (videoPicture == null) {
+			final BufferedImage image = getRecordingImage();
+			videoPicture = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P).toPicture(image,
+					timestamp);
+			conversionCounter.increment();
+
+			return videoPicture;
+		}
+
+		final IVideoPicture picture = IVideoPicture.make(videoPicture.getPixelType(), videoPicture.getWidth(),
+				videoPicture.getHeight());
+		picture.copy(videoPicture);
+		picture.setTimeStamp(timestamp);
+		avoidedConversionCounter.increment();
+
+		return picture;
 	}
 
 	public Size size() {
@@ -0,0 +1,170 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the intervals between a camera's most recent frames to report how
+ * evenly frames arrive. Average FPS hides stalls, but a long gap between two
+ * frames is exactly when a short laser pulse can be missed, so the median, 99th
+ * percentile, and largest gap are tracked along with an estimate of how many
+ * frames were dropped.
+ */
+public class FrameIntervalHistogram {
+	public static final int DEFAULT_WINDOW_SIZE = 300;
+
+	// A gap this many times the median interval is assumed to contain
+	// dropped frames
+	private static final double DROPPED_FRAME_FACTOR = 1.5;
+
+	private final long[] intervals;
+	private int intervalCount = 0;
+	private int nextInterval = 0;
+
+	private boolean hasLastCaptureTime = false;
+	private long lastCaptureTime;
+
+	private long expectedInterval = 0;
+	private long droppedFrames = 0;
+
+	public static class Summary {
+		private final int sampleCount;
+		private final long median;
+		private final long percentile99;
+		private final long maxGap;
+		private final long droppedFrames;
+
+		private Summary(int sampleCount, long median, long percentile99, long maxGap, long droppedFrames) {
+			this.sampleCount = sampleCount;
+			this.median = median;
+			this.percentile99 = percentile99;
+			this.maxGap = maxGap;
+			this.droppedFrames = droppedFrames;
+		}
+
+		public int getSampleCount() {
+			return sampleCount;
+		}
+
+		/**
+		 * @return the median frame interval in milliseconds
+		 */
+		public double getMedian() {
+			return median / 1000000.0;
+		}
+
+		/**
+		 * @return the 99th percentile frame interval in milliseconds
+		 */
+		public double get99thPercentile() {
+			return percentile99 / 1000000.0;
+		}
+
+		/**
+		 * @return the longest frame interval in the window in milliseconds
+		 */
+		public double getMaxGap() {
+			return maxGap / 1000000.0;
+		}
+
+		/**
+		 * @return the estimated number of frames dropped since the histogram
+		 *         was last reset
+		 */
+		public long getDroppedFrames() {
+			return droppedFrames;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("p50 %.1f ms, p99 %.1f ms, max gap %.1f ms, ~%d dropped", getMedian(),
+					get99thPercentile(), getMaxGap(), droppedFrames);
+		}
+	}
+
+	public FrameIntervalHistogram() {
+		this(DEFAULT_WINDOW_SIZE);
+	}
+
+	public FrameIntervalHistogram(int windowSize) {
+		intervals = new long[windowSize];
+	}
+
+	/**
+	 * Record the arrival of a new frame.
+	 *
+	 * @param captureTime
+	 *            the frame's capture time from {@link System#nanoTime()}
+	 */
+	public synchronized void record(long captureTime) {
+		if (!hasLastCaptureTime) {
+			hasLastCaptureTime = true;
+			lastCaptureTime = captureTime;
+			return;
+		}
+
+		final long interval = captureTime - lastCaptureTime;
+		lastCaptureTime = captureTime;
+
+		// Frames can be stamped out of order by cameras that hand frames to
+		// another thread, those intervals say nothing about jitter
+		if (interval <= 0) return;
+
+		intervals[nextInterval] = interval;
+		nextInterval = (nextInterval + 1) % intervals.length;
+		if (intervalCount < intervals.length) intervalCount++;
+
+		if (expectedInterval > 0 && interval > expectedInterval * DROPPED_FRAME_FACTOR) {
+			droppedFrames += Math.round((double) interval / (double) expectedInterval) - 1;
+		}
+	}
+
+	/**
+	 * Summarize the intervals currently in the window. This sorts the window,
+	 * so it should be called at a rate similar to FPS updates instead of for
+	 * every frame. The median is also used as the expected interval when
+	 * estimating dropped frames from then on.
+	 */
+	public synchronized Summary summarize() {
+		if (intervalCount == 0) return new Summary(0, 0, 0, 0, droppedFrames);
+
+		final long[] sorted = Arrays.copyOf(intervals, intervalCount);
+		Arrays.sort(sorted);
+
+		final long median = percentile(sorted, 0.5);
+		expectedInterval = median;
+
+		return new Summary(intervalCount, median, percentile(sorted, 0.99), sorted[sorted.length - 1],
+				droppedFrames);
+	}
+
+	public synchronized void reset() {
+		intervalCount = 0;
+		nextInterval = 0;
+		hasLastCaptureTime = false;
+		expectedInterval = 0;
+		droppedFrames = 0;
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import com.shootoff.camera.shot.ShotColor;
+import com.shootoff.metrics.ShotTrace;
 
 import javafx.scene.paint.Color;
 
@@ -51,6 +52,9 @@ public class Shot {
 	
 	protected final long timestamp;
 	protected final int frame;
+
+	// Copies of a shot (e.g. for the arena) share the original's trace
+	private Optional<ShotTrace> trace = Optional.empty();
 	
 	public Shot(Shot shot)
 	{
@@ -59,6 +63,7 @@ public class Shot {
 		this.y = shot.getY();
 		this.timestamp = shot.timestamp;
 		this.frame = shot.frame;
+		this.trace = shot.trace;
 	}
 
 	public Shot(ShotColor color, double x, double y, long timestamp, int frame) {
@@ -110,6 +115,14 @@ public class Shot {
 		return frame;
 	}
 
+	public Optional<ShotTrace> getTrace() {
+		return trace;
+	}
+
+	public void setTrace(ShotTrace trace) {
+		this.trace = Optional.of(trace);
+	}
+
 	
 	public void adjustPOI(double adjX, double adjY)
 	{
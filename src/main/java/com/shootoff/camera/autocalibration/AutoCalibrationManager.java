@@ -23,6 +23,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import org.opencv.calib3d.Calib3d;
 import org.opencv.core.Core;
@@ -163,7 +164,7 @@ public class AutoCalibrationManager {
 		final Mat grayMat = preProcessFrame(frame.getOriginalMat());
 		for (final AutoCalStep step : steps) {
 			if (step.enabled() && !step.completed()) {
-				step.process(new Frame(grayMat, frame.getTimestamp()));
+				step.process(new Frame(grayMat, frame.getCaptureTime(), TimeUnit.NANOSECONDS));
 				break;
 			}
 		}
@@ -0,0 +1,85 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CameraView;
+import com.shootoff.camera.cameratypes.ReplayCamera;
+import com.shootoff.camera.shotdetection.DetectionParameters;
+import com.shootoff.camera.shotdetection.JavaShotDetector;
+import com.shootoff.camera.shotdetection.ShotDetector;
+
+/**
+ * A replay camera that is run by the caller instead of a camera manager
+ * thread and always uses the {@link JavaShotDetector}, optionally with
+ * specific detection parameters.
+ */
+class BatchCamera extends ReplayCamera {
+	private final Optional<DetectionParameters> parameters;
+
+	BatchCamera(File video, Optional<DetectionParameters> parameters) {
+		super(video, "Batch " + video.getName(), Pacing.UNPACED, false);
+		this.parameters = parameters;
+	}
+
+	BatchCamera(RecordedFrames recordedFrames, Optional<DetectionParameters> parameters, boolean loop) {
+		super(recordedFrames, "Batch " + recordedFrames.getSource().getName(), Pacing.UNPACED, loop);
+		this.parameters = parameters;
+	}
+
+	/**
+	 * Open the camera and do what {@link CameraManager#start()} does, minus
+	 * starting a camera thread. Shots are detected once the caller runs the
+	 * camera.
+	 *
+	 * @return <code>false</code> if the camera couldn't be opened
+	 */
+	boolean openForDetection(CameraManager cameraManager) {
+		if (!open()) return false;
+
+		final boolean[][] sectorStatuses = new boolean[JavaShotDetector.SECTOR_ROWS][JavaShotDetector.SECTOR_COLUMNS];
+		for (final boolean[] row : sectorStatuses) {
+			Arrays.fill(row, true);
+		}
+		cameraManager.setSectorStatuses(sectorStatuses);
+		cameraManager.setFeedResolution(getViewSize().width, getViewSize().height);
+		cameraManager.setDetecting(true);
+
+		return true;
+	}
+
+	@Override
+	public ShotDetector getPreferredShotDetector(CameraManager cameraManager, CameraView cameraView) {
+		final JavaShotDetector shotDetector = new JavaShotDetector(cameraManager, cameraView);
+
+		if (parameters.isPresent()) shotDetector.setDetectionParameters(parameters.get());
+
+		// Otherwise shots could still be in flight when the recording ends
+		shotDetector.setNotifySynchronously(true);
+
+		// Nobody sees these frames
+		shotDetector.setShowDiagnosticOverlays(false);
+
+		return shotDetector;
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.Shot;
+import com.shootoff.camera.batch.VideoDetectionResult.DetectedShot;
+
+/**
+ * Runs shot detection over every recording in a directory without starting
+ * the GUI. Each recording gets its own detector on a fork/join pool, so a
+ * directory of range recordings is processed about as many times faster as
+ * there are cores. For each recording, the detected shots are written as CSV
+ * and JSON, and if the recording has expected shots (see
+ * {@link ExpectedShots}) they are compared against what was detected. A
+ * summary with per-recording throughput is written last.
+ */
+public final class BatchDetection {
+	private static final Logger logger = LoggerFactory.getLogger(BatchDetection.class);
+
+	public static final String SUMMARY_FILE = "batch-summary.csv";
+	public static final String SHOTS_CSV_HEADER = "frame,video_time_ms,x,y,color";
+	public static final String SUMMARY_CSV_HEADER = "recording,frames,shots,seconds,fps,matched,missed,wrong_color,"
+			+ "unexpected,passed";
+
+	private static final List<String> VIDEO_EXTENSIONS = Arrays.asList(".mp4", ".avi", ".mkv", ".mov", ".flv");
+
+	private BatchDetection() {}
+
+	/**
+	 * @return every video in <code>directory</code> plus every subdirectory,
+	 *         which are replayed as frame dumps
+	 */
+	public static List<File> findRecordings(File directory, File outputDirectory) {
+		final List<File> recordings = new ArrayList<>();
+		final File[] files = directory.listFiles();
+
+		if (files == null) return recordings;
+
+		for (final File file : files) {
+			if (file.isDirectory()) {
+				if (!file.getAbsoluteFile().equals(outputDirectory.getAbsoluteFile())) recordings.add(file);
+				continue;
+			}
+
+			final String name = file.getName().toLowerCase(Locale.ENGLISH);
+			final int extension = name.lastIndexOf('.');
+			if (extension > 0 && VIDEO_EXTENSIONS.contains(name.substring(extension))) recordings.add(file);
+		}
+
+		recordings.sort(null);
+
+		return recordings;
+	}
+
+	/**
+	 * @param threads
+	 *            how many recordings to process at once
+	 * @return the process exit code, <code>0</code> if every recording was
+	 *         processed and matched its expected shots
+	 */
+	public static int run(File directory, File outputDirectory, int threads) {
+		final List<File> recordings = findRecordings(directory, outputDirectory);
+
+		if (recordings.isEmpty()) {
+			System.err.println("No recordings found in " + directory.getPath());
+			return 1;
+		}
+
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			System.err.println("Failed to create output directory " + outputDirectory.getPath());
+			return 1;
+		}
+
+		logger.info("Detecting shots in {} recording(s) from {} using {} thread(s)", recordings.size(),
+				directory.getPath(), threads);
+
+		final List<VideoDetectionTask> tasks = new ArrayList<>(recordings.size());
+		for (final File recording : recordings) {
+			tasks.add(new VideoDetectionTask(recording));
+		}
+
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		final long startTime = System.nanoTime();
+
+		try {
+			// invokeAll forks every task but one from inside the pool, so
+			// recordings are spread over all of the pool's workers
+			pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+		} finally {
+			pool.shutdown();
+		}
+
+		final long wallTime = System.nanoTime() - startTime;
+
+		final List<VideoDetectionResult> results = new ArrayList<>(tasks.size());
+		for (final VideoDetectionTask task : tasks) {
+			results.add(task.join());
+		}
+
+		boolean allPassed = true;
+
+		for (final VideoDetectionResult result : results) {
+			if (!result.getError().isPresent()) {
+				try {
+					writeShots(result, outputDirectory);
+				} catch (final IOException e) {
+					logger.error("Failed to write shots for " + result.getVideo().getPath(), e);
+					allPassed = false;
+				}
+			}
+
+			allPassed &= result.passed();
+		}
+
+		try {
+			writeSummary(results, new File(outputDirectory, SUMMARY_FILE));
+		} catch (final IOException e) {
+			logger.error("Failed to write batch detection summary", e);
+			allPassed = false;
+		}
+
+		printSummary(results, wallTime);
+
+		return allPassed ? 0 : 1;
+	}
+
+	private static String getBaseName(File recording) {
+		final String name = recording.getName();
+		final int extension = name.lastIndexOf('.');
+
+		return extension > 0 && !recording.isDirectory() ? name.substring(0, extension) : name;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void writeShots(VideoDetectionResult result, File outputDirectory) throws IOException {
+		final String baseName = getBaseName(result.getVideo());
+		final JSONArray shots = new JSONArray();
+
+		try (PrintWriter csv = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(outputDirectory, baseName + ".shots.csv")), StandardCharsets.UTF_8))) {
+			csv.println(SHOTS_CSV_HEADER);
+
+			for (final DetectedShot detectedShot : result.getShots()) {
+				final Shot shot = detectedShot.getShot();
+
+				csv.println(String.format(Locale.ENGLISH, "%d,%d,%.2f,%.2f,%s", shot.getFrame(),
+						detectedShot.getVideoTime(), shot.getX(), shot.getY(), shot.getColor()));
+
+				final JSONObject jsonShot = new JSONObject();
+				jsonShot.put("frame", shot.getFrame());
+				jsonShot.put("videoTime", detectedShot.getVideoTime());
+				jsonShot.put("x", shot.getX());
+				jsonShot.put("y", shot.getY());
+				jsonShot.put("color", shot.getColor().toString());
+				shots.add(jsonShot);
+			}
+		}
+
+		final JSONObject document = new JSONObject();
+		document.put("recording", result.getVideo().getName());
+		document.put("frames", result.getFrameCount());
+		document.put("processingTimeMs", result.getProcessingTime() / 1000000.0);
+		document.put("fps", result.getFPS());
+		document.put("shots", shots);
+
+		if (result.getComparison().isPresent()) {
+			final ShotComparison comparison = result.getComparison().get();
+			final JSONObject jsonComparison = new JSONObject();
+			jsonComparison.put("passed", comparison.passed());
+			jsonComparison.put("matched", comparison.getMatchedShotCount());
+			jsonComparison.put("missed", toJSON(comparison.getMissedShots()));
+			jsonComparison.put("missedOptional", toJSON(comparison.getMissedOptionalShots()));
+			jsonComparison.put("wrongColor", toJSON(comparison.getWrongColorShots()));
+			jsonComparison.put("unexpected", toJSON(comparison.getUnexpectedShots()));
+			document.put("comparison", jsonComparison);
+		}
+
+		try (Writer json = new OutputStreamWriter(
+				new FileOutputStream(new File(outputDirectory, baseName + ".shots.json")), StandardCharsets.UTF_8)) {
+			document.writeJSONString(json);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONArray toJSON(List<Shot> shots) {
+		final JSONArray jsonShots = new JSONArray();
+
+		for (final Shot shot : shots) {
+			final JSONObject jsonShot = new JSONObject();
+			jsonShot.put("x", shot.getX());
+			jsonShot.put("y", shot.getY());
+			jsonShot.put("color", shot.getColor().toString());
+			jsonShots.add(jsonShot);
+		}
+
+		return jsonShots;
+	}
+
+	private static void writeSummary(List<VideoDetectionResult> results, File summaryFile) throws IOException {
+		try (PrintWriter csv = new PrintWriter(
+				new OutputStreamWriter(new FileOutputStream(summaryFile), StandardCharsets.UTF_8))) {
+			csv.println(SUMMARY_CSV_HEADER);
+
+			for (final VideoDetectionResult result : results) {
+				final String comparison;
+				if (result.getComparison().isPresent()) {
+					final ShotComparison c = result.getComparison().get();
+					comparison = String.format("%d,%d,%d,%d", c.getMatchedShotCount(), c.getMissedShots().size(),
+							c.getWrongColorShots().size(), c.getUnexpectedShots().size());
+				} else {
+					comparison = ",,,";
+				}
+
+				csv.println(String.format(Locale.ENGLISH, "%s,%d,%d,%.3f,%.1f,%s,%b", result.getVideo().getName(),
+						result.getFrameCount(), result.getShots().size(), result.getProcessingTime() / 1000000000.0,
+						result.getFPS(), comparison, result.passed()));
+			}
+		}
+	}
+
+	private static void printSummary(List<VideoDetectionResult> results, long wallTime) {
+		long totalFrames = 0;
+
+		for (final VideoDetectionResult result : results) {
+			totalFrames += result.getFrameCount();
+
+			if (result.getError().isPresent()) {
+				System.out.println(String.format("%s: %s", result.getVideo().getName(), result.getError().get()));
+				continue;
+			}
+
+			final StringBuilder line = new StringBuilder(String.format(Locale.ENGLISH,
+					"%s: %d shots in %d frames, %.1f fps", result.getVideo().getName(), result.getShots().size(),
+					result.getFrameCount(), result.getFPS()));
+
+			if (result.getComparison().isPresent()) {
+				final ShotComparison c = result.getComparison().get();
+				line.append(String.format(", %s (%d matched, %d missed, %d wrong color, %d unexpected)",
+						c.passed() ? "PASSED" : "FAILED", c.getMatchedShotCount(), c.getMissedShots().size(),
+						c.getWrongColorShots().size(), c.getUnexpectedShots().size()));
+			}
+
+			System.out.println(line);
+		}
+
+		final double seconds = wallTime / 1000000000.0;
+		System.out.println(String.format(Locale.ENGLISH,
+				"Processed %d recordings (%d frames) in %.2f s, %.1f fps overall", results.size(), totalFrames,
+				seconds, totalFrames / seconds));
+	}
+}
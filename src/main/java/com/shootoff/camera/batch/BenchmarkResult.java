@@ -0,0 +1,304 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * How fast this machine ran shot detection at each benchmarked resolution,
+ * both for one camera on its own and for as many cameras as there are
+ * processors. A camera is only considered real-time if detection keeps up
+ * with its frame rate with {@link #REAL_TIME_HEADROOM} to spare.
+ */
+public class BenchmarkResult {
+	public enum HardwareStatus {
+		POOR, PASSABLE, EXCELLENT
+	}
+
+	public static final double REAL_TIME_HEADROOM = 1.2;
+
+	// Camera frame rates to recommend, in order of preference. Frame rate is
+	// preferred over resolution because short laser pulses are missed
+	// between frames.
+	public static final int[] CAMERA_FPS = { 30, 15 };
+
+	private static final String MACHINE_PROP = "machine";
+	private static final String VERSION_PROP = "benchmark.version";
+	private static final String RESOLUTIONS_PROP = "resolutions";
+	private static final String SINGLE_CAMERA_FPS_PROP = ".single.fps";
+	private static final String THROUGHPUT_FPS_PROP = ".throughput.fps";
+
+	public static class ResolutionResult {
+		private final int width;
+		private final int height;
+		private final double singleCameraFPS;
+		private final double throughputFPS;
+
+		public ResolutionResult(int width, int height, double singleCameraFPS, double throughputFPS) {
+			this.width = width;
+			this.height = height;
+			this.singleCameraFPS = singleCameraFPS;
+			this.throughputFPS = throughputFPS;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * @return frames per second detection ran at with one camera
+		 */
+		public double getSingleCameraFPS() {
+			return singleCameraFPS;
+		}
+
+		/**
+		 * @return frames per second detection ran at in total with one
+		 *         camera per processor
+		 */
+		public double getThroughputFPS() {
+			return throughputFPS;
+		}
+
+		/**
+		 * @return how many cameras running at <code>fps</code> detection can
+		 *         keep up with at this resolution
+		 */
+		public int getSupportedCameras(int fps) {
+			final double required = fps * REAL_TIME_HEADROOM;
+
+			if (singleCameraFPS < required) return 0;
+
+			return Math.max(1, (int) (throughputFPS / required));
+		}
+
+		private String getKey() {
+			return width + "x" + height;
+		}
+	}
+
+	public static class Recommendation {
+		private final int width;
+		private final int height;
+		private final int fps;
+		private final int cameras;
+
+		private Recommendation(int width, int height, int fps, int cameras) {
+			this.width = width;
+			this.height = height;
+			this.fps = fps;
+			this.cameras = cameras;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public int getFPS() {
+			return fps;
+		}
+
+		public int getCameras() {
+			return cameras;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%dx%d at %d FPS with up to %d camera(s)", width, height, fps, cameras);
+		}
+	}
+
+	private final String machine;
+	private final int version;
+	private final List<ResolutionResult> resolutions;
+
+	/**
+	 * @param machine
+	 *            identifies the hardware and software the benchmark ran on
+	 * @param version
+	 *            the version of the benchmark, results from other versions
+	 *            aren't comparable
+	 * @param resolutions
+	 *            results ordered from the lowest to the highest resolution
+	 */
+	public BenchmarkResult(String machine, int version, List<ResolutionResult> resolutions) {
+		this.machine = machine;
+		this.version = version;
+		this.resolutions = resolutions;
+	}
+
+	public String getMachine() {
+		return machine;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public List<ResolutionResult> getResolutions() {
+		return Collections.unmodifiableList(resolutions);
+	}
+
+	/**
+	 * @return the highest resolution that runs in real-time at the most
+	 *         preferred frame rate possible, or empty if even the lowest
+	 *         resolution can't keep up with the lowest frame rate
+	 */
+	public Optional<Recommendation> getRecommendation() {
+		for (final int fps : CAMERA_FPS) {
+			for (int i = resolutions.size() - 1; i >= 0; i--) {
+				final ResolutionResult resolution = resolutions.get(i);
+				final int cameras = resolution.getSupportedCameras(fps);
+
+				if (cameras > 0) return Optional.of(
+						new Recommendation(resolution.getWidth(), resolution.getHeight(), fps, cameras));
+			}
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * @return {@link HardwareStatus#EXCELLENT} if the lowest resolution runs
+	 *         in real-time at the preferred frame rate for more than one
+	 *         camera, {@link HardwareStatus#PASSABLE} if it does for one camera
+	 */
+	public HardwareStatus getHardwareStatus() {
+		if (resolutions.isEmpty()) return HardwareStatus.POOR;
+
+		final int cameras = resolutions.get(0).getSupportedCameras(CAMERA_FPS[0]);
+
+		if (cameras == 0)
+			return HardwareStatus.POOR;
+		else if (cameras == 1)
+			return HardwareStatus.PASSABLE;
+		else
+			return HardwareStatus.EXCELLENT;
+	}
+
+	public Properties toProperties() {
+		final Properties properties = new Properties();
+		properties.setProperty(MACHINE_PROP, machine);
+		properties.setProperty(VERSION_PROP, String.valueOf(version));
+
+		final StringBuilder keys = new StringBuilder();
+
+		for (final ResolutionResult resolution : resolutions) {
+			if (keys.length() > 0) keys.append(',');
+			keys.append(resolution.getKey());
+
+			properties.setProperty(resolution.getKey() + SINGLE_CAMERA_FPS_PROP,
+					String.valueOf(resolution.getSingleCameraFPS()));
+			properties.setProperty(resolution.getKey() + THROUGHPUT_FPS_PROP,
+					String.valueOf(resolution.getThroughputFPS()));
+		}
+
+		properties.setProperty(RESOLUTIONS_PROP, keys.toString());
+
+		return properties;
+	}
+
+	/**
+	 * @return the result in <code>properties</code>, or empty if they are
+	 *         incomplete
+	 */
+	public static Optional<BenchmarkResult> fromProperties(Properties properties) {
+		final String machine = properties.getProperty(MACHINE_PROP);
+		final String version = properties.getProperty(VERSION_PROP);
+		final String keys = properties.getProperty(RESOLUTIONS_PROP);
+
+		if (machine == null || version == null || keys == null || keys.isEmpty()) return Optional.empty();
+
+		try {
+			final List<ResolutionResult> resolutions = new ArrayList<>();
+
+			for (final String key : keys.split(",")) {
+				final String[] dimensions = key.split("x");
+				final String singleCameraFPS = properties.getProperty(key + SINGLE_CAMERA_FPS_PROP);
+				final String throughputFPS = properties.getProperty(key + THROUGHPUT_FPS_PROP);
+
+				if (dimensions.length != 2 || singleCameraFPS == null || throughputFPS == null)
+					return Optional.empty();
+
+				resolutions.add(new ResolutionResult(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]),
+						Double.parseDouble(singleCameraFPS), Double.parseDouble(throughputFPS)));
+			}
+
+			return Optional.of(new BenchmarkResult(machine, Integer.parseInt(version), resolutions));
+		} catch (final NumberFormatException e) {
+			return Optional.empty();
+		}
+	}
+
+	public static Optional<BenchmarkResult> load(File resultFile) throws IOException {
+		final Properties properties = new Properties();
+
+		try (InputStream inputStream = Files.newInputStream(resultFile.toPath())) {
+			properties.load(inputStream);
+		}
+
+		return fromProperties(properties);
+	}
+
+	public void store(File resultFile) throws IOException {
+		try (OutputStream outputStream = Files.newOutputStream(resultFile.toPath())) {
+			toProperties().store(outputStream, "ShootOFF Detection Benchmark");
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder result = new StringBuilder();
+
+		for (final ResolutionResult resolution : resolutions) {
+			result.append(String.format(Locale.ENGLISH, "%s: %.1f fps with one camera, %.1f fps in total",
+					resolution.getKey(), resolution.getSingleCameraFPS(), resolution.getThroughputFPS()));
+
+			for (final int fps : CAMERA_FPS) {
+				result.append(String.format(", %d camera(s) at %d FPS", resolution.getSupportedCameras(fps), fps));
+			}
+
+			result.append(System.lineSeparator());
+		}
+
+		final Optional<Recommendation> recommendation = getRecommendation();
+		result.append("Hardware status: ").append(getHardwareStatus());
+		result.append(", recommended: ").append(recommendation.isPresent() ? recommendation.get() : "none");
+
+		return result.toString();
+	}
+}
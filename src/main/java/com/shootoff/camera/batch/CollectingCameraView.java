@@ -0,0 +1,108 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CameraView;
+import com.shootoff.camera.batch.VideoDetectionResult.DetectedShot;
+import com.shootoff.camera.cameratypes.ReplayCamera;
+import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.targets.Target;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.paint.Color;
+
+/**
+ * Collects shots instead of showing them, everything else is ignored.
+ */
+class CollectingCameraView implements CameraView {
+	private static final Logger logger = LoggerFactory.getLogger(CollectingCameraView.class);
+
+	private final ReplayCamera camera;
+	private final List<DetectedShot> shots = new ArrayList<>();
+
+	CollectingCameraView(ReplayCamera camera) {
+		this.camera = camera;
+	}
+
+	List<DetectedShot> getShots() {
+		return shots;
+	}
+
+	@Override
+	public boolean addChild(Node c) {
+		return false;
+	}
+
+	@Override
+	public void addShot(DisplayShot shot, boolean isMirroredShot) {
+		shots.add(new DetectedShot(shot, TimeUnit.NANOSECONDS.toMillis(camera.getCurrentMediaTime())));
+	}
+
+	@Override
+	public Optional<Target> addTarget(File targetFile) {
+		return Optional.empty();
+	}
+
+	@Override
+	public Target addTarget(Target newTarget) {
+		return newTarget;
+	}
+
+	@Override
+	public Label addDiagnosticMessage(String message, Color backgroundColor) {
+		logger.debug("Diagnostic message: {}", message);
+		return null;
+	}
+
+	@Override
+	public void clearShots() {}
+
+	@Override
+	public void close() {}
+
+	@Override
+	public boolean removeChild(Node c) {
+		return false;
+	}
+
+	@Override
+	public void removeDiagnosticMessage(Label diagnosticLabel) {}
+
+	@Override
+	public void reset() {}
+
+	@Override
+	public void setCameraManager(CameraManager cameraManager) {}
+
+	@Override
+	public void updateBackground(BufferedImage frame, Optional<Bounds> projectionBounds) {}
+}
@@ -0,0 +1,239 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.batch.BenchmarkResult.ResolutionResult;
+import com.shootoff.camera.cameratypes.ReplayCamera.RecordedFrames;
+import com.shootoff.util.HardwareData;
+
+/**
+ * Measures how fast this machine runs the real shot detection pipeline by
+ * replaying a bundled clip at common camera resolutions, first through one
+ * camera and then through one camera per processor. This replaces looking the
+ * processor up online, which doesn't work on machines that are offline and
+ * only says how fast the processor is in general. A run takes about
+ * <code>2 * 3 * (WARM_UP_MILLIS + MEASUREMENT_MILLIS)</code>, so results are
+ * cached per machine.
+ */
+public final class DetectionBenchmark {
+	private static final Logger logger = LoggerFactory.getLogger(DetectionBenchmark.class);
+
+	public static final String RESULT_FILE = "detection-benchmark.properties";
+
+	// Bump when the workload changes so that cached results are ignored
+	public static final int BENCHMARK_VERSION = 1;
+
+	private static final String BENCHMARK_CLIP = "/benchmark/detection-benchmark.mp4";
+
+	private static final int[][] RESOLUTIONS = { { 640, 480 }, { 1280, 720 }, { 1920, 1080 } };
+
+	// The detector's background model needs some frames before detection
+	// settles
+	private static final long WARM_UP_MILLIS = 500;
+	private static final long MEASUREMENT_MILLIS = 1500;
+
+	private DetectionBenchmark() {}
+
+	/**
+	 * @return a description of the hardware and software detection runs on,
+	 *         cached results are only used on a machine with the same
+	 *         description
+	 */
+	public static String getMachine() {
+		return String.format("%s, %d processors, %s, Java %s", HardwareData.getCpuName().trim(),
+				Runtime.getRuntime().availableProcessors(), System.getProperty("os.arch"),
+				System.getProperty("java.version"));
+	}
+
+	/**
+	 * @return the cached result for this machine, or a new one if there isn't
+	 *         one. A new result is cached in <code>resultFile</code>.
+	 */
+	public static Optional<BenchmarkResult> getResult(File resultFile) {
+		if (resultFile.isFile()) {
+			try {
+				final Optional<BenchmarkResult> cachedResult = BenchmarkResult.load(resultFile);
+
+				if (cachedResult.isPresent() && cachedResult.get().getVersion() == BENCHMARK_VERSION
+						&& cachedResult.get().getMachine().equals(getMachine())) {
+					return cachedResult;
+				}
+			} catch (final IOException e) {
+				logger.warn("Failed to read cached detection benchmark result, running the benchmark again", e);
+			}
+		}
+
+		final Optional<BenchmarkResult> result = run();
+
+		if (result.isPresent()) {
+			try {
+				result.get().store(resultFile);
+			} catch (final IOException e) {
+				logger.warn("Failed to cache detection benchmark result", e);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Run the benchmark without looking at cached results.
+	 *
+	 * @return the result, or empty if the benchmark clip couldn't be decoded
+	 */
+	public static Optional<BenchmarkResult> run() {
+		final RecordedFrames clip;
+		try {
+			clip = decodeClip();
+		} catch (final IOException e) {
+			logger.error("Failed to decode the detection benchmark clip", e);
+			return Optional.empty();
+		}
+
+		final int processors = Runtime.getRuntime().availableProcessors();
+		final List<ResolutionResult> resolutions = new ArrayList<>(RESOLUTIONS.length);
+
+		try {
+			for (final int[] resolution : RESOLUTIONS) {
+				final RecordedFrames frames = clip.resize(resolution[0], resolution[1]);
+
+				try {
+					final double singleCameraFPS = measure(frames, 1);
+					final double throughputFPS = processors == 1 ? singleCameraFPS : measure(frames, processors);
+
+					if (logger.isInfoEnabled()) logger.info("Detection benchmark at {}x{}: {} fps with one camera, {} "
+							+ "fps with {} cameras", resolution[0], resolution[1], String.format("%.1f", singleCameraFPS),
+							String.format("%.1f", throughputFPS), processors);
+
+					resolutions.add(new ResolutionResult(resolution[0], resolution[1], singleCameraFPS, throughputFPS));
+				} finally {
+					frames.release();
+				}
+			}
+		} finally {
+			clip.release();
+		}
+
+		return Optional.of(new BenchmarkResult(getMachine(), BENCHMARK_VERSION, resolutions));
+	}
+
+	private static RecordedFrames decodeClip() throws IOException {
+		// Videos are decoded from files, thus the bundled clip is copied out
+		// of the jar first
+		final File clipFile = File.createTempFile("detection-benchmark", ".mp4");
+
+		try (InputStream clipStream = DetectionBenchmark.class.getResourceAsStream(BENCHMARK_CLIP)) {
+			if (clipStream == null) throw new IOException("Missing benchmark clip " + BENCHMARK_CLIP);
+
+			Files.copy(clipStream, clipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+			final RecordedFrames clip = RecordedFrames.decode(clipFile);
+
+			if (clip.getFrameCount() == 0) throw new IOException("The benchmark clip has no frames");
+
+			return clip;
+		} finally {
+			if (!clipFile.delete()) clipFile.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Replay <code>frames</code> on a loop through <code>cameras</code>
+	 * independent detection pipelines at once.
+	 *
+	 * @return the total number of frames per second the pipelines processed
+	 */
+	private static double measure(RecordedFrames frames, int cameras) {
+		final List<BatchCamera> batchCameras = new ArrayList<>(cameras);
+		final List<Thread> threads = new ArrayList<>(cameras);
+
+		for (int i = 0; i < cameras; i++) {
+			final BatchCamera camera = new BatchCamera(frames, Optional.empty(), true);
+			final CameraManager cameraManager = new CameraManager(camera, null, new CollectingCameraView(camera));
+
+			if (!camera.openForDetection(cameraManager)) {
+				cameraManager.close();
+				continue;
+			}
+
+			batchCameras.add(camera);
+
+			final Thread thread = new Thread(camera, "Detection Benchmark " + i);
+			thread.setDaemon(true);
+			threads.add(thread);
+		}
+
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+
+		long measuredFrames = 0;
+		long measurementTime = 0;
+
+		try {
+			Thread.sleep(WARM_UP_MILLIS);
+
+			final long startTime = System.nanoTime();
+			long startFrames = 0;
+			for (final BatchCamera camera : batchCameras) {
+				startFrames += camera.getFrameCount();
+			}
+
+			Thread.sleep(MEASUREMENT_MILLIS);
+
+			long endFrames = 0;
+			for (final BatchCamera camera : batchCameras) {
+				endFrames += camera.getFrameCount();
+			}
+
+			measurementTime = System.nanoTime() - startTime;
+			measuredFrames = endFrames - startFrames;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// Closing a camera also closes its manager
+			for (final BatchCamera camera : batchCameras) {
+				camera.close();
+			}
+
+			for (final Thread thread : threads) {
+				try {
+					thread.join();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		return measurementTime == 0 ? 0 : measuredFrames / (measurementTime / 1000000000.0);
+	}
+}
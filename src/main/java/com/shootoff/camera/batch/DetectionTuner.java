@@ -0,0 +1,323 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.shotdetection.DetectionParameter;
+import com.shootoff.camera.shotdetection.DetectionParameters;
+
+/**
+ * Searches for detection parameters that work best on a directory of labelled
+ * recordings, i.e. recordings that have expected shots (see
+ * {@link ExpectedShots}). Every trial runs every recording through its own
+ * detector on a fork/join pool, and decoded frames are cached across trials.
+ * Trials are ranked by F1 score, then by how long detection took per frame.
+ * The ranking is written as CSV and the best parameters are written as a
+ * profile that can be loaded with <code>--detection-profile</code>.
+ */
+public final class DetectionTuner {
+	private static final Logger logger = LoggerFactory.getLogger(DetectionTuner.class);
+
+	public static final String RESULTS_FILE = "tuning-results.csv";
+	public static final String BEST_PROFILE_FILE = "best-detection-profile.properties";
+
+	// How many evenly spaced values of each parameter a grid search tries
+	public static final int GRID_STEPS = 5;
+
+	public static final long DEFAULT_FRAME_CACHE_SIZE = 2L * 1024 * 1024 * 1024;
+
+	// Random searches are repeatable so that runs on different machines can
+	// be compared
+	private static final long RANDOM_SEED = 42;
+
+	private static final int PRINTED_TRIALS = 10;
+
+	private DetectionTuner() {}
+
+	public static class Trial {
+		private final DetectionParameters parameters;
+		private int truePositives = 0;
+		private int falsePositives = 0;
+		private int falseNegatives = 0;
+		private long frameCount = 0;
+		private long processingTime = 0;
+		private int failedRecordings = 0;
+
+		private Trial(DetectionParameters parameters) {
+			this.parameters = parameters;
+		}
+
+		private void add(VideoDetectionResult result) {
+			if (result.getError().isPresent() || !result.getComparison().isPresent()) {
+				failedRecordings++;
+				return;
+			}
+
+			final ShotComparison comparison = result.getComparison().get();
+			truePositives += comparison.getTruePositiveCount();
+			falsePositives += comparison.getFalsePositiveCount();
+			falseNegatives += comparison.getFalseNegativeCount();
+			frameCount += result.getFrameCount();
+			processingTime += result.getProcessingTime();
+		}
+
+		public DetectionParameters getParameters() {
+			return parameters;
+		}
+
+		public double getPrecision() {
+			final int detected = truePositives + falsePositives;
+			return detected == 0 ? 1.0 : (double) truePositives / (double) detected;
+		}
+
+		public double getRecall() {
+			final int expected = truePositives + falseNegatives;
+			return expected == 0 ? 1.0 : (double) truePositives / (double) expected;
+		}
+
+		public double getF1Score() {
+			final double precision = getPrecision();
+			final double recall = getRecall();
+
+			return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+		}
+
+		/**
+		 * @return the average time spent detecting shots in a frame in
+		 *         milliseconds
+		 */
+		public double getMillisPerFrame() {
+			return frameCount == 0 ? 0 : processingTime / 1000000.0 / frameCount;
+		}
+
+		public int getFailedRecordings() {
+			return failedRecordings;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ENGLISH, "precision %.3f, recall %.3f, F1 %.3f, %.2f ms/frame",
+					getPrecision(), getRecall(), getF1Score(), getMillisPerFrame());
+		}
+	}
+
+	/**
+	 * @return every combination of {@link #GRID_STEPS} values of each
+	 *         parameter in <code>parameters</code> over its tuning range, with
+	 *         all other parameters at their defaults. The defaults are always
+	 *         the first candidate.
+	 */
+	public static List<DetectionParameters> gridSearch(List<DetectionParameter> parameters) {
+		List<DetectionParameters> candidates = new ArrayList<>();
+		candidates.add(DetectionParameters.DEFAULT);
+
+		for (final DetectionParameter parameter : parameters) {
+			final List<DetectionParameters> expanded = new ArrayList<>(candidates.size() * GRID_STEPS);
+
+			for (final DetectionParameters candidate : candidates) {
+				for (int step = 0; step < GRID_STEPS; step++) {
+					final double value = parameter.getMinimum()
+							+ (parameter.getMaximum() - parameter.getMinimum()) * step / (GRID_STEPS - 1);
+					expanded.add(candidate.with(parameter, value));
+				}
+			}
+
+			candidates = expanded;
+		}
+
+		final Set<DetectionParameters> unique = new LinkedHashSet<>();
+		unique.add(DetectionParameters.DEFAULT);
+		unique.addAll(candidates);
+
+		return new ArrayList<>(unique);
+	}
+
+	/**
+	 * @return the defaults followed by <code>trials - 1</code> candidates with
+	 *         every parameter drawn uniformly from its tuning range
+	 */
+	public static List<DetectionParameters> randomSearch(int trials, Random random) {
+		final Set<DetectionParameters> candidates = new LinkedHashSet<>();
+		candidates.add(DetectionParameters.DEFAULT);
+
+		while (candidates.size() < trials) {
+			DetectionParameters candidate = DetectionParameters.DEFAULT;
+
+			for (final DetectionParameter parameter : DetectionParameter.values()) {
+				candidate = candidate.with(parameter, parameter.getMinimum()
+						+ random.nextDouble() * (parameter.getMaximum() - parameter.getMinimum()));
+			}
+
+			candidates.add(candidate);
+		}
+
+		return new ArrayList<>(candidates);
+	}
+
+	/**
+	 * @param trials
+	 *            how many random candidates to try, ignored if
+	 *            <code>gridParameters</code> isn't empty
+	 * @param gridParameters
+	 *            the parameters to grid search, or empty for a random search
+	 *            over every parameter
+	 * @return the process exit code
+	 */
+	public static int run(File directory, File outputDirectory, int threads, int trials,
+			List<DetectionParameter> gridParameters) {
+		final List<File> recordings = new ArrayList<>();
+		for (final File recording : BatchDetection.findRecordings(directory, outputDirectory)) {
+			if (ExpectedShots.getExpectedShotsFile(recording).isFile()) recordings.add(recording);
+		}
+
+		if (recordings.isEmpty()) {
+			System.err.println("No recordings with expected shots found in " + directory.getPath());
+			return 1;
+		}
+
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			System.err.println("Failed to create output directory " + outputDirectory.getPath());
+			return 1;
+		}
+
+		final List<DetectionParameters> candidates = gridParameters.isEmpty()
+				? randomSearch(trials, new Random(RANDOM_SEED)) : gridSearch(gridParameters);
+
+		logger.info("Tuning detection with {} candidate(s) over {} recording(s) from {} using {} thread(s)",
+				candidates.size(), recordings.size(), directory.getPath(), threads);
+
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		final List<Trial> results = new ArrayList<>(candidates.size());
+		final long startTime = System.nanoTime();
+
+		try (FrameCache frameCache = new FrameCache(DEFAULT_FRAME_CACHE_SIZE)) {
+			pool.invoke(ForkJoinTask.adapt(() -> frameCache.load(recordings)));
+
+			final List<List<VideoDetectionTask>> trialTasks = new ArrayList<>(candidates.size());
+			final List<VideoDetectionTask> allTasks = new ArrayList<>(candidates.size() * recordings.size());
+
+			for (final DetectionParameters candidate : candidates) {
+				final List<VideoDetectionTask> tasks = new ArrayList<>(recordings.size());
+
+				for (final File recording : recordings) {
+					tasks.add(new VideoDetectionTask(recording, frameCache.get(recording), Optional.of(candidate)));
+				}
+
+				trialTasks.add(tasks);
+				allTasks.addAll(tasks);
+			}
+
+			pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(allTasks)));
+
+			for (int i = 0; i < candidates.size(); i++) {
+				final Trial trial = new Trial(candidates.get(i));
+
+				for (final VideoDetectionTask task : trialTasks.get(i)) {
+					trial.add(task.join());
+				}
+
+				results.add(trial);
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		final double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+
+		final Trial defaults = results.get(0);
+		final List<Trial> ranking = new ArrayList<>(results);
+		Collections.sort(ranking, Comparator.comparingDouble(Trial::getF1Score).reversed()
+				.thenComparingDouble(Trial::getMillisPerFrame));
+
+		try {
+			writeResults(ranking, new File(outputDirectory, RESULTS_FILE));
+
+			final Trial best = ranking.get(0);
+			best.getParameters().store(new File(outputDirectory, BEST_PROFILE_FILE),
+					String.format("Tuned on %d recording(s) from %s: %s", recordings.size(), directory.getName(),
+							best));
+		} catch (final IOException e) {
+			logger.error("Failed to write tuning results", e);
+			return 1;
+		}
+
+		printSummary(ranking, defaults, seconds);
+
+		return 0;
+	}
+
+	private static void writeResults(List<Trial> ranking, File resultsFile) throws IOException {
+		try (PrintWriter csv = new PrintWriter(
+				new OutputStreamWriter(new FileOutputStream(resultsFile), StandardCharsets.UTF_8))) {
+			final StringBuilder header = new StringBuilder("rank,precision,recall,f1,ms_per_frame,failed_recordings");
+			for (final DetectionParameter parameter : DetectionParameter.values()) {
+				header.append(',').append(parameter.getKey());
+			}
+			csv.println(header);
+
+			for (int rank = 0; rank < ranking.size(); rank++) {
+				final Trial trial = ranking.get(rank);
+				final StringBuilder row = new StringBuilder(String.format(Locale.ENGLISH, "%d,%.4f,%.4f,%.4f,%.3f,%d",
+						rank + 1, trial.getPrecision(), trial.getRecall(), trial.getF1Score(),
+						trial.getMillisPerFrame(), trial.getFailedRecordings()));
+
+				for (final DetectionParameter parameter : DetectionParameter.values()) {
+					row.append(',').append(trial.getParameters().format(parameter));
+				}
+
+				csv.println(row);
+			}
+		}
+	}
+
+	private static void printSummary(List<Trial> ranking, Trial defaults, double seconds) {
+		for (int rank = 0; rank < Math.min(PRINTED_TRIALS, ranking.size()); rank++) {
+			final Trial trial = ranking.get(rank);
+			System.out.println(String.format("%d. %s: %s", rank + 1, trial, trial.getParameters()));
+		}
+
+		System.out.println(String.format("Defaults ranked %d of %d: %s", ranking.indexOf(defaults) + 1,
+				ranking.size(), defaults));
+
+		if (defaults.getFailedRecordings() > 0) System.out.println(
+				String.format("%d recording(s) could not be processed, see the log", defaults.getFailedRecordings()));
+
+		System.out.println(String.format(Locale.ENGLISH, "Tried %d candidate(s) in %.2f s", ranking.size(), seconds));
+	}
+}
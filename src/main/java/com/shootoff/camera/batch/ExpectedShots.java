@@ -0,0 +1,112 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import com.shootoff.camera.Shot;
+import com.shootoff.camera.shot.ShotColor;
+
+/**
+ * The shots a recording is known to contain, read from a file next to the
+ * recording named after it with an <code>.expected.csv</code> extension (e.g.
+ * <code>lane1.expected.csv</code> for <code>lane1.mp4</code>). Each line holds
+ * one shot as <code>x,y,color</code>, optionally followed by
+ * <code>,optional</code>. Blank lines and lines starting with <code>#</code>
+ * are ignored.
+ */
+public class ExpectedShots {
+	public static final String EXPECTED_SHOTS_EXTENSION = ".expected.csv";
+
+	private final List<Shot> requiredShots = new ArrayList<>();
+	private final List<Shot> optionalShots = new ArrayList<>();
+
+	public ExpectedShots(BufferedReader reader) throws IOException {
+		String line;
+		int lineNumber = 0;
+
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+
+			if (line.isEmpty() || line.startsWith("#")) continue;
+
+			final String[] fields = line.split(",");
+
+			if (fields.length < 3) throw new IOException(
+					String.format("Line %d of expected shots needs at least x,y,color: %s", lineNumber, line));
+
+			try {
+				final Shot shot = new Shot(ShotColor.valueOf(fields[2].trim().toUpperCase(Locale.ENGLISH)),
+						Double.parseDouble(fields[0].trim()), Double.parseDouble(fields[1].trim()), 0);
+
+				if (fields.length > 3 && "optional".equalsIgnoreCase(fields[3].trim())) {
+					optionalShots.add(shot);
+				} else {
+					requiredShots.add(shot);
+				}
+			} catch (final IllegalArgumentException e) {
+				throw new IOException(String.format("Line %d of expected shots is invalid: %s", lineNumber, line), e);
+			}
+		}
+	}
+
+	public static File getExpectedShotsFile(File recording) {
+		String name = recording.getName();
+		final int extension = name.lastIndexOf('.');
+		if (extension > 0 && !recording.isDirectory()) name = name.substring(0, extension);
+
+		return new File(recording.getAbsoluteFile().getParentFile(), name + EXPECTED_SHOTS_EXTENSION);
+	}
+
+	/**
+	 * @return the expected shots for <code>recording</code> or empty if the
+	 *         recording doesn't have an expected shots file
+	 */
+	public static Optional<ExpectedShots> forRecording(File recording) throws IOException {
+		final File expectedShotsFile = getExpectedShotsFile(recording);
+
+		if (!expectedShotsFile.isFile()) return Optional.empty();
+
+		try (BufferedReader reader = Files.newBufferedReader(expectedShotsFile.toPath(), StandardCharsets.UTF_8)) {
+			return Optional.of(new ExpectedShots(reader));
+		}
+	}
+
+	public List<Shot> getRequiredShots() {
+		return Collections.unmodifiableList(requiredShots);
+	}
+
+	public List<Shot> getOptionalShots() {
+		return Collections.unmodifiableList(optionalShots);
+	}
+
+	public ShotComparison compare(List<? extends Shot> actualShots) {
+		return new ShotComparison(actualShots, requiredShots, optionalShots);
+	}
+}
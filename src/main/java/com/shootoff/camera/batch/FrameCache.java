@@ -0,0 +1,124 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.cameratypes.ReplayCamera.RecordedFrames;
+
+/**
+ * Keeps decoded recordings in memory so that tuning trials replay frames
+ * instead of decoding every recording once per trial, which would otherwise
+ * cost more than detection itself. Recordings are decoded until the budget is
+ * used up, the rest are decoded from disk whenever they are replayed.
+ */
+class FrameCache implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(FrameCache.class);
+
+	private final long budget;
+	private final Map<File, RecordedFrames> recordings = new HashMap<>();
+	private long size = 0;
+
+	/**
+	 * @param budget
+	 *            roughly how many bytes of decoded frames to keep. It can be
+	 *            exceeded by the recordings that were being decoded when it
+	 *            ran out.
+	 */
+	FrameCache(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Decode <code>files</code> in parallel. This must be called from inside
+	 * a fork/join pool.
+	 */
+	void load(List<File> files) {
+		final List<RecursiveAction> decodes = new ArrayList<>(files.size());
+
+		for (final File file : files) {
+			decodes.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					decode(file);
+				}
+			});
+		}
+
+		RecursiveAction.invokeAll(decodes);
+
+		if (logger.isInfoEnabled()) logger.info("Cached {} of {} recording(s) in {} MB of decoded frames",
+				recordings.size(), files.size(), getSizeInBytes() / (1024 * 1024));
+	}
+
+	private void decode(File file) {
+		synchronized (this) {
+			if (size >= budget) return;
+		}
+
+		final RecordedFrames frames;
+		try {
+			frames = RecordedFrames.decode(file);
+		} catch (final IOException e) {
+			logger.warn("Failed to decode {}, it will be read from disk for every trial", file.getPath(), e);
+			return;
+		}
+
+		synchronized (this) {
+			if (size + frames.getSizeInBytes() > budget) {
+				frames.release();
+				return;
+			}
+
+			recordings.put(file, frames);
+			size += frames.getSizeInBytes();
+		}
+	}
+
+	public synchronized Optional<RecordedFrames> get(File file) {
+		return Optional.ofNullable(recordings.get(file));
+	}
+
+	public synchronized long getSizeInBytes() {
+		return size;
+	}
+
+	@Override
+	public synchronized void close() {
+		for (final RecordedFrames frames : recordings.values()) {
+			frames.release();
+		}
+
+		recordings.clear();
+		size = 0;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import com.shootoff.camera.Shot;
+
+/**
+ * Compares detected shots against the shots a recording is known to contain.
+ * A detected shot matches an expected shot if it is within
+ * {@link #ALLOWED_COORD_VARIANCE} pixels of it on both axes. Required shots
+ * must be found, optional shots (e.g. faint shots some cameras miss) may be
+ * found, and any other detected shot is unexpected.
+ */
+public class ShotComparison {
+	public static final int ALLOWED_COORD_VARIANCE = 3;
+
+	private final List<Shot> missedShots = new ArrayList<>();
+	private final List<Shot> missedOptionalShots = new ArrayList<>();
+	private final List<Shot> wrongColorShots = new ArrayList<>();
+	private final List<Shot> unexpectedShots;
+	private int matchedShots = 0;
+	private int wrongColorRequiredShots = 0;
+
+	public ShotComparison(List<? extends Shot> actualShots, List<Shot> requiredShots, List<Shot> optionalShots) {
+		final List<Shot> unmatchedShots = new ArrayList<>(actualShots);
+
+		for (final Shot shot : requiredShots) {
+			if (!match(unmatchedShots, shot, true)) missedShots.add(shot);
+		}
+
+		for (final Shot shot : optionalShots) {
+			if (!match(unmatchedShots, shot, false)) missedOptionalShots.add(shot);
+		}
+
+		unexpectedShots = unmatchedShots;
+	}
+
+	private boolean match(List<Shot> unmatchedShots, Shot expectedShot, boolean isRequired) {
+		final Optional<Shot> match = findMatch(unmatchedShots, expectedShot);
+
+		if (!match.isPresent()) return false;
+
+		matchedShots++;
+		if (!match.get().getColor().equals(expectedShot.getColor())) {
+			wrongColorShots.add(expectedShot);
+			if (isRequired) wrongColorRequiredShots++;
+		}
+		unmatchedShots.remove(match.get());
+
+		return true;
+	}
+
+	public static Optional<Shot> findMatch(List<? extends Shot> actualShots, Shot expectedShot) {
+		for (final Shot shot : actualShots) {
+			if (Math.abs(shot.getX() - expectedShot.getX()) <= ALLOWED_COORD_VARIANCE
+					&& Math.abs(shot.getY() - expectedShot.getY()) <= ALLOWED_COORD_VARIANCE) {
+				return Optional.of(shot);
+			}
+		}
+
+		return Optional.empty();
+	}
+
+	public int getMatchedShotCount() {
+		return matchedShots;
+	}
+
+	public List<Shot> getMissedShots() {
+		return Collections.unmodifiableList(missedShots);
+	}
+
+	public List<Shot> getMissedOptionalShots() {
+		return Collections.unmodifiableList(missedOptionalShots);
+	}
+
+	/**
+	 * @return expected shots that were found but classified as the wrong
+	 *         color
+	 */
+	public List<Shot> getWrongColorShots() {
+		return Collections.unmodifiableList(wrongColorShots);
+	}
+
+	public List<Shot> getUnexpectedShots() {
+		return Collections.unmodifiableList(unexpectedShots);
+	}
+
+	/**
+	 * @return detected shots that match an expected shot and its color
+	 */
+	public int getTruePositiveCount() {
+		return matchedShots - wrongColorShots.size();
+	}
+
+	/**
+	 * @return detected shots that are unexpected or have the wrong color
+	 */
+	public int getFalsePositiveCount() {
+		return unexpectedShots.size() + wrongColorShots.size();
+	}
+
+	/**
+	 * @return required shots that were missed or detected with the wrong
+	 *         color. Missing an optional shot is never a false negative.
+	 */
+	public int getFalseNegativeCount() {
+		return missedShots.size() + wrongColorRequiredShots;
+	}
+
+	/**
+	 * @return <code>true</code> if every required shot was found with the
+	 *         right color and nothing else was detected
+	 */
+	public boolean passed() {
+		return missedShots.isEmpty() && wrongColorShots.isEmpty() && unexpectedShots.isEmpty();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import com.shootoff.camera.shot.DisplayShot;
+
+/**
+ * The shots batch detection found in one recording along with how long it
+ * took to find them.
+ */
+public class VideoDetectionResult {
+	public static class DetectedShot {
+		private final DisplayShot shot;
+		private final long videoTime;
+
+		public DetectedShot(DisplayShot shot, long videoTime) {
+			this.shot = shot;
+			this.videoTime = videoTime;
+		}
+
+		public DisplayShot getShot() {
+			return shot;
+		}
+
+		/**
+		 * @return how far into the recording the shot's frame is in
+		 *         milliseconds
+		 */
+		public long getVideoTime() {
+			return videoTime;
+		}
+	}
+
+	private final File video;
+	private final List<DetectedShot> shots;
+	private final int frameCount;
+	private final long processingTime;
+	private final Optional<ShotComparison> comparison;
+	private final Optional<String> error;
+
+	public VideoDetectionResult(File video, List<DetectedShot> shots, int frameCount, long processingTime,
+			Optional<ShotComparison> comparison) {
+		this.video = video;
+		this.shots = shots;
+		this.frameCount = frameCount;
+		this.processingTime = processingTime;
+		this.comparison = comparison;
+		this.error = Optional.empty();
+	}
+
+	public VideoDetectionResult(File video, String error) {
+		this.video = video;
+		this.shots = Collections.emptyList();
+		this.frameCount = 0;
+		this.processingTime = 0;
+		this.comparison = Optional.empty();
+		this.error = Optional.of(error);
+	}
+
+	public File getVideo() {
+		return video;
+	}
+
+	public List<DetectedShot> getShots() {
+		return Collections.unmodifiableList(shots);
+	}
+
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * @return how long detection took in nanoseconds
+	 */
+	public long getProcessingTime() {
+		return processingTime;
+	}
+
+	public double getFPS() {
+		if (processingTime == 0) return 0;
+
+		return frameCount / (processingTime / 1000000000.0);
+	}
+
+	/**
+	 * @return the comparison against the recording's expected shots, if it
+	 *         has any
+	 */
+	public Optional<ShotComparison> getComparison() {
+		return comparison;
+	}
+
+	public Optional<String> getError() {
+		return error;
+	}
+
+	public boolean passed() {
+		return !error.isPresent() && (!comparison.isPresent() || comparison.get().passed());
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RecursiveTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.batch.VideoDetectionResult.DetectedShot;
+import com.shootoff.camera.cameratypes.ReplayCamera.RecordedFrames;
+import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.camera.shotdetection.DetectionParameters;
+import com.shootoff.camera.shotdetection.JavaShotDetector;
+
+/**
+ * Runs one recording through its own camera manager and
+ * {@link JavaShotDetector} on the calling fork/join worker thread. Frames are
+ * replayed as fast as they can be processed but keep the timing they were
+ * recorded with, so deduplication and the frame rate the detector adapts to
+ * match the camera manager tests the expected shots come from. Shots are
+ * collected on the detection thread as soon as they pass deduplication instead
+ * of going to a canvas.
+ */
+class VideoDetectionTask extends RecursiveTask<VideoDetectionResult> {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = LoggerFactory.getLogger(VideoDetectionTask.class);
+
+	private final File video;
+	private final Optional<RecordedFrames> recordedFrames;
+	private final Optional<DetectionParameters> parameters;
+
+	VideoDetectionTask(File video) {
+		this(video, Optional.empty(), Optional.empty());
+	}
+
+	/**
+	 * @param recordedFrames
+	 *            the recording's frames if they were already decoded
+	 * @param parameters
+	 *            the detection parameters to use instead of the configured
+	 *            ones
+	 */
+	VideoDetectionTask(File video, Optional<RecordedFrames> recordedFrames,
+			Optional<DetectionParameters> parameters) {
+		this.video = video;
+		this.recordedFrames = recordedFrames;
+		this.parameters = parameters;
+	}
+
+	@Override
+	protected VideoDetectionResult compute() {
+		final Optional<ExpectedShots> expectedShots;
+		try {
+			expectedShots = ExpectedShots.forRecording(video);
+		} catch (final IOException e) {
+			logger.error("Failed to read expected shots for " + video.getPath(), e);
+			return new VideoDetectionResult(video, "invalid expected shots: " + e.getMessage());
+		}
+
+		final BatchCamera camera = recordedFrames.isPresent()
+				? new BatchCamera(recordedFrames.get(), parameters, false) : new BatchCamera(video, parameters);
+		final CollectingCameraView cameraView = new CollectingCameraView(camera);
+		final CameraManager cameraManager = new CameraManager(camera, null, cameraView);
+
+		if (!camera.openForDetection(cameraManager)) {
+			cameraManager.close();
+			return new VideoDetectionResult(video, "failed to open");
+		}
+
+		final long startTime = System.nanoTime();
+		camera.run();
+		// The camera closes itself and its manager at the end of the recording
+		final long processingTime = System.nanoTime() - startTime;
+
+		final List<DetectedShot> shots = cameraView.getShots();
+
+		final Optional<ShotComparison> comparison;
+		if (expectedShots.isPresent()) {
+			final List<DisplayShot> displayShots = new ArrayList<>(shots.size());
+			for (final DetectedShot shot : shots) {
+				displayShots.add(shot.getShot());
+			}
+
+			comparison = Optional.of(expectedShots.get().compare(displayShots));
+		} else {
+			comparison = Optional.empty();
+		}
+
+		return new VideoDetectionResult(video, shots, camera.getFrameCount(), processingTime, comparison);
+	}
+}
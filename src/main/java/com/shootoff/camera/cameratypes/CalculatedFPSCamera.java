@@ -27,8 +27,10 @@ public abstract class CalculatedFPSCamera implements Camera {
 	protected CameraState cameraState;
 
 	protected int frameCount = 0;
+	// System.nanoTime() when the current frame was grabbed
 	protected long currentFrameTimestamp = -1;
-	private long lastCameraTimestamp = -1;
+	private boolean hasCameraTimestamp = false;
+	private long lastCameraTimestamp;
 	private long lastFrameCount = 0;
 
 	protected Optional<CameraEventListener> cameraEventListener = Optional.empty();
@@ -86,16 +88,29 @@ public abstract class CalculatedFPSCamera implements Camera {
 	}
 
 	protected void estimateCameraFPS() {
-		if (lastCameraTimestamp > -1) {
+		estimateCameraFPS(System.nanoTime());
+	}
+
+	/**
+	 * Estimate the frame rate from the frames counted since the last estimate
+	 * for cameras whose frames aren't stamped with the time they arrived.
+	 * 
+	 * @param now
+	 *            the time of the current frame in nanoseconds on the same
+	 *            clock as earlier calls
+	 */
+	protected void estimateCameraFPS(long now) {
+		if (hasCameraTimestamp) {
 			final double estimateFPS = ((double) getFrameCount() - (double) lastFrameCount)
-					/ (((double) System.currentTimeMillis() - (double) lastCameraTimestamp) / 1000.0);
+					/ (((double) now - (double) lastCameraTimestamp) / 1000000000.0);
 
 			setFPS(estimateFPS);
 
 			if (cameraEventListener.isPresent()) cameraEventListener.get().newFPS(webcamFPS);
 		}
 
-		lastCameraTimestamp = System.currentTimeMillis();
+		hasCameraTimestamp = true;
+		lastCameraTimestamp = now;
 		lastFrameCount = getFrameCount();
 
 	}
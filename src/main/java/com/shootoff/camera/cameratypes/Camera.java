@@ -74,15 +74,34 @@ public interface Camera extends Runnable, Closeable {
 
 	void resetExposure();
 
-	static BufferedImage matToBufferedImage(Mat matBGR) {
-		final BufferedImage image = new BufferedImage(matBGR.width(), matBGR.height(), BufferedImage.TYPE_3BYTE_BGR);
+	/**
+	 * @return <code>true</code> if this camera delivers single channel
+	 *         (grayscale or infrared) frames. Frames from such cameras are
+	 *         not expanded to BGR, which lets shot detection skip color
+	 *         conversion and classification entirely.
+	 */
+	default boolean isMonochrome() {
+		return false;
+	}
+
+	static BufferedImage matToBufferedImage(Mat mat) {
+		final int imageType = mat.channels() == 1 ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR;
+		final BufferedImage image = new BufferedImage(mat.width(), mat.height(), imageType);
 		final byte[] targetPixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-		matBGR.get(0, 0, targetPixels);
+		mat.get(0, 0, targetPixels);
 
 		return image;
 	}
 
 	static Mat bufferedImageToMat(BufferedImage frame) {
+		if (frame.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+			final byte[] pixels = ((DataBufferByte) frame.getRaster().getDataBuffer()).getData();
+			final Mat mat = new Mat(frame.getHeight(), frame.getWidth(), CvType.CV_8UC1);
+			mat.put(0, 0, pixels);
+
+			return mat;
+		}
+
 		final BufferedImage transformedFrame = ConverterFactory.convertToType(frame, BufferedImage.TYPE_3BYTE_BGR);
 		final byte[] pixels = ((DataBufferByte) transformedFrame.getRaster().getDataBuffer()).getData();
 		final Mat mat = new Mat(frame.getHeight(), frame.getWidth(), CvType.CV_8UC3);
@@ -20,13 +20,23 @@ package com.shootoff.camera.cameratypes;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +49,7 @@ import com.github.sarxos.webcam.ds.ipcam.IpCamDeviceRegistry;
 import com.github.sarxos.webcam.ds.ipcam.IpCamMode;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CameraRegistry;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.Frame;
 import com.shootoff.camera.shotdetection.JavaShotDetector;
@@ -46,10 +57,48 @@ import com.shootoff.camera.shotdetection.ShotDetector;
 
 public class IpCamera extends CalculatedFPSCamera {
 	private static final Logger logger = LoggerFactory.getLogger(IpCamera.class);
+
+	// If a stream goes this long without delivering a frame it is treated as
+	// dead and the camera is closed
+	private static final int STREAM_TIMEOUT_MS = 6000;
+	// Only used for cameras that webcam-capture has to poll for us
+	private static final long POLL_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(1);
+	// One image being decoded, one waiting to be handed off, and one held as
+	// the most recently delivered frame
+	private static final int IMAGE_POOL_SIZE = 3;
+	// Weight of the newest sample in the decode time and frame interval
+	// averages
+	private static final double STATS_SMOOTHING = 0.1;
+
+	private static final DecodedImage END_OF_STREAM = new DecodedImage(null, -1);
+
 	private final Webcam ipcam;
 
 	private final AtomicBoolean closing = new AtomicBoolean(false);
 
+	private volatile Optional<MJPEGStreamReader> streamReader = Optional.empty();
+	private Optional<HttpURLConnection> streamConnection = Optional.empty();
+	// Each stream session hands off frames through its own queue so that a
+	// reader that is still shutting down can't end a newer session
+	private volatile BlockingQueue<DecodedImage> decodedImages = new ArrayBlockingQueue<>(1);
+	private final BlockingQueue<BufferedImage> imagePool = new ArrayBlockingQueue<>(IMAGE_POOL_SIZE);
+	private final Object latestImageLock = new Object();
+	private BufferedImage latestImage = null;
+	private volatile boolean capturing = false;
+
+	private volatile double averageDecodeTime = 0;
+	private volatile double averageFrameInterval = 0;
+
+	private static class DecodedImage {
+		private final BufferedImage image;
+		private final long timestamp;
+
+		public DecodedImage(BufferedImage image, long timestamp) {
+			this.image = image;
+			this.timestamp = timestamp;
+		}
+	}
+
 	public IpCamera(final Webcam ipcam) {
 		this.ipcam = ipcam;
 	}
@@ -96,7 +145,10 @@ public class IpCamera extends CalculatedFPSCamera {
 				throw new TimeoutException();
 			}
 
-			return new IpCamera(Webcam.getWebcamByName(cameraName));
+			final IpCamera camera = new IpCamera(Webcam.getWebcamByName(cameraName));
+			CameraRegistry.getRegistry().requestRefresh();
+
+			return camera;
 		} catch (final WebcamException we) {
 			final Throwable cause = we.getCause();
 
@@ -110,19 +162,44 @@ public class IpCamera extends CalculatedFPSCamera {
 	}
 
 	public static boolean unregisterIpCamera(final String cameraName) {
-		return IpCamDeviceRegistry.unregister(cameraName);
+		final boolean unregistered = IpCamDeviceRegistry.unregister(cameraName);
+		if (unregistered) CameraRegistry.getRegistry().requestRefresh();
+
+		return unregistered;
 	}
 
 	@Override
 	public Frame getFrame() {
-		return new Frame(getBufferedImage(), currentFrameTimestamp);
+		return new Frame(getBufferedImage(), currentFrameTimestamp, TimeUnit.NANOSECONDS);
 	}
 
 	@Override
 	public BufferedImage getBufferedImage() {
-		currentFrameTimestamp = System.currentTimeMillis();
-		frameCount++;
-		return ipcam.getImage();
+		if (!getStreamingDevice().isPresent()) {
+			currentFrameTimestamp = System.nanoTime();
+			frameCount++;
+			return ipcam.getImage();
+		}
+
+		// Nothing else is consuming the stream (e.g. a camera preview), so
+		// wait for the next frame ourselves
+		if (!capturing) {
+			try {
+				final DecodedImage decoded = decodedImages.poll(STREAM_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+				if (decoded != null && decoded != END_OF_STREAM) deliver(decoded);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// The latest image goes back into the pool when the next frame
+		// arrives, so callers get their own copy
+		synchronized (latestImageLock) {
+			if (latestImage == null) return null;
+
+			final ColorModel cm = latestImage.getColorModel();
+			return new BufferedImage(cm, latestImage.copyData(null), cm.isAlphaPremultiplied(), null);
+		}
 	}
 
 	@Override
@@ -130,6 +207,10 @@ public class IpCamera extends CalculatedFPSCamera {
 		if (isOpen() && !closing.get()) return true;
 
 		closing.set(false);
+
+		final Optional<IpCamDevice> device = getStreamingDevice();
+		if (device.isPresent()) return openStream(device.get());
+
 		boolean open = false;
 		try {
 			open = ipcam.open();
@@ -139,8 +220,145 @@ public class IpCamera extends CalculatedFPSCamera {
 		return open;
 	}
 
+	/**
+	 * webcam-capture only lets us poll PUSH mode cameras for new images, so we
+	 * read their MJPEG streams ourselves and block until frames arrive.
+	 */
+	private Optional<IpCamDevice> getStreamingDevice() {
+		if (ipcam.getDevice() instanceof IpCamDevice) {
+			final IpCamDevice device = (IpCamDevice) ipcam.getDevice();
+			if (device.getMode() == IpCamMode.PUSH) return Optional.of(device);
+		}
+
+		return Optional.empty();
+	}
+
+	private boolean openStream(IpCamDevice device) {
+		try {
+			final URLConnection connection = device.getURL().openConnection();
+
+			if (!(connection instanceof HttpURLConnection)) {
+				logger.error("IP camera {} does not use HTTP: {}", getName(), device.getURL());
+				return false;
+			}
+
+			final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+			httpConnection.setConnectTimeout(STREAM_TIMEOUT_MS);
+			httpConnection.setReadTimeout(STREAM_TIMEOUT_MS);
+
+			final IpCamAuth auth = device.getAuth();
+			if (auth != null) {
+				final String credentials = auth.getUserName() + ":" + auth.getPassword();
+				httpConnection.setRequestProperty("Authorization",
+						"Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+			}
+
+			if (httpConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				logger.error("IP camera {} returned HTTP {}", getName(), httpConnection.getResponseCode());
+				httpConnection.disconnect();
+				return false;
+			}
+
+			final MJPEGStreamReader reader = new MJPEGStreamReader(httpConnection.getInputStream(),
+					MJPEGStreamReader.getMaxFrameLength(getViewSize()));
+			final BlockingQueue<DecodedImage> sessionImages = new ArrayBlockingQueue<>(1);
+
+			decodedImages = sessionImages;
+			streamConnection = Optional.of(httpConnection);
+			streamReader = Optional.of(reader);
+
+			final Thread readerThread = new Thread(() -> readStream(reader, sessionImages),
+					"IpCameraStream-" + getName());
+			readerThread.setDaemon(true);
+			readerThread.start();
+
+			return true;
+		} catch (final IOException e) {
+			logger.error("Error opening stream for IP camera " + getName(), e);
+			return false;
+		}
+	}
+
+	private void readStream(MJPEGStreamReader reader, BlockingQueue<DecodedImage> sessionImages) {
+		long lastArrivalTime = -1;
+
+		try {
+			while (!closing.get() && reader.readFrame() >= 0) {
+				final long arrivalTime = System.nanoTime();
+				final BufferedImage image = reader.decodeFrame(Optional.ofNullable(imagePool.poll()));
+				updateStreamStats(System.nanoTime() - arrivalTime, arrivalTime, lastArrivalTime);
+				lastArrivalTime = arrivalTime;
+
+				handOff(sessionImages, new DecodedImage(image, arrivalTime));
+			}
+		} catch (final IOException e) {
+			if (!closing.get()) logger.warn("Lost stream for IP camera " + getName(), e);
+		}
+
+		handOff(sessionImages, END_OF_STREAM);
+	}
+
+	private void handOff(BlockingQueue<DecodedImage> sessionImages, DecodedImage decoded) {
+		// Only the newest frame is kept, if the consumer fell behind the
+		// frame it did not get to is recycled
+		while (!sessionImages.offer(decoded)) {
+			final DecodedImage stale = sessionImages.poll();
+			if (stale != null && stale != END_OF_STREAM) imagePool.offer(stale.image);
+		}
+	}
+
+	private void deliver(DecodedImage decoded) {
+		final BufferedImage previous;
+
+		synchronized (latestImageLock) {
+			previous = latestImage;
+			latestImage = decoded.image;
+		}
+
+		if (previous != null) imagePool.offer(previous);
+
+		currentFrameTimestamp = decoded.timestamp;
+		frameCount++;
+	}
+
+	private void updateStreamStats(long decodeTime, long arrivalTime, long lastArrivalTime) {
+		if (lastArrivalTime > -1) {
+			final long frameInterval = arrivalTime - lastArrivalTime;
+
+			if (averageFrameInterval == 0) {
+				averageFrameInterval = frameInterval;
+			} else {
+				averageFrameInterval += (frameInterval - averageFrameInterval) * STATS_SMOOTHING;
+			}
+		}
+
+		if (averageDecodeTime == 0) {
+			averageDecodeTime = decodeTime;
+		} else {
+			averageDecodeTime += (decodeTime - averageDecodeTime) * STATS_SMOOTHING;
+		}
+	}
+
+	/**
+	 * @return the average time it takes to decode a frame from this camera's
+	 *         stream in milliseconds
+	 */
+	public double getAverageDecodeTime() {
+		return averageDecodeTime / 1000000.0;
+	}
+
+	/**
+	 * @return the average time between frames arriving from this camera's
+	 *         stream in milliseconds
+	 */
+	public double getAverageFrameInterval() {
+		return averageFrameInterval / 1000000.0;
+	}
+
 	@Override
 	public boolean isOpen() {
+		if (getStreamingDevice().isPresent()) return streamReader.isPresent();
+
 		return ipcam.isOpen();
 	}
 
@@ -152,6 +370,11 @@ public class IpCamera extends CalculatedFPSCamera {
 
 		closing.set(true);
 
+		if (streamReader.isPresent()) {
+			closeStream();
+			return;
+		}
+
 		if (CameraFactory.isMac()) {
 			new Thread(() -> {
 				ipcam.close();
@@ -163,6 +386,22 @@ public class IpCamera extends CalculatedFPSCamera {
 		}
 	}
 
+	private void closeStream() {
+		try {
+			streamReader.get().close();
+		} catch (final IOException e) {
+			logger.error("Error closing stream for IP camera " + getName(), e);
+		}
+
+		if (streamConnection.isPresent()) streamConnection.get().disconnect();
+
+		streamReader = Optional.empty();
+		streamConnection = Optional.empty();
+
+		// Wake up the capture loop if it is waiting on a frame
+		handOff(decodedImages, END_OF_STREAM);
+	}
+
 	@Override
 	public String getName() {
 		return ipcam.getName();
@@ -203,18 +442,71 @@ public class IpCamera extends CalculatedFPSCamera {
 
 	@Override
 	public void run() {
+		if (getStreamingDevice().isPresent()) {
+			runStream();
+		} else {
+			runPolled();
+		}
+
+		if (!closing.get()) close();
+	}
+
+	private void runStream() {
+		capturing = true;
+		final BlockingQueue<DecodedImage> sessionImages = decodedImages;
+
+		try {
+			while (isOpen() && !closing.get()) {
+				final DecodedImage decoded;
+				try {
+					decoded = sessionImages.poll(STREAM_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+				if (decoded == END_OF_STREAM) break;
+
+				if (decoded == null) {
+					logger.warn("IP camera {} has not sent a frame in {} ms, closing it", getName(),
+							STREAM_TIMEOUT_MS);
+					break;
+				}
+
+				// Frame copies the image, so it is safe to recycle the image
+				// once the next one is delivered
+				final Frame frame = new Frame(decoded.image, decoded.timestamp, TimeUnit.NANOSECONDS);
+				deliver(decoded);
+
+				if (cameraEventListener.isPresent()) cameraEventListener.get().newFrame(frame);
+
+				if (((int) (getFrameCount() % Math.min(getFPS(), 5)) == 0) && cameraState != CameraState.CALIBRATING) {
+					estimateCameraFPS();
+
+					if (logger.isTraceEnabled()) {
+						logger.trace("IP camera {}: decode time = {} ms, frame interval = {} ms", getName(),
+								getAverageDecodeTime(), getAverageFrameInterval());
+					}
+				}
+			}
+		} finally {
+			capturing = false;
+		}
+	}
+
+	private void runPolled() {
 		while (isOpen() && !closing.get()) {
-			if (!isImageNew()) continue;
+			if (!isImageNew()) {
+				LockSupport.parkNanos(POLL_INTERVAL_NS);
+				continue;
+			}
 
 			if (cameraEventListener.isPresent()) cameraEventListener.get().newFrame(getFrame());
 
 			if (((int) (getFrameCount() % Math.min(getFPS(), 5)) == 0) && cameraState != CameraState.CALIBRATING) {
 				estimateCameraFPS();
 			}
-
 		}
-
-		if (!closing.get()) close();
 	}
 
 	@Override
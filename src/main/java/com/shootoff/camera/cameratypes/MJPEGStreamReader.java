@@ -0,0 +1,315 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.cameratypes;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * Reads JPEG frames out of a multipart MJPEG stream, which is what most IP
+ * cameras serve. Each call to {@link #readFrame()} blocks until a whole frame
+ * has arrived, so callers never have to poll. Frame bytes are read into one
+ * buffer that only grows when a larger frame shows up, and frames can be
+ * decoded into a caller supplied image to avoid allocating a new raster for
+ * every frame.
+ */
+public class MJPEGStreamReader implements Closeable {
+	private static final int MAX_HEADER_LINE_LENGTH = 1024;
+	private static final int INITIAL_FRAME_BUFFER_SIZE = 64 * 1024;
+
+	// A compressed frame is far smaller than the raw image, so anything
+	// larger than a few raw images is a broken stream
+	private static final int RAW_FRAMES_PER_MAX_FRAME = 4;
+	public static final int DEFAULT_MAX_FRAME_LENGTH = 1920 * 1080 * 3 * RAW_FRAMES_PER_MAX_FRAME;
+
+	private static final int MARKER = 0xFF;
+	private static final int STUFFED_BYTE = 0x00;
+	private static final int TEMPORARY = 0x01;
+	private static final int FIRST_RESTART = 0xD0;
+	private static final int LAST_RESTART = 0xD7;
+	private static final int START_OF_IMAGE = 0xD8;
+	private static final int END_OF_IMAGE = 0xD9;
+	private static final int START_OF_SCAN = 0xDA;
+
+	private final InputStream stream;
+	private final int maxFrameLength;
+	private final StringBuilder line = new StringBuilder();
+
+	private byte[] frameBuffer = new byte[INITIAL_FRAME_BUFFER_SIZE];
+	private int frameLength = 0;
+
+	private ImageReader jpegReader;
+
+	public MJPEGStreamReader(InputStream stream) {
+		this(stream, DEFAULT_MAX_FRAME_LENGTH);
+	}
+
+	/**
+	 * @param maxFrameLength
+	 *            frames longer than this many bytes are treated as a stream
+	 *            error instead of being buffered
+	 */
+	public MJPEGStreamReader(InputStream stream, int maxFrameLength) {
+		this.maxFrameLength = maxFrameLength;
+
+		if (stream instanceof BufferedInputStream) {
+			this.stream = stream;
+		} else {
+			this.stream = new BufferedInputStream(stream);
+		}
+	}
+
+	/**
+	 * @return the longest frame a camera streaming images of
+	 *         <code>viewSize</code> could reasonably send
+	 */
+	public static int getMaxFrameLength(Dimension viewSize) {
+		if (viewSize == null) return DEFAULT_MAX_FRAME_LENGTH;
+
+		return Math.max(DEFAULT_MAX_FRAME_LENGTH, viewSize.width * viewSize.height * 3 * RAW_FRAMES_PER_MAX_FRAME);
+	}
+
+	/**
+	 * Block until the next frame has been read in full.
+	 *
+	 * @return the length of the frame in bytes, or <code>-1</code> if the
+	 *         stream ended
+	 */
+	public int readFrame() throws IOException {
+		int contentLength = -1;
+		boolean inHeaders = false;
+
+		// Skip the boundary and part headers, only keeping the content length
+		// if the camera sends one
+		while (true) {
+			final String header = readLine();
+
+			if (header == null) return -1;
+
+			if (header.isEmpty()) {
+				if (inHeaders) break;
+				continue;
+			}
+
+			inHeaders = true;
+
+			final int colon = header.indexOf(':');
+			if (colon > 0 && "content-length".equalsIgnoreCase(header.substring(0, colon).trim())) {
+				try {
+					contentLength = Integer.parseInt(header.substring(colon + 1).trim());
+				} catch (final NumberFormatException e) {
+					contentLength = -1;
+				}
+			}
+		}
+
+		if (contentLength > maxFrameLength) {
+			throw new IOException(String.format("MJPEG frame of %d bytes is longer than the limit of %d bytes",
+					contentLength, maxFrameLength));
+		}
+
+		if (contentLength > 0) {
+			frameLength = readFixedLength(contentLength);
+		} else {
+			frameLength = readToEndOfImage();
+		}
+
+		return frameLength;
+	}
+
+	public byte[] getFrameBuffer() {
+		return frameBuffer;
+	}
+
+	public int getFrameLength() {
+		return frameLength;
+	}
+
+	/**
+	 * Decode the frame most recently read by {@link #readFrame()}.
+	 *
+	 * @param destination
+	 *            an image to decode into. It is only used if it has the same
+	 *            dimensions as the frame, otherwise a new image is allocated.
+	 * @return the decoded frame, which is <code>destination</code> if it was
+	 *         used
+	 */
+	public BufferedImage decodeFrame(Optional<BufferedImage> destination) throws IOException {
+		if (jpegReader == null) {
+			final Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("jpeg");
+			if (!readers.hasNext()) throw new IOException("No JPEG decoder is available");
+			jpegReader = readers.next();
+		}
+
+		// ImageIO.createImageInputStream may back the stream with a temporary
+		// file, which is far too slow to do for every frame
+		try (ImageInputStream input = new MemoryCacheImageInputStream(
+				new ByteArrayInputStream(frameBuffer, 0, frameLength))) {
+			jpegReader.setInput(input, true, true);
+
+			final ImageReadParam param = jpegReader.getDefaultReadParam();
+
+			if (destination.isPresent() && destination.get().getWidth() == jpegReader.getWidth(0)
+					&& destination.get().getHeight() == jpegReader.getHeight(0)) {
+				param.setDestination(destination.get());
+			}
+
+			return jpegReader.read(0, param);
+		} finally {
+			jpegReader.setInput(null);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (jpegReader != null) jpegReader.dispose();
+
+		stream.close();
+	}
+
+	private String readLine() throws IOException {
+		line.setLength(0);
+
+		int b;
+		while ((b = stream.read()) != '\n') {
+			if (b < 0) return line.length() == 0 ? null : line.toString();
+
+			// Anything this long is not a header, most likely we are resyncing
+			// in the middle of a frame
+			if (b != '\r' && line.length() < MAX_HEADER_LINE_LENGTH) line.append((char) b);
+		}
+
+		return line.toString();
+	}
+
+	private int readFixedLength(int length) throws IOException {
+		ensureCapacity(length);
+
+		int read = 0;
+		while (read < length) {
+			final int count = stream.read(frameBuffer, read, length - read);
+			if (count < 0) throw new IOException("MJPEG stream ended in the middle of a frame");
+			read += count;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Read a frame from a camera that doesn't send a content length. The
+	 * frame's marker segments are walked instead of stopping at the first end
+	 * of image marker because segments can contain a whole JPEG of their own,
+	 * e.g. an EXIF thumbnail.
+	 */
+	private int readToEndOfImage() throws IOException {
+		int previous = -1;
+		int b;
+
+		// Find the start of image marker
+		while (true) {
+			b = stream.read();
+			if (b < 0) return -1;
+			if (previous == MARKER && b == START_OF_IMAGE) break;
+			previous = b;
+		}
+
+		frameBuffer[0] = (byte) MARKER;
+		frameBuffer[1] = (byte) START_OF_IMAGE;
+		frameLength = 2;
+
+		// Entropy coded data follows a scan header until the next marker
+		boolean inScan = false;
+
+		while (true) {
+			if (readFrameByte() != MARKER) {
+				if (inScan) continue;
+				throw new IOException("MJPEG frame is missing a JPEG marker");
+			}
+
+			int marker = readFrameByte();
+			while (marker == MARKER)
+				marker = readFrameByte();
+
+			if (marker == END_OF_IMAGE) return frameLength;
+
+			// Escaped 0xFF bytes in scan data and markers without a segment
+			if (marker == STUFFED_BYTE || marker == TEMPORARY
+					|| (marker >= FIRST_RESTART && marker <= LAST_RESTART)) {
+				if (marker == STUFFED_BYTE && !inScan) throw new IOException("MJPEG frame has an invalid marker");
+				continue;
+			}
+
+			final int segmentLength = readFrameByte() << 8 | readFrameByte();
+			if (segmentLength < 2) throw new IOException("MJPEG frame has an invalid segment length");
+
+			readFrameBytes(segmentLength - 2);
+			inScan = marker == START_OF_SCAN;
+		}
+	}
+
+	private int readFrameByte() throws IOException {
+		final int b = stream.read();
+		if (b < 0) throw new IOException("MJPEG stream ended in the middle of a frame");
+
+		if (frameLength >= maxFrameLength)
+			throw new IOException("MJPEG frame is longer than the limit of " + maxFrameLength + " bytes");
+
+		ensureCapacity(frameLength + 1);
+		frameBuffer[frameLength++] = (byte) b;
+
+		return b;
+	}
+
+	private void readFrameBytes(int length) throws IOException {
+		if (frameLength + length > maxFrameLength)
+			throw new IOException("MJPEG frame is longer than the limit of " + maxFrameLength + " bytes");
+
+		ensureCapacity(frameLength + length);
+
+		int read = 0;
+		while (read < length) {
+			final int count = stream.read(frameBuffer, frameLength + read, length - read);
+			if (count < 0) throw new IOException("MJPEG stream ended in the middle of a frame");
+			read += count;
+		}
+
+		frameLength += length;
+	}
+
+	private void ensureCapacity(int length) {
+		if (frameBuffer.length >= length) return;
+
+		final byte[] newBuffer = new byte[Math.max(length, frameBuffer.length * 2)];
+		System.arraycopy(frameBuffer, 0, newBuffer, 0, frameBuffer.length);
+		frameBuffer = newBuffer;
+	}
+}
@@ -22,12 +22,12 @@ import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
-import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -173,20 +173,26 @@ public class OptiTrackCamera implements Camera {
 		if (viewHeight == 0) viewHeight = getViewHeight();
 		if (viewWidth == 0) viewWidth = getViewWidth();
 
+		// Frames are left single channel because the camera only sees
+		// infrared, expanding them to BGR would triple the bandwidth of every
+		// consumer without adding information
 		final Mat mat = new Mat(viewHeight, viewWidth, CvType.CV_8UC1);
-		final Mat dst = new Mat(viewHeight, viewWidth, CvType.CV_8UC3);
 
 		mat.put(0, 0, imageBuffer);
-		Imgproc.cvtColor(mat, dst, Imgproc.COLOR_GRAY2BGR);
-		return dst;
+		return mat;
+	}
+
+	@Override
+	public boolean isMonochrome() {
+		return true;
 	}
 
 	@Override
 	public Frame getFrame() {
 		final byte[] frame = getImageNative();
 		final Mat mat = translateCameraArrayToMat(frame);
-		final long currentFrameTimestamp = System.currentTimeMillis();
-		return new Frame(mat, currentFrameTimestamp);
+		final long currentFrameTimestamp = System.nanoTime();
+		return new Frame(mat, currentFrameTimestamp, TimeUnit.NANOSECONDS);
 	}
 
 	@Override
@@ -210,10 +216,24 @@ public class OptiTrackCamera implements Camera {
 		return initialized;
 	}
 
+	/**
+	 * The camera detects shots itself and stamps them on its own clock, so
+	 * shots are stamped with the capture time of the frame the camera sent
+	 * last instead.
+	 * 
+	 * @return the capture time of the most recent frame on the
+	 *         {@link System#nanoTime()} clock, or the current time if no frame
+	 *         has arrived yet
+	 */
+	public long getLastCaptureTime() {
+		final long captureTime = frameCaptureTime;
+		return captureTime == -1 ? System.nanoTime() : captureTime;
+	}
+
 	private final ReentrantLock frameLock = new ReentrantLock(true);
 	private AtomicBoolean frameAvailable = new AtomicBoolean(false);
 	private byte[] frameBytes;
-	private long frameTS;
+	private volatile long frameCaptureTime = -1;
 
 	@Override
 	public void run() {
@@ -228,7 +248,7 @@ public class OptiTrackCamera implements Camera {
 				} catch (InterruptedException e) {}
 
 				if (frameAvailable.compareAndSet(true, false)) {
-					frame = new Frame(translateCameraArrayToMat(frameBytes), frameTS);
+					frame = new Frame(translateCameraArrayToMat(frameBytes), frameCaptureTime, TimeUnit.NANOSECONDS);
 				}
 			}
 
@@ -246,7 +266,9 @@ public class OptiTrackCamera implements Camera {
 	private void receiveFrame(byte[] frameBytes, long frameTS) {
 		synchronized (frameLock) {
 			this.frameBytes = frameBytes;
-			this.frameTS = frameTS;
+			// frameTS comes from the camera's own clock, so stamp the frame
+			// on ours instead
+			this.frameCaptureTime = System.nanoTime();
 			frameLock.notifyAll();
 			frameAvailable.set(true);
 		}
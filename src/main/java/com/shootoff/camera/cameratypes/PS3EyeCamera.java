@@ -44,6 +44,7 @@ package com.shootoff.camera.cameratypes;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
@@ -396,10 +397,10 @@ public class PS3EyeCamera extends CalculatedFPSCamera {
 	@Override
 	public Frame getFrame() {
 		final byte[] frame = getImageNative();
-		final long currentFrameTimestamp = System.currentTimeMillis();
+		final long currentFrameTimestamp = System.nanoTime();
 		final Mat mat = translateCameraArrayToMat(frame);
 		frameCount++;
-		return new Frame(mat, currentFrameTimestamp);
+		return new Frame(mat, currentFrameTimestamp, TimeUnit.NANOSECONDS);
 	}
 
 	@Override
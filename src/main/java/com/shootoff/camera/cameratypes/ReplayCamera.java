@@ -0,0 +1,622 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.cameratypes;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.highgui.Highgui;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraFactory;
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CameraView;
+import com.shootoff.camera.Frame;
+import com.shootoff.camera.shotdetection.JavaShotDetector;
+import com.shootoff.camera.shotdetection.NativeShotDetector;
+import com.shootoff.camera.shotdetection.ShotDetector;
+import com.xuggle.mediatool.IMediaReader;
+import com.xuggle.mediatool.MediaListenerAdapter;
+import com.xuggle.mediatool.ToolFactory;
+import com.xuggle.mediatool.event.IVideoPictureEvent;
+
+/**
+ * A virtual camera that replays a recorded video or a directory of dumped
+ * frames as if it were a live feed. Paced frames are stamped with the time they
+ * are delivered, so everything downstream of the camera behaves exactly as it
+ * does for a webcam. Unpaced frames are stamped with the time they were
+ * recorded at relative to the start of the replay, so shot timing is the same
+ * no matter how fast the frames are processed. This makes it possible to
+ * reproduce field reports from recorded feeds, benchmark shot detection without
+ * webcams attached, and load test a machine by registering one replay camera
+ * per virtual lane.
+ */
+public class ReplayCamera extends CalculatedFPSCamera {
+	private static final Logger logger = LoggerFactory.getLogger(ReplayCamera.class);
+
+	public enum Pacing {
+		// Deliver frames at the rate they were recorded at
+		REAL_TIME,
+		// Deliver frames as fast as they can be decoded and processed
+		UNPACED
+	}
+
+	// Frame dumps carry no timestamps, so they are assumed to be this fast
+	public static final int DEFAULT_FRAME_DUMP_FPS = 30;
+
+	private static final List<String> FRAME_DUMP_EXTENSIONS = Arrays.asList(".png", ".jpg", ".jpeg", ".bmp");
+
+	private final File source;
+	private final Optional<RecordedFrames> recordedFrames;
+	private final String name;
+	private final Pacing pacing;
+	private final boolean loop;
+
+	private final AtomicBoolean closing = new AtomicBoolean(false);
+	private volatile FrameSource frameSource = null;
+
+	// The first frame is read when the camera is opened to learn the feed's
+	// dimensions, it is delivered first once the camera runs
+	private ReplayFrame pendingFrame = null;
+	private Dimension viewSize = new Dimension(-1, -1);
+	private boolean isMonochrome = false;
+
+	private boolean pacingStarted = false;
+	private long playbackStartTime;
+	private long mediaStartTime;
+
+	private long replayStartTime;
+	private int loopCount = 0;
+	private volatile long currentMediaTime = 0;
+
+	// Media time restarts with every loop, these keep the replay clock
+	// counting up from the first frame instead
+	private long loopMediaOffset;
+	private long lastReplayTime;
+	private long frameInterval;
+
+	public ReplayCamera(File source, String name, Pacing pacing, boolean loop) {
+		this(source, Optional.empty(), name, pacing, loop);
+	}
+
+	/**
+	 * Create a camera that replays frames that were already decoded instead of
+	 * reading them from disk.
+	 */
+	public ReplayCamera(RecordedFrames recordedFrames, String name, Pacing pacing, boolean loop) {
+		this(recordedFrames.getSource(), Optional.of(recordedFrames), name, pacing, loop);
+	}
+
+	private ReplayCamera(File source, Optional<RecordedFrames> recordedFrames, String name, Pacing pacing,
+			boolean loop) {
+		this.source = source;
+		this.recordedFrames = recordedFrames;
+		this.name = name;
+		this.pacing = pacing;
+		this.loop = loop;
+		cameraState = CameraState.NORMAL;
+	}
+
+	/**
+	 * Register replay cameras that all play the same source so that they are
+	 * offered alongside real webcams.
+	 *
+	 * @param instances
+	 *            how many independent cameras to register, each decodes the
+	 *            source on its own
+	 */
+	public static void register(File source, Pacing pacing, boolean loop, int instances) {
+		for (int i = 1; i <= instances; i++) {
+			final String name = instances == 1 ? "Replay " + source.getName()
+					: String.format("Replay %s #%d", source.getName(), i);
+
+			CameraFactory.registerCamera(new ReplayCamera(source, name, pacing, loop));
+		}
+
+		if (logger.isInfoEnabled()) logger.info("Registered {} replay camera(s) for {} (pacing {}, loop {})",
+				instances, source.getPath(), pacing, loop);
+	}
+
+	public static boolean isFrameDump(File source) {
+		return source.isDirectory();
+	}
+
+	public Pacing getPacing() {
+		return pacing;
+	}
+
+	public int getLoopCount() {
+		return loopCount;
+	}
+
+	/**
+	 * @return how far into the recording the most recently delivered frame is
+	 *         in nanoseconds
+	 */
+	public long getCurrentMediaTime() {
+		return currentMediaTime;
+	}
+
+	@Override
+	public synchronized boolean open() {
+		if (isOpen() && !closing.get()) return true;
+
+		closing.set(false);
+
+		try {
+			frameSource = recordedFrames.isPresent() ? new RecordedFramesSource(recordedFrames.get())
+					: openSource(source);
+			pendingFrame = frameSource.next();
+		} catch (final IOException e) {
+			logger.error("Failed to open replay source " + source.getPath(), e);
+			frameSource = null;
+			return false;
+		}
+
+		if (pendingFrame == null) {
+			logger.error("Replay source {} has no frames", source.getPath());
+			frameSource.close();
+			frameSource = null;
+			return false;
+		}
+
+		viewSize = new Dimension(pendingFrame.mat.cols(), pendingFrame.mat.rows());
+		isMonochrome = pendingFrame.mat.channels() == 1;
+		pacingStarted = false;
+		loopCount = 0;
+		replayStartTime = System.nanoTime();
+		loopMediaOffset = -pendingFrame.mediaTime;
+		lastReplayTime = -1;
+		frameInterval = TimeUnit.SECONDS.toNanos(1) / DEFAULT_FRAME_DUMP_FPS;
+
+		CameraFactory.openCamerasAdd(this);
+
+		return true;
+	}
+
+	private static FrameSource openSource(File source) throws IOException {
+		return isFrameDump(source) ? new FrameDumpSource(source) : new VideoSource(source);
+	}
+
+	@Override
+	public boolean isOpen() {
+		return frameSource != null;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!isOpen() || closing.get()) return;
+
+		closing.set(true);
+
+		if (logger.isInfoEnabled() && frameCount > 0) {
+			final double seconds = (System.nanoTime() - replayStartTime) / 1000000000.0;
+			logger.info("{} replayed {} frames in {} s ({} fps, {} loops)", getName(), frameCount,
+					String.format("%.2f", seconds), String.format("%.1f", frameCount / seconds), loopCount);
+		}
+
+		frameSource.close();
+		frameSource = null;
+		pendingFrame = null;
+
+		CameraFactory.openCamerasRemove(this);
+		if (cameraEventListener.isPresent()) cameraEventListener.get().cameraClosed();
+	}
+
+	@Override
+	public Frame getFrame() {
+		final ReplayFrame replayFrame;
+
+		try {
+			replayFrame = nextFrame();
+		} catch (final IOException e) {
+			logger.error("Failed to read the next frame from " + source.getPath(), e);
+			return null;
+		}
+
+		if (replayFrame == null) return null;
+
+		if (pacing == Pacing.REAL_TIME) waitUntilDue(replayFrame.mediaTime);
+
+		final long replayTime = loopMediaOffset + replayFrame.mediaTime;
+		if (lastReplayTime >= 0 && replayTime > lastReplayTime) frameInterval = replayTime - lastReplayTime;
+		lastReplayTime = replayTime;
+
+		currentMediaTime = replayFrame.mediaTime;
+		frameCount++;
+
+		final long captureTime = pacing == Pacing.REAL_TIME ? System.nanoTime() : replayStartTime + replayTime;
+
+		return new Frame(replayFrame.mat, captureTime, TimeUnit.NANOSECONDS);
+	}
+
+	// Synchronized so the source can't be closed in the middle of a read
+	private synchronized ReplayFrame nextFrame() throws IOException {
+		final FrameSource currentSource = frameSource;
+		if (currentSource == null) return null;
+
+		if (pendingFrame != null) {
+			final ReplayFrame frame = pendingFrame;
+			pendingFrame = null;
+			return frame;
+		}
+
+		ReplayFrame frame = currentSource.next();
+
+		if (frame == null && loop && !closing.get()) {
+			currentSource.rewind();
+			loopCount++;
+			pacingStarted = false;
+			frame = currentSource.next();
+
+			// The first frame of the next loop follows the last frame of this
+			// one
+			if (frame != null) loopMediaOffset = lastReplayTime + frameInterval - frame.mediaTime;
+		}
+
+		return frame;
+	}
+
+	private void waitUntilDue(long mediaTime) {
+		if (!pacingStarted) {
+			pacingStarted = true;
+			playbackStartTime = System.nanoTime();
+			mediaStartTime = mediaTime;
+			return;
+		}
+
+		final long dueTime = playbackStartTime + (mediaTime - mediaStartTime);
+
+		// A late frame is delivered right away instead of skipped, the same
+		// as a webcam that can't keep up
+		long remaining;
+		while ((remaining = dueTime - System.nanoTime()) > 0 && !closing.get()) {
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	@Override
+	public BufferedImage getBufferedImage() {
+		final Frame frame = getFrame();
+
+		if (frame == null) {
+			return null;
+		} else {
+			return frame.getOriginalBufferedImage();
+		}
+	}
+
+	@Override
+	public void run() {
+		while (isOpen() && !closing.get()) {
+			final Frame frame = getFrame();
+
+			// The source ran out and isn't looping
+			if (frame == null) break;
+
+			if (cameraEventListener.isPresent()) cameraEventListener.get().newFrame(frame);
+
+			if (((int) (getFrameCount() % Math.min(getFPS(), 5)) == 0) && cameraState != CameraState.CALIBRATING) {
+				// Unpaced frames arrive faster than they were recorded, so
+				// the rate is measured on the replay clock
+				if (pacing == Pacing.REAL_TIME) {
+					estimateCameraFPS();
+				} else {
+					estimateCameraFPS(frame.getCaptureTime());
+				}
+			}
+		}
+
+		if (!closing.get()) close();
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public void setViewSize(Dimension size) {
+		// The feed is always the size it was recorded at
+		return;
+	}
+
+	@Override
+	public Dimension getViewSize() {
+		return viewSize;
+	}
+
+	@Override
+	public boolean isMonochrome() {
+		return isMonochrome;
+	}
+
+	@Override
+	public ShotDetector getPreferredShotDetector(CameraManager cameraManager, CameraView cameraView) {
+		if (NativeShotDetector.isSystemSupported())
+			return new NativeShotDetector(cameraManager, cameraView);
+		else if (JavaShotDetector.isSystemSupported())
+			return new JavaShotDetector(cameraManager, cameraView);
+		else
+			return null;
+	}
+
+	@Override
+	public boolean isLocked() {
+		return false;
+	}
+
+	@Override
+	public boolean supportsExposureAdjustment() {
+		return false;
+	}
+
+	@Override
+	public boolean decreaseExposure() {
+		return false;
+	}
+
+	@Override
+	public void resetExposure() {}
+
+	@Override
+	public boolean limitsFrames() {
+		return false;
+	}
+
+	private static class ReplayFrame {
+		private final Mat mat;
+		// Nanoseconds since the start of the recording
+		private final long mediaTime;
+
+		private ReplayFrame(Mat mat, long mediaTime) {
+			this.mat = mat;
+			this.mediaTime = mediaTime;
+		}
+	}
+
+	/**
+	 * Every frame of a recording decoded into memory so that it can be
+	 * replayed many times without decoding it again, e.g. once per trial when
+	 * tuning shot detection. Frames are copied when they are replayed because
+	 * detectors draw on the frames they are given.
+	 */
+	public static class RecordedFrames {
+		private final File source;
+		private final List<ReplayFrame> frames;
+		private final long sizeInBytes;
+
+		private RecordedFrames(File source, List<ReplayFrame> frames) {
+			this.source = source;
+			this.frames = frames;
+
+			long size = 0;
+			for (final ReplayFrame frame : frames) {
+				size += frame.mat.total() * frame.mat.elemSize();
+			}
+			sizeInBytes = size;
+		}
+
+		public static RecordedFrames decode(File source) throws IOException {
+			final FrameSource frameSource = openSource(source);
+			final List<ReplayFrame> frames = new ArrayList<>();
+
+			try {
+				ReplayFrame frame;
+				while ((frame = frameSource.next()) != null) {
+					frames.add(frame);
+				}
+			} finally {
+				frameSource.close();
+			}
+
+			return new RecordedFrames(source, frames);
+		}
+
+		/**
+		 * @return a copy of these frames scaled to <code>width</code> x
+		 *         <code>height</code>, e.g. to measure detection at a
+		 *         resolution the recording wasn't made at
+		 */
+		public RecordedFrames resize(int width, int height) {
+			final List<ReplayFrame> resizedFrames = new ArrayList<>(frames.size());
+
+			for (final ReplayFrame frame : frames) {
+				final Mat resized = new Mat();
+				Imgproc.resize(frame.mat, resized, new Size(width, height));
+				resizedFrames.add(new ReplayFrame(resized, frame.mediaTime));
+			}
+
+			return new RecordedFrames(source, resizedFrames);
+		}
+
+		public File getSource() {
+			return source;
+		}
+
+		public int getFrameCount() {
+			return frames.size();
+		}
+
+		/**
+		 * @return how much native memory the decoded frames occupy
+		 */
+		public long getSizeInBytes() {
+			return sizeInBytes;
+		}
+
+		/**
+		 * Free the decoded frames. They must not be replayed afterwards.
+		 */
+		public void release() {
+			for (final ReplayFrame frame : frames) {
+				frame.mat.release();
+			}
+		}
+	}
+
+	private interface FrameSource {
+		// Returns null when there are no more frames
+		ReplayFrame next() throws IOException;
+
+		void rewind() throws IOException;
+
+		void close();
+	}
+
+	private static class VideoSource extends MediaListenerAdapter implements FrameSource {
+		private final File video;
+		private IMediaReader reader;
+		private ReplayFrame decodedFrame = null;
+
+		private VideoSource(File video) throws IOException {
+			if (!video.isFile()) throw new IOException("Video does not exist: " + video.getPath());
+
+			this.video = video;
+			openReader();
+		}
+
+		private void openReader() {
+			reader = ToolFactory.makeReader(video.getAbsolutePath());
+			reader.setBufferedImageTypeToGenerate(BufferedImage.TYPE_3BYTE_BGR);
+			reader.addListener(this);
+		}
+
+		@Override
+		public void onVideoPicture(IVideoPictureEvent event) {
+			decodedFrame = new ReplayFrame(Camera.bufferedImageToMat(event.getImage()),
+					TimeUnit.MICROSECONDS.toNanos(event.getTimeStamp()));
+		}
+
+		@Override
+		public ReplayFrame next() {
+			// Packets are read until one of them completes a picture
+			while (decodedFrame == null) {
+				if (reader.readPacket() != null) return null;
+			}
+
+			final ReplayFrame frame = decodedFrame;
+			decodedFrame = null;
+			return frame;
+		}
+
+		@Override
+		public void rewind() {
+			close();
+			openReader();
+		}
+
+		@Override
+		public void close() {
+			if (reader.isOpen()) reader.close();
+			decodedFrame = null;
+		}
+	}
+
+	private static class RecordedFramesSource implements FrameSource {
+		private final RecordedFrames recordedFrames;
+		private int nextFrame = 0;
+
+		private RecordedFramesSource(RecordedFrames recordedFrames) {
+			this.recordedFrames = recordedFrames;
+		}
+
+		@Override
+		public ReplayFrame next() {
+			if (nextFrame >= recordedFrames.frames.size()) return null;
+
+			final ReplayFrame frame = recordedFrames.frames.get(nextFrame++);
+			return new ReplayFrame(frame.mat.clone(), frame.mediaTime);
+		}
+
+		@Override
+		public void rewind() {
+			nextFrame = 0;
+		}
+
+		@Override
+		public void close() {}
+	}
+
+	private static class FrameDumpSource implements FrameSource {
+		private final File[] frames;
+		private int nextFrame = 0;
+
+		private FrameDumpSource(File directory) throws IOException {
+			final List<File> frameFiles = new ArrayList<>();
+			final File[] files = directory.listFiles();
+
+			if (files == null) throw new IOException("Failed to list frames in " + directory.getPath());
+
+			for (final File file : files) {
+				final String fileName = file.getName().toLowerCase(Locale.ENGLISH);
+				final int extension = fileName.lastIndexOf('.');
+
+				if (file.isFile() && extension > 0 && FRAME_DUMP_EXTENSIONS.contains(fileName.substring(extension)))
+					frameFiles.add(file);
+			}
+
+			// Dumps are expected to be named so that they sort into frame
+			// order, e.g. frame-000001.png
+			frames = frameFiles.toArray(new File[frameFiles.size()]);
+			Arrays.sort(frames);
+		}
+
+		@Override
+		public ReplayFrame next() throws IOException {
+			if (nextFrame >= frames.length) return null;
+
+			final File frameFile = frames[nextFrame];
+
+			// Unchanged keeps single channel dumps from mono cameras
+			// grayscale
+			final Mat mat = Highgui.imread(frameFile.getAbsolutePath(), Highgui.CV_LOAD_IMAGE_UNCHANGED);
+			if (mat.empty()) throw new IOException("Failed to read frame " + frameFile.getPath());
+
+			if (mat.channels() == 4) Imgproc.cvtColor(mat, mat, Imgproc.COLOR_BGRA2BGR);
+
+			final long mediaTime = TimeUnit.SECONDS.toNanos(nextFrame) / DEFAULT_FRAME_DUMP_FPS;
+			nextFrame++;
+
+			return new ReplayFrame(mat, mediaTime);
+		}
+
+		@Override
+		public void rewind() {
+			nextFrame = 0;
+		}
+
+		@Override
+		public void close() {}
+	}
+}
@@ -22,11 +22,13 @@ import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.opencv.core.Mat;
 import org.opencv.highgui.Highgui;
 import org.opencv.highgui.VideoCapture;
+import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,12 +45,15 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 	private static final Logger logger = LoggerFactory.getLogger(SarxosCaptureCamera.class);
 
 	public static final int CV_CAP_PROP_EXPOSURE = 15;
+	public static final int CV_CAP_PROP_MONOCROME = 19;
 
 	private int cameraIndex = -1;
 	private final VideoCapture camera;
 
 	private final AtomicBoolean closing = new AtomicBoolean(false);
 
+	private boolean isMonochrome = false;
+
 	// For testing
 	protected SarxosCaptureCamera() {
 		camera = null;
@@ -91,9 +96,19 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 			return null;
 		}
 
-		final long currentFrameTimestamp = System.currentTimeMillis();
+		final long currentFrameTimestamp = System.nanoTime();
 		frameCount++;
-		return new Frame(frame, currentFrameTimestamp);
+
+		if (isMonochrome && frame.channels() > 1) {
+			// Most drivers still hand mono frames to OpenCV as BGR. Collapsing
+			// them here is cheaper than carrying three identical channels
+			// through shot detection.
+			final Mat grayFrame = new Mat();
+			Imgproc.cvtColor(frame, grayFrame, Imgproc.COLOR_BGR2GRAY);
+			return new Frame(grayFrame, currentFrameTimestamp, TimeUnit.NANOSECONDS);
+		}
+
+		return new Frame(frame, currentFrameTimestamp, TimeUnit.NANOSECONDS);
 	}
 
 	@Override
@@ -123,6 +138,9 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 			// to 30, which unnecessarily hampers higher end cameras
 			camera.set(5, 60);
 
+			isMonochrome = camera.get(CV_CAP_PROP_MONOCROME) > 0;
+			if (isMonochrome && logger.isDebugEnabled()) logger.debug("{} reports monochrome output", getName());
+
 			CameraFactory.openCamerasAdd(this);
 		}
 
@@ -134,6 +152,11 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 		return camera.isOpened();
 	}
 
+	@Override
+	public boolean isMonochrome() {
+		return isMonochrome;
+	}
+
 	@Override
 	public synchronized void close() {
 		if (logger.isTraceEnabled())
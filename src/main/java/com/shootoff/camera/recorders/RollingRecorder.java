@@ -18,7 +18,6 @@
 
 package com.shootoff.camera.recorders;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -29,20 +28,23 @@ import org.slf4j.LoggerFactory;
 
 import com.shootoff.Closeable;
 import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.Frame;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
 import com.xuggle.mediatool.IMediaReader;
 import com.xuggle.mediatool.IMediaWriter;
 import com.xuggle.mediatool.MediaListenerAdapter;
 import com.xuggle.mediatool.ToolFactory;
 import com.xuggle.mediatool.event.IVideoPictureEvent;
 import com.xuggle.xuggler.ICodec;
-import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IVideoPicture;
-import com.xuggle.xuggler.video.ConverterFactory;
-import com.xuggle.xuggler.video.IConverter;
 
 public class RollingRecorder implements Closeable {
 	private final Logger logger = LoggerFactory.getLogger(RollingRecorder.class);
 
+	private static final LatencyHistogram recordFrameTime = MetricsRegistry.getRegistry()
+			.histogram("recorder.rolling.recordFrame");
+
 	private final ICodec.ID codec;
 	private final String extension;
 	private final String sessionName;
@@ -85,13 +87,12 @@ public class RollingRecorder implements Closeable {
 		logger.debug("Started recording new rolling video: {}", videoFile.getName());
 	}
 
-	public void recordFrame(BufferedImage frame) {
-		final BufferedImage image = ConverterFactory.convertToType(frame, BufferedImage.TYPE_3BYTE_BGR);
-		final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
+	public void recordFrame(Frame frame) {
+		final long recordStartTime = System.nanoTime();
 
 		timestamp = (System.currentTimeMillis() - startTime) + timeOffset;
 
-		final IVideoPicture f = converter.toPicture(image, timestamp * 1000);
+		final IVideoPicture f = frame.getVideoPicture(timestamp * 1000);
 		f.setKeyFrame(isFirstShotFrame);
 		f.setQuality(0);
 
@@ -112,6 +113,8 @@ public class RollingRecorder implements Closeable {
 				fork(false);
 			}
 		}
+
+		recordFrameTime.recordSince(recordStartTime);
 	}
 
 	private ForkContext fork(boolean keepOld) {
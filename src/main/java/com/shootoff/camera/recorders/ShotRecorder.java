@@ -18,18 +18,17 @@
 
 package com.shootoff.camera.recorders;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.shootoff.Closeable;
+import com.shootoff.camera.Frame;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
 import com.xuggle.mediatool.IMediaWriter;
-import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IVideoPicture;
-import com.xuggle.xuggler.video.ConverterFactory;
-import com.xuggle.xuggler.video.IConverter;
 
 public class ShotRecorder implements Closeable {
 	// The number of milliseconds before and after a shot to record
@@ -37,6 +36,9 @@ public class ShotRecorder implements Closeable {
 
 	private static final Logger logger = LoggerFactory.getLogger(ShotRecorder.class);
 
+	private static final LatencyHistogram recordFrameTime = MetricsRegistry.getRegistry()
+			.histogram("recorder.shot.recordFrame");
+
 	private final long startTime;
 	private final long timeOffset;
 	private final File relativeVideoFile;
@@ -58,18 +60,19 @@ public class ShotRecorder implements Closeable {
 		logger.debug("Started recording shot video: {}, cut duration = {} ms", videoFile.getName(), cutDuration);
 	}
 
-	public void recordFrame(BufferedImage frame) {
-		final BufferedImage image = ConverterFactory.convertToType(frame, BufferedImage.TYPE_3BYTE_BGR);
-		final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
+	public void recordFrame(Frame frame) {
+		final long recordStartTime = System.nanoTime();
 
 		final long timestamp = (System.currentTimeMillis() - startTime) + timeOffset;
 
-		final IVideoPicture f = converter.toPicture(image, timestamp * 1000);
+		final IVideoPicture f = frame.getVideoPicture(timestamp * 1000);
 		f.setKeyFrame(isFirstShotFrame);
 		f.setQuality(0);
 		isFirstShotFrame = false;
 
 		videoWriter.encodeVideo(0, f);
+
+		recordFrameTime.recordSince(recordStartTime);
 	}
 
 	public File getRelativeVideoFile() {
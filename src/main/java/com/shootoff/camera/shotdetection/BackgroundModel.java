@@ -0,0 +1,99 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+/**
+ * Tracks the per-pixel background that shot detection compares new frames
+ * against. Each pixel has a luminance estimate, which drives thresholding, and
+ * a color distance from red estimate, which biases shot color classification.
+ * Subclasses decide how new samples are folded into those estimates.
+ *
+ * Pixels are indexed as <code>[x][y]</code> to match {@link PixelCluster}. A
+ * luminance of <code>-1</code> means the pixel has not been seeded yet.
+ */
+public abstract class BackgroundModel {
+	public static final int UNINITIALIZED = -1;
+
+	protected int[][] lums = new int[0][0];
+	protected int[][] colorDistances = new int[0][0];
+
+	protected int period = 1;
+
+	public void setFrameSize(final int width, final int height) {
+		lums = new int[width][height];
+		colorDistances = new int[width][height];
+
+		reset();
+	}
+
+	public void reset() {
+		for (final int[] column : lums) {
+			for (int y = 0; y < column.length; y++) {
+				column[y] = UNINITIALIZED;
+			}
+		}
+	}
+
+	/**
+	 * Set the number of frames a new sample should roughly take to dominate
+	 * the background. Shot detection updates this as the camera's FPS changes,
+	 * so implementations should keep this cheap.
+	 *
+	 * @param period
+	 *            the adaptation period in frames, always at least 1
+	 */
+	public void setPeriod(final int period) {
+		this.period = Math.max(period, 1);
+	}
+
+	public int getPeriod() {
+		return period;
+	}
+
+	public boolean isInitialized(final int x, final int y) {
+		return lums[x][y] != UNINITIALIZED;
+	}
+
+	/**
+	 * Seed a pixel's background with its first observed sample.
+	 */
+	public void initialize(final int x, final int y, final int lum, final int colorDistance) {
+		lums[x][y] = lum;
+		colorDistances[x][y] = colorDistance;
+	}
+
+	public int getLum(final int x, final int y) {
+		return lums[x][y];
+	}
+
+	public int getColorDistance(final int x, final int y) {
+		return colorDistances[x][y];
+	}
+
+	public int[][] getColorDistances() {
+		return colorDistances;
+	}
+
+	/**
+	 * Fold a new sample into an already initialized pixel's background. This
+	 * is called once per pixel per frame from several sieve threads at once,
+	 * but never for the same pixel concurrently.
+	 */
+	public abstract void update(final int x, final int y, final int lum, final int colorDistance);
+}
@@ -0,0 +1,47 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+public enum BackgroundModelType {
+	MOVING_AVERAGE, FIXED_POINT_EMA, RUNNING_MEDIAN;
+
+	public BackgroundModel create() {
+		switch (this) {
+		case FIXED_POINT_EMA:
+			return new ExponentialBackgroundModel();
+		case RUNNING_MEDIAN:
+			return new RunningMedianBackgroundModel();
+		case MOVING_AVERAGE:
+		default:
+			return new MovingAverageBackgroundModel();
+		}
+	}
+
+	public static BackgroundModelType fromString(String text) {
+		if (text != null) {
+			for (final BackgroundModelType t : BackgroundModelType.values()) {
+				if (t.name().equalsIgnoreCase(text.trim())) {
+					return t;
+				}
+			}
+		}
+
+		return null;
+	}
+}
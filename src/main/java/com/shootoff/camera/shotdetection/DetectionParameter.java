@@ -0,0 +1,112 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.Locale;
+
+/**
+ * The thresholds the Java shot detector uses to decide whether changed pixels
+ * are a shot. Each one has the value the detector has always used and a range
+ * that is reasonable to search when tuning the detector for a camera.
+ * 
+ * Defaults written as float literals are the detector's original float
+ * thresholds widened to doubles, so detection is unchanged.
+ */
+public enum DetectionParameter {
+	// Minimum average number of bright neighbours per pixel in a cluster
+	MINIMUM_CONNECTEDNESS(3.66f, 2.5, 5.0, false),
+	// Cap on how far the minimum connectedness scales up for large clusters
+	MAXIMUM_CONNECTEDNESS_SCALE(6f, 4.5, 7.5, false),
+	// Minimum connectedness added per pixel a cluster is over the minimum size
+	MINIMUM_CONNECTEDNESS_FACTOR(.018f, .005, .04, false),
+	// Minimum ratio of cluster pixels to the area of its bounding circle
+	MINIMUM_DENSITY(.69f, .5, .9, false),
+	// Allowed width to height ratios of a cluster
+	MINIMUM_SHOT_RATIO(.5f, .3, .7, false),
+	MAXIMUM_SHOT_RATIO(1.43f, 1.2, 2.0, false),
+	// Clusters whose width + height is at most this many pixels use the small
+	// shot ratios
+	SMALL_SHOT_THRESHOLD(16, 8, 32, true),
+	MINIMUM_SHOT_RATIO_SMALL(.47f, .3, .7, false),
+	MAXIMUM_SHOT_RATIO_SMALL(1.75f, 1.3, 2.5, false),
+	// Clustering gives up on frames with more changed pixels than this once
+	// they are spread over more regions than the region count
+	EXCESSIVE_PIXEL_CUTOFF(300, 100, 1000, true),
+	EXCESSIVE_PIXEL_REGION_COUNT(1, 0, 5, true),
+	// Fraction of the maximum luminance a pixel's background can have before
+	// the pixel is considered too bright to detect shots in
+	EXCESSIVE_BRIGHTNESS_THRESHOLD(.96, .85, .99, false),
+	// Fraction of the maximum luminance a pixel must brighten by to be part of
+	// a shot
+	MINIMUM_BRIGHTNESS_INCREASE(.117, .05, .25, false);
+
+	private final double defaultValue;
+	private final double minimum;
+	private final double maximum;
+	private final boolean isInteger;
+
+	private DetectionParameter(double defaultValue, double minimum, double maximum, boolean isInteger) {
+		this.defaultValue = defaultValue;
+		this.minimum = minimum;
+		this.maximum = maximum;
+		this.isInteger = isInteger;
+	}
+
+	public double getDefaultValue() {
+		return defaultValue;
+	}
+
+	/**
+	 * @return the smallest value worth trying when tuning
+	 */
+	public double getMinimum() {
+		return minimum;
+	}
+
+	/**
+	 * @return the largest value worth trying when tuning
+	 */
+	public double getMaximum() {
+		return maximum;
+	}
+
+	public boolean isInteger() {
+		return isInteger;
+	}
+
+	/**
+	 * @return the name used for this parameter in profiles and on the command
+	 *         line, e.g. <code>minimum-density</code>
+	 */
+	public String getKey() {
+		return name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+	}
+
+	public static DetectionParameter fromKey(String key) {
+		if (key != null) {
+			for (final DetectionParameter p : DetectionParameter.values()) {
+				if (p.getKey().equalsIgnoreCase(key.trim())) {
+					return p;
+				}
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * An immutable set of values for every {@link DetectionParameter}. A set that
+ * works well for a particular camera can be saved as a profile (a properties
+ * file keyed by {@link DetectionParameter#getKey()}) and loaded with
+ * <code>--detection-profile</code>. Parameters missing from a profile keep
+ * their default values.
+ */
+public final class DetectionParameters {
+	public static final DetectionParameters DEFAULT = new DetectionParameters();
+
+	private final double[] values;
+
+	private DetectionParameters() {
+		values = new double[DetectionParameter.values().length];
+
+		for (final DetectionParameter parameter : DetectionParameter.values()) {
+			values[parameter.ordinal()] = parameter.getDefaultValue();
+		}
+	}
+
+	private DetectionParameters(double[] values) {
+		this.values = values;
+	}
+
+	public double get(DetectionParameter parameter) {
+		return values[parameter.ordinal()];
+	}
+
+	public int getInt(DetectionParameter parameter) {
+		return (int) Math.round(values[parameter.ordinal()]);
+	}
+
+	/**
+	 * @return a copy of these parameters with <code>parameter</code> set to
+	 *         <code>value</code>, which is rounded for integer parameters
+	 */
+	public DetectionParameters with(DetectionParameter parameter, double value) {
+		final double[] newValues = Arrays.copyOf(values, values.length);
+		newValues[parameter.ordinal()] = parameter.isInteger() ? Math.round(value) : value;
+		return new DetectionParameters(newValues);
+	}
+
+	public static DetectionParameters fromProperties(Properties properties) throws IOException {
+		DetectionParameters parameters = DEFAULT;
+
+		for (final String key : properties.stringPropertyNames()) {
+			final DetectionParameter parameter = DetectionParameter.fromKey(key);
+
+			if (parameter == null) throw new IOException("Unknown detection parameter: " + key);
+
+			try {
+				double value = Double.parseDouble(properties.getProperty(key).trim());
+
+				// Defaults that are floats are written rounded to float
+				// precision, so read them back as the exact default
+				if ((float) value == (float) parameter.getDefaultValue()) value = parameter.getDefaultValue();
+
+				parameters = parameters.with(parameter, value);
+			} catch (final NumberFormatException e) {
+				throw new IOException(String.format("Detection parameter %s has an invalid value: %s", key,
+						properties.getProperty(key)), e);
+			}
+		}
+
+		return parameters;
+	}
+
+	public Properties toProperties() {
+		final Properties properties = new Properties();
+
+		for (final DetectionParameter parameter : DetectionParameter.values()) {
+			properties.setProperty(parameter.getKey(), format(parameter));
+		}
+
+		return properties;
+	}
+
+	public static DetectionParameters load(File profile) throws IOException {
+		final Properties properties = new Properties();
+
+		try (InputStream inputStream = Files.newInputStream(profile.toPath())) {
+			properties.load(inputStream);
+		}
+
+		return fromProperties(properties);
+	}
+
+	/**
+	 * @param comments
+	 *            written at the top of the profile, e.g. how accurate these
+	 *            parameters were measured to be
+	 */
+	public void store(File profile, String comments) throws IOException {
+		try (OutputStream outputStream = Files.newOutputStream(profile.toPath())) {
+			toProperties().store(outputStream, comments);
+		}
+	}
+
+	/**
+	 * @return <code>parameter</code>'s value as written to profiles, where
+	 *         values that are exactly a float are rounded to the shortest
+	 *         text that reads back as that float
+	 */
+	public String format(DetectionParameter parameter) {
+		if (parameter.isInteger()) return String.valueOf(getInt(parameter));
+
+		final double value = get(parameter);
+		return (float) value == value ? String.valueOf((float) value) : String.valueOf(value);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof DetectionParameters)) return false;
+
+		return Arrays.equals(values, ((DetectionParameters) obj).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(values);
+	}
+
+	/**
+	 * @return the parameters that differ from their defaults, or
+	 *         <code>defaults</code> if there are none
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder changed = new StringBuilder();
+
+		for (final DetectionParameter parameter : DetectionParameter.values()) {
+			if (get(parameter) == parameter.getDefaultValue()) continue;
+
+			if (changed.length() > 0) changed.append(", ");
+			changed.append(parameter.getKey()).append('=').append(format(parameter));
+		}
+
+		return changed.length() > 0 ? changed.toString() : "defaults";
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.Collection;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+/**
+ * Paints pixels that triggered a motion or brightness warning onto a frame so
+ * the user can see what the problem is. Setting each pixel on the frame is a
+ * native call per pixel, which adds up to thousands of calls on exactly the
+ * noisy frames where detection is already behind. Instead the pixels are
+ * marked in a mask kept in Java memory and the mask is applied to the frame
+ * with two native calls.
+ */
+class DiagnosticOverlay {
+	private final Mat mask = new Mat();
+	private byte[] maskData = new byte[0];
+
+	/**
+	 * Set every pixel in <code>pixels</code> to <code>color</code>. For
+	 * grayscale frames only the first component of <code>color</code> is
+	 * used.
+	 */
+	public void paint(Mat frame, Collection<Pixel> pixels, Scalar color) {
+		if (pixels.isEmpty()) return;
+
+		final int cols = frame.cols();
+		final int size = frame.rows() * cols;
+
+		if (maskData.length != size) maskData = new byte[size];
+
+		for (final Pixel pixel : pixels) {
+			maskData[pixel.y * cols + pixel.x] = (byte) 0xFF;
+		}
+
+		mask.create(frame.rows(), cols, CvType.CV_8UC1);
+		mask.put(0, 0, maskData);
+		frame.setTo(color, mask);
+
+		// Only the pixels that were set need to be cleared for the next frame
+		for (final Pixel pixel : pixels) {
+			maskData[pixel.y * cols + pixel.x] = 0;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+/**
+ * An exponential moving average with a smoothing factor of
+ * <code>1 / period</code>, which is the same filter as
+ * {@link MovingAverageBackgroundModel} rewritten as
+ * <code>avg += (sample - avg) / period</code>. The division is replaced by a
+ * multiply with a 16.16 fixed-point reciprocal that is only recomputed when the
+ * period changes, followed by a shift.
+ */
+public class ExponentialBackgroundModel extends BackgroundModel {
+	private static final int FRACTION_BITS = 16;
+	private static final long ROUNDING = 1L << (FRACTION_BITS - 1);
+
+	private long reciprocal = 1L << FRACTION_BITS;
+
+	@Override
+	public void setPeriod(final int period) {
+		if (period == this.period) return;
+
+		super.setPeriod(period);
+		reciprocal = (1L << FRACTION_BITS) / this.period;
+	}
+
+	@Override
+	public void update(final int x, final int y, final int lum, final int colorDistance) {
+		lums[x][y] += step(lum - lums[x][y]);
+		colorDistances[x][y] += step(colorDistance - colorDistances[x][y]);
+	}
+
+	protected int step(final int delta) {
+		// Color distances can exceed 16 bits, so the product needs a long
+		return (int) ((delta * reciprocal + ROUNDING) >> FRACTION_BITS);
+	}
+}
@@ -21,11 +21,23 @@ package com.shootoff.camera.shotdetection;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.Frame;
+import com.shootoff.config.Configuration;
 
 public abstract class FrameProcessingShotDetector extends ShotDetector {
+	private final BackgroundModel backgroundModel;
 
 	public FrameProcessingShotDetector(CameraManager cameraManager, CameraView cameraView) {
 		super(cameraManager, cameraView);
+
+		backgroundModel = Configuration.getConfig().getBackgroundModelType(cameraManager.getName()).create();
+	}
+
+	/**
+	 * @return the per-pixel background that frames are compared against to
+	 *         find changed pixels
+	 */
+	public BackgroundModel getBackgroundModel() {
+		return backgroundModel;
 	}
 
 	/**
@@ -18,15 +18,14 @@
 
 package com.shootoff.camera.shotdetection;
 
-import java.io.File;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.opencv.core.Mat;
-import org.opencv.highgui.Highgui;
-import org.opencv.imgproc.Imgproc;
+import org.opencv.core.Scalar;
 import org.openimaj.util.function.Operation;
 import org.openimaj.util.parallel.GlobalExecutorPool;
 import org.openimaj.util.parallel.Parallel;
@@ -38,23 +37,31 @@ import com.shootoff.camera.CameraView;
 import com.shootoff.camera.Frame;
 import com.shootoff.camera.shot.ShotColor;
 import com.shootoff.config.Configuration;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
+import com.shootoff.metrics.ShotTrace;
 
 public final class JavaShotDetector extends FrameProcessingShotDetector {
 	private static final Logger logger = LoggerFactory.getLogger(JavaShotDetector.class);
 
+	private static final LatencyHistogram processFrameTime = MetricsRegistry.getRegistry()
+			.histogram("detection.processFrame");
+
 	public static final int SECTOR_COLUMNS = 3;
 	public static final int SECTOR_ROWS = 3;
 
-	// These assume BGR format
-	private static final byte[] BLUE_MAT_PIXEL = { (byte) 255, (byte) 0, (byte) 0 };
-	private static final byte[] RED_MAT_PIXEL = { 0, (byte) 0, (byte) 255 };
+	// These assume BGR format. Grayscale frames can't show color and only
+	// use the first component, thus motion is painted white and excessive
+	// brightness black.
+	private static final Scalar MOTION_COLOR = new Scalar(255, 0, 0);
+	private static final Scalar BRIGHTNESS_COLOR = new Scalar(0, 0, 255);
 
 	private final CameraManager cameraManager;
 
 	private boolean filtersInitialized = false;
 
-	private int[][] lumsMovingAverage;
-	private int[][] colorDistanceFromRed;
+	// The model is read once per frame so that it can be swapped safely
+	private BackgroundModel currentBackgroundModel;
 
 	private int avgThresholdPixels = -1;
 
@@ -70,8 +77,8 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 
 	// Individual pixel threshold
 	private final static int MAXIMUM_LUM_VALUE = 65025;
-	private final static int EXCESSIVE_BRIGHTNESS_THRESHOLD = (int) (.96 * MAXIMUM_LUM_VALUE);
-	private final static int MINIMUM_BRIGHTNESS_INCREASE = (int) (.117 * MAXIMUM_LUM_VALUE);;
+	private int excessiveBrightnessThreshold;
+	private int minimumBrightnessIncrease;
 
 	// Aggregate # of pixel threshold
 	private int BRIGHTNESS_WARNING_AVG_THRESHOLD;
@@ -97,6 +104,13 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 
 	final PixelClusterManager pixelClusterManager;
 
+	// Nobody sees the feed in headless mode, so it isn't painted
+	private boolean showDiagnosticOverlays = !Configuration.getConfig().isHeadless();
+	private final DiagnosticOverlay diagnosticOverlay = new DiagnosticOverlay();
+
+	// Only created when shots are recorded to files for debugging
+	private Optional<ShotForensics> forensics = Optional.empty();
+
 	public static boolean isSystemSupported() {
 		return true;
 	}
@@ -115,20 +129,37 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 		setFrameSize(cameraManager.getFeedWidth(), cameraManager.getFeedHeight());
 
 		pixelClusterManager = new PixelClusterManager(cameraManager.getFeedWidth(), cameraManager.getFeedHeight());
+
+		setDetectionParameters(Configuration.getConfig().getDetectionParameters());
+	}
+
+	/**
+	 * Replace the thresholds used to find shots. This should be done before
+	 * frames are processed, changing them mid-feed leaves the running averages
+	 * computed with the old thresholds in place.
+	 */
+	public void setDetectionParameters(DetectionParameters parameters) {
+		excessiveBrightnessThreshold = (int) (parameters.get(DetectionParameter.EXCESSIVE_BRIGHTNESS_THRESHOLD)
+				* MAXIMUM_LUM_VALUE);
+		minimumBrightnessIncrease = (int) (parameters.get(DetectionParameter.MINIMUM_BRIGHTNESS_INCREASE)
+				* MAXIMUM_LUM_VALUE);
+
+		pixelClusterManager.setDetectionParameters(parameters);
+	}
+
+	/**
+	 * Set whether pixels that trigger motion and brightness warnings are
+	 * painted on the feed. This is off by default in headless mode.
+	 */
+	public void setShowDiagnosticOverlays(boolean showDiagnosticOverlays) {
+		this.showDiagnosticOverlays = showDiagnosticOverlays;
 	}
 
 	@Override
 	public void setFrameSize(final int width, final int height) {
 		if (pixelClusterManager != null) pixelClusterManager.updateFrameSize(width, height);
 
-		lumsMovingAverage = new int[width][height];
-		colorDistanceFromRed = new int[width][height];
-
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				lumsMovingAverage[x][y] = -1;
-			}
-		}
+		getBackgroundModel().setFrameSize(width, height);
 
 		final double frameSize = width * height;
 
@@ -149,45 +180,54 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 	}
 
 	private Pixel updateFilter(int currentH, int currentS, int currentV, int x, int y, boolean detectShots) {
-		Pixel result = null;
-
 		final int currentLum = (255 - currentS) * currentV;
+		final int currentColorDistanceFromRed = (Math.min(currentH, Math.abs(180 - currentH)) * currentS * currentV)
+				- (Math.abs(60 - currentH) * currentS * currentV);
 
-		if (lumsMovingAverage[x][y] == -1) {
-			lumsMovingAverage[x][y] = currentLum;
-			colorDistanceFromRed[x][y] = (Math.min(currentH, Math.abs(180 - currentH)) * currentS * currentV)
-					- (Math.abs(60 - currentH) * currentS * currentV);
+		return updateLumFilter(currentH, currentLum, currentColorDistanceFromRed, x, y, detectShots);
+	}
+
+	/**
+	 * A gray pixel has no saturation, thus its luminance is
+	 * <code>255 * value</code>, which is exactly what the HSV path computes
+	 * for the same pixel. Color distance is meaningless and left at zero.
+	 */
+	private Pixel updateGrayFilter(int currentV, int x, int y, boolean detectShots) {
+		return updateLumFilter(0, 255 * currentV, 0, x, y, detectShots);
+	}
+
+	private Pixel updateLumFilter(int currentH, int currentLum, int currentColorDistanceFromRed, int x, int y,
+			boolean detectShots) {
+		Pixel result = null;
+
+		if (!currentBackgroundModel.isInitialized(x, y)) {
+			currentBackgroundModel.initialize(x, y, currentLum, currentColorDistanceFromRed);
 
 			return result;
 		}
 
-		if (detectShots && pixelAboveExcessiveBrightnessThreshold(lumsMovingAverage[x][y])) {
+		final int lumAverage = currentBackgroundModel.getLum(x, y);
+
+		if (detectShots && pixelAboveExcessiveBrightnessThreshold(lumAverage)) {
 			brightPixels.add(new Pixel(x, y));
-		} else if (detectShots && pixelAboveThreshold(currentLum, lumsMovingAverage[x][y])) {
-			result = new Pixel(x, y, currentH, currentLum, lumsMovingAverage[x][y], colorDistanceFromRed[x][y]);
+		} else if (detectShots && pixelAboveThreshold(currentLum, lumAverage)) {
+			result = new Pixel(x, y, currentH, currentLum, lumAverage, currentBackgroundModel.getColorDistance(x, y));
 		}
 
-		final int tempColorDistanceFromRed = (Math.min(currentH, Math.abs(180 - currentH)) * currentS * currentV)
-				- (Math.abs(60 - currentH) * currentS * currentV);
-
-		// Update the average brightness
-		lumsMovingAverage[x][y] = ((lumsMovingAverage[x][y] * (movingAveragePeriod - 1)) + currentLum)
-				/ movingAveragePeriod;
-
-		colorDistanceFromRed[x][y] = ((colorDistanceFromRed[x][y] * (movingAveragePeriod - 1))
-				+ tempColorDistanceFromRed) / movingAveragePeriod;
+		// Update the background brightness and color
+		currentBackgroundModel.update(x, y, currentLum, currentColorDistanceFromRed);
 
 		return result;
 	}
 
 	private boolean pixelAboveExcessiveBrightnessThreshold(int lumsMovingAverage) {
-		return lumsMovingAverage > EXCESSIVE_BRIGHTNESS_THRESHOLD;
+		return lumsMovingAverage > excessiveBrightnessThreshold;
 	}
 
 	private boolean pixelAboveThreshold(int currentLum, int lumsMovingAverage) {
 		final int increase = (currentLum - lumsMovingAverage);
 
-		if (increase < MINIMUM_BRIGHTNESS_INCREASE) return false;
+		if (increase < minimumBrightnessIncrease) return false;
 
 		// (var >> 2) equivalent to (var / 4)
 		final int threshold = (MAXIMUM_LUM_VALUE - lumsMovingAverage) >> 2;
@@ -216,36 +256,59 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 	 */
 	@Override
 	public void processFrame(final Frame frame, final boolean detectShots) {
+		final long startTime = System.nanoTime();
+		stampFrameStage(ShotTrace.Stage.DETECTION_STARTED);
+
+		currentBackgroundModel = getBackgroundModel();
+
 		updateMovingAveragePeriod();
 
 		// Must reset before every updateFilter loop
 		brightPixels.clear();
 
+		final boolean isGrayscale = frame.isGrayscale();
+
+		if (Configuration.getConfig().isDebugShotsRecordToFiles()) {
+			if (!forensics.isPresent()) forensics = Optional.of(new ShotForensics());
+			forensics.get().recordFrame(frame);
+		}
+
 		// Create a hue, saturation, value copy of the current frame used to
 		// detect
 		// the shots. The BGR version is just used by this implementation to
 		// show
-		// the user where bright/high motion pixels are
-		final Mat frameHSV = new Mat();
-		Imgproc.cvtColor(frame.getOriginalMat(), frameHSV, Imgproc.COLOR_BGR2HSV);
+		// the user where bright/high motion pixels are. Grayscale frames
+		// already are the luminance we need, so they are used as is (the
+		// sieve only reads them, pixels are painted after it's done).
+		final Mat workingMat;
+		if (isGrayscale) {
+			workingMat = frame.getOriginalMat();
+		} else {
+			workingMat = frame.getHSVMat();
+			stampFrameStage(ShotTrace.Stage.COLOR_CONVERTED);
+		}
 
-		final Set<Pixel> thresholdPixels = findThresholdPixelsAndUpdateFilter(frameHSV,
+		final Set<Pixel> thresholdPixels = findThresholdPixelsAndUpdateFilter(workingMat,
 				(detectShots && filtersInitialized));
 
 		final int thresholdPixelsSize = thresholdPixels.size();
 
+		if (forensics.isPresent()) forensics.get().recordThresholdPixels(thresholdPixels);
+
 		if (logger.isTraceEnabled() && checkIfInitialized()) {
 			if (thresholdPixelsSize >= 1) logger.trace("thresholdPixels {} getMinimumShotDimension {}",
 					thresholdPixelsSize, getMinimumShotDimension());
 
 			for (final Pixel pixel : thresholdPixels) {
 				logger.trace("thresholdPixel {} {} - from array {} from pixel cur {} avg {}", pixel.x, pixel.y,
-						lumsMovingAverage[pixel.x][pixel.y], pixel.getCurrentLum(), pixel.getLumAverage());
+						currentBackgroundModel.getLum(pixel.x, pixel.y), pixel.getCurrentLum(), pixel.getLumAverage());
 			}
 		}
 
 		if (!filtersInitialized) filtersInitialized = checkIfInitialized();
 
+		boolean paintedOverlay = false;
+
 		if (detectShots && filtersInitialized) {
 			updateAvgThresholdPixels(thresholdPixelsSize);
 
@@ -258,13 +321,14 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 			if (thresholdPixelsSize >= getMinimumShotDimension() && !isExcessiveMotion(thresholdPixelsSize)) {
 				final Set<PixelCluster> clusters = pixelClusterManager.clusterPixels(thresholdPixels,
 						getMinimumShotDimension());
+				stampFrameStage(ShotTrace.Stage.PIXELS_CLUSTERED);
 
 				if (logger.isTraceEnabled()) {
 					logger.trace("thresholdPixels {}", thresholdPixelsSize);
 					logger.trace("clusters {}", clusters.size());
 				}
 
-				detectShots(new Frame(frameHSV, frame.getTimestamp()), clusters);
+				detectShots(new Frame(workingMat, frame.getCaptureTime(), TimeUnit.NANOSECONDS), clusters);
 			}
 
 			// Moved to after detectShots because otherwise we'll have changed
@@ -272,26 +336,32 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 			else if (isExcessiveMotion(thresholdPixelsSize)) {
 				if (shouldShowMotionWarning(thresholdPixelsSize)) cameraManager.showMotionWarning();
 
-				for (final Pixel pixel : thresholdPixels) {
-					frame.getOriginalMat().put(pixel.y, pixel.x, BLUE_MAT_PIXEL);
+				if (showDiagnosticOverlays) {
+					diagnosticOverlay.paint(frame.getOriginalMat(), thresholdPixels, MOTION_COLOR);
+					paintedOverlay = true;
 				}
 			}
 
-			if (shouldShowBrightnessWarningBool && !brightPixels.isEmpty()) {
+			if (showDiagnosticOverlays && shouldShowBrightnessWarningBool && !brightPixels.isEmpty()) {
 				// Make the feed pixels red so the user can easily see what the
-				// problem pixels are
-				synchronized (brightPixels) {
-					for (final Pixel pixel : brightPixels) {
-						frame.getOriginalMat().put(pixel.y, pixel.x, RED_MAT_PIXEL);
-					}
-				}
+				// problem pixels are. The sieve is done adding to the set.
+				diagnosticOverlay.paint(frame.getOriginalMat(), brightPixels, BRIGHTNESS_COLOR);
+				paintedOverlay = true;
 			}
 		}
+
+		if (paintedOverlay) frame.invalidateDerivedViews();
+
+		if (forensics.isPresent()) forensics.get().frameProcessed();
+
+		processFrameTime.recordSince(startTime);
 	}
 
 	private void updateMovingAveragePeriod() {
 		if (cameraManager.getFrameCount() % 5 == 0)
 			movingAveragePeriod = Math.max((int) (cameraManager.getFPS() / 5.0), INIT_FRAME_COUNT);
+
+		currentBackgroundModel.setPeriod(movingAveragePeriod);
 	}
 
 	private void detectShots(final Frame workingFrame, final Set<PixelCluster> clusters) {
@@ -380,11 +450,19 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 							return;
 						}
 
-						final int currentH = workingFramePrimitive[(yOffset + x) * channels] & 0xFF;
-						final int currentS = workingFramePrimitive[(yOffset + x) * channels + 1] & 0xFF;
-						final int currentV = workingFramePrimitive[(yOffset + x) * channels + 2] & 0xFF;
+						final Pixel pixel;
 
-						final Pixel pixel = updateFilter(currentH, currentS, currentV, x, y, detectShots);
+						if (channels == 1) {
+							final int currentV = workingFramePrimitive[yOffset + x] & 0xFF;
+
+							pixel = updateGrayFilter(currentV, x, y, detectShots);
+						} else {
+							final int currentH = workingFramePrimitive[(yOffset + x) * channels] & 0xFF;
+							final int currentS = workingFramePrimitive[(yOffset + x) * channels + 1] & 0xFF;
+							final int currentV = workingFramePrimitive[(yOffset + x) * channels + 2] & 0xFF;
+
+							pixel = updateFilter(currentH, currentS, currentV, x, y, detectShots);
+						}
 
 						if (pixel != null) thresholdPixels.add(pixel);
 					}
@@ -419,7 +497,10 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 	}
 
 	private void addShot(Frame workingFrame, PixelCluster pc) {
-		final Optional<ShotColor> color = pc.getColor(workingFrame.getOriginalMat(), colorDistanceFromRed);
+		// There is no color to classify in a grayscale frame, which only
+		// comes from infrared or mono cameras
+		final Optional<ShotColor> color = workingFrame.isGrayscale() ? Optional.of(ShotColor.INFRARED)
+				: pc.getColor(workingFrame.getOriginalMat(), currentBackgroundModel.getColorDistances());
 
 		if (!color.isPresent()) {
 			if (logger.isDebugEnabled()) logger.debug("Processing Shot: Shot Rejected By Lack Of Color Density");
@@ -429,33 +510,9 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 		final double x = pc.centerPixelX;
 		final double y = pc.centerPixelY;
 
-		if (super.addShot(color.get(), x, y, workingFrame.getTimestamp(), true)
-				&& Configuration.getConfig().isDebugShotsRecordToFiles()) {
-			final Mat debugFrame = new Mat();
-			Imgproc.cvtColor(workingFrame.getOriginalMat(), debugFrame, Imgproc.COLOR_HSV2BGR);
-
-			String filename = String.format("shot-%d-%d-%d_orig.png",
-					cameraManager.cameraTimeToShotTime(workingFrame.getTimestamp()), (int) pc.centerPixelX,
-					(int) pc.centerPixelY);
-			final File file = new File(filename);
-			filename = file.toString();
-			Highgui.imwrite(filename, debugFrame);
-
-			for (final Pixel p : pc) {
-				if (javafx.scene.paint.Color.GREEN.equals(color.get())) {
-					final double[] greenColor = { 0, 255, 0 };
-					debugFrame.put(p.y, p.x, greenColor);
-				} else {
-					final double[] redColor = { 0, 0, 255 };
-					debugFrame.put(p.y, p.x, redColor);
-				}
-			}
-
-			final File outputfile = new File(
-					String.format("shot-%d-%d-%d.png", cameraManager.cameraTimeToShotTime(workingFrame.getTimestamp()),
-							(int) pc.centerPixelX, (int) pc.centerPixelY));
-			filename = outputfile.toString();
-			Highgui.imwrite(filename, debugFrame);
+		if (super.addShot(color.get(), x, y, workingFrame.getCaptureTime(), true) && forensics.isPresent()) {
+			forensics.get().shotDetected(cameraManager.cameraTimeToShotTime(workingFrame.getCaptureTime()), pc,
+					color.get());
 		}
 	}
 
@@ -0,0 +1,32 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+/**
+ * The original integer moving average used by {@link JavaShotDetector}. It
+ * performs two integer divisions per pixel per frame and is kept as the
+ * default because the shot detection test videos were tuned against it.
+ */
+public class MovingAverageBackgroundModel extends BackgroundModel {
+	@Override
+	public void update(final int x, final int y, final int lum, final int colorDistance) {
+		lums[x][y] = ((lums[x][y] * (period - 1)) + lum) / period;
+		colorDistances[x][y] = ((colorDistances[x][y] * (period - 1)) + colorDistance) / period;
+	}
+}
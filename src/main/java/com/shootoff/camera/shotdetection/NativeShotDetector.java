@@ -2,6 +2,9 @@ package com.shootoff.camera.shotdetection;
 
 import java.io.File;
 
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.Frame;
@@ -11,6 +14,9 @@ import com.shootoff.util.SystemInfo;
 public class NativeShotDetector extends FrameProcessingShotDetector {
 	private final CameraManager cameraManager;
 
+	// Capture time of the frame the native code is currently analyzing
+	private long currentCaptureTime;
+
 	public static boolean loadNativeShotDetector() {
 		if (!isSystemSupported()) return false;
 
@@ -42,7 +48,18 @@ public class NativeShotDetector extends FrameProcessingShotDetector {
 
 	@Override
 	public void processFrame(Frame frame, boolean isDetecting) {
-		if (isDetecting) analyzeFrame(frame.getOriginalMat().getNativeObjAddr());
+		if (!isDetecting) return;
+
+		currentCaptureTime = frame.getCaptureTime();
+
+		// The native detector only understands BGR frames
+		if (frame.isGrayscale()) {
+			final Mat frameBGR = new Mat();
+			Imgproc.cvtColor(frame.getOriginalMat(), frameBGR, Imgproc.COLOR_GRAY2BGR);
+			analyzeFrame(frameBGR.getNativeObjAddr());
+		} else {
+			analyzeFrame(frame.getOriginalMat().getNativeObjAddr());
+		}
 	}
 
 	@Override
@@ -58,7 +75,9 @@ public class NativeShotDetector extends FrameProcessingShotDetector {
 	 * @param y
 	 *            the y coordinate of the new shot
 	 * @param timestamp
-	 *            the timestamp of the new shot, not adjusted for the shot timer
+	 *            the timestamp of the new shot, not adjusted for the shot
+	 *            timer. This is on the native code's clock, so the capture
+	 *            time of the frame being analyzed is used instead.
 	 * @param rgb
 	 *            the rgb color of the new shot
 	 */
@@ -67,7 +86,7 @@ public class NativeShotDetector extends FrameProcessingShotDetector {
 		// >> 8) & 0xFF, 1.0);
 		// TODO: Handle colors
 
-		super.addShot(ShotColor.RED, x, y, timestamp, true);
+		super.addShot(ShotColor.RED, x, y, currentCaptureTime, true);
 	}
 
 	@Override
@@ -36,8 +36,6 @@ public class OptiTrackShotDetector extends ShotYieldingShotDetector implements C
 
 	private final CameraManager cameraManager;
 
-	private final long startTime = System.currentTimeMillis();
-
 	public OptiTrackShotDetector(final CameraManager cameraManager, final CameraView cameraView) {
 		super(cameraManager, cameraView);
 
@@ -87,7 +85,9 @@ public class OptiTrackShotDetector extends ShotYieldingShotDetector implements C
 	 * @param y
 	 *            the y coordinate of the new shot
 	 * @param timestamp
-	 *            the timestamp of the shot not adjusted for the shot timer
+	 *            the timestamp of the shot not adjusted for the shot timer.
+	 *            This is on the camera's clock, so the capture time of the
+	 *            camera's latest frame is used instead.
 	 * @param rgb
 	 *            the rgb color of the new shot
 	 */
@@ -98,7 +98,14 @@ public class OptiTrackShotDetector extends ShotYieldingShotDetector implements C
 
 		if (logger.isTraceEnabled()) logger.trace("Translation: {} {} to {}", x, y, undist);
 
-		super.addShot(ShotColor.INFRARED, undist.x, undist.y, startTime + timestamp, true);
+		super.addShot(ShotColor.INFRARED, undist.x, undist.y, getCaptureTime(), true);
+	}
+
+	private long getCaptureTime() {
+		if (cameraManager.getCamera() instanceof OptiTrackCamera)
+			return ((OptiTrackCamera) cameraManager.getCamera()).getLastCaptureTime();
+
+		return System.nanoTime();
 	}
 
 	@Override
@@ -28,33 +28,49 @@ import java.util.Stack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
+
 public class PixelClusterManager {
 	private static final Logger logger = LoggerFactory.getLogger(PixelClusterManager.class);
 
+	private static final LatencyHistogram clusterPixelsTime = MetricsRegistry.getRegistry()
+			.histogram("detection.clusterPixels");
+
 	private int feedWidth;
 	private int feedHeight;
 
-	private final static double MINIMUM_CONNECTEDNESS = 3.66f;
-	private final static double MAXIMUM_CONNECTEDNESS_SCALE = 6f;
-
-	private final static double MINIMUM_CONNECTEDNESS_FACTOR = .018f;
-
-	private final static double MINIMUM_DENSITY = .69f;
-
-	private final static double MINIMUM_SHOT_RATIO = .5f;
-	private final static double MAXIMUM_SHOT_RATIO = 1.43f;
-
-	// Use different values if shot width + shot height <= 16 px
-	private final static int SMALL_SHOT_THRESHOLD = 16;
-	private final static double MINIMUM_SHOT_RATIO_SMALL = .47f;
-	private final static double MAXIMUM_SHOT_RATIO_SMALL = 1.75f;
-
-	private final static int EXCESSIVE_PIXEL_CUTOFF = 300;
-	private final static int EXCESSIVE_PIXEL_REGION_COUNT = 1;
+	// See DetectionParameter for what each of these means
+	private double minimumConnectedness;
+	private double maximumConnectednessScale;
+	private double minimumConnectednessFactor;
+	private double minimumDensity;
+	private double minimumShotRatio;
+	private double maximumShotRatio;
+	private int smallShotThreshold;
+	private double minimumShotRatioSmall;
+	private double maximumShotRatioSmall;
+	private int excessivePixelCutoff;
+	private int excessivePixelRegionCount;
 
 	protected PixelClusterManager(int feedWidth, int feedHeight) {
 		this.feedWidth = feedWidth;
 		this.feedHeight = feedHeight;
+		setDetectionParameters(DetectionParameters.DEFAULT);
+	}
+
+	public void setDetectionParameters(DetectionParameters parameters) {
+		minimumConnectedness = parameters.get(DetectionParameter.MINIMUM_CONNECTEDNESS);
+		maximumConnectednessScale = parameters.get(DetectionParameter.MAXIMUM_CONNECTEDNESS_SCALE);
+		minimumConnectednessFactor = parameters.get(DetectionParameter.MINIMUM_CONNECTEDNESS_FACTOR);
+		minimumDensity = parameters.get(DetectionParameter.MINIMUM_DENSITY);
+		minimumShotRatio = parameters.get(DetectionParameter.MINIMUM_SHOT_RATIO);
+		maximumShotRatio = parameters.get(DetectionParameter.MAXIMUM_SHOT_RATIO);
+		smallShotThreshold = parameters.getInt(DetectionParameter.SMALL_SHOT_THRESHOLD);
+		minimumShotRatioSmall = parameters.get(DetectionParameter.MINIMUM_SHOT_RATIO_SMALL);
+		maximumShotRatioSmall = parameters.get(DetectionParameter.MAXIMUM_SHOT_RATIO_SMALL);
+		excessivePixelCutoff = parameters.getInt(DetectionParameter.EXCESSIVE_PIXEL_CUTOFF);
+		excessivePixelRegionCount = parameters.getInt(DetectionParameter.EXCESSIVE_PIXEL_REGION_COUNT);
 	}
 
 	public void updateFrameSize(int feedWidth, int feedHeight) {
@@ -73,7 +89,7 @@ public class PixelClusterManager {
 				pixelMapping.put(pixel, numberOfRegions);
 			}
 
-			if (numberOfRegions > EXCESSIVE_PIXEL_REGION_COUNT && clusterablePixels.size() > EXCESSIVE_PIXEL_CUTOFF)
+			if (numberOfRegions > excessivePixelRegionCount && clusterablePixels.size() > excessivePixelCutoff)
 				break;
 
 			while (!mustExamine.isEmpty()) {
@@ -110,6 +126,8 @@ public class PixelClusterManager {
 	}
 
 	public Set<PixelCluster> clusterPixels(Set<Pixel> clusterablePixels, int minimumShotDimension) {
+		final long startTime = System.nanoTime();
+
 		final Map<Pixel, Integer> pixelMapping = new HashMap<>();
 
 		final int numberOfRegions = preprocessClusterablePixels(clusterablePixels, pixelMapping);
@@ -163,8 +181,8 @@ public class PixelClusterManager {
 			// We scale up the minimum in a linear scale as the cluster size
 			// increases. This is an approximate density
 			final double scaled_minimum = Math.min(
-					MINIMUM_CONNECTEDNESS + ((clustersize - minimumShotDimension) * MINIMUM_CONNECTEDNESS_FACTOR),
-					MAXIMUM_CONNECTEDNESS_SCALE);
+					minimumConnectedness + ((clustersize - minimumShotDimension) * minimumConnectednessFactor),
+					maximumConnectednessScale);
 
 			if (logger.isTraceEnabled()) logger.trace("Cluster {}: size {} connectedness {} scaled_minimum {} - {} {}",
 					i, clustersize, avgconnectedness, scaled_minimum, averageX, averageY);
@@ -178,10 +196,10 @@ public class PixelClusterManager {
 			if (logger.isTraceEnabled()) logger.trace("Cluster {}: shotRatio {} {} - {} - {} {} {} {}", i, shotWidth,
 					shotHeight, shotRatio, minX, minY, maxX, maxY);
 
-			if ((shotWidth + shotHeight) > SMALL_SHOT_THRESHOLD
-					&& (shotRatio < MINIMUM_SHOT_RATIO || shotRatio > MAXIMUM_SHOT_RATIO))
+			if ((shotWidth + shotHeight) > smallShotThreshold
+					&& (shotRatio < minimumShotRatio || shotRatio > maximumShotRatio))
 				continue;
-			else if (shotRatio < MINIMUM_SHOT_RATIO_SMALL || shotRatio > MAXIMUM_SHOT_RATIO_SMALL) continue;
+			else if (shotRatio < minimumShotRatioSmall || shotRatio > maximumShotRatioSmall) continue;
 
 			final double r = (double) (shotWidth + shotHeight) / 4.0f;
 			final double circleArea = Math.PI * r * r;
@@ -190,7 +208,7 @@ public class PixelClusterManager {
 			if (logger.isTraceEnabled()) logger.trace("Cluster {}: density {} {} - {} {} - {}", i, shotWidth,
 					shotHeight, circleArea, cluster.size(), density);
 
-			if (density < MINIMUM_DENSITY) continue;
+			if (density < minimumDensity) continue;
 
 			cluster.centerPixelX = averageX;
 			cluster.centerPixelY = averageY;
@@ -201,6 +219,8 @@ public class PixelClusterManager {
 		if (logger.isTraceEnabled())
 			logger.trace("---- Detected {} shots from {} regions ------", clusters.size(), numberOfRegions + 1);
 
+		clusterPixelsTime.recordSince(startTime);
+
 		return clusters;
 	}
 }
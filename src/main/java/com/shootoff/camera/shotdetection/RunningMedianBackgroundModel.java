@@ -0,0 +1,56 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+/**
+ * Approximates a running median of each pixel's luminance by nudging the
+ * estimate a fixed step towards every new sample. A sample that is far brighter
+ * than the background (e.g. fluorescent flicker or a projector refresh) moves
+ * the estimate no more than a sample that is slightly brighter, so short
+ * bursts of noise do not drag the background up the way they do with an
+ * average. Color distance only biases shot color classification and is not
+ * sensitive to flicker, thus it keeps using the fixed-point exponential
+ * average.
+ */
+public class RunningMedianBackgroundModel extends ExponentialBackgroundModel {
+	// The fraction of the luminance range the estimate may move over one
+	// adaptation period
+	private static final int LUM_STEP_BUDGET = 65025 / 16;
+
+	private int lumStep = LUM_STEP_BUDGET;
+
+	@Override
+	public void setPeriod(final int period) {
+		super.setPeriod(period);
+		lumStep = Math.max(LUM_STEP_BUDGET / getPeriod(), 1);
+	}
+
+	@Override
+	public void update(final int x, final int y, final int lum, final int colorDistance) {
+		final int currentLum = lums[x][y];
+
+		if (lum > currentLum) {
+			lums[x][y] = Math.min(currentLum + lumStep, lum);
+		} else if (lum < currentLum) {
+			lums[x][y] = Math.max(currentLum - lumStep, lum);
+		}
+
+		colorDistances[x][y] += step(colorDistance - colorDistances[x][y]);
+	}
+}
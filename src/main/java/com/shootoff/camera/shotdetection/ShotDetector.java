@@ -1,5 +1,7 @@
 package com.shootoff.camera.shotdetection;
 
+import java.util.Arrays;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,6 +12,11 @@ import com.shootoff.camera.shot.BoundsShot;
 import com.shootoff.camera.shot.DisplayShot;
 import com.shootoff.camera.shot.ShotColor;
 import com.shootoff.config.Configuration;
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
+import com.shootoff.metrics.ShotTrace;
+import com.shootoff.metrics.ShotTraceRecorder;
 import javafx.geometry.Bounds;
 
 /**
@@ -19,10 +26,24 @@ import javafx.geometry.Bounds;
 public abstract class ShotDetector {
 	private static final Logger logger = LoggerFactory.getLogger(ShotDetector.class);
 
+	private static final LatencyHistogram addShotTime = MetricsRegistry.getRegistry().histogram("detection.addShot");
+	private static final LatencyHistogram captureToShotTime = MetricsRegistry.getRegistry()
+			.histogram("detection.captureToShot");
+	private static final Counter acceptedShotCounter = MetricsRegistry.getRegistry().counter("detection.shotsAccepted");
+	private static final Counter rejectedShotCounter = MetricsRegistry.getRegistry().counter("detection.shotsRejected");
+
 	private final CameraManager cameraManager;
 	private final Configuration config = Configuration.getConfig();
 	private final CameraView cameraView;
 
+	// Stages stamped once per frame, before it is known whether the frame
+	// has a shot in it
+	private static final ShotTrace.Stage[] FRAME_STAGES = { ShotTrace.Stage.DETECTION_STARTED,
+			ShotTrace.Stage.COLOR_CONVERTED, ShotTrace.Stage.PIXELS_CLUSTERED };
+	private final long[] frameStageTimes = new long[ShotTrace.Stage.values().length];
+
+	private boolean notifySynchronously = false;
+
 	public static boolean isSystemSupported() {
 		return false;
 	}
@@ -34,6 +55,26 @@ public abstract class ShotDetector {
 
 	public void reset() {}
 
+	/**
+	 * Hand accepted shots to the camera view on the detection thread instead
+	 * of a separate notifier thread. This is for offline detection, where
+	 * every shot must have been delivered once the last frame is processed.
+	 */
+	public void setNotifySynchronously(boolean notifySynchronously) {
+		this.notifySynchronously = notifySynchronously;
+	}
+
+	/**
+	 * Record that the frame currently being processed reached
+	 * <code>stage</code>. Shots found in the frame copy these stamps into
+	 * their trace. Only the detection thread may call this.
+	 */
+	protected void stampFrameStage(ShotTrace.Stage stage) {
+		if (stage == ShotTrace.Stage.DETECTION_STARTED) Arrays.fill(frameStageTimes, 0);
+
+		frameStageTimes[stage.ordinal()] = System.nanoTime();
+	}
+
 	/**
 	 * Notify the shot detector of the dimensions of webcam frames (e.g. the
 	 * webcam's resolution). This method may be called at any time if the
@@ -62,8 +103,9 @@ public abstract class ShotDetector {
 	 * @param y
 	 *            the exact y coordinate of the shot in the video frame it was
 	 *            detected in
-	 * @param timestamp
-	 *            the timestamp of the shot not adjusted for the shot timer
+	 * @param captureTime
+	 *            the {@link System#nanoTime()} the frame containing the shot
+	 *            was captured at, not adjusted for the shot timer
 	 * @param scaleShot
 	 *            <code>true</code> if the shot needs to be scaled if the
 	 *            display resolution differs from the webcam's resolution. This
@@ -71,11 +113,29 @@ public abstract class ShotDetector {
 	 * @return <code>true</code> if the shot wasn't rejected during
 	 *         preprocessing
 	 */
-	public boolean addShot(ShotColor color, double x, double y, long timestamp, boolean scaleShot) {
+	public boolean addShot(ShotColor color, double x, double y, long captureTime, boolean scaleShot) {
+		final long startTime = System.nanoTime();
+		final boolean accepted = processShot(color, x, y, captureTime, scaleShot);
+		addShotTime.recordSince(startTime);
+
+		if (accepted) {
+			acceptedShotCounter.increment();
+			captureToShotTime.recordSince(captureTime);
+		} else {
+			rejectedShotCounter.increment();
+		}
+
+		return accepted;
+	}
+
+	private boolean processShot(ShotColor color, double x, double y, long captureTime, boolean scaleShot) {
 		if (!checkIgnoreColor(color)) return false;
 
-		final Shot shot = new Shot(color, x, y, cameraManager.cameraTimeToShotTime(timestamp),
+		final ShotTrace trace = createTrace(captureTime);
+
+		final Shot shot = new Shot(color, x, y, cameraManager.cameraTimeToShotTime(captureTime),
 				cameraManager.getFrameCount());
+		shot.setTrace(trace);
 
 		if (config.isAdjustingPOI())
 		{
@@ -115,6 +175,8 @@ public abstract class ShotDetector {
 
 		if (!checkDuplicate(dShot)) return false;
 
+		trace.stamp(ShotTrace.Stage.DEDUPLICATED);
+
 		submitShot(dShot);
 
 		return true;
@@ -124,10 +186,37 @@ public abstract class ShotDetector {
 		if (logger.isInfoEnabled()) logger.info("Suspected shot accepted: Center ({}, {}), cl {} fr {}", shot.getX(),
 				shot.getY(), shot.getColor(), cameraManager.getFrameCount());
 
+		if (shot.getTrace().isPresent()) ShotTraceRecorder.getRecorder().record(shot.getTrace().get());
+
+		if (notifySynchronously) {
+			if (shot.getTrace().isPresent()) shot.getTrace().get().stamp(ShotTrace.Stage.SUBMITTED);
+			cameraView.addShot(shot, false);
+			return;
+		}
+
 		// Notify of new shot on a non-shot detection thread because most
 		// training exercises do shot processing on whatever thread submits
 		// the shot
-		new Thread(() -> cameraView.addShot(shot, false), "Shot Notifier").start();
+		new Thread(() -> {
+			if (shot.getTrace().isPresent()) shot.getTrace().get().stamp(ShotTrace.Stage.SUBMITTED);
+			cameraView.addShot(shot, false);
+		}, "Shot Notifier").start();
+	}
+
+	private ShotTrace createTrace(long captureTime) {
+		final ShotTrace trace = new ShotTrace(cameraManager.getName(), captureTime,
+				cameraManager.getProjectorDelay());
+
+		// Frame stamps older than the capture time were left behind by the
+		// last frame (e.g. the shot was injected instead of detected)
+		for (final ShotTrace.Stage stage : FRAME_STAGES) {
+			final long stamp = frameStageTimes[stage.ordinal()];
+			if (stamp != 0 && stamp - captureTime >= 0) trace.stamp(stage, stamp);
+		}
+
+		trace.stamp(ShotTrace.Stage.SHOT_CREATED);
+
+		return trace;
 	}
 
 	protected boolean checkDuplicate(final Shot shot) {
@@ -0,0 +1,268 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.highgui.Highgui;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.Frame;
+import com.shootoff.camera.shot.ShotColor;
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
+
+/**
+ * Keeps copies of a camera's most recent frames and the pixels that crossed
+ * the detection threshold in each so that when a shot is detected the frames
+ * leading up to it can be written out for analysis. The detection thread only
+ * copies frames into buffers it reuses and hands them off on a shot. Color
+ * conversion, drawing the clusters, and PNG encoding all happen on one low
+ * priority writer thread shared by every camera. If the writer falls behind,
+ * new artifacts are dropped instead of making detection wait.
+ */
+public class ShotForensics {
+	private static final Logger logger = LoggerFactory.getLogger(ShotForensics.class);
+
+	private static final Counter droppedArtifactCounter = MetricsRegistry.getRegistry()
+			.counter("forensics.artifactsDropped");
+
+	public static final int DEFAULT_RECORDED_FRAMES = 5;
+
+	private static final int WRITER_QUEUE_CAPACITY = 8;
+	private static final int PNG_COMPRESSION = 9;
+
+	private static final double[] RED_PIXEL = { 0, 0, 255 };
+	private static final double[] GREEN_PIXEL = { 0, 255, 0 };
+	private static final double[] MASK_PIXEL = { 255 };
+
+	private static ThreadPoolExecutor writer;
+
+	private static class RecordedFrame {
+		private Mat mat = new Mat();
+		private long captureTime;
+		private Set<Pixel> thresholdPixels;
+	}
+
+	private static class DetectedCluster {
+		private final long shotTimestamp;
+		private final PixelCluster cluster;
+		private final ShotColor color;
+
+		private DetectedCluster(long shotTimestamp, PixelCluster cluster, ShotColor color) {
+			this.shotTimestamp = shotTimestamp;
+			this.cluster = cluster;
+			this.color = color;
+		}
+	}
+
+	private final RecordedFrame[] frames;
+	private int newestFrame = -1;
+	private int recordedFrameCount = 0;
+
+	private final List<DetectedCluster> pendingClusters = new ArrayList<>();
+
+	public ShotForensics() {
+		this(DEFAULT_RECORDED_FRAMES);
+	}
+
+	/**
+	 * @param recordedFrames
+	 *            how many frames to keep, including the frame a shot is
+	 *            detected in
+	 */
+	public ShotForensics(int recordedFrames) {
+		frames = new RecordedFrame[recordedFrames];
+
+		for (int i = 0; i < frames.length; i++)
+			frames[i] = new RecordedFrame();
+	}
+
+	/**
+	 * Copy a frame before detection paints warnings on it. The copy reuses the
+	 * oldest buffer, so this only allocates while the buffers are first
+	 * filled and after they were handed to the writer.
+	 */
+	public void recordFrame(Frame frame) {
+		newestFrame = (newestFrame + 1) % frames.length;
+		if (recordedFrameCount < frames.length) recordedFrameCount++;
+
+		final RecordedFrame recordedFrame = frames[newestFrame];
+		frame.getOriginalMat().copyTo(recordedFrame.mat);
+		recordedFrame.captureTime = frame.getCaptureTime();
+		recordedFrame.thresholdPixels = null;
+	}
+
+	/**
+	 * Remember which pixels crossed the threshold in the most recently
+	 * recorded frame. The set must not be changed afterwards.
+	 */
+	public void recordThresholdPixels(Set<Pixel> thresholdPixels) {
+		if (newestFrame >= 0) frames[newestFrame].thresholdPixels = thresholdPixels;
+	}
+
+	/**
+	 * Note a shot found in the most recently recorded frame. Nothing is
+	 * written until {@link #frameProcessed()} so that several shots in one
+	 * frame share the same recorded frames.
+	 *
+	 * @param shotTimestamp
+	 *            the shot's timestamp, used to name its artifacts
+	 */
+	public void shotDetected(long shotTimestamp, PixelCluster cluster, ShotColor color) {
+		if (newestFrame >= 0) pendingClusters.add(new DetectedCluster(shotTimestamp, cluster, color));
+	}
+
+	/**
+	 * Hand the recorded frames to the writer if shots were found in the most
+	 * recent frame. The writer takes ownership of the frame buffers and new
+	 * ones replace them, so the writer never races with
+	 * {@link #recordFrame(Frame)}.
+	 */
+	public void frameProcessed() {
+		if (pendingClusters.isEmpty()) return;
+
+		// Oldest first
+		final List<RecordedFrame> handedOff = new ArrayList<>(recordedFrameCount);
+		for (int i = recordedFrameCount - 1; i >= 0; i--) {
+			final int index = (newestFrame - i + frames.length) % frames.length;
+			handedOff.add(frames[index]);
+			frames[index] = new RecordedFrame();
+		}
+
+		recordedFrameCount = 0;
+
+		final ArtifactWriteTask task = new ArtifactWriteTask(handedOff, new ArrayList<>(pendingClusters));
+		pendingClusters.clear();
+
+		getWriter().execute(task);
+	}
+
+	private static synchronized ThreadPoolExecutor getWriter() {
+		if (writer == null) {
+			writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(WRITER_QUEUE_CAPACITY), (r) -> {
+						final Thread t = new Thread(r, "ShotForensicsWriter");
+						t.setDaemon(true);
+						t.setPriority(Thread.MIN_PRIORITY);
+						return t;
+					}, (r, executor) -> {
+						droppedArtifactCounter.increment();
+						logger.warn("Shot forensics writer is behind, dropping artifacts for a shot");
+						((ArtifactWriteTask) r).release();
+					});
+		}
+
+		return writer;
+	}
+
+	private static class ArtifactWriteTask implements Runnable {
+		private final List<RecordedFrame> frames;
+		private final List<DetectedCluster> clusters;
+
+		private ArtifactWriteTask(List<RecordedFrame> frames, List<DetectedCluster> clusters) {
+			this.frames = frames;
+			this.clusters = clusters;
+		}
+
+		@Override
+		public void run() {
+			try {
+				final MatOfInt params = new MatOfInt(Highgui.CV_IMWRITE_PNG_COMPRESSION, PNG_COMPRESSION);
+				final RecordedFrame shotFrame = frames.get(frames.size() - 1);
+				final Mat shotMat = toBGR(shotFrame.mat);
+
+				for (final DetectedCluster detected : clusters) {
+					final String prefix = String.format("shot-%d-%d-%d", detected.shotTimestamp,
+							(int) detected.cluster.centerPixelX, (int) detected.cluster.centerPixelY);
+
+					write(prefix + "_orig.png", shotMat, params);
+
+					final Mat annotated = shotMat.clone();
+					final double[] clusterPixel = ShotColor.GREEN.equals(detected.color) ? GREEN_PIXEL : RED_PIXEL;
+					for (final Pixel p : detected.cluster) {
+						annotated.put(p.y, p.x, clusterPixel);
+					}
+					write(prefix + ".png", annotated, params);
+					annotated.release();
+
+					if (shotFrame.thresholdPixels != null)
+						writeMask(prefix + "_mask.png", shotFrame, params);
+
+					// Frames before the shot, numbered by how many frames
+					// before the shot they were captured
+					for (int i = 0; i < frames.size() - 1; i++) {
+						final RecordedFrame frame = frames.get(i);
+						final String framePrefix = String.format("%s_pre%d", prefix, frames.size() - 1 - i);
+
+						write(framePrefix + ".png", frame.mat, params);
+						if (frame.thresholdPixels != null) writeMask(framePrefix + "_mask.png", frame, params);
+					}
+				}
+
+				if (shotMat != shotFrame.mat) shotMat.release();
+			} catch (final RuntimeException e) {
+				logger.error("Error writing shot forensics artifacts", e);
+			} finally {
+				release();
+			}
+		}
+
+		private void release() {
+			for (final RecordedFrame frame : frames) {
+				frame.mat.release();
+			}
+		}
+
+		private static Mat toBGR(Mat mat) {
+			if (mat.channels() != 1) return mat;
+
+			final Mat bgr = new Mat();
+			Imgproc.cvtColor(mat, bgr, Imgproc.COLOR_GRAY2BGR);
+			return bgr;
+		}
+
+		private static void writeMask(String filename, RecordedFrame frame, MatOfInt params) {
+			final Mat mask = Mat.zeros(frame.mat.rows(), frame.mat.cols(), CvType.CV_8UC1);
+
+			for (final Pixel p : frame.thresholdPixels) {
+				mask.put(p.y, p.x, MASK_PIXEL);
+			}
+
+			write(filename, mask, params);
+			mask.release();
+		}
+
+		private static void write(String filename, Mat mat, MatOfInt params) {
+			if (!Highgui.imwrite(new File(filename).toString(), mat, params))
+				logger.warn("Failed to write shot forensics artifact {}", filename);
+		}
+	}
+}
@@ -53,9 +53,13 @@ import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.cameratypes.Camera;
 import com.shootoff.camera.cameratypes.IpCamera;
+import com.shootoff.camera.cameratypes.ReplayCamera;
 import com.shootoff.camera.processors.MalfunctionsProcessor;
 import com.shootoff.camera.processors.ShotProcessor;
 import com.shootoff.camera.processors.VirtualMagazineProcessor;
+import com.shootoff.camera.shotdetection.BackgroundModelType;
+import com.shootoff.camera.shotdetection.DetectionParameter;
+import com.shootoff.camera.shotdetection.DetectionParameters;
 import com.shootoff.gui.CalibrationOption;
 import com.shootoff.gui.controller.VideoPlayerController;
 import com.shootoff.plugins.TrainingExercise;
@@ -101,10 +105,16 @@ public class Configuration {
 	private static final String ARENA_POSITION_Y_PROP = "shootoff.arena.y";
 	private static final String MUTED_CHIME_MESSAGES = "shootoff.diagnosticmessages.chime.muted";
 	private static final String PERSPECTIVE_WEBCAM_DISTANCES = WEBCAMS_PROP + ".distances";
+	private static final String BACKGROUND_MODEL_PROP = "shootoff.detection.backgroundmodel";
+	private static final String WEBCAM_BACKGROUND_MODELS_PROP = WEBCAMS_PROP + ".backgroundmodels";
 	private static final String CALIBRATED_FEED_BEHAVIOR_PROP = "shootoff.arena.calibrated.behavior";
 	private static final String SHOW_ARENA_SHOT_MARKERS = "shootoff.arena.show.markers";
 	private static final String CALIBRATE_AUTO_ADJUST_EXPOSURE = "shootoff.arena.calibrated.exposure";
 	private static final String SHOWED_PERSPECTIVE_USAGE_MESSAGE = "shootoff.arena.notified.perspective";
+	private static final String METRICS_REPORT_INTERVAL_PROP = "shootoff.metrics.reportinterval";
+	private static final String SHOT_MARKER_RETENTION_PROP = "shootoff.markers.retention";
+	private static final String SHOT_MARKER_FADE_PROP = "shootoff.markers.fade";
+	private static final String SHOT_TIMER_ROWS_PROP = "shootoff.shottimer.rows";
 
 	private static final String POI_ADJUSTMENT_X = "shootoff.poiadjust.x";
 	private static final String POI_ADJUSTMENT_Y = "shootoff.poiadjust.y";
@@ -118,6 +128,35 @@ public class Configuration {
 			+ "between 1 and 45.";
 	protected static final String INJECT_MALFUNCTIONS_MESSAGE = "INJECT_MALFUNCTIONS has an invalid value: %f. Acceptable values are "
 			+ "between 0.1 and 99.9.";
+	protected static final String SHOT_MARKER_RETENTION_MESSAGE = "SHOT_MARKER_RETENTION has an invalid value: %d. "
+			+ "Acceptable values are between 1 and 100000.";
+	protected static final String SHOT_MARKER_FADE_MESSAGE = "SHOT_MARKER_FADE has an invalid value: %d. "
+			+ "Acceptable values are 0 (never fade) or more seconds.";
+	protected static final String SHOT_TIMER_ROWS_MESSAGE = "SHOT_TIMER_ROWS has an invalid value: %d. "
+			+ "Acceptable values are between 10 and 100000.";
+	protected static final String METRICS_REPORT_INTERVAL_MESSAGE = "METRICS_REPORT_INTERVAL has an invalid value: %d. "
+			+ "Acceptable values are 0 (off) or more seconds.";
+	protected static final String REPLAY_SOURCE_MESSAGE = "REPLAY has an invalid value: %s. The video or frame "
+			+ "directory must exist.";
+	protected static final String REPLAY_CAMERAS_MESSAGE = "REPLAY_CAMERAS has an invalid value: %d. Acceptable values "
+			+ "are between 1 and 16.";
+	protected static final String BATCH_DETECT_MESSAGE = "BATCH_DETECT has an invalid value: %s. It must be a directory "
+			+ "of recordings.";
+	protected static final String BATCH_THREADS_MESSAGE = "BATCH_THREADS has an invalid value: %d. Acceptable values "
+			+ "are 1 or more.";
+	protected static final String TUNE_DETECTION_MESSAGE = "TUNE_DETECTION has an invalid value: %s. It must be a "
+			+ "directory of recordings with expected shots.";
+	protected static final String TUNE_TRIALS_MESSAGE = "TUNE_TRIALS has an invalid value: %d. Acceptable values "
+			+ "are 1 or more.";
+	protected static final String TUNE_GRID_MESSAGE = "TUNE_GRID has an invalid value: %s. It must be a comma "
+			+ "separated list of detection parameters.";
+	protected static final String DETECTION_PROFILE_MESSAGE = "DETECTION_PROFILE has an invalid value: %s. %s";
+	protected static final String HEADLESS_PORT_MESSAGE = "HEADLESS_PORT has an invalid value: %d. Acceptable values "
+			+ "are between 0 and 65535.";
+
+	public static final String DEFAULT_BATCH_OUTPUT_DIRECTORY = "detected-shots";
+	public static final String DEFAULT_TUNING_OUTPUT_DIRECTORY = "detection-tuning";
+	public static final int DEFAULT_TUNING_TRIALS = 50;
 
 	private static final String DEFAULT_CONFIG_FILE = "shootoff.properties";
 
@@ -154,8 +193,27 @@ public class Configuration {
 	private Optional<Color> shotRowColor = Optional.empty();
 	private Optional<Point2D> arenaPosition = Optional.empty();
 	private final Map<String, Integer> cameraDistances = new HashMap<>();
+	private BackgroundModelType backgroundModelType = BackgroundModelType.MOVING_AVERAGE;
+	private final Map<String, BackgroundModelType> cameraBackgroundModels = new HashMap<>();
 	private final Set<String> messagesChimeMuted = new HashSet<>();
 	private boolean showedPerspectiveMessage = false;
+	private int metricsReportInterval = 0;
+	private int shotMarkerRetention = 1000;
+	private int shotMarkerFade = 0;
+	private int shotTimerRows = 500;
+	private Optional<File> replaySource = Optional.empty();
+	private int replayCameraCount = 1;
+	private ReplayCamera.Pacing replayPacing = ReplayCamera.Pacing.REAL_TIME;
+	private boolean loopReplay = true;
+	private Optional<File> batchDetectionDirectory = Optional.empty();
+	private Optional<File> batchOutputDirectory = Optional.empty();
+	private int batchThreads = Runtime.getRuntime().availableProcessors();
+	private Optional<File> tuningDirectory = Optional.empty();
+	private int tuningTrials = DEFAULT_TUNING_TRIALS;
+	private List<DetectionParameter> tuningGridParameters = new ArrayList<>();
+	private Optional<File> detectionProfile = Optional.empty();
+	private Optional<Integer> headlessPort = Optional.empty();
+	private DetectionParameters detectionParameters = DetectionParameters.DEFAULT;
 
 	private int displayWidth = DEFAULT_DISPLAY_WIDTH;
 
@@ -376,6 +434,22 @@ public class Configuration {
 			}
 		}
 
+		if (prop.containsKey(BACKGROUND_MODEL_PROP)) {
+			final BackgroundModelType modelType = BackgroundModelType
+					.fromString(prop.getProperty(BACKGROUND_MODEL_PROP));
+			if (modelType != null) setBackgroundModelType(modelType);
+		}
+
+		if (prop.containsKey(WEBCAM_BACKGROUND_MODELS_PROP)) {
+			for (final String modelString : prop.getProperty(WEBCAM_BACKGROUND_MODELS_PROP).split(",")) {
+				final String[] modelComponents = modelString.split("\\|");
+				if (modelComponents.length == 2) {
+					final BackgroundModelType modelType = BackgroundModelType.fromString(modelComponents[1]);
+					if (modelType != null) cameraBackgroundModels.put(modelComponents[0], modelType);
+				}
+			}
+		}
+
 		if (prop.containsKey(MUTED_CHIME_MESSAGES)) {
 			for (final String message : prop.getProperty(MUTED_CHIME_MESSAGES).split("\\|")) {
 				muteMessageChime(message);
@@ -394,6 +468,22 @@ public class Configuration {
 			setShowedPerspectiveMessage(Boolean.parseBoolean(prop.getProperty(SHOWED_PERSPECTIVE_USAGE_MESSAGE)));
 		}
 
+		if (prop.containsKey(METRICS_REPORT_INTERVAL_PROP)) {
+			setMetricsReportInterval(Integer.parseInt(prop.getProperty(METRICS_REPORT_INTERVAL_PROP)));
+		}
+
+		if (prop.containsKey(SHOT_MARKER_RETENTION_PROP)) {
+			setShotMarkerRetention(Integer.parseInt(prop.getProperty(SHOT_MARKER_RETENTION_PROP)));
+		}
+
+		if (prop.containsKey(SHOT_MARKER_FADE_PROP)) {
+			setShotMarkerFade(Integer.parseInt(prop.getProperty(SHOT_MARKER_FADE_PROP)));
+		}
+
+		if (prop.containsKey(SHOT_TIMER_ROWS_PROP)) {
+			setShotTimerRows(Integer.parseInt(prop.getProperty(SHOT_TIMER_ROWS_PROP)));
+		}
+
 		if (prop.containsKey(CALIBRATE_AUTO_ADJUST_EXPOSURE)) {
 			setAutoAdjustExposure(Boolean.parseBoolean(prop.getProperty(CALIBRATE_AUTO_ADJUST_EXPOSURE)));
 		}
@@ -493,11 +583,25 @@ public class Configuration {
 			prop.setProperty(ARENA_POSITION_Y_PROP, String.valueOf(arenaPosition.getY()));
 		}
 
+		final StringBuilder cameraBackgroundModelsList = new StringBuilder();
+		for (final Entry<String, BackgroundModelType> modelEntry : cameraBackgroundModels.entrySet()) {
+			if (cameraBackgroundModelsList.length() > 0) cameraBackgroundModelsList.append(",");
+			cameraBackgroundModelsList.append(modelEntry.getKey());
+			cameraBackgroundModelsList.append("|");
+			cameraBackgroundModelsList.append(modelEntry.getValue().name());
+		}
+
 		prop.setProperty(PERSPECTIVE_WEBCAM_DISTANCES, cameraDistancesList.toString());
+		prop.setProperty(BACKGROUND_MODEL_PROP, backgroundModelType.name());
+		prop.setProperty(WEBCAM_BACKGROUND_MODELS_PROP, cameraBackgroundModelsList.toString());
 		prop.setProperty(CALIBRATED_FEED_BEHAVIOR_PROP, calibratedFeedBehavior.name());
 		prop.setProperty(SHOW_ARENA_SHOT_MARKERS, String.valueOf(showArenaShotMarkers));
 		prop.setProperty(CALIBRATE_AUTO_ADJUST_EXPOSURE, String.valueOf(autoAdjustExposure));
 		prop.setProperty(SHOWED_PERSPECTIVE_USAGE_MESSAGE, String.valueOf(showedPerspectiveMessage));
+		prop.setProperty(METRICS_REPORT_INTERVAL_PROP, String.valueOf(metricsReportInterval));
+		prop.setProperty(SHOT_MARKER_RETENTION_PROP, String.valueOf(shotMarkerRetention));
+		prop.setProperty(SHOT_MARKER_FADE_PROP, String.valueOf(shotMarkerFade));
+		prop.setProperty(SHOT_TIMER_ROWS_PROP, String.valueOf(shotTimerRows));
 
 		if (isAdjustingPOI() && poiAdjustmentX.isPresent() && poiAdjustmentY.isPresent()) {
 			prop.setProperty(POI_ADJUSTMENT_X, String.valueOf(poiAdjustmentX.get()));
@@ -531,6 +635,33 @@ public class Configuration {
 				"turns on the virtual magazine and sets the number rounds it holds [1,45]");
 		options.addOption("f", "use-malfunctions", true,
 				"turns on malfunctions and sets the probability of them happening");
+		options.addOption("r", "report-metrics", true,
+				"periodically logs performance metrics and appends them to metrics.csv every n seconds");
+		options.addOption("p", "replay", true,
+				"adds virtual cameras that replay a video or a directory of frame images as a live feed");
+		options.addOption("n", "replay-cameras", true, "sets how many virtual cameras replay the same feed [1,16]");
+		options.addOption("x", "replay-unpaced", false,
+				"replays frames as fast as they can be processed instead of in real time");
+		options.addOption("o", "replay-once", false, "stops replaying at the end of the feed instead of looping");
+		options.addOption("b", "batch-detect", true,
+				"detects shots in every recording in a directory without starting the GUI, then exits");
+		options.addOption("w", "batch-output", true,
+				"sets the directory batch detection writes shots to (default: " + DEFAULT_BATCH_OUTPUT_DIRECTORY
+						+ " in the recordings directory)");
+		options.addOption("j", "batch-threads", true,
+				"sets how many recordings batch detection or tuning processes at once (default: one per processor)");
+		options.addOption("t", "tune-detection", true,
+				"searches for the detection parameters that work best on a directory of recordings with expected "
+						+ "shots without starting the GUI, then exits. Results go to the batch output directory "
+						+ "(default: " + DEFAULT_TUNING_OUTPUT_DIRECTORY + " in the recordings directory)");
+		options.addOption("s", "tune-trials", true,
+				"sets how many random parameter sets tuning tries (default: " + DEFAULT_TUNING_TRIALS + ")");
+		options.addOption("g", "tune-grid", true,
+				"tunes a comma separated list of detection parameters with a grid search instead of a random search");
+		options.addOption("z", "detection-profile", true,
+				"loads detection parameters from a profile, e.g. one written by tuning");
+		options.addOption("l", "headless-port", true,
+				"in headless mode, accepts controllers over TCP and WebSockets on this port instead of bluetooth");
 
 		try {
 			final CommandLineParser parser = new DefaultParser();
@@ -556,6 +687,42 @@ public class Configuration {
 				setMalfunctions(true);
 				setMalfunctionsProbability(Float.parseFloat(cmd.getOptionValue("f")));
 			}
+
+			if (cmd.hasOption("r")) setMetricsReportInterval(Integer.parseInt(cmd.getOptionValue("r")));
+
+			if (cmd.hasOption("p")) setReplaySource(new File(cmd.getOptionValue("p")));
+
+			if (cmd.hasOption("n")) setReplayCameraCount(Integer.parseInt(cmd.getOptionValue("n")));
+
+			if (cmd.hasOption("x")) setReplayPacing(ReplayCamera.Pacing.UNPACED);
+
+			if (cmd.hasOption("o")) setLoopReplay(false);
+
+			if (cmd.hasOption("b")) setBatchDetectionDirectory(new File(cmd.getOptionValue("b")));
+
+			if (cmd.hasOption("w")) setBatchOutputDirectory(new File(cmd.getOptionValue("w")));
+
+			if (cmd.hasOption("j")) setBatchThreads(Integer.parseInt(cmd.getOptionValue("j")));
+
+			if (cmd.hasOption("t")) setTuningDirectory(new File(cmd.getOptionValue("t")));
+
+			if (cmd.hasOption("s")) setTuningTrials(Integer.parseInt(cmd.getOptionValue("s")));
+
+			if (cmd.hasOption("g")) {
+				final List<DetectionParameter> gridParameters = new ArrayList<>();
+
+				for (final String key : cmd.getOptionValue("g").split(",")) {
+					final DetectionParameter parameter = DetectionParameter.fromKey(key);
+					if (parameter == null) throw new ConfigurationException(String.format(TUNE_GRID_MESSAGE, key));
+					gridParameters.add(parameter);
+				}
+
+				setTuningGridParameters(gridParameters);
+			}
+
+			if (cmd.hasOption("z")) setDetectionProfile(new File(cmd.getOptionValue("z")));
+
+			if (cmd.hasOption("l")) setHeadlessPort(Integer.parseInt(cmd.getOptionValue("l")));
 		} catch (final ParseException e) {
 			System.err.println(e.getMessage());
 			final HelpFormatter formatter = new HelpFormatter();
@@ -596,6 +763,60 @@ public class Configuration {
 		if (malfunctionsProbability < (float) 0.1 || malfunctionsProbability > (float) 99.9) {
 			throw new ConfigurationException(String.format(INJECT_MALFUNCTIONS_MESSAGE, malfunctionsProbability));
 		}
+
+		if (metricsReportInterval < 0) {
+			throw new ConfigurationException(String.format(METRICS_REPORT_INTERVAL_MESSAGE, metricsReportInterval));
+		}
+
+		if (shotMarkerRetention < 1 || shotMarkerRetention > 100000) {
+			throw new ConfigurationException(String.format(SHOT_MARKER_RETENTION_MESSAGE, shotMarkerRetention));
+		}
+
+		if (shotMarkerFade < 0) {
+			throw new ConfigurationException(String.format(SHOT_MARKER_FADE_MESSAGE, shotMarkerFade));
+		}
+
+		if (shotTimerRows < 10 || shotTimerRows > 100000) {
+			throw new ConfigurationException(String.format(SHOT_TIMER_ROWS_MESSAGE, shotTimerRows));
+		}
+
+		if (replaySource.isPresent() && !replaySource.get().exists()) {
+			throw new ConfigurationException(String.format(REPLAY_SOURCE_MESSAGE, replaySource.get().getPath()));
+		}
+
+		if (replayCameraCount < 1 || replayCameraCount > 16) {
+			throw new ConfigurationException(String.format(REPLAY_CAMERAS_MESSAGE, replayCameraCount));
+		}
+
+		if (batchDetectionDirectory.isPresent() && !batchDetectionDirectory.get().isDirectory()) {
+			throw new ConfigurationException(
+					String.format(BATCH_DETECT_MESSAGE, batchDetectionDirectory.get().getPath()));
+		}
+
+		if (batchThreads < 1) {
+			throw new ConfigurationException(String.format(BATCH_THREADS_MESSAGE, batchThreads));
+		}
+
+		if (tuningDirectory.isPresent() && !tuningDirectory.get().isDirectory()) {
+			throw new ConfigurationException(String.format(TUNE_DETECTION_MESSAGE, tuningDirectory.get().getPath()));
+		}
+
+		if (tuningTrials < 1) {
+			throw new ConfigurationException(String.format(TUNE_TRIALS_MESSAGE, tuningTrials));
+		}
+
+		if (headlessPort.isPresent() && (headlessPort.get() < 0 || headlessPort.get() > 65535)) {
+			throw new ConfigurationException(String.format(HEADLESS_PORT_MESSAGE, headlessPort.get()));
+		}
+
+		if (detectionProfile.isPresent()) {
+			try {
+				detectionParameters = DetectionParameters.load(detectionProfile.get());
+			} catch (final IOException e) {
+				throw new ConfigurationException(
+						String.format(DETECTION_PROFILE_MESSAGE, detectionProfile.get().getPath(), e.getMessage()));
+			}
+		}
 	}
 
 	public int getDisplayWidth() {
@@ -892,6 +1113,113 @@ public class Configuration {
 		cameraDistances.put(webcamName, distance);
 	}
 
+	public void setBackgroundModelType(BackgroundModelType backgroundModelType) {
+		this.backgroundModelType = backgroundModelType;
+	}
+
+	public void setCameraBackgroundModelType(String cameraName, BackgroundModelType backgroundModelType) {
+		cameraBackgroundModels.put(cameraName, backgroundModelType);
+	}
+
+	/**
+	 * @param metricsReportInterval
+	 *            how often in seconds to report performance metrics, or 0 to
+	 *            not report them
+	 */
+	public void setMetricsReportInterval(int metricsReportInterval) {
+		this.metricsReportInterval = metricsReportInterval;
+	}
+
+	/**
+	 * @param shotMarkerRetention
+	 *            how many shot markers each view keeps, older markers are
+	 *            removed first
+	 */
+	public void setShotMarkerRetention(int shotMarkerRetention) {
+		this.shotMarkerRetention = shotMarkerRetention;
+	}
+
+	/**
+	 * @param shotMarkerFade
+	 *            how many seconds shot markers take to fade out, or 0 for
+	 *            markers to stay until they are cleared
+	 */
+	public void setShotMarkerFade(int shotMarkerFade) {
+		this.shotMarkerFade = shotMarkerFade;
+	}
+
+	/**
+	 * @param shotTimerRows
+	 *            how many of the most recent shots the shot timer table keeps
+	 *            in memory, older shots are paged in from disk
+	 */
+	public void setShotTimerRows(int shotTimerRows) {
+		this.shotTimerRows = shotTimerRows;
+	}
+
+	/**
+	 * @param replaySource
+	 *            a video or a directory of frame images to replay through
+	 *            virtual cameras. Replay settings only come from the command
+	 *            line and are never saved.
+	 */
+	public void setReplaySource(File replaySource) {
+		this.replaySource = Optional.ofNullable(replaySource);
+	}
+
+	public void setReplayCameraCount(int replayCameraCount) {
+		this.replayCameraCount = replayCameraCount;
+	}
+
+	public void setReplayPacing(ReplayCamera.Pacing replayPacing) {
+		this.replayPacing = replayPacing;
+	}
+
+	public void setLoopReplay(boolean loopReplay) {
+		this.loopReplay = loopReplay;
+	}
+
+	public void setBatchDetectionDirectory(File batchDetectionDirectory) {
+		this.batchDetectionDirectory = Optional.ofNullable(batchDetectionDirectory);
+	}
+
+	public void setBatchOutputDirectory(File batchOutputDirectory) {
+		this.batchOutputDirectory = Optional.ofNullable(batchOutputDirectory);
+	}
+
+	public void setBatchThreads(int batchThreads) {
+		this.batchThreads = batchThreads;
+	}
+
+	public void setTuningDirectory(File tuningDirectory) {
+		this.tuningDirectory = Optional.ofNullable(tuningDirectory);
+	}
+
+	public void setTuningTrials(int tuningTrials) {
+		this.tuningTrials = tuningTrials;
+	}
+
+	public void setTuningGridParameters(List<DetectionParameter> tuningGridParameters) {
+		this.tuningGridParameters = tuningGridParameters;
+	}
+
+	/**
+	 * @param detectionProfile
+	 *            a properties file of detection parameters, which is loaded
+	 *            when the configuration is validated
+	 */
+	public void setDetectionProfile(File detectionProfile) {
+		this.detectionProfile = Optional.ofNullable(detectionProfile);
+	}
+
+	public void setHeadlessPort(Integer headlessPort) {
+		this.headlessPort = Optional.ofNullable(headlessPort);
+	}
+
+	public void setDetectionParameters(DetectionParameters detectionParameters) {
+		this.detectionParameters = detectionParameters;
+	}
+
 	public void setShowedPerspectiveMessage(boolean showedPerspectiveMessage) {
 		this.showedPerspectiveMessage = showedPerspectiveMessage;
 	}
@@ -1016,6 +1344,18 @@ public class Configuration {
 		return Optional.ofNullable(cameraDistances.get(cameraName));
 	}
 
+	/**
+	 * @param cameraName
+	 *            the internal name of the camera a shot detector is being
+	 *            created for
+	 * @return the background model configured for the camera, falling back to
+	 *         the default model if the camera has no specific setting
+	 */
+	public BackgroundModelType getBackgroundModelType(String cameraName) {
+		final BackgroundModelType cameraModelType = cameraBackgroundModels.get(cameraName);
+		return cameraModelType != null ? cameraModelType : backgroundModelType;
+	}
+
 	public boolean isChimeMuted(String message) {
 		return messagesChimeMuted.contains(message);
 	}
@@ -1028,6 +1368,92 @@ public class Configuration {
 		return showArenaShotMarkers;
 	}
 
+	public int getMetricsReportInterval() {
+		return metricsReportInterval;
+	}
+
+	public int getShotMarkerRetention() {
+		return shotMarkerRetention;
+	}
+
+	public int getShotMarkerFade() {
+		return shotMarkerFade;
+	}
+
+	public int getShotTimerRows() {
+		return shotTimerRows;
+	}
+
+	public Optional<File> getReplaySource() {
+		return replaySource;
+	}
+
+	public int getReplayCameraCount() {
+		return replayCameraCount;
+	}
+
+	public ReplayCamera.Pacing getReplayPacing() {
+		return replayPacing;
+	}
+
+	public boolean loopReplay() {
+		return loopReplay;
+	}
+
+	/**
+	 * @return the directory of recordings to detect shots in if ShootOFF was
+	 *         started in batch detection mode
+	 */
+	public Optional<File> getBatchDetectionDirectory() {
+		return batchDetectionDirectory;
+	}
+
+	public File getBatchOutputDirectory() {
+		if (batchOutputDirectory.isPresent() || !batchDetectionDirectory.isPresent())
+			return batchOutputDirectory.orElse(new File(DEFAULT_BATCH_OUTPUT_DIRECTORY));
+
+		return new File(batchDetectionDirectory.get(), DEFAULT_BATCH_OUTPUT_DIRECTORY);
+	}
+
+	public int getBatchThreads() {
+		return batchThreads;
+	}
+
+	/**
+	 * @return the directory of labelled recordings to tune detection with if
+	 *         ShootOFF was started in tuning mode
+	 */
+	public Optional<File> getTuningDirectory() {
+		return tuningDirectory;
+	}
+
+	public File getTuningOutputDirectory() {
+		if (batchOutputDirectory.isPresent() || !tuningDirectory.isPresent())
+			return batchOutputDirectory.orElse(new File(DEFAULT_TUNING_OUTPUT_DIRECTORY));
+
+		return new File(tuningDirectory.get(), DEFAULT_TUNING_OUTPUT_DIRECTORY);
+	}
+
+	public int getTuningTrials() {
+		return tuningTrials;
+	}
+
+	public List<DetectionParameter> getTuningGridParameters() {
+		return tuningGridParameters;
+	}
+
+	/**
+	 * @return the port headless mode serves controllers on over TCP, or empty
+	 *         to use bluetooth
+	 */
+	public Optional<Integer> getHeadlessPort() {
+		return headlessPort;
+	}
+
+	public DetectionParameters getDetectionParameters() {
+		return detectionParameters;
+	}
+
 	public boolean showedPerspectiveMessage() {
 		return showedPerspectiveMessage;
 	}
@@ -22,9 +22,9 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -55,6 +55,9 @@ import com.shootoff.gui.pane.ProjectorArenaPane;
 import com.shootoff.gui.targets.MirroredTarget;
 import com.shootoff.gui.targets.TargetCommands;
 import com.shootoff.gui.targets.TargetView;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
+import com.shootoff.metrics.ShotTrace;
 import com.shootoff.plugins.TrainingExercise;
 import com.shootoff.plugins.TrainingExerciseBase;
 import com.shootoff.targets.Hit;
@@ -66,7 +69,6 @@ import com.shootoff.targets.io.TargetIO;
 import com.shootoff.targets.io.TargetIO.TargetComponents;
 
 import javafx.application.Platform;
-import javafx.collections.ObservableList;
 import com.shootoff.util.SwingFXUtils;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
@@ -88,6 +90,12 @@ import javafx.util.Pair;
 
 public class CanvasManager implements CameraView {
 	private final Logger logger = LoggerFactory.getLogger(CanvasManager.class);
+
+	private static final LatencyHistogram addShotTime = MetricsRegistry.getRegistry().histogram("canvas.addShot");
+	private static final LatencyHistogram checkHitTime = MetricsRegistry.getRegistry().histogram("canvas.checkHit");
+	private static final LatencyHistogram shotListenerTime = MetricsRegistry.getRegistry()
+			.histogram("plugin.shotListener");
+
 	private final Group canvasGroup;
 	private final Configuration config;
 	protected CameraManager cameraManager;
@@ -103,9 +111,11 @@ public class CanvasManager implements CameraView {
 
 	private final Resetter resetter;
 	private final String cameraName;
-	private final ObservableList<ShotEntry> shotEntries;
+	private final ShotTimerModel shotEntries;
 	private final ImageView background = new ImageView();
-	private final List<DisplayShot> shots = Collections.synchronizedList(new ArrayList<DisplayShot>());
+	// Guarded by itself
+	private final Deque<DisplayShot> shots = new ArrayDeque<>();
+	private final ShotMarkerLayer shotMarkers;
 	private final List<Target> targets = new ArrayList<>();
 
 	private ProgressIndicator progress;
@@ -123,13 +133,16 @@ public class CanvasManager implements CameraView {
 	private Optional<Bounds> projectionBounds = Optional.empty();
 
 	public CanvasManager(Group canvasGroup, Resetter resetter, String cameraName,
-			ObservableList<ShotEntry> shotEntries) {
+			ShotTimerModel shotEntries) {
 		this.canvasGroup = canvasGroup;
 		config = Configuration.getConfig();
 		this.resetter = resetter;
 		this.cameraName = cameraName;
 		this.shotEntries = shotEntries;
 
+		shotMarkers = new ShotMarkerLayer(canvasGroup, config.getDisplayWidth(), config.getDisplayHeight(),
+				config.getShotMarkerRetention(), config.getShotMarkerFade());
+
 		background.setOnMouseClicked((event) -> {
 			toggleTargetSelection(Optional.empty());
 		});
@@ -278,7 +291,9 @@ public class CanvasManager implements CameraView {
 					+ "the shooter. If problems persist you may need to restart ShootOFF.");
 			cameraAlert.show();
 
-			shots.clear();
+			synchronized (shots) {
+				shots.clear();
+			}
 			shotEntries.clear();
 		});
 	}
@@ -443,11 +458,10 @@ public class CanvasManager implements CameraView {
 	@Override
 	public void clearShots() {
 		final Runnable clearShotsAction = () -> {
-			for (final DisplayShot shot : shots) {
-				canvasGroup.getChildren().remove(shot.getMarker());
+			shotMarkers.clear();
+			synchronized (shots) {
+				shots.clear();
 			}
-
-			shots.clear();
 			try {
 				if (shotEntries != null) shotEntries.clear();
 			} catch (final NullPointerException npe) {
@@ -486,14 +500,18 @@ public class CanvasManager implements CameraView {
 	}
 
 	public void setShowShots(boolean showShots) {
-		if (this.showShots != showShots) {
-			for (final DisplayShot shot : shots)
-				shot.getMarker().setVisible(showShots);
-		}
+		if (this.showShots != showShots) shotMarkers.setVisible(showShots);
 
 		this.showShots = showShots;
 	}
 
+	/**
+	 * Highlight a shot's marker or return it to its normal color.
+	 */
+	public void setShotSelected(DisplayShot shot, boolean selected) {
+		shotMarkers.setSelected(shot, selected);
+	}
+
 	private void notifyShot(Shot shot) {
 		if (config.getSessionRecorder().isPresent()) {
 			for (final CameraManager cm : config.getRecordingManagers())
@@ -563,13 +581,23 @@ public class CanvasManager implements CameraView {
 
 	// For testing
 	protected List<DisplayShot> getShots() {
-		return shots;
+		synchronized (shots) {
+			return new ArrayList<>(shots);
+		}
 	}
 
 	@Override
 	public void addShot(DisplayShot shot, boolean isMirroredShot) {
+		final long startTime = System.nanoTime();
+		displayShot(shot, isMirroredShot);
+		addShotTime.recordSince(startTime);
+	}
+
+	private void displayShot(DisplayShot shot, boolean isMirroredShot) {
 		if (!isMirroredShot) {
 			final Optional<ShotProcessor> rejectingProcessor = processShot(shot);
+			stampTrace(shot, ShotTrace.Stage.SHOT_PROCESSED);
+
 			if (rejectingProcessor.isPresent()) {
 				recordRejectedShot(shot, rejectingProcessor.get());
 				return;
@@ -585,39 +613,25 @@ public class CanvasManager implements CameraView {
 			} else if (config.useGreenLaserSound() && ShotColor.GREEN.equals(shot.getColor())) {
 				TrainingExerciseBase.playSound(config.getGreenLaserSound());
 			}
+			stampTrace(shot, ShotTrace.Stage.SOUND_STARTED);
 		}
 
 		// Create a shot entry to show the shot's data
 		// in the shot timer table if the shot timer
 		// table is in use
 		if (shotEntries != null) {
-			final Optional<Shot> lastShot;
-
-			if (shotEntries.isEmpty()) {
-				lastShot = Optional.empty();
-			} else {
-				lastShot = Optional.of(shotEntries.get(shotEntries.size() - 1).getShot());
-			}
-
-			final ShotEntry shotEntry;
-			if (hadMalfunction || hadReload) {
-				shotEntry = new ShotEntry(shot, lastShot, config.getShotTimerRowColor(), hadMalfunction, hadReload);
+			try {
+				shotEntries.addShot(shot, config.getShotTimerRowColor(), hadMalfunction, hadReload);
 				hadMalfunction = false;
 				hadReload = false;
-			} else {
-				shotEntry = new ShotEntry(shot, lastShot, config.getShotTimerRowColor(), false, false);
-			}
-
-			try {
-				shotEntries.add(shotEntry);
 			} catch (final NullPointerException npe) {
 				logger.error("JDK 8094135 exception", npe);
 				jdk8094135Warning();
 			}
 		}
 
-		shots.add(shot);
-		drawShot(shot);
+		rememberShot(shot);
+		drawShot(shot, isMirroredShot);
 
 		final Optional<String> videoString = createVideoString(shot);
 
@@ -644,7 +658,7 @@ public class CanvasManager implements CameraView {
 		if (passedToArena || processedShot) return;
 
 		final Optional<TrainingExercise> currentExercise = config.getExercise();
-		final Optional<Hit> hit = checkHit(shot, videoString, isMirroredShot);
+		final Optional<Hit> hit = timedCheckHit(shot, videoString, isMirroredShot);
 		if (hit.isPresent() && hit.get().getHitRegion().tagExists("command")) executeRegionCommands(hit.get(), isMirroredShot);
 
 		if (currentExercise.isPresent() && !processedShot) {
@@ -654,9 +668,9 @@ public class CanvasManager implements CameraView {
 			// copies and will not be the versions of the targets added
 			// by exercises.
 			if ((this instanceof MirroredCanvasManager) && cameraManager == null) {
-				currentExercise.get().shotListener(shot, hit);
+				notifyExercise(currentExercise.get(), shot, hit);
 			} else if (!(this instanceof MirroredCanvasManager)) {
-				currentExercise.get().shotListener(shot, hit);
+				notifyExercise(currentExercise.get(), shot, hit);
 			}
 		}
 	}
@@ -681,18 +695,18 @@ public class CanvasManager implements CameraView {
 	}
 
 	public boolean addArenaShot(ArenaShot shot, Optional<String> videoString, boolean isMirroredShot) {
-		shots.add(shot);
-		drawShot(shot);
+		rememberShot(shot);
+		drawShot(shot, isMirroredShot);
 
 		final Optional<TrainingExercise> currentExercise = config.getExercise();
-		final Optional<Hit> hit = checkHit(shot, videoString, isMirroredShot);
+		final Optional<Hit> hit = timedCheckHit(shot, videoString, isMirroredShot);
 		if (hit.isPresent() && hit.get().getHitRegion().tagExists("command")) {
 			executeRegionCommands(hit.get(), isMirroredShot);
 		}
 
 		if (!isMirroredShot) {
 			if (currentExercise.isPresent()) {
-				currentExercise.get().shotListener(shot, hit);
+				notifyExercise(currentExercise.get(), shot, hit);
 				return true;
 			}
 		}
@@ -700,19 +714,42 @@ public class CanvasManager implements CameraView {
 		return false;
 	}
 
-	private void drawShot(DisplayShot shot) {
-		final Runnable drawShotAction = () -> {
-			canvasGroup.getChildren().add(shot.getMarker());
-			shot.getMarker().setVisible(showShots);
-		};
-
-		if (Platform.isFxApplicationThread()) {
-			drawShotAction.run();
-		} else {
-			Platform.runLater(drawShotAction);
+	// Only as many shots as there are markers are kept so that long sessions
+	// don't keep every shot alive
+	private void rememberShot(DisplayShot shot) {
+		synchronized (shots) {
+			shots.addLast(shot);
+			while (shots.size() > config.getShotMarkerRetention())
+				shots.pollFirst();
 		}
 	}
 
+	private void drawShot(DisplayShot shot, boolean isMirroredShot) {
+		shotMarkers.addShot(shot, () -> {
+			if (!isMirroredShot) stampTrace(shot, ShotTrace.Stage.MARKER_DRAWN);
+		});
+	}
+
+	private Optional<Hit> timedCheckHit(DisplayShot shot, Optional<String> videoString, boolean isMirroredShot) {
+		final long startTime = System.nanoTime();
+		final Optional<Hit> hit = checkHit(shot, videoString, isMirroredShot);
+		checkHitTime.recordSince(startTime);
+		if (!isMirroredShot) stampTrace(shot, ShotTrace.Stage.HIT_CHECKED);
+
+		return hit;
+	}
+
+	private void notifyExercise(TrainingExercise exercise, DisplayShot shot, Optional<Hit> hit) {
+		final long startTime = System.nanoTime();
+		exercise.shotListener(shot, hit);
+		shotListenerTime.recordSince(startTime);
+		stampTrace(shot, ShotTrace.Stage.EXERCISE_NOTIFIED);
+	}
+
+	private void stampTrace(Shot shot, ShotTrace.Stage stage) {
+		if (shot.getTrace().isPresent()) shot.getTrace().get().stamp(stage);
+	}
+
 	protected Optional<Hit> checkHit(DisplayShot shot, Optional<String> videoString, boolean isMirroredShot) {		
 		// Targets are in order of when they were added, thus we must search in
 		// reverse to ensure shots register for the top target when targets
@@ -789,15 +826,8 @@ public class CanvasManager implements CameraView {
 
 			final ClassLoader loader = config.getPlugin().get().getLoader();
 
-			final InputStream resourceTargetStream = loader
-					.getResourceAsStream(targetFile.toString().substring(1).replace("\\", "/"));
-			if (resourceTargetStream != null) {
-				targetComponents = TargetIO.loadTarget(resourceTargetStream, playAnimations, loader);
-			} else {
-				targetComponents = Optional.empty();
-				logger.error("Error adding target from stream created from resource {}",
-						targetFile.toString().substring(1).replace("\\", "/"));
-			}
+			targetComponents = TargetIO.loadTarget(targetFile.toString().substring(1).replace("\\", "/"),
+					playAnimations, loader);
 		} else {
 			targetComponents = TargetIO.loadTarget(targetFile, playAnimations);
 		}
@@ -18,8 +18,6 @@
 
 package com.shootoff.gui;
 
-import java.awt.Dimension;
-import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -30,9 +28,10 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CameraRegistry;
 import com.shootoff.camera.cameratypes.Camera;
 
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import com.shootoff.util.SwingFXUtils;
@@ -161,13 +160,12 @@ public class CheckableImageListCell extends TextFieldListCell<String> {
 		iv.setFitWidth(100);
 		iv.setFitHeight(75);
 
-		new Thread(() -> {
-			final Optional<Image> img = fetchWebcamImage(c);
+		CameraRegistry.getRegistry().fetchInfo(c, (info) -> {
+			if (!info.getThumbnail().isPresent()) return;
 
-			if (img.isPresent()) {
-				iv.setImage(img.get());
-			}
-		}, "FetchImageCellWebcamImages").start();
+			final Image img = SwingFXUtils.toFXImage(info.getThumbnail().get(), null);
+			Platform.runLater(() -> iv.setImage(img));
+		});
 
 		final CheckBox cb = new CheckBox();
 		cb.setOnAction((event) -> {
@@ -255,31 +253,4 @@ public class CheckableImageListCell extends TextFieldListCell<String> {
 
 		return false;
 	}
-
-	private static Optional<Image> fetchWebcamImage(Camera webcam) {
-		boolean cameraOpened = false;
-
-		synchronized (webcam) {
-			if (!webcam.isOpen()) {
-				webcam.setViewSize(new Dimension(CameraManager.DEFAULT_FEED_WIDTH, CameraManager.DEFAULT_FEED_HEIGHT));
-				webcam.open();
-				cameraOpened = true;
-			}
-
-			Image webcamImg = null;
-			if (webcam.isOpen()) {
-				final BufferedImage img = webcam.getBufferedImage();
-
-				if (img != null) {
-					webcamImg = SwingFXUtils.toFXImage(img, null);
-				}
-			}
-
-			if (cameraOpened == true) {
-				webcam.close();
-			}
-
-			return Optional.ofNullable(webcamImg);
-		}
-	}
 }
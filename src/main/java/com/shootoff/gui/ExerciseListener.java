@@ -18,6 +18,8 @@
 
 package com.shootoff.gui;
 
+import java.util.Optional;
+
 import com.shootoff.plugins.TrainingExercise;
 import com.shootoff.plugins.engine.PluginEngine;
 
@@ -26,5 +28,8 @@ public interface ExerciseListener {
 
 	public void setExercise(TrainingExercise exercise);
 
-	public PluginEngine getPluginEngine();
+	/**
+	 * @return the plugin engine, or empty if it failed to start
+	 */
+	public Optional<PluginEngine> getPluginEngine();
 }
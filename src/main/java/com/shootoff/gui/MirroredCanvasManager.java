@@ -14,7 +14,6 @@ import com.shootoff.gui.targets.TargetView;
 import com.shootoff.targets.Target;
 import com.shootoff.targets.io.TargetIO.TargetComponents;
 
-import javafx.collections.ObservableList;
 import javafx.geometry.Bounds;
 import javafx.geometry.Dimension2D;
 import javafx.geometry.Point2D;
@@ -27,7 +26,7 @@ public class MirroredCanvasManager extends CanvasManager {
 	private MirroredCanvasManager mirroredManager;
 
 	public MirroredCanvasManager(Group canvasGroup, Resetter resetter, String cameraName,
-			ObservableList<ShotEntry> shotEntries, ProjectorArenaPane arenaPane) {
+			ShotTimerModel shotEntries, ProjectorArenaPane arenaPane) {
 		super(canvasGroup, resetter, cameraName, shotEntries);
 
 		config = Configuration.getConfig();
@@ -196,6 +195,17 @@ public class MirroredCanvasManager extends CanvasManager {
 		super.clearShots();
 	}
 
+	@Override
+	public void setShotSelected(DisplayShot shot, boolean selected) {
+		if (shot.getMirroredShot().isPresent())
+			mirroredManager.mirrorSetShotSelected((DisplayShot) shot.getMirroredShot().get(), selected);
+		super.setShotSelected(shot, selected);
+	}
+
+	public void mirrorSetShotSelected(DisplayShot shot, boolean selected) {
+		super.setShotSelected(shot, selected);
+	}
+
 	public void mirrorClearShots() {
 		super.clearShots();
 	}
@@ -18,6 +18,7 @@
 
 package com.shootoff.gui;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -39,15 +40,7 @@ public class ShotEntry {
 	public ShotEntry(DisplayShot shot, Optional<Shot> lastShot, Optional<Color> rowColor, boolean hadMalfunction,
 			boolean hadReload) {
 		this.shot = shot;
-
-		if (ShotColor.RED.equals(shot.getColor())) {
-			color = "red";
-		} else if (ShotColor.GREEN.equals(shot.getColor())) {
-			color = "green";
-		} else {
-			color = "infrared";
-		}
-
+		color = getColorName(shot.getColor());
 		this.rowColor = rowColor;
 
 		final float timestampS = ((float) shot.getTimestamp()) / 1000f;
@@ -63,6 +56,26 @@ public class ShotEntry {
 		this.split = new SplitData(split, rowColor, hadMalfunction, hadReload);
 	}
 
+	// Used to restore entries that were paged out of the shot timer model
+	ShotEntry(DisplayShot shot, Optional<Color> rowColor, SplitData split, Map<String, String> exerciseData) {
+		this.shot = shot;
+		color = getColorName(shot.getColor());
+		this.rowColor = rowColor;
+		timestamp = String.format("%.2f", ((float) shot.getTimestamp()) / 1000f);
+		this.split = split;
+		this.exerciseData.putAll(exerciseData);
+	}
+
+	private static String getColorName(ShotColor shotColor) {
+		if (ShotColor.RED.equals(shotColor)) {
+			return "red";
+		} else if (ShotColor.GREEN.equals(shotColor)) {
+			return "green";
+		} else {
+			return "infrared";
+		}
+	}
+
 	public static class SplitData {
 		private final String split;
 		private final Optional<Color> rowColor;
@@ -124,6 +137,10 @@ public class ShotEntry {
 			return "";
 	}
 
+	Map<String, String> getExerciseData() {
+		return Collections.unmodifiableMap(exerciseData);
+	}
+
 	public void clearExerciseData() {
 		exerciseData.clear();
 	}
@@ -0,0 +1,243 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.gui;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.targets.TargetRegion;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Group;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Ellipse;
+
+/**
+ * Draws every shot marker for a view onto one canvas instead of adding a
+ * node per shot to the scene graph, which grows without bound over a long
+ * session. Markers are kept in primitive arrays that hold at most a fixed
+ * number of markers, dropping the oldest first, and can optionally fade out.
+ * 
+ * Shots can be added from any thread. Changes are queued without locking and
+ * applied together on the JavaFX thread, so a burst of shots is drawn once.
+ */
+public class ShotMarkerLayer {
+	private final Group canvasGroup;
+	private final Canvas canvas;
+	private final int retention;
+	private final long fadeNanos;
+
+	private final Queue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+	// Ring buffer of markers, only touched on the JavaFX thread
+	private final DisplayShot[] shots;
+	private final double[] centerX;
+	private final double[] centerY;
+	private final double[] radius;
+	private final Paint[] fill;
+	private final long[] addedTime;
+	private final boolean[] selected;
+	private int oldest = 0;
+	private int count = 0;
+
+	private final AnimationTimer fadeTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			if (!redraw(now)) stop();
+		}
+	};
+
+	/**
+	 * @param retention
+	 *            the maximum number of markers to keep
+	 * @param fadeSeconds
+	 *            how long markers take to fade out, or 0 to never fade them
+	 */
+	public ShotMarkerLayer(Group canvasGroup, double width, double height, int retention, int fadeSeconds) {
+		this.canvasGroup = canvasGroup;
+		this.retention = retention;
+		fadeNanos = TimeUnit.SECONDS.toNanos(fadeSeconds);
+
+		canvas = new Canvas(width, height);
+		// Clicks must still reach the targets underneath
+		canvas.setMouseTransparent(true);
+
+		shots = new DisplayShot[retention];
+		centerX = new double[retention];
+		centerY = new double[retention];
+		radius = new double[retention];
+		fill = new Paint[retention];
+		addedTime = new long[retention];
+		selected = new boolean[retention];
+	}
+
+	public void addShot(DisplayShot shot, Runnable onDrawn) {
+		// Read the marker now, it may be replaced by the time the change is
+		// applied
+		final Ellipse marker = shot.getMarker();
+		final double x = marker.getCenterX();
+		final double y = marker.getCenterY();
+		final double r = marker.getRadiusX();
+		final Paint paint = marker.getFill();
+
+		queueChange(() -> {
+			add(shot, x, y, r, paint);
+			onDrawn.run();
+		});
+	}
+
+	public void clear() {
+		queueChange(() -> {
+			for (int i = 0; i < count; i++)
+				shots[index(i)] = null;
+
+			oldest = 0;
+			count = 0;
+		});
+	}
+
+	/**
+	 * Draw a shot's marker in the selection color on top of every other marker
+	 * or return it to its normal color.
+	 */
+	public void setSelected(DisplayShot shot, boolean isSelected) {
+		queueChange(() -> {
+			for (int i = 0; i < count; i++) {
+				if (shots[index(i)] == shot) selected[index(i)] = isSelected;
+			}
+		});
+	}
+
+	public void setVisible(boolean visible) {
+		if (Platform.isFxApplicationThread()) {
+			canvas.setVisible(visible);
+		} else {
+			Platform.runLater(() -> canvas.setVisible(visible));
+		}
+	}
+
+	private void queueChange(Runnable change) {
+		pendingChanges.add(change);
+
+		if (drainScheduled.compareAndSet(false, true)) Platform.runLater(this::applyChanges);
+	}
+
+	private void applyChanges() {
+		drainScheduled.set(false);
+
+		Runnable change;
+		while ((change = pendingChanges.poll()) != null)
+			change.run();
+
+		// Targets added since the last shot would otherwise cover the markers
+		if (!canvasGroup.getChildren().contains(canvas)) {
+			canvasGroup.getChildren().add(canvas);
+		} else if (canvasGroup.getChildren().indexOf(canvas) != canvasGroup.getChildren().size() - 1) {
+			canvas.toFront();
+		}
+
+		if (redraw(System.nanoTime()) && fadeNanos > 0) fadeTimer.start();
+	}
+
+	private void add(DisplayShot shot, double x, double y, double r, Paint paint) {
+		final int i;
+
+		if (count == retention) {
+			i = oldest;
+			oldest = (oldest + 1) % retention;
+		} else {
+			i = index(count);
+			count++;
+		}
+
+		shots[i] = shot;
+		centerX[i] = x;
+		centerY[i] = y;
+		radius[i] = r;
+		fill[i] = paint;
+		addedTime[i] = System.nanoTime();
+		selected[i] = false;
+
+		// Markers can land outside of the canvas when the view is resized
+		if (x + r > canvas.getWidth()) canvas.setWidth(x + r);
+		if (y + r > canvas.getHeight()) canvas.setHeight(y + r);
+	}
+
+	private int index(int i) {
+		return (oldest + i) % retention;
+	}
+
+	/**
+	 * @return <code>true</code> if any marker is still fading
+	 */
+	private boolean redraw(long now) {
+		if (fadeNanos > 0) {
+			// Markers are ordered by age, so the faded ones are at the front
+			while (count > 0 && now - addedTime[oldest] >= fadeNanos) {
+				shots[oldest] = null;
+				oldest = (oldest + 1) % retention;
+				count--;
+			}
+		}
+
+		final GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+		boolean anySelected = false;
+
+		for (int i = 0; i < count; i++) {
+			final int j = index(i);
+
+			if (selected[j]) {
+				anySelected = true;
+				continue;
+			}
+
+			drawMarker(gc, j, fill[j], now);
+		}
+
+		// Selected markers go on top to ensure they are visible
+		if (anySelected) {
+			for (int i = 0; i < count; i++) {
+				final int j = index(i);
+				if (selected[j]) drawMarker(gc, j, TargetRegion.SELECTED_STROKE_COLOR, now);
+			}
+		}
+
+		gc.setGlobalAlpha(1.0);
+
+		return fadeNanos > 0 && count > 0;
+	}
+
+	private void drawMarker(GraphicsContext gc, int i, Paint paint, long now) {
+		if (fadeNanos > 0) {
+			gc.setGlobalAlpha(Math.max(0, 1.0 - (double) (now - addedTime[i]) / (double) fadeNanos));
+		}
+
+		gc.setFill(paint);
+		gc.fillOval(centerX[i] - radius[i], centerY[i] - radius[i], radius[i] * 2, radius[i] * 2);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.gui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.camera.shot.ShotColor;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Append-only file of shot timer entries that no longer fit in the shot timer
+ * model's ring buffer. Entries are written when they are evicted, after
+ * exercises have had a chance to fill in their columns, and are read back one
+ * at a time by index when the user scrolls to them.
+ */
+class ShotTimerJournal implements Closeable {
+	private final File journalFile;
+	private final RandomAccessFile journal;
+	private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(128);
+	private final DataOutputStream recordWriter = new DataOutputStream(recordBuffer);
+
+	private long[] offsets = new long[1024];
+	private int entryCount = 0;
+
+	public ShotTimerJournal() throws IOException {
+		journalFile = File.createTempFile("shootoff-shottimer", ".journal");
+		journalFile.deleteOnExit();
+		journal = new RandomAccessFile(journalFile, "rw");
+	}
+
+	public synchronized void append(ShotEntry entry) throws IOException {
+		recordBuffer.reset();
+
+		final DisplayShot shot = entry.getShot();
+		recordWriter.writeByte(shot.getColor().ordinal());
+		recordWriter.writeDouble(shot.getX());
+		recordWriter.writeDouble(shot.getY());
+		recordWriter.writeLong(shot.getTimestamp());
+		recordWriter.writeInt(shot.getFrame());
+		recordWriter.writeInt((int) shot.getMarker().getRadiusX());
+
+		final ShotEntry.SplitData split = entry.getSplit();
+		recordWriter.writeUTF(split.getSplit());
+		recordWriter.writeBoolean(split.hadMalfunction());
+		recordWriter.writeBoolean(split.hadReload());
+
+		final Optional<Color> rowColor = entry.getRowColor();
+		recordWriter.writeBoolean(rowColor.isPresent());
+		if (rowColor.isPresent()) {
+			recordWriter.writeDouble(rowColor.get().getRed());
+			recordWriter.writeDouble(rowColor.get().getGreen());
+			recordWriter.writeDouble(rowColor.get().getBlue());
+			recordWriter.writeDouble(rowColor.get().getOpacity());
+		}
+
+		final Map<String, String> exerciseData = entry.getExerciseData();
+		recordWriter.writeInt(exerciseData.size());
+		for (final Map.Entry<String, String> value : exerciseData.entrySet()) {
+			recordWriter.writeUTF(value.getKey());
+			recordWriter.writeUTF(value.getValue());
+		}
+
+		recordWriter.flush();
+
+		if (entryCount == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+
+		final long offset = journal.length();
+		journal.seek(offset);
+		journal.write(recordBuffer.toByteArray());
+		offsets[entryCount++] = offset;
+	}
+
+	public synchronized ShotEntry read(int index) throws IOException {
+		if (index < 0 || index >= entryCount) throw new IndexOutOfBoundsException(String.valueOf(index));
+
+		final long end = index + 1 < entryCount ? offsets[index + 1] : journal.length();
+		final byte[] record = new byte[(int) (end - offsets[index])];
+		journal.seek(offsets[index]);
+		journal.readFully(record);
+
+		final DataInputStream recordReader = new DataInputStream(new ByteArrayInputStream(record));
+
+		final ShotColor color = ShotColor.values()[recordReader.readByte()];
+		final double x = recordReader.readDouble();
+		final double y = recordReader.readDouble();
+		final long timestamp = recordReader.readLong();
+		final int frame = recordReader.readInt();
+		final int markerRadius = recordReader.readInt();
+		final DisplayShot shot = new DisplayShot(color, x, y, timestamp, frame, markerRadius);
+
+		final String split = recordReader.readUTF();
+		final boolean hadMalfunction = recordReader.readBoolean();
+		final boolean hadReload = recordReader.readBoolean();
+
+		final Optional<Color> rowColor;
+		if (recordReader.readBoolean()) {
+			rowColor = Optional.of(new Color(recordReader.readDouble(), recordReader.readDouble(),
+					recordReader.readDouble(), recordReader.readDouble()));
+		} else {
+			rowColor = Optional.empty();
+		}
+
+		final int exerciseValueCount = recordReader.readInt();
+		final Map<String, String> exerciseData = new HashMap<>();
+		for (int i = 0; i < exerciseValueCount; i++)
+			exerciseData.put(recordReader.readUTF(), recordReader.readUTF());
+
+		return new ShotEntry(shot, rowColor, new ShotEntry.SplitData(split, rowColor, hadMalfunction, hadReload),
+				exerciseData);
+	}
+
+	public synchronized int size() {
+		return entryCount;
+	}
+
+	public synchronized void clear() throws IOException {
+		entryCount = 0;
+		journal.setLength(0);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		journal.close();
+		if (!journalFile.delete()) journalFile.deleteOnExit();
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.gui;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.Shot;
+import com.shootoff.camera.shot.DisplayShot;
+
+import javafx.collections.ObservableListBase;
+import javafx.scene.paint.Color;
+
+/**
+ * The shot timer's list of shots. Only the most recent shots are kept in a
+ * fixed size ring buffer, so adding a shot costs the same however long the
+ * session has been running. Shots that fall out of the ring buffer are written
+ * to a {@link ShotTimerJournal} and the list can be slid back over them a page
+ * at a time with {@link #showOlder()}. The list always shows at most one ring
+ * buffer's worth of entries and returns to the newest entries as soon as a new
+ * shot arrives.
+ */
+public class ShotTimerModel extends ObservableListBase<ShotEntry> {
+	private static final Logger logger = LoggerFactory.getLogger(ShotTimerModel.class);
+
+	private final ShotEntry[] ring;
+	private int ringStart = 0;
+	private int ringSize = 0;
+
+	private Optional<ShotTimerJournal> journal = Optional.empty();
+	private int journalSize = 0;
+
+	// When paged back, the entries currently shown and the sequence number of
+	// the first one
+	private Optional<ShotEntry[]> page = Optional.empty();
+	private int pageStart = 0;
+
+	// Kept separately from the ring buffer so splits are right even when the
+	// last shot has been evicted or the list is paged back
+	private Optional<Shot> lastShot = Optional.empty();
+
+	public ShotTimerModel(int capacity) {
+		ring = new ShotEntry[capacity];
+	}
+
+	public int getCapacity() {
+		return ring.length;
+	}
+
+	/**
+	 * Create an entry for a new shot, computing its split from the previous
+	 * shot, and append it.
+	 */
+	public synchronized ShotEntry addShot(DisplayShot shot, Optional<Color> rowColor, boolean hadMalfunction,
+			boolean hadReload) {
+		final ShotEntry entry = new ShotEntry(shot, lastShot, rowColor, hadMalfunction, hadReload);
+		add(entry);
+		return entry;
+	}
+
+	@Override
+	public synchronized boolean add(ShotEntry entry) {
+		if (page.isPresent()) showPage(Optional.empty());
+
+		// Evict separately from adding so listeners that only look at the
+		// first change still see the new entry
+		if (ringSize == ring.length) {
+			final ShotEntry evicted = ring[ringStart];
+			ring[ringStart] = null;
+			ringStart = (ringStart + 1) % ring.length;
+			ringSize--;
+			journal(evicted);
+
+			beginChange();
+			nextRemove(0, evicted);
+			endChange();
+		}
+
+		ring[(ringStart + ringSize) % ring.length] = entry;
+		ringSize++;
+		lastShot = Optional.of(entry.getShot());
+
+		beginChange();
+		nextAdd(ringSize - 1, ringSize);
+		endChange();
+
+		return true;
+	}
+
+	private void journal(ShotEntry evicted) {
+		try {
+			if (!journal.isPresent()) journal = Optional.of(new ShotTimerJournal());
+
+			journal.get().append(evicted);
+			journalSize++;
+		} catch (final IOException e) {
+			logger.error("Failed to page out shot timer entry, older entries will not be available", e);
+		}
+	}
+
+	@Override
+	public synchronized ShotEntry get(int index) {
+		if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(String.valueOf(index));
+
+		if (page.isPresent()) return page.get()[index];
+
+		return ring[(ringStart + index) % ring.length];
+	}
+
+	@Override
+	public synchronized int size() {
+		if (page.isPresent()) return page.get().length;
+
+		return ringSize;
+	}
+
+	@Override
+	public synchronized void clear() {
+		final List<ShotEntry> removed = new ArrayList<>(this);
+
+		Arrays.fill(ring, null);
+		ringStart = 0;
+		ringSize = 0;
+		page = Optional.empty();
+		pageStart = 0;
+		lastShot = Optional.empty();
+
+		if (journal.isPresent()) {
+			try {
+				journal.get().clear();
+			} catch (final IOException e) {
+				logger.error("Failed to clear shot timer journal", e);
+			}
+		}
+		journalSize = 0;
+
+		if (removed.isEmpty()) return;
+
+		beginChange();
+		nextRemove(0, removed);
+		endChange();
+	}
+
+	/**
+	 * @return <code>true</code> if the newest entries are shown, which is
+	 *         always the case unless the list was paged back
+	 */
+	public synchronized boolean isFollowing() {
+		return !page.isPresent();
+	}
+
+	/**
+	 * @return <code>true</code> if there are entries before the first one
+	 *         currently shown
+	 */
+	public synchronized boolean hasOlder() {
+		return getFirstSequence() > 0;
+	}
+
+	/**
+	 * Slide the list back by half of its capacity.
+	 * 
+	 * @return the number of entries the list moved back by, which is the
+	 *         index the previously first entry is shown at now
+	 */
+	public synchronized int showOlder() {
+		final int first = getFirstSequence();
+		if (first == 0) return 0;
+
+		final int newFirst = Math.max(0, first - Math.max(1, ring.length / 2));
+		showPage(Optional.of(newFirst));
+
+		return first - newFirst;
+	}
+
+	/**
+	 * Slide the list forward by half of its capacity, returning to the newest
+	 * entries once they are in reach.
+	 * 
+	 * @return the number of entries the list moved forward by
+	 */
+	public synchronized int showNewer() {
+		if (!page.isPresent()) return 0;
+
+		final int first = pageStart;
+		final int newFirst = first + Math.max(1, ring.length / 2);
+
+		if (newFirst >= journalSize) {
+			showPage(Optional.empty());
+			return journalSize - first;
+		}
+
+		showPage(Optional.of(newFirst));
+		return newFirst - first;
+	}
+
+	private int getFirstSequence() {
+		return page.isPresent() ? pageStart : journalSize;
+	}
+
+	private void showPage(Optional<Integer> first) {
+		final List<ShotEntry> removed = new ArrayList<>(this);
+
+		if (first.isPresent()) {
+			final int start = first.get();
+			final int end = Math.min(journalSize + ringSize, start + ring.length);
+			final ShotEntry[] entries = new ShotEntry[end - start];
+
+			try {
+				for (int i = 0; i < entries.length; i++) {
+					final int sequence = start + i;
+					if (sequence < journalSize) {
+						entries[i] = journal.get().read(sequence);
+					} else {
+						entries[i] = ring[(ringStart + sequence - journalSize) % ring.length];
+					}
+				}
+			} catch (final IOException e) {
+				logger.error("Failed to page in shot timer entries", e);
+				return;
+			}
+
+			page = Optional.of(entries);
+			pageStart = start;
+		} else {
+			page = Optional.empty();
+			pageStart = 0;
+		}
+
+		beginChange();
+		nextRemove(0, removed);
+		nextAdd(0, size());
+		endChange();
+	}
+
+	/**
+	 * Delete the journal of paged out entries.
+	 */
+	public synchronized void close() {
+		if (!journal.isPresent()) return;
+
+		try {
+			journal.get().close();
+		} catch (final IOException e) {
+			logger.error("Failed to close shot timer journal", e);
+		}
+
+		journal = Optional.empty();
+		journalSize = 0;
+	}
+}
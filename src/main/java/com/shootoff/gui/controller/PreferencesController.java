@@ -28,6 +28,8 @@ import java.util.Optional;
 import java.util.Set;
 
 import com.shootoff.camera.CameraFactory;
+import com.shootoff.camera.CameraRegistry;
+import com.shootoff.camera.CameraRegistry.CameraRegistryListener;
 import com.shootoff.camera.cameratypes.Camera;
 import com.shootoff.config.Configuration;
 import com.shootoff.config.ConfigurationException;
@@ -71,7 +73,7 @@ import javafx.stage.Stage;
 import javafx.util.Callback;
 
 public class PreferencesController implements DesignateShotRecorderListener, CameraSelectionListener,
-CameraRenamedListener {
+CameraRenamedListener, CameraRegistryListener {
 	@FXML private ScrollPane preferencesPane;
 	@FXML private ListView<String> webcamListView;
 	@FXML private Slider markerRadiusSlider;
@@ -154,6 +156,7 @@ CameraRenamedListener {
 		}
 
 		webcamListView.setItems(cameras);
+		CameraRegistry.getRegistry().addListener(this);
 
 		markerRadiusSlider.setValue(config.getMarkerRadius());
 		ignoreLaserColorChoiceBox.setValue(config.getIgnoreLaserColorName());
@@ -216,6 +219,38 @@ CameraRenamedListener {
 		}
 	}
 
+	@Override
+	public void camerasChanged(List<Camera> discoveredCameras) {
+		Platform.runLater(() -> {
+			// Registered cameras aren't discovered, so they are included too
+			final List<Camera> webcams = CameraFactory.getWebcams();
+			CheckableImageListCell.createImageCache(webcams, this);
+
+			final Set<String> webcamNames = new HashSet<>();
+			for (final Camera c : webcams)
+				webcamNames.add(c.getName());
+
+			// Configured cameras stay listed even if they were unplugged so
+			// they can still be unchecked
+			final List<String> updatedCameras = new ArrayList<>();
+			for (final String cameraName : cameras) {
+				if (configuredNames.contains(cameraName) || webcamNames.contains(cameraName))
+					updatedCameras.add(cameraName);
+			}
+
+			for (final Camera c : webcams) {
+				if (!configuredCameras.contains(c) && !updatedCameras.contains(c.getName()))
+					updatedCameras.add(c.getName());
+			}
+
+			if (updatedCameras.equals(cameras)) return;
+
+			webcamListView.setItems(null);
+			cameras.setAll(updatedCameras);
+			webcamListView.setItems(cameras);
+		});
+	}
+
 	public void prepareToShow() {
 		cameraConfigChanged = false;
 		cameraRenamed = false;
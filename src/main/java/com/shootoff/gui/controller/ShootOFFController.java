@@ -39,13 +39,13 @@ import org.slf4j.LoggerFactory;
 
 import com.shootoff.Closeable;
 import com.shootoff.Main;
+import com.shootoff.audio.AudioEngine;
 import com.shootoff.camera.CameraErrorView;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.CamerasSupervisor;
 import com.shootoff.camera.cameratypes.Camera;
-import com.shootoff.camera.shot.DisplayShot;
 import com.shootoff.config.Configuration;
 import com.shootoff.gui.CalibrationManager;
 import com.shootoff.gui.CameraConfigListener;
@@ -53,6 +53,7 @@ import com.shootoff.gui.CanvasManager;
 import com.shootoff.gui.ExerciseListener;
 import com.shootoff.gui.Resetter;
 import com.shootoff.gui.ShotEntry;
+import com.shootoff.gui.ShotTimerModel;
 import com.shootoff.gui.pane.ExerciseSlide;
 import com.shootoff.gui.pane.FileSlide;
 import com.shootoff.gui.pane.ProjectorSlide;
@@ -67,19 +68,19 @@ import com.shootoff.plugins.engine.Plugin;
 import com.shootoff.plugins.engine.PluginEngine;
 import com.shootoff.targets.CameraViews;
 import com.shootoff.targets.Target;
-import com.shootoff.targets.TargetRegion;
+import com.shootoff.util.StartupOrchestrator;
 import com.shootoff.util.SystemInfo;
 import com.shootoff.util.TimerPool;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
-import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Scene;
@@ -87,6 +88,7 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.Tab;
@@ -98,11 +100,11 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.Image;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
-import javafx.scene.shape.Shape;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 
@@ -125,9 +127,9 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 	private String defaultWindowTitle;
 	private CamerasSupervisor camerasSupervisor;
 	private Configuration config;
-	private PluginEngine pluginEngine;
+	private volatile PluginEngine pluginEngine;
 	private static final Logger logger = LoggerFactory.getLogger(ShootOFFController.class);
-	private final ObservableList<ShotEntry> shotEntries = FXCollections.observableArrayList();
+	private ShotTimerModel shotEntries;
 	private final List<Stage> streamDebuggerStages = new ArrayList<>();
 
 	static public double getDpiScaleFactorForScreen() {
@@ -145,6 +147,7 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 	@SuppressFBWarnings("SIC_INNER_SHOULD_BE_STATIC_ANON")
 	public void init(Configuration config) throws IOException {
 		this.config = config;
+		shotEntries = new ShotTimerModel(config.getShotTimerRows());
 		camerasSupervisor = new CamerasSupervisor(config);
 
 		shootOFFStage = (Stage) controlsContainer.getScene().getWindow();
@@ -179,8 +182,14 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 		projectorSlide = new ProjectorSlide(controlsContainer, bodyContainer, this, shootOFFStage,
 				trainingExerciseContainer, this, exerciseSlide);
 
-		pluginEngine = new PluginEngine(exerciseSlide);
-		pluginEngine.startWatching();
+		// Neither exercises nor target thumbnails are needed for the first
+		// frame. Exercise buttons and thumbnails appear as they load.
+		final StartupOrchestrator startup = StartupOrchestrator.getStartup();
+		startup.addDeferredPhase("plugins", () -> {
+			pluginEngine = new PluginEngine(exerciseSlide);
+			pluginEngine.startWatching();
+		});
+		startup.addDeferredPhase("targetThumbnails", targetPane::loadTargets);
 
 		defaultWindowTitle = shootOFFStage.getTitle();
 		shootOFFStage.getIcons().addAll(
@@ -235,11 +244,17 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 		laserCol.setMinWidth(85);
 		laserCol.setCellValueFactory(new PropertyValueFactory<ShotEntry, String>("color"));
 
+		// The shot timer model only holds a window of the session's shots, so
+		// sorting it wouldn't sort the whole session
+		timeCol.setSortable(false);
+		splitCol.setSortable(false);
+		laserCol.setSortable(false);
+
 		shotEntries.addListener(new ListChangeListener<ShotEntry>() {
 			@Override
 			public void onChanged(Change<? extends ShotEntry> change) {
 				change.next();
-				if (change.getAddedSize() < 1) return;
+				if (change.getAddedSize() < 1 || !shotEntries.isFollowing()) return;
 				Platform.runLater(() -> {
 					final int size = shotTimerTable.getItems().size();
 					if (size > 0) shotTimerTable.scrollTo(size - 1);
@@ -252,36 +267,15 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 			public void onChanged(Change<? extends ShotEntry> change) {
 				while (change.next()) {
 					for (final ShotEntry unselected : change.getRemoved()) {
-						unselected.getShot().getMarker().setFill(unselected.getShot().getPaintColor());
-						if (unselected.getShot().getMirroredShot().isPresent()) {
-							((DisplayShot) unselected.getShot().getMirroredShot().get()).getMarker()
-									.setFill(unselected.getShot().getPaintColor());
-						}
+						for (final CameraView cv : camerasSupervisor.getCameraViews())
+							((CanvasManager) cv).setShotSelected(unselected.getShot(), false);
 					}
 
 					for (final ShotEntry selected : change.getAddedSubList()) {
 						if (selected == null) continue;
 
-						selected.getShot().getMarker().setFill(TargetRegion.SELECTED_STROKE_COLOR);
-
-						if (selected.getShot().getMirroredShot().isPresent()) {
-							((DisplayShot) selected.getShot().getMirroredShot().get()).getMarker()
-									.setFill(TargetRegion.SELECTED_STROKE_COLOR);
-						}
-
-						// Move all selected shots to top the of their z-stack
-						// to ensure visibility
-						for (final CameraView cv : camerasSupervisor.getCameraViews()) {
-							final CanvasManager cm = (CanvasManager) cv;
-
-							final Shape marker = selected.getShot().getMarker();
-							final int shotIndex = cm.getCanvasGroup().getChildren().indexOf(marker);
-
-							if (shotIndex >= 0 && shotIndex < cm.getCanvasGroup().getChildren().size() - 1) {
-								cm.getCanvasGroup().getChildren().remove(marker);
-								cm.getCanvasGroup().getChildren().add(cm.getCanvasGroup().getChildren().size(), marker);
-							}
-						}
+						for (final CameraView cv : camerasSupervisor.getCameraViews())
+							((CanvasManager) cv).setShotSelected(selected.getShot(), true);
 					}
 				}
 			}
@@ -337,13 +331,42 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 		shotTimerTable.getColumns().add(laserCol);
 		shotTimerTable.setItems(shotEntries);
 		shotTimerTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+		shotTimerTable.addEventFilter(ScrollEvent.SCROLL, (event) -> pageShotTimer(event));
+	}
+
+	// Slide the shot timer over shots that were paged out of memory when the
+	// user scrolls past either end of the shots that are currently shown
+	private void pageShotTimer(ScrollEvent event) {
+		final Optional<ScrollBar> scrollBar = getVerticalScrollBar(shotTimerTable);
+
+		if (event.getDeltaY() > 0 && shotEntries.hasOlder()
+				&& (!scrollBar.isPresent() || scrollBar.get().getValue() <= scrollBar.get().getMin())) {
+			final int shift = shotEntries.showOlder();
+			shotTimerTable.scrollTo(shift);
+			event.consume();
+		} else if (event.getDeltaY() < 0 && !shotEntries.isFollowing()
+				&& (!scrollBar.isPresent() || scrollBar.get().getValue() >= scrollBar.get().getMax())) {
+			final int previousLast = shotEntries.size() - 1;
+			final int shift = shotEntries.showNewer();
+			shotTimerTable.scrollTo(Math.max(0, previousLast - shift));
+			event.consume();
+		}
+	}
+
+	private static Optional<ScrollBar> getVerticalScrollBar(TableView<?> table) {
+		for (final Node node : table.lookupAll(".scroll-bar")) {
+			if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL)
+				return Optional.of((ScrollBar) node);
+		}
+
+		return Optional.empty();
 	}
 
 	@Override
 	public void close() {
 		shootOFFStage.close();
 		camerasSupervisor.closeAll();
-		pluginEngine.stopWatching();
+		if (pluginEngine != null) pluginEngine.stopWatching();
 
 		if (config.getExercise().isPresent()) config.getExercise().get().destroy();
 
@@ -358,7 +381,9 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 		}
 
 		TimerPool.close();
+		AudioEngine.getEngine().close();
 		GlobalExecutorPool.getPool().shutdownNow();
+		shotEntries.close();
 
 		if (!config.getVideoPlayers().isEmpty()) {
 			for (final VideoPlayerController videoPlayer : config.getVideoPlayers()) {
@@ -412,7 +437,7 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 	}
 
 	@Override
-	public ObservableList<ShotEntry> getShotTimerModel() {
+	public ShotTimerModel getShotTimerModel() {
 		return shotEntries;
 	}
 
@@ -973,7 +998,7 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 
 			final TrainingExercise newExercise = (TrainingExercise) ctor.newInstance(knownTargets);
 
-			final Optional<Plugin> plugin = pluginEngine.getPlugin(newExercise);
+			final Optional<Plugin> plugin = getPluginEngine().flatMap((engine) -> engine.getPlugin(newExercise));
 			if (plugin.isPresent()) {
 				config.setPlugin(plugin.get());
 			} else {
@@ -1007,7 +1032,7 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 			final TrainingExercise newExercise = (TrainingExercise) ctor
 					.newInstance(projectorSlide.getArenaPane().getCanvasManager().getTargets());
 
-			final Optional<Plugin> plugin = pluginEngine.getPlugin(newExercise);
+			final Optional<Plugin> plugin = getPluginEngine().flatMap((engine) -> engine.getPlugin(newExercise));
 			if (plugin.isPresent()) {
 				config.setPlugin(plugin.get());
 			} else {
@@ -1035,7 +1060,11 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 	}
 
 	@Override
-	public PluginEngine getPluginEngine() {
-		return pluginEngine;
+	public Optional<PluginEngine> getPluginEngine() {
+		// Plugins load after the first frame, so this may have to wait for them
+		if (pluginEngine == null && !StartupOrchestrator.getStartup().await("plugins"))
+			logger.error("The plugin engine failed to start, exercise plugins are unavailable");
+
+		return Optional.ofNullable(pluginEngine);
 	}
 }
@@ -22,12 +22,14 @@ import java.awt.image.BufferedImage;
 
 import com.shootoff.camera.CameraDebuggerListener;
 import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.FrameIntervalHistogram;
 
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import com.shootoff.util.SwingFXUtils;
 import javafx.fxml.FXML;
+import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
@@ -37,6 +39,7 @@ public class StreamDebuggerController implements CameraDebuggerListener {
 	@FXML private ImageView thresholdImageView;
 	@FXML private Slider centerBorderSlider;
 	@FXML private Slider minDimSlider;
+	@FXML private Label frameIntervalsLabel;
 
 	private String defaultWindowTitle = "";
 
@@ -66,9 +69,10 @@ public class StreamDebuggerController implements CameraDebuggerListener {
 	}
 
 	@Override
-	public void updateFeedData(double fps) {
+	public void updateFeedData(double fps, FrameIntervalHistogram.Summary frameIntervals) {
 		Platform.runLater(() -> {
 			streamDebuggerStage.setTitle(String.format(defaultWindowTitle + " %.2f FPS", fps));
+			frameIntervalsLabel.setText("Frame Intervals: " + frameIntervals.toString());
 		});
 	}
 }
@@ -33,14 +33,16 @@ import com.shootoff.gui.ExerciseListener;
 import com.shootoff.gui.controller.PluginManagerController;
 import com.shootoff.gui.controller.SessionViewerController;
 import com.shootoff.plugins.ExerciseMetadata;
-import com.shootoff.plugins.ProjectorTrainingExerciseBase;
 import com.shootoff.plugins.TrainingExercise;
+import com.shootoff.plugins.engine.PluginEngine;
+import com.shootoff.plugins.engine.ExerciseDescriptor;
 import com.shootoff.plugins.engine.PluginListener;
 import com.shootoff.session.SessionRecorder;
 import com.shootoff.session.io.SessionIO;
 import com.shootoff.targets.Hit;
 import com.shootoff.targets.Target;
 
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.control.Button;
 import javafx.scene.control.TitledPane;
@@ -50,7 +52,7 @@ import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-public class ExerciseSlide extends Slide implements PluginListener, ItemSelectionListener<TrainingExercise> {
+public class ExerciseSlide extends Slide implements PluginListener, ItemSelectionListener<ExerciseDescriptor> {
 	private static final Logger logger = LoggerFactory.getLogger(ExerciseSlide.class);
 
 	private final Configuration config;
@@ -59,11 +61,11 @@ public class ExerciseSlide extends Slide implements PluginListener, ItemSelectio
 	private final TitledPane projectorPane;
 	private final ToggleButton noneButton;
 
-	private final ItemSelectionPane<TrainingExercise> exerciseItemPane = new ItemSelectionPane<>(true, this);
-	private final ItemSelectionPane<TrainingExercise> projectorExerciseItemPane = new ItemSelectionPane<>(
+	private final ItemSelectionPane<ExerciseDescriptor> exerciseItemPane = new ItemSelectionPane<>(true, this);
+	private final ItemSelectionPane<ExerciseDescriptor> projectorExerciseItemPane = new ItemSelectionPane<>(
 			exerciseItemPane.getToggleGroup(), this);
 
-	private static final TrainingExercise noneExercise = new TrainingExercise() {
+	private static final ExerciseDescriptor noneExercise = ExerciseDescriptor.of(new TrainingExercise() {
 		@Override
 		public void init() {}
 
@@ -83,7 +85,7 @@ public class ExerciseSlide extends Slide implements PluginListener, ItemSelectio
 
 		@Override
 		public void destroy() {}
-	};
+	});
 
 	public ExerciseSlide(Pane parentControls, Pane parentBody, ExerciseListener exerciseListener) {
 		super(parentControls, parentBody);
@@ -92,12 +94,15 @@ public class ExerciseSlide extends Slide implements PluginListener, ItemSelectio
 		config = Configuration.getConfig();
 
 		addSlideControlButton("Get Exercises", (event) -> {
+			final Optional<PluginEngine> pluginEngine = exerciseListener.getPluginEngine();
+			if (!pluginEngine.isPresent()) return;
+
 			final Optional<FXMLLoader> loader = createPluginManagerStage();
 
 			if (loader.isPresent()) {
 				final PluginManagerController pluginManagerController = (PluginManagerController) loader.get()
 						.getController();
-				pluginManagerController.init(exerciseListener.getPluginEngine(),
+				pluginManagerController.init(pluginEngine.get(),
 						(Stage) parentControls.getScene().getWindow());
 
 				final PluginManagerSlide pluginViewerSlide = new PluginManagerSlide(parentControls, parentBody,
@@ -187,23 +192,30 @@ public class ExerciseSlide extends Slide implements PluginListener, ItemSelectio
 	}
 
 	@Override
-	public void registerExercise(TrainingExercise exercise) {
-		final Tooltip t = new Tooltip(exercise.getInfo().getDescription());
-		t.setPrefWidth(500);
-		t.setWrapText(true);
-		exerciseItemPane.addButton(exercise, exercise.getInfo().getName(), Optional.empty(), Optional.of(t));
+	public void registerExercise(ExerciseDescriptor exercise) {
+		addExerciseButton(exerciseItemPane, exercise);
 	}
 
 	@Override
-	public void registerProjectorExercise(TrainingExercise exercise) {
+	public void registerProjectorExercise(ExerciseDescriptor exercise) {
+		addExerciseButton(projectorExerciseItemPane, exercise);
+	}
+
+	// Plugins are registered from the plugin engine's threads
+	private void addExerciseButton(ItemSelectionPane<ExerciseDescriptor> itemPane, ExerciseDescriptor exercise) {
+		if (!Platform.isFxApplicationThread()) {
+			Platform.runLater(() -> addExerciseButton(itemPane, exercise));
+			return;
+		}
+
 		final Tooltip t = new Tooltip(exercise.getInfo().getDescription());
 		t.setPrefWidth(500);
 		t.setWrapText(true);
-		projectorExerciseItemPane.addButton(exercise, exercise.getInfo().getName(), Optional.empty(), Optional.of(t));
+		itemPane.addButton(exercise, exercise.getInfo().getName(), Optional.empty(), Optional.of(t));
 	}
 
 	@Override
-	public void unregisterExercise(TrainingExercise exercise) {
+	public void unregisterExercise(ExerciseDescriptor exercise) {
 		exerciseItemPane.removeButton(exercise);
 	}
 
@@ -240,13 +252,23 @@ public class ExerciseSlide extends Slide implements PluginListener, ItemSelectio
 	}
 
 	@Override
-	public void onItemClicked(TrainingExercise selectedExercise) {
+	public void onItemClicked(ExerciseDescriptor selectedExercise) {
 		if (selectedExercise.equals(noneExercise)) {
 			exerciseListener.setExercise(null);
-		} else if (selectedExercise instanceof ProjectorTrainingExerciseBase) {
-			exerciseListener.setProjectorExercise(selectedExercise);
 		} else {
-			exerciseListener.setExercise(selectedExercise);
+			try {
+				// A plugin's classes are only loaded once its exercise is
+				// started
+				final TrainingExercise exercise = selectedExercise.load();
+
+				if (selectedExercise.isProjectorExercise()) {
+					exerciseListener.setProjectorExercise(exercise);
+				} else {
+					exerciseListener.setExercise(exercise);
+				}
+			} catch (final ReflectiveOperationException e) {
+				logger.error("Failed to load exercise {}", selectedExercise, e);
+			}
 		}
 
 		hide();
@@ -38,7 +38,7 @@ import com.shootoff.gui.CanvasManager;
 import com.shootoff.gui.LocatedImage;
 import com.shootoff.gui.MirroredCanvasManager;
 import com.shootoff.gui.Resetter;
-import com.shootoff.gui.ShotEntry;
+import com.shootoff.gui.ShotTimerModel;
 import com.shootoff.gui.controller.ShootOFFController;
 import com.shootoff.targets.Target;
 import com.shootoff.util.TimerPool;
@@ -100,7 +100,7 @@ public class ProjectorArenaPane extends AnchorPane implements CalibrationListene
 	}
 
 	public ProjectorArenaPane(Stage arenaStage, Stage shootOffStage, Pane trainingExerciseContainer, Resetter resetter,
-			ObservableList<ShotEntry> shotTimerModel) {
+			ShotTimerModel shotTimerModel) {
 		config = Configuration.getConfig();
 
 		arenaCanvasGroup = new Group();
@@ -32,7 +32,9 @@ import com.shootoff.gui.controller.TargetEditorController;
 import com.shootoff.targets.CameraViews;
 import com.shootoff.targets.io.TargetIO;
 import com.shootoff.targets.io.TargetIO.TargetComponents;
+import com.shootoff.targets.io.TargetTemplateCache;
 
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.image.Image;
@@ -101,19 +103,35 @@ public class TargetSlide extends Slide implements TargetListener, ItemSelectionL
 		this.cameraViews = cameraViews;
 
 		addBodyNode(itemPane);
-
-		findTargets();
 	}
 
-	private void findTargets() {
+	/**
+	 * Add a button for every target in the targets folder. Targets are parsed
+	 * on the calling thread, so this can be called from a background thread
+	 * and only the thumbnails are rendered on the JavaFX thread.
+	 */
+	public void loadTargets() {
 		final File targetsFolder = new File(System.getProperty("shootoff.home") + File.separator + "targets");
 
 		final File[] targetFiles = targetsFolder.listFiles(new FileFilter("target"));
 
 		if (targetFiles != null) {
 			Arrays.sort(targetFiles);
+
 			for (final File file : targetFiles) {
-				newTarget(file);
+				TargetTemplateCache.getCache().getTemplate(file);
+			}
+
+			final Runnable addTargets = () -> {
+				for (final File file : targetFiles) {
+					newTarget(file);
+				}
+			};
+
+			if (Platform.isFxApplicationThread()) {
+				addTargets.run();
+			} else {
+				Platform.runLater(addTargets);
 			}
 		} else {
 			logger.error("Failed to find target files because a list of files could not be retrieved");
@@ -21,12 +21,10 @@ package com.shootoff.headless;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -48,6 +46,8 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import com.shootoff.headless.protocol.HeartbeatMessage;
 import com.shootoff.headless.protocol.Message;
 import com.shootoff.headless.protocol.MessageListener;
+import com.shootoff.headless.protocol.ProtocolCodec;
+import com.shootoff.headless.protocol.ProtocolVersionMessage;
 import com.shootoff.util.TimerPool;
 import com.shootoff.util.SwingFXUtils;
 
@@ -61,7 +61,8 @@ class BluetoothServer implements HeadlessServer {
 
 	private Thread readLoopThread;
 	private StreamConnectionNotifier streamConnNotifier;
-	private PrintWriter bluetoothOutput;
+	private OutputStream bluetoothOutput;
+	private final ProtocolCodec codec = new ProtocolCodec();
 
 	BluetoothServer(QRCodeListener qrListener) {
 		final Optional<String> bluetoothAddress = getLocalAddress();
@@ -136,22 +137,40 @@ class BluetoothServer implements HeadlessServer {
 
 			if (connectionListener != null) connectionListener.connectionEstablished();
 
-			final OutputStream outStream = connection.openOutputStream();
-			bluetoothOutput = new PrintWriter(new OutputStreamWriter(outStream));
+			bluetoothOutput = new BufferedOutputStream(connection.openOutputStream());
 
-			final BufferedReader reader = new BufferedReader(new InputStreamReader(connection.openInputStream()));
+			final InputStream inStream = connection.openInputStream();
 
 			readLoopThread = new Thread(() -> {
+				final byte[] buffer = new byte[4096];
+
 				while (open.get()) {
 					try {
-						final String lineRead = reader.readLine();
-						logger.trace("Received message via bluetooth: {}", lineRead);
-						if (messageListener != null) messageListener.messageReceived(Message.fromJson(lineRead));
+						final int read = inStream.read(buffer);
+
+						if (read == -1) {
+							logger.debug("Bluetooth client closed the connection");
+							break;
+						}
+
+						for (final Message message : codec.decode(buffer, 0, read)) {
+							if (message instanceof ProtocolVersionMessage) {
+								// The codec already switched to the version we
+								// answer with
+								sendMessage(new ProtocolVersionMessage(codec.getOutputVersion()));
+							} else if (messageListener != null) {
+								// There is only ever one bluetooth client
+								messageListener.messageReceived(message, this::sendMessage);
+							}
+						}
 					} catch (IOException e) {
+						// The stream can't be resynchronized, the heartbeat
+						// will notice the connection is gone
 						logger.error("Error reading bluetooth socket", e);
+						break;
 					}
 				}
-			});
+			}, "BluetoothReader");
 
 			readLoopThread.start();
 			startHeartbeat(connectionListener);
@@ -177,14 +196,25 @@ class BluetoothServer implements HeadlessServer {
 	}
 
 	@Override
-	public boolean sendMessage(Message message) {
-		final String jsonMessage = message.toJson();
+	public synchronized boolean sendMessage(Message message) {
+		if (bluetoothOutput == null) return false;
+
+		try {
+			for (final Message m : codec.expand(message)) {
+				final byte[] encodedMessage = codec.encode(m);
 
-		logger.trace("Sending message via bluetooth: {}, size: {} kb", jsonMessage, jsonMessage.length() / 1024);
+				if (logger.isTraceEnabled()) logger.trace("Sending message via bluetooth: {}, size: {} kb",
+						m.getClass().getSimpleName(), encodedMessage.length / 1024);
+
+				bluetoothOutput.write(encodedMessage);
+			}
 
-		bluetoothOutput.write(jsonMessage);
-		bluetoothOutput.flush();
-		return !bluetoothOutput.checkError();
+			bluetoothOutput.flush();
+			return true;
+		} catch (IOException e) {
+			logger.debug("Error writing to bluetooth socket", e);
+			return false;
+		}
 	}
 
 	@Override
@@ -198,6 +228,12 @@ class BluetoothServer implements HeadlessServer {
 			logger.error("Failed to close bluetooth stream connection notifier", e);
 		}
 
-		bluetoothOutput.close();
+		synchronized (this) {
+			try {
+				bluetoothOutput.close();
+			} catch (IOException e) {
+				logger.error("Failed to close bluetooth output stream", e);
+			}
+		}
 	}
 }
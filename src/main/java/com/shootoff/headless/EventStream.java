@@ -0,0 +1,251 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.Closeable;
+import com.shootoff.headless.protocol.EventBatchMessage;
+import com.shootoff.headless.protocol.ExerciseFeedMessage;
+import com.shootoff.headless.protocol.Message;
+import com.shootoff.headless.protocol.MoveTargetMessage;
+import com.shootoff.headless.protocol.ResizeTargetMessage;
+import com.shootoff.headless.protocol.TargetMessage;
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
+
+/**
+ * Collects events for headless clients and sends them in batches from its
+ * own thread, so publishing an event never waits on the connection.
+ * 
+ * A batch is sent <code>batchInterval</code> milliseconds after its first
+ * event or as soon as it has <code>maxBatchEvents</code> events. Before it is
+ * sent, moves and resizes of the same target are reduced to the latest one
+ * and only the latest exercise feed text is kept. Sent events stay in a
+ * replay buffer of <code>replayCapacity</code> events so that clients that
+ * missed some can ask for them again.
+ */
+public class EventStream implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(EventStream.class);
+
+	public static final int DEFAULT_BATCH_INTERVAL = 50; // ms
+	public static final int DEFAULT_MAX_BATCH_EVENTS = 32;
+	public static final int DEFAULT_REPLAY_CAPACITY = 1024;
+
+	private static final Counter coalescedCounter = MetricsRegistry.getRegistry().counter("headless.eventsCoalesced");
+	private static final Counter batchCounter = MetricsRegistry.getRegistry().counter("headless.eventBatches");
+
+	private final Consumer<Message> sender;
+	private final int batchInterval;
+	private final int maxBatchEvents;
+	private final int replayCapacity;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((r) -> {
+		final Thread thread = new Thread(r, "HeadlessEventStream");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Guarded by this
+	private List<Message> pending = new ArrayList<>();
+
+	// Only used on the executor's thread
+	private final Deque<EventBatchMessage> replay = new ArrayDeque<>();
+	private int replayEvents = 0;
+	private long nextSequence = 1;
+
+	public EventStream(Consumer<Message> sender) {
+		this(sender, DEFAULT_BATCH_INTERVAL, DEFAULT_MAX_BATCH_EVENTS, DEFAULT_REPLAY_CAPACITY);
+	}
+
+	public EventStream(Consumer<Message> sender, int batchInterval, int maxBatchEvents, int replayCapacity) {
+		this.sender = sender;
+		this.batchInterval = batchInterval;
+		this.maxBatchEvents = maxBatchEvents;
+		this.replayCapacity = replayCapacity;
+	}
+
+	/**
+	 * Queue <code>event</code> for the next batch. This only takes a short
+	 * lock and is safe to call from the JavaFX thread.
+	 */
+	public void publish(Message event) {
+		try {
+			synchronized (this) {
+				pending.add(event);
+
+				if (pending.size() == maxBatchEvents) {
+					executor.execute(this::flush);
+				} else if (pending.size() == 1) {
+					executor.schedule(this::flush, batchInterval, TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (final RejectedExecutionException e) {
+			logger.debug("Dropped {} published after the event stream was closed", event.getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Send the retained events starting at <code>fromSequence</code> again to
+	 * one client. If some of them were already dropped from the replay
+	 * buffer, the resent batch starts at the oldest event still retained.
+	 * 
+	 * @param replyTo
+	 *            sends the batch to the client that asked for it, the other
+	 *            clients already have these events
+	 */
+	public void resend(long fromSequence, Consumer<Message> replyTo) {
+		try {
+			executor.execute(() -> {
+				final List<Message> events = new ArrayList<>();
+				long firstSequence = -1;
+
+				for (final EventBatchMessage batch : replay) {
+					if (batch.getLastSequence() < fromSequence) continue;
+
+					final int start = (int) Math.max(0, fromSequence - batch.getFirstSequence());
+					if (firstSequence == -1) firstSequence = batch.getFirstSequence() + start;
+					events.addAll(batch.getEvents().subList(start, batch.getEvents().size()));
+				}
+
+				if (events.isEmpty()) return;
+
+				if (firstSequence > fromSequence)
+					logger.debug("Events {} to {} can no longer be resent", fromSequence, firstSequence - 1);
+
+				replyTo.accept(new EventBatchMessage(firstSequence, events));
+			});
+		} catch (final RejectedExecutionException e) {
+			logger.debug("Ignored resend request after the event stream was closed");
+		}
+	}
+
+	private void flush() {
+		List<Message> events = takeBatch();
+		if (events.isEmpty()) return;
+
+		send(events);
+
+		synchronized (this) {
+			if (pending.isEmpty()) return;
+
+			try {
+				// Events published while the batch was sent wait for more
+				// events unless they already fill a batch
+				if (pending.size() >= maxBatchEvents) {
+					executor.execute(this::flush);
+				} else {
+					executor.schedule(this::flush, batchInterval, TimeUnit.MILLISECONDS);
+				}
+
+				return;
+			} catch (final RejectedExecutionException e) {
+				// Closing, so send everything that's left now
+			}
+		}
+
+		while (!(events = takeBatch()).isEmpty())
+			send(events);
+	}
+
+	private synchronized List<Message> takeBatch() {
+		if (pending.size() <= maxBatchEvents) {
+			final List<Message> events = pending;
+			pending = new ArrayList<>();
+			return events;
+		}
+
+		final List<Message> batchEvents = pending.subList(0, maxBatchEvents);
+		final List<Message> events = new ArrayList<>(batchEvents);
+		batchEvents.clear();
+
+		return events;
+	}
+
+	private void send(List<Message> events) {
+		final List<Message> coalesced = coalesce(events);
+		coalescedCounter.add(events.size() - coalesced.size());
+
+		final EventBatchMessage batch = new EventBatchMessage(nextSequence, coalesced);
+		nextSequence += coalesced.size();
+
+		replay.add(batch);
+		replayEvents += coalesced.size();
+		while (replayEvents - replay.peek().getEvents().size() >= replayCapacity) {
+			replayEvents -= replay.poll().getEvents().size();
+		}
+
+		batchCounter.increment();
+
+		try {
+			sender.accept(batch);
+		} catch (final RuntimeException e) {
+			logger.error("Failed to send headless event batch {}", batch.getFirstSequence(), e);
+		}
+	}
+
+	/**
+	 * @return <code>events</code> without moves and resizes that a later
+	 *         event for the same target replaces and without all but the
+	 *         last exercise feed text
+	 */
+	static List<Message> coalesce(List<Message> events) {
+		final Set<Object> seen = new HashSet<>();
+		final List<Message> coalesced = new ArrayList<>(events.size());
+
+		for (int i = events.size() - 1; i >= 0; i--) {
+			final Message event = events.get(i);
+			final Object key;
+
+			if (event instanceof MoveTargetMessage || event instanceof ResizeTargetMessage) {
+				key = event.getClass().getName() + ((TargetMessage) event).getUuid();
+			} else if (event instanceof ExerciseFeedMessage) {
+				key = ExerciseFeedMessage.class;
+			} else {
+				key = null;
+			}
+
+			if (key == null || seen.add(key)) coalesced.add(event);
+		}
+
+		Collections.reverse(coalesced);
+
+		return coalesced;
+	}
+
+	@Override
+	public void close() {
+		// Batches that are already scheduled are still sent
+		executor.shutdown();
+	}
+}
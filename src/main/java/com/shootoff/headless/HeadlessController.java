@@ -32,10 +32,13 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.Closeable;
+import com.shootoff.Main;
 import com.shootoff.camera.CameraErrorView;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
@@ -56,6 +59,7 @@ import com.shootoff.gui.ExerciseListener;
 import com.shootoff.gui.LocatedImage;
 import com.shootoff.gui.Resetter;
 import com.shootoff.gui.ShotEntry;
+import com.shootoff.gui.ShotTimerModel;
 import com.shootoff.gui.pane.ArenaBackgroundsSlide;
 import com.shootoff.gui.pane.ProjectorArenaPane;
 import com.shootoff.gui.targets.TargetView;
@@ -70,6 +74,7 @@ import com.shootoff.headless.protocol.CurrentCoursesMessage;
 import com.shootoff.headless.protocol.CurrentExercisesMessage;
 import com.shootoff.headless.protocol.CurrentTargetsMessage;
 import com.shootoff.headless.protocol.ErrorMessage;
+import com.shootoff.headless.protocol.ExerciseFeedMessage;
 import com.shootoff.headless.protocol.GetArenaSnapshotMessage;
 import com.shootoff.headless.protocol.ErrorMessage.ErrorType;
 import com.shootoff.headless.protocol.GetBackgroundsMessage;
@@ -82,6 +87,7 @@ import com.shootoff.headless.protocol.MessageListener;
 import com.shootoff.headless.protocol.MoveTargetMessage;
 import com.shootoff.headless.protocol.NewShotMessage;
 import com.shootoff.headless.protocol.RemoveTargetMessage;
+import com.shootoff.headless.protocol.ResendEventsMessage;
 import com.shootoff.headless.protocol.ResetMessage;
 import com.shootoff.headless.protocol.ResizeTargetMessage;
 import com.shootoff.headless.protocol.SaveCourseMessage;
@@ -97,6 +103,7 @@ import com.shootoff.plugins.ProjectorTrainingExerciseBase;
 import com.shootoff.plugins.TrainingExercise;
 import com.shootoff.plugins.TrainingExerciseBase;
 import com.shootoff.plugins.TrainingExerciseView;
+import com.shootoff.plugins.engine.ExerciseDescriptor;
 import com.shootoff.plugins.engine.Plugin;
 import com.shootoff.plugins.engine.PluginEngine;
 import com.shootoff.plugins.engine.PluginListener;
@@ -104,9 +111,7 @@ import com.shootoff.targets.ImageRegion;
 import com.shootoff.targets.Target;
 
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
-import javafx.collections.ObservableList;
 import javafx.geometry.Dimension2D;
 import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
@@ -125,8 +130,9 @@ import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import marytts.util.io.FileFilter;
 
-public class HeadlessController implements AutocalibrationListener, CameraErrorView, Resetter, ExerciseListener,
-		CalibrationConfigurator, QRCodeListener, ConnectionListener, MessageListener, TrainingExerciseView {
+public class HeadlessController implements AutocalibrationListener, CameraErrorView, Closeable, Resetter,
+		ExerciseListener, CalibrationConfigurator, QRCodeListener, ConnectionListener, MessageListener,
+		TrainingExerciseView {
 	private static final Logger logger = LoggerFactory.getLogger(HeadlessController.class);
 
 	private final Configuration config;
@@ -134,15 +140,23 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 	private final CamerasSupervisor camerasSupervisor;
 	private final CanvasManager arenaCanvasManager;
 	private final Map<UUID, Target> targets = new HashMap<>();
-	private final Set<TrainingExercise> trainingExercises = new HashSet<>();
-	private final Set<TrainingExercise> projectorTrainingExercises = new HashSet<>();
+	private final Set<ExerciseDescriptor> trainingExercises = new HashSet<>();
+	private final Set<ExerciseDescriptor> projectorTrainingExercises = new HashSet<>();
 
 	private PluginEngine pluginEngine;
 	private CalibrationManager calibrationManager;
 	private boolean calibrated = true;
 	private Target qrCodeTarget;
 
-	private Optional<HeadlessServer> server = Optional.empty();
+	private volatile Optional<HeadlessServer> server = Optional.empty();
+	private volatile boolean closed = false;
+
+	// Shots and other frequent events are sent in batches so that the
+	// threads producing them never wait on a connection
+	private final EventStream eventStream = new EventStream((message) -> {
+		final Optional<HeadlessServer> currentServer = server;
+		if (currentServer.isPresent()) currentServer.get().sendMessage(message);
+	});
 
 	public HeadlessController() {
 		config = Configuration.getConfig();
@@ -152,7 +166,7 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 		// make more fields immutable (initializing them after a guarded return
 		// will make it so the can't be final unless we initialize them all to
 		// null).
-		final ObservableList<ShotEntry> shotEntries = FXCollections.observableArrayList();
+		final ShotTimerModel shotEntries = new ShotTimerModel(config.getShotTimerRows());
 
 		shotEntries.addListener(new ListChangeListener<ShotEntry>() {
 			@Override
@@ -162,7 +176,7 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 				for (ShotEntry entry : change.getAddedSubList()) {
 					final Shot shot = entry.getShot();
 					final Dimension2D d = arenaPane.getArenaStageResolution();
-					server.get().sendMessage(new NewShotMessage(shot.getColor(), shot.getX(), shot.getY(),
+					eventStream.publish(new NewShotMessage(shot.getColor(), shot.getX(), shot.getY(),
 							shot.getTimestamp(), d.getWidth(), d.getHeight()));
 				}
 			}
@@ -181,6 +195,7 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 		arenaStage.setTitle("Projector Arena");
 		arenaStage.setScene(new Scene(arenaPane));
 		arenaStage.setFullScreenExitHint("");
+		arenaStage.setOnCloseRequest((event) -> close());
 
 		camerasSupervisor = new CamerasSupervisor(config);
 
@@ -228,18 +243,18 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 		try {
 			pluginEngine = new PluginEngine(new PluginListener() {
 				@Override
-				public void registerExercise(TrainingExercise exercise) {
+				public void registerExercise(ExerciseDescriptor exercise) {
 					trainingExercises.add(exercise);
 				}
 
 				@Override
-				public void registerProjectorExercise(TrainingExercise exercise) {
+				public void registerProjectorExercise(ExerciseDescriptor exercise) {
 					projectorTrainingExercises.add(exercise);
 				}
 
 				@Override
-				public void unregisterExercise(TrainingExercise exercise) {
-					if (exercise instanceof ProjectorTrainingExerciseBase) {
+				public void unregisterExercise(ExerciseDescriptor exercise) {
+					if (exercise.isProjectorExercise()) {
 						projectorTrainingExercises.remove(exercise);
 					} else {
 						trainingExercises.remove(exercise);
@@ -401,8 +416,8 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 	}
 
 	@Override
-	public PluginEngine getPluginEngine() {
-		return pluginEngine;
+	public Optional<PluginEngine> getPluginEngine() {
+		return Optional.ofNullable(pluginEngine);
 	}
 
 	@Override
@@ -421,7 +436,7 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 			if (server.isPresent()) {
 				server.get().sendMessage(new StopCalibrationMessage());
 			} else {
-				startBluetooth();
+				startServer();
 			}
 		}
 	}
@@ -437,12 +452,43 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 		qrCodeTarget = arenaCanvasManager.addTarget(null, targetGroup, new HashMap<String, String>(), false);
 	}
 
+	private void startServer() {
+		if (config.getHeadlessPort().isPresent()) {
+			try {
+				final HeadlessServer headlessServer = new TcpServer(config.getHeadlessPort().get());
+				server = Optional.of(headlessServer);
+				headlessServer.startReading(this, this);
+				return;
+			} catch (final IOException e) {
+				logger.error("Failed to accept headless controllers on port {}, falling back to bluetooth",
+						config.getHeadlessPort().get(), e);
+			}
+		}
+
+		startBluetooth();
+	}
+
 	private void startBluetooth() {
 		final HeadlessServer headlessServer = new BluetoothServer(this);
 		server = Optional.of(headlessServer);
 		headlessServer.startReading(this, this);
 	}
 
+	@Override
+	public void close() {
+		closed = true;
+
+		camerasSupervisor.closeAll();
+		if (pluginEngine != null) pluginEngine.stopWatching();
+
+		final Optional<HeadlessServer> currentServer = server;
+		server = Optional.empty();
+		if (currentServer.isPresent()) currentServer.get().close();
+		eventStream.close();
+
+		if (!config.inDebugMode()) Main.forceClose(0);
+	}
+
 	@Override
 	public void connectionEstablished() {
 		if (qrCodeTarget != null) {
@@ -453,10 +499,22 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 
 	@Override
 	public void bluetoothDisconnected() {
+		if (closed) return;
+
 		server = Optional.empty();
 		startBluetooth();
 	}
 
+	@Override
+	public void messageReceived(Message message, Consumer<Message> reply) {
+		// Only the client that missed events gets them again
+		if (message instanceof ResendEventsMessage) {
+			eventStream.resend(((ResendEventsMessage) message).getFromSequence(), reply);
+		} else {
+			messageReceived(message);
+		}
+	}
+
 	@Override
 	public void messageReceived(Message message) {
 		if (message instanceof ClearCourseMessage) {
@@ -612,8 +670,8 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 		if (server.isPresent()) {
 			final Set<ExerciseMetadata> trainingExercisesMetadata = new HashSet<ExerciseMetadata>();
 			final Set<ExerciseMetadata> projectorTrainingExercisesMetadata = new HashSet<ExerciseMetadata>();
-			trainingExercises.stream().map(TrainingExercise::getInfo).forEach(trainingExercisesMetadata::add);
-			projectorTrainingExercises.stream().map(TrainingExercise::getInfo)
+			trainingExercises.stream().map(ExerciseDescriptor::getInfo).forEach(trainingExercisesMetadata::add);
+			projectorTrainingExercises.stream().map(ExerciseDescriptor::getInfo)
 					.forEach(projectorTrainingExercisesMetadata::add);
 
 			final Optional<TrainingExercise> enabledExercise = config.getExercise();
@@ -678,20 +736,24 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 			return;
 		}
 
-		for (TrainingExercise exercise : trainingExercises) {
-			if (exercise.getInfo().equals(exerciseMetadata)) {
-				logger.trace("Setting exercise to {}", exercise.getInfo().toString());
-				setExercise(exercise);
-				return;
+		try {
+			for (ExerciseDescriptor exercise : trainingExercises) {
+				if (exercise.getInfo().equals(exerciseMetadata)) {
+					logger.trace("Setting exercise to {}", exercise.getInfo().toString());
+					setExercise(exercise.load());
+					return;
+				}
 			}
-		}
 
-		for (TrainingExercise exercise : projectorTrainingExercises) {
-			if (exercise.getInfo().equals(exerciseMetadata)) {
-				logger.trace("Setting projector exercise to {}", exercise.getInfo().toString());
-				setProjectorExercise(exercise);
-				return;
+			for (ExerciseDescriptor exercise : projectorTrainingExercises) {
+				if (exercise.getInfo().equals(exerciseMetadata)) {
+					logger.trace("Setting projector exercise to {}", exercise.getInfo().toString());
+					setProjectorExercise(exercise.load());
+					return;
+				}
 			}
+		} catch (final ReflectiveOperationException e) {
+			logger.error("Failed to load exercise {}", exerciseMetadata, e);
 		}
 	}
 
@@ -726,9 +788,13 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 			if (message instanceof MoveTargetMessage) {
 				final MoveTargetMessage moveTarget = (MoveTargetMessage) message;
 				t.setPosition(moveTarget.getNewX(), moveTarget.getNewY());
+
+				// Let other controllers know
+				eventStream.publish(moveTarget);
 			} else if (message instanceof ResizeTargetMessage) {
 				final ResizeTargetMessage resizeTarget = (ResizeTargetMessage) message;
 				t.setDimensions(resizeTarget.getNewWidth(), resizeTarget.getNewHeight());
+				eventStream.publish(resizeTarget);
 			} else if (message instanceof RemoveTargetMessage) {
 				arenaCanvasManager.removeTarget(t);
 				targets.remove(targetUuid);
@@ -773,4 +839,9 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 	public List<Target> getTargets() {
 		return arenaCanvasManager.getTargets();
 	}
+
+	@Override
+	public void showTextOnFeed(String message) {
+		if (server.isPresent()) eventStream.publish(new ExerciseFeedMessage(message));
+	}
 }
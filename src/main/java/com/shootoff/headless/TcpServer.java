@@ -0,0 +1,492 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.headless.protocol.HeartbeatMessage;
+import com.shootoff.headless.protocol.Message;
+import com.shootoff.headless.protocol.MessageListener;
+import com.shootoff.headless.protocol.ProtocolCodec;
+import com.shootoff.headless.protocol.ProtocolVersionMessage;
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
+import com.shootoff.util.NamedThreadFactory;
+
+/**
+ * Serves any number of headless controllers over TCP, either as plain
+ * protocol streams or as WebSocket connections, from a single selector
+ * thread. Every message is sent to every client.
+ * 
+ * Each client has its own queue of encoded messages. A client whose queue
+ * grows past a limit or that doesn't accept any bytes for a while is
+ * disconnected so that one slow tablet can't hold up the rest. Heartbeats
+ * are only sent to clients with nothing else queued.
+ */
+class TcpServer implements HeadlessServer {
+	private static final Logger logger = LoggerFactory.getLogger(TcpServer.class);
+
+	public static final int DEFAULT_PORT = 8070;
+	static final int DEFAULT_MAX_QUEUED_BYTES = 8 * 1024 * 1024;
+
+	private static final int HEARTBEAT_INTERVAL = 1000; // ms
+	private static final long SLOW_CLIENT_TIMEOUT = 10000; // ms
+	private static final long TRANSPORT_DETECTION_TIMEOUT = 250; // ms
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+	private static final Counter evictionCounter = MetricsRegistry.getRegistry().counter("headless.clientsEvicted");
+
+	private enum Transport {
+		UNKNOWN, STREAM, WEBSOCKET
+	}
+
+	private final class Client {
+		private final SocketChannel channel;
+		private final ProtocolCodec codec = new ProtocolCodec();
+		private final WebSocketCodec webSocket = new WebSocketCodec();
+		private final long connectedAt = System.currentTimeMillis();
+		private Transport transport = Transport.UNKNOWN;
+
+		// Guarded by this
+		private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+		private long queuedBytes = 0;
+		private long lastProgress = System.currentTimeMillis();
+		private boolean closeWhenFlushed = false;
+
+		private Client(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * @return <code>false</code> if the client has too much queued
+		 */
+		private boolean send(Message message) {
+			try {
+				synchronized (this) {
+					if (transport == Transport.WEBSOCKET && !webSocket.isHandshakeDone()) return true;
+
+					// Encode under the lock so messages keep their order
+					boolean queued = true;
+					for (final Message m : codec.expand(message))
+						queued &= enqueue(frame(codec.encode(m)));
+
+					return queued;
+				}
+			} catch (final IOException e) {
+				logger.error("Failed to encode {} for headless client", message.getClass().getSimpleName(), e);
+				return true;
+			}
+		}
+
+		private byte[] frame(byte[] encoded) {
+			if (transport != Transport.WEBSOCKET) return encoded;
+
+			return WebSocketCodec.frame(codec.getOutputVersion() < ProtocolCodec.BINARY_VERSION
+					? WebSocketCodec.OPCODE_TEXT : WebSocketCodec.OPCODE_BINARY, encoded);
+		}
+
+		private synchronized boolean enqueue(byte[] data) {
+			if (outbound.isEmpty()) lastProgress = System.currentTimeMillis();
+
+			outbound.add(ByteBuffer.wrap(data));
+			queuedBytes += data.length;
+
+			return queuedBytes <= maxQueuedBytes;
+		}
+
+		private synchronized boolean hasQueued() {
+			return !outbound.isEmpty();
+		}
+
+		/**
+		 * Clients that only listen never send the first byte that tells us
+		 * which transport they use, so they get a plain stream after a short
+		 * wait. Until then, messages are queued but not written.
+		 */
+		private synchronized boolean isTransportKnown(long now) {
+			if (transport == Transport.UNKNOWN && now - connectedAt > TRANSPORT_DETECTION_TIMEOUT)
+				transport = Transport.STREAM;
+
+			return transport != Transport.UNKNOWN;
+		}
+
+		private synchronized boolean isStalled(long now) {
+			return !outbound.isEmpty() && now - lastProgress > SLOW_CLIENT_TIMEOUT;
+		}
+
+		private synchronized boolean isOverQueued() {
+			return queuedBytes > maxQueuedBytes;
+		}
+
+		/**
+		 * @return <code>true</code> if everything queued was written
+		 */
+		private synchronized boolean flush() throws IOException {
+			while (!outbound.isEmpty()) {
+				final ByteBuffer buffer = outbound.peek();
+				final int written = channel.write(buffer);
+
+				if (written > 0) {
+					queuedBytes -= written;
+					lastProgress = System.currentTimeMillis();
+				}
+
+				if (buffer.hasRemaining()) return false;
+
+				outbound.poll();
+			}
+
+			return true;
+		}
+
+		private synchronized void received(byte[] data, int length) throws IOException {
+			if (transport == Transport.UNKNOWN) {
+				// Nothing a protocol stream starts with can start an HTTP
+				// request
+				if (data[0] == 'G') {
+					transport = Transport.WEBSOCKET;
+
+					// Anything queued so far was encoded for a plain stream
+					outbound.clear();
+					queuedBytes = 0;
+				} else {
+					transport = Transport.STREAM;
+				}
+			}
+
+			if (transport == Transport.STREAM) {
+				dispatch(codec.decode(data, 0, length));
+				return;
+			}
+
+			if (!webSocket.isHandshakeDone()) {
+				final Optional<byte[]> response = webSocket.handshake(data, 0, length);
+				if (!response.isPresent()) return;
+
+				enqueue(response.get());
+				data = new byte[0];
+				length = 0;
+			}
+
+			for (final WebSocketCodec.Frame frame : webSocket.decode(data, 0, length)) {
+				switch (frame.getOpcode()) {
+				case WebSocketCodec.OPCODE_TEXT:
+				case WebSocketCodec.OPCODE_BINARY:
+					final byte[] payload = frame.getPayload();
+					dispatch(codec.decode(payload, 0, payload.length));
+
+					// Text messages don't have to end in a new line
+					if (frame.getOpcode() == WebSocketCodec.OPCODE_TEXT)
+						dispatch(codec.decode(new byte[] { '\n' }, 0, 1));
+					break;
+
+				case WebSocketCodec.OPCODE_PING:
+					enqueue(WebSocketCodec.frame(WebSocketCodec.OPCODE_PONG, frame.getPayload()));
+					break;
+
+				case WebSocketCodec.OPCODE_CLOSE:
+					synchronized (this) {
+						enqueue(WebSocketCodec.frame(WebSocketCodec.OPCODE_CLOSE, new byte[0]));
+						closeWhenFlushed = true;
+					}
+					break;
+
+				default:
+					break;
+				}
+			}
+		}
+
+		private void dispatch(List<Message> messages) {
+			for (final Message message : messages) {
+				if (message instanceof ProtocolVersionMessage) {
+					// The codec already switched to the version we answer
+					// with
+					send(new ProtocolVersionMessage(codec.getOutputVersion()));
+				} else if (messageListener != null) {
+					dispatcher.execute(() -> messageListener.messageReceived(message, this::reply));
+				}
+			}
+		}
+
+		private void reply(Message message) {
+			if (!send(message) && logger.isDebugEnabled()) logger.debug("A headless client is too far behind to "
+					+ "receive its reply {}", message.getClass().getSimpleName());
+
+			selector.wakeup();
+		}
+	}
+
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	private final int maxQueuedBytes;
+	private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean open = new AtomicBoolean(true);
+
+	// Messages are handled in order, off the selector thread
+	private final ExecutorService dispatcher = Executors
+			.newSingleThreadExecutor(new NamedThreadFactory("HeadlessDispatcher"));
+
+	private ConnectionListener connectionListener;
+	private MessageListener messageListener;
+	private Thread selectorThread;
+
+	TcpServer(int port) throws IOException {
+		this(port, DEFAULT_MAX_QUEUED_BYTES);
+	}
+
+	TcpServer(int port, int maxQueuedBytes) throws IOException {
+		this.maxQueuedBytes = maxQueuedBytes;
+
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+		logger.info("Accepting headless clients on port {}", getPort());
+	}
+
+	int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	int getClientCount() {
+		return clients.size();
+	}
+
+	@Override
+	public void startReading(ConnectionListener connectionListener, MessageListener messageListener) {
+		this.connectionListener = connectionListener;
+		this.messageListener = messageListener;
+
+		selectorThread = new Thread(this::run, "HeadlessTcpServer");
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+
+	/**
+	 * Queue <code>message</code> for every connected client.
+	 * 
+	 * @return <code>true</code> if there is at least one client
+	 */
+	@Override
+	public boolean sendMessage(Message message) {
+		if (!open.get()) return false;
+
+		boolean overQueued = false;
+
+		for (final Client client : clients) {
+			overQueued |= !client.send(message);
+		}
+
+		// The selector thread starts writing or evicts clients that are too
+		// far behind
+		selector.wakeup();
+
+		if (overQueued && logger.isDebugEnabled())
+			logger.debug("A headless client is too far behind to receive {}", message.getClass().getSimpleName());
+
+		return !clients.isEmpty();
+	}
+
+	private void run() {
+		long nextHeartbeat = System.currentTimeMillis() + HEARTBEAT_INTERVAL;
+
+		try {
+			while (open.get()) {
+				selector.select(Math.max(1, nextHeartbeat - System.currentTimeMillis()));
+
+				final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					final SelectionKey key = keys.next();
+					keys.remove();
+
+					if (!key.isValid()) continue;
+
+					if (key.isAcceptable()) {
+						try {
+							accept();
+						} catch (final IOException e) {
+							logger.warn("Failed to accept headless client", e);
+						}
+					} else {
+						final Client client = (Client) key.attachment();
+
+						try {
+							if (key.isReadable()) read(client, key);
+							if (key.isValid() && key.isWritable()) write(client, key);
+						} catch (final IOException | CancelledKeyException e) {
+							// Keys are also cancelled when the server closes
+							// the client's channel while shutting down
+							logger.debug("Headless client connection failed", e);
+							disconnect(client, key);
+						} catch (final RuntimeException e) {
+							// A client must not be able to take the selector
+							// thread down with a message we fail to handle
+							logger.warn("Disconnecting headless client after unexpected failure", e);
+							disconnect(client, key);
+						}
+					}
+				}
+
+				final long now = System.currentTimeMillis();
+				if (now >= nextHeartbeat) {
+					heartbeat();
+					nextHeartbeat = now + HEARTBEAT_INTERVAL;
+				}
+
+				updateClients(now);
+			}
+		} catch (final IOException | ClosedSelectorException e) {
+			if (open.get()) logger.error("Headless server stopped unexpectedly", e);
+		}
+	}
+
+	private void accept() throws IOException {
+		final SocketChannel channel = serverChannel.accept();
+		if (channel == null) return;
+
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+
+		final Client client = new Client(channel);
+		channel.register(selector, SelectionKey.OP_READ, client);
+		clients.add(client);
+
+		logger.debug("Headless client connected from {}", channel.getRemoteAddress());
+
+		if (connectionListener != null) connectionListener.connectionEstablished();
+	}
+
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	private void read(Client client, SelectionKey key) throws IOException {
+		readBuffer.clear();
+		final int read = client.channel.read(readBuffer);
+
+		if (read == -1) {
+			disconnect(client, key);
+			return;
+		}
+
+		if (read > 0) client.received(readBuffer.array(), read);
+	}
+
+	private void write(Client client, SelectionKey key) throws IOException {
+		if (client.flush()) {
+			key.interestOps(SelectionKey.OP_READ);
+
+			synchronized (client) {
+				if (client.closeWhenFlushed) disconnect(client, key);
+			}
+		}
+	}
+
+	private void heartbeat() {
+		final Message heartbeat = new HeartbeatMessage();
+
+		// Clients with queued messages already know we're alive
+		for (final Client client : clients) {
+			if (!client.hasQueued()) client.send(heartbeat);
+		}
+	}
+
+	private void updateClients(long now) {
+		for (final Client client : clients) {
+			final SelectionKey key = client.channel.keyFor(selector);
+			if (key == null || !key.isValid()) continue;
+
+			if (client.isOverQueued() || client.isStalled(now)) {
+				logger.warn("Disconnecting headless client that stopped keeping up");
+				evictionCounter.increment();
+				disconnect(client, key);
+			} else if (client.hasQueued() && client.isTransportKnown(now)
+					&& (key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	private void disconnect(Client client, SelectionKey key) {
+		clients.remove(client);
+		key.cancel();
+
+		try {
+			client.channel.close();
+		} catch (final IOException e) {
+			logger.debug("Error closing headless client connection", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (!open.getAndSet(false)) return;
+
+		try {
+			selector.close();
+		} catch (final IOException e) {
+			logger.error("Error closing headless server selector", e);
+		}
+
+		for (final Client client : clients) {
+			try {
+				client.channel.close();
+			} catch (final IOException e) {
+				logger.debug("Error closing headless client connection", e);
+			}
+		}
+		clients.clear();
+
+		try {
+			serverChannel.close();
+		} catch (final IOException e) {
+			logger.error("Error closing headless server socket", e);
+		}
+
+		dispatcher.shutdown();
+		try {
+			dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The parts of RFC 6455 a headless server needs: the opening handshake and
+ * unfragmented server frames, and decoding of masked, possibly fragmented
+ * client frames.
+ */
+final class WebSocketCodec {
+	static final int OPCODE_CONTINUATION = 0x0;
+	static final int OPCODE_TEXT = 0x1;
+	static final int OPCODE_BINARY = 0x2;
+	static final int OPCODE_CLOSE = 0x8;
+	static final int OPCODE_PING = 0x9;
+	static final int OPCODE_PONG = 0xA;
+
+	private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	private static final String KEY_HEADER = "sec-websocket-key:";
+	private static final int MAX_HANDSHAKE_LENGTH = 8192;
+	private static final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+
+	static final class Frame {
+		private final int opcode;
+		private final byte[] payload;
+
+		Frame(int opcode, byte[] payload) {
+			this.opcode = opcode;
+			this.payload = payload;
+		}
+
+		int getOpcode() {
+			return opcode;
+		}
+
+		byte[] getPayload() {
+			return payload;
+		}
+	}
+
+	private byte[] received = new byte[4096];
+	private int receivedLength = 0;
+	private boolean handshakeDone = false;
+
+	// Fragments of a message that hasn't been completed yet
+	private final ByteArrayOutputStream fragments = new ByteArrayOutputStream();
+	private int fragmentedOpcode = -1;
+
+	private void append(byte[] data, int offset, int length) {
+		if (receivedLength + length > received.length) {
+			received = Arrays.copyOf(received, Math.max(received.length * 2, receivedLength + length));
+		}
+
+		System.arraycopy(data, offset, received, receivedLength, length);
+		receivedLength += length;
+	}
+
+	private void consume(int length) {
+		receivedLength -= length;
+		System.arraycopy(received, length, received, 0, receivedLength);
+	}
+
+	/**
+	 * Read the client's opening handshake.
+	 * 
+	 * @return the response to send once the whole request was received
+	 * @throws IOException
+	 *             if the request is not a WebSocket handshake
+	 */
+	Optional<byte[]> handshake(byte[] data, int offset, int length) throws IOException {
+		append(data, offset, length);
+
+		final String request = new String(received, 0, receivedLength, StandardCharsets.ISO_8859_1);
+		final int end = request.indexOf("\r\n\r\n");
+
+		if (end == -1) {
+			if (receivedLength > MAX_HANDSHAKE_LENGTH) throw new IOException("WebSocket handshake is too long");
+			return Optional.empty();
+		}
+
+		Optional<String> key = Optional.empty();
+		for (final String line : request.substring(0, end).split("\r\n")) {
+			if (line.toLowerCase(Locale.ENGLISH).startsWith(KEY_HEADER)) {
+				key = Optional.of(line.substring(KEY_HEADER.length()).trim());
+			}
+		}
+
+		if (!request.startsWith("GET ") || !key.isPresent()) throw new IOException("Not a WebSocket handshake");
+
+		consume(end + 4);
+		handshakeDone = true;
+
+		final String response = "HTTP/1.1 101 Switching Protocols\r\n" + "Upgrade: websocket\r\n"
+				+ "Connection: Upgrade\r\n" + "Sec-WebSocket-Accept: " + getAcceptKey(key.get()) + "\r\n\r\n";
+
+		return Optional.of(response.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	boolean isHandshakeDone() {
+		return handshakeDone;
+	}
+
+	static String getAcceptKey(String key) {
+		try {
+			final MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+			return Base64.getEncoder()
+					.encodeToString(sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	}
+
+	/**
+	 * Decode frames received after the handshake, including bytes left over
+	 * from it.
+	 * 
+	 * @return complete text and binary messages and control frames
+	 */
+	List<Frame> decode(byte[] data, int offset, int length) throws IOException {
+		append(data, offset, length);
+
+		final List<Frame> frames = new ArrayList<>();
+		int used;
+
+		while ((used = decodeFrame(frames)) > 0)
+			consume(used);
+
+		return frames;
+	}
+
+	private int decodeFrame(List<Frame> frames) throws IOException {
+		if (receivedLength < 2) return 0;
+
+		final boolean isFinal = (received[0] & 0x80) != 0;
+		final int opcode = received[0] & 0x0F;
+		final boolean isMasked = (received[1] & 0x80) != 0;
+		long payloadLength = received[1] & 0x7F;
+		int headerLength = 2;
+
+		if (payloadLength == 126) {
+			if (receivedLength < 4) return 0;
+			payloadLength = ByteBuffer.wrap(received, 2, 2).getShort() & 0xFFFF;
+			headerLength = 4;
+		} else if (payloadLength == 127) {
+			if (receivedLength < 10) return 0;
+			payloadLength = ByteBuffer.wrap(received, 2, 8).getLong();
+			headerLength = 10;
+		}
+
+		if (!isMasked) throw new IOException("Client WebSocket frames must be masked");
+		if (payloadLength < 0 || payloadLength + fragments.size() > MAX_MESSAGE_LENGTH)
+			throw new IOException("WebSocket message is too long");
+
+		final int maskOffset = headerLength;
+		headerLength += 4;
+
+		if (receivedLength < headerLength + payloadLength) return 0;
+
+		final byte[] payload = new byte[(int) payloadLength];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) (received[headerLength + i] ^ received[maskOffset + (i % 4)]);
+		}
+
+		if (opcode >= OPCODE_CLOSE) {
+			// Control frames may arrive between the fragments of a message
+			frames.add(new Frame(opcode, payload));
+		} else if (opcode == OPCODE_CONTINUATION || !isFinal) {
+			if (opcode != OPCODE_CONTINUATION) {
+				fragmentedOpcode = opcode;
+			} else if (fragmentedOpcode == -1) {
+				throw new IOException("Unexpected WebSocket continuation frame");
+			}
+
+			fragments.write(payload, 0, payload.length);
+
+			if (isFinal) {
+				frames.add(new Frame(fragmentedOpcode, fragments.toByteArray()));
+				fragments.reset();
+				fragmentedOpcode = -1;
+			}
+		} else {
+			frames.add(new Frame(opcode, payload));
+		}
+
+		return headerLength + payload.length;
+	}
+
+	/**
+	 * @return <code>payload</code> as a single, unmasked server frame
+	 */
+	static byte[] frame(int opcode, byte[] payload) {
+		final int headerLength = payload.length < 126 ? 2 : payload.length <= 0xFFFF ? 4 : 10;
+		final ByteBuffer frame = ByteBuffer.allocate(headerLength + payload.length);
+
+		frame.put((byte) (0x80 | opcode));
+
+		if (payload.length < 126) {
+			frame.put((byte) payload.length);
+		} else if (payload.length <= 0xFFFF) {
+			frame.put((byte) 126);
+			frame.putShort((short) payload.length);
+		} else {
+			frame.put((byte) 127);
+			frame.putLong(payload.length);
+		}
+
+		frame.put(payload);
+
+		return frame.array();
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless.protocol;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Rebuilds arena snapshots from the frames written by
+ * {@link ArenaSnapshotEncoder}.
+ */
+final class ArenaSnapshotDecoder {
+	// Delta frames may be based on any snapshot the encoder still keeps
+	private static final int MAX_DECODED = 8;
+
+	// Keeps a snapshot's pixels within the frame length limit however well
+	// its image compresses
+	private static final long MAX_PIXELS = ProtocolCodec.MAX_FRAME_LENGTH / 4;
+
+	private final Map<Integer, CurrentArenaSnapshotMessage> decoded = new LinkedHashMap<>();
+
+	synchronized CurrentArenaSnapshotMessage decode(byte type, byte[] payload) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		final CurrentArenaSnapshotMessage snapshot;
+
+		if (type == ProtocolCodec.TYPE_SNAPSHOT_IMAGE) {
+			snapshot = decodeImage(in);
+		} else {
+			snapshot = decodeDelta(in);
+		}
+
+		decoded.put(snapshot.getSnapshotId(), snapshot);
+		if (decoded.size() > MAX_DECODED) {
+			final Iterator<Integer> it = decoded.keySet().iterator();
+			it.next();
+			it.remove();
+		}
+
+		return snapshot;
+	}
+
+	private CurrentArenaSnapshotMessage decodeImage(DataInputStream in) throws IOException {
+		final int id = in.readInt();
+		final int width = in.readInt();
+		final int height = in.readInt();
+		checkSize(width, height);
+
+		final BufferedImage image;
+		try (ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+			final Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+			if (!readers.hasNext()) throw new IOException("Malformed arena snapshot image");
+
+			final ImageReader reader = readers.next();
+			try {
+				reader.setInput(imageIn, true, true);
+
+				// Check the size the image claims before decoding it
+				if (reader.getWidth(0) != width || reader.getHeight(0) != height)
+					throw new IOException("Malformed arena snapshot image");
+
+				image = reader.read(0);
+			} finally {
+				reader.dispose();
+			}
+		}
+
+		return new CurrentArenaSnapshotMessage(id, image.getRGB(0, 0, width, height, null, 0, width), width, height);
+	}
+
+	private CurrentArenaSnapshotMessage decodeDelta(DataInputStream in) throws IOException {
+		final int id = in.readInt();
+		final int baseId = in.readInt();
+		final int width = in.readInt();
+		final int height = in.readInt();
+		final int tileSize = in.readShort();
+		final int tileCount = in.readInt();
+
+		final CurrentArenaSnapshotMessage base = decoded.get(baseId);
+		if (base == null || base.getWidth() != width || base.getHeight() != height)
+			throw new IOException(String.format("Arena snapshot %d is based on unknown snapshot %d", id, baseId));
+
+		if (tileSize <= 0) throw new IOException("Invalid arena snapshot tile size " + tileSize);
+
+		final int tilesX = (width + tileSize - 1) / tileSize;
+		final int tilesY = (height + tileSize - 1) / tileSize;
+
+		// Every tile's coordinates take four bytes of the payload
+		if (tileCount < 0 || tileCount > tilesX * tilesY || tileCount > in.available() / 4)
+			throw new IOException("Invalid arena snapshot tile count " + tileCount);
+
+		final int[] tiles = new int[tileCount * 2];
+		for (int i = 0; i < tiles.length; i += 2) {
+			tiles[i] = in.readShort();
+			tiles[i + 1] = in.readShort();
+
+			if (tiles[i] < 0 || tiles[i] >= tilesX || tiles[i + 1] < 0 || tiles[i + 1] >= tilesY)
+				throw new IOException(String.format("Arena snapshot tile (%d, %d) is out of bounds", tiles[i],
+						tiles[i + 1]));
+		}
+
+		final int[] pixels = base.getArenaSnapshotPixels().clone();
+		final DataInputStream pixelIn = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in)));
+
+		for (int t = 0; t < tileCount; t++) {
+			final int x0 = tiles[t * 2] * tileSize;
+			final int x1 = Math.min(x0 + tileSize, width);
+			final int y1 = Math.min((tiles[t * 2 + 1] + 1) * tileSize, height);
+
+			for (int y = tiles[t * 2 + 1] * tileSize; y < y1; y++) {
+				for (int i = y * width + x0; i < y * width + x1; i++) {
+					pixels[i] = pixelIn.readInt();
+				}
+			}
+		}
+
+		return new CurrentArenaSnapshotMessage(id, pixels, width, height);
+	}
+
+	private static void checkSize(int width, int height) throws IOException {
+		if (width <= 0 || height <= 0 || (long) width * height > MAX_PIXELS)
+			throw new IOException(String.format("Invalid arena snapshot size %dx%d", width, height));
+	}
+}
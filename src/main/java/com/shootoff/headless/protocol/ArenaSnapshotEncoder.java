@@ -0,0 +1,177 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless.protocol;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Encodes arena snapshots for one connection. A snapshot is sent as a PNG
+ * until the client acknowledges one, after that only the tiles that differ
+ * from the last acknowledged snapshot are sent.
+ */
+final class ArenaSnapshotEncoder {
+	static final int TILE_SIZE = 32;
+
+	// Snapshots kept while waiting for the client to acknowledge them
+	private static final int MAX_UNACKNOWLEDGED = 4;
+
+	private final Map<Integer, CurrentArenaSnapshotMessage> unacknowledged = new LinkedHashMap<>();
+	private CurrentArenaSnapshotMessage base = null;
+	private int baseId = 0;
+	private int nextId = 1;
+
+	/**
+	 * @return a complete frame holding <code>snapshot</code>
+	 */
+	synchronized byte[] encode(CurrentArenaSnapshotMessage snapshot) throws IOException {
+		final int id = nextId++;
+
+		unacknowledged.put(id, snapshot);
+		if (unacknowledged.size() > MAX_UNACKNOWLEDGED) {
+			final Iterator<Integer> it = unacknowledged.keySet().iterator();
+			it.next();
+			it.remove();
+		}
+
+		if (base != null && base.getWidth() == snapshot.getWidth() && base.getHeight() == snapshot.getHeight()) {
+			final byte[] delta = encodeDelta(id, snapshot);
+			if (delta != null) return ProtocolCodec.frame(ProtocolCodec.TYPE_SNAPSHOT_DELTA, delta);
+		}
+
+		return ProtocolCodec.frame(ProtocolCodec.TYPE_SNAPSHOT_IMAGE, encodeImage(id, snapshot));
+	}
+
+	synchronized void acknowledge(int id) {
+		final CurrentArenaSnapshotMessage acknowledged = unacknowledged.get(id);
+		if (acknowledged == null) return;
+
+		base = acknowledged;
+		baseId = id;
+
+		// Older snapshots will never be used as a base
+		final Iterator<Integer> it = unacknowledged.keySet().iterator();
+		while (it.hasNext() && it.next() <= id)
+			it.remove();
+	}
+
+	private byte[] encodeImage(int id, CurrentArenaSnapshotMessage snapshot) throws IOException {
+		final int width = snapshot.getWidth();
+		final int height = snapshot.getHeight();
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, width, height, snapshot.getArenaSnapshotPixels(), 0, width);
+
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(payload);
+		out.writeInt(id);
+		out.writeInt(width);
+		out.writeInt(height);
+		ImageIO.write(image, "png", out);
+		out.flush();
+
+		return payload.toByteArray();
+	}
+
+	/**
+	 * @return the changed tiles, or <code>null</code> if so much changed that
+	 *         a full image is likely smaller
+	 */
+	private byte[] encodeDelta(int id, CurrentArenaSnapshotMessage snapshot) throws IOException {
+		final int width = snapshot.getWidth();
+		final int height = snapshot.getHeight();
+		final int[] pixels = snapshot.getArenaSnapshotPixels();
+		final int[] basePixels = base.getArenaSnapshotPixels();
+		final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+		final List<Integer> changedTiles = new ArrayList<>();
+
+		for (int ty = 0; ty < tilesY; ty++) {
+			for (int tx = 0; tx < tilesX; tx++) {
+				if (!tileChanged(pixels, basePixels, width, height, tx, ty)) continue;
+
+				changedTiles.add(ty * tilesX + tx);
+				if (changedTiles.size() > tilesX * tilesY / 2) return null;
+			}
+		}
+
+		final ByteArrayOutputStream tilePixels = new ByteArrayOutputStream();
+		try (DataOutputStream pixelOut = new DataOutputStream(
+				new BufferedOutputStream(new DeflaterOutputStream(tilePixels)))) {
+			for (final int tile : changedTiles) {
+				writeTile(pixelOut, pixels, width, height, tile % tilesX, tile / tilesX);
+			}
+		}
+
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(payload);
+		out.writeInt(id);
+		out.writeInt(baseId);
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeShort(TILE_SIZE);
+		out.writeInt(changedTiles.size());
+		for (final int tile : changedTiles) {
+			out.writeShort(tile % tilesX);
+			out.writeShort(tile / tilesX);
+		}
+		tilePixels.writeTo(out);
+		out.flush();
+
+		return payload.toByteArray();
+	}
+
+	private static boolean tileChanged(int[] pixels, int[] basePixels, int width, int height, int tx, int ty) {
+		final int x0 = tx * TILE_SIZE;
+		final int x1 = Math.min(x0 + TILE_SIZE, width);
+		final int y1 = Math.min((ty + 1) * TILE_SIZE, height);
+
+		for (int y = ty * TILE_SIZE; y < y1; y++) {
+			for (int i = y * width + x0; i < y * width + x1; i++) {
+				if (pixels[i] != basePixels[i]) return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static void writeTile(DataOutputStream out, int[] pixels, int width, int height, int tx, int ty)
+			throws IOException {
+		final int x0 = tx * TILE_SIZE;
+		final int x1 = Math.min(x0 + TILE_SIZE, width);
+		final int y1 = Math.min((ty + 1) * TILE_SIZE, height);
+
+		for (int y = ty * TILE_SIZE; y < y1; y++) {
+			for (int i = y * width + x0; i < y * width + x1; i++) {
+				out.writeInt(pixels[i]);
+			}
+		}
+	}
+}
@@ -19,16 +19,30 @@
 package com.shootoff.headless.protocol;
 
 public class CurrentArenaSnapshotMessage extends Message {
+	private final int snapshotId;
 	private final int[] arenaSnapshotPixels;
 	private final int width;
 	private final int height;
 
 	public CurrentArenaSnapshotMessage(int[] arenaSnapshotPixels, int width, int height) {
+		this(0, arenaSnapshotPixels, width, height);
+	}
+
+	public CurrentArenaSnapshotMessage(int snapshotId, int[] arenaSnapshotPixels, int width, int height) {
+		this.snapshotId = snapshotId;
 		this.arenaSnapshotPixels = arenaSnapshotPixels;
 		this.width = width;
 		this.height = height;
 	}
 
+	/**
+	 * @return the id to acknowledge with an {@link ArenaSnapshotAckMessage},
+	 *         or 0 if the snapshot was sent as JSON
+	 */
+	public int getSnapshotId() {
+		return snapshotId;
+	}
+
 	public int[] getArenaSnapshotPixels() {
 		return arenaSnapshotPixels;
 	}
@@ -0,0 +1,50 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless.protocol;
+
+import java.util.List;
+
+/**
+ * Shots, target changes and exercise feed text that happened within a few
+ * milliseconds of each other. Every event has a sequence number: the first
+ * event has <code>firstSequence</code> and the rest follow consecutively.
+ * A client that sees a batch start past the sequence it expected next can
+ * ask for the missing events with a {@link ResendEventsMessage}.
+ */
+public class EventBatchMessage extends Message {
+	private final long firstSequence;
+	private final List<Message> events;
+
+	public EventBatchMessage(long firstSequence, List<Message> events) {
+		this.firstSequence = firstSequence;
+		this.events = events;
+	}
+
+	public long getFirstSequence() {
+		return firstSequence;
+	}
+
+	public long getLastSequence() {
+		return firstSequence + events.size() - 1;
+	}
+
+	public List<Message> getEvents() {
+		return events;
+	}
+}
@@ -47,16 +47,24 @@ public class Message {
 
 		public T deserialize(JsonElement elem, Type interfaceType, JsonDeserializationContext context)
 				throws JsonParseException {
-			final JsonObject wrapper = (JsonObject) elem;
+			if (!elem.isJsonObject()) throw new JsonParseException("expected an interface wrapper object, got " + elem);
+
+			final JsonObject wrapper = elem.getAsJsonObject();
 			final JsonElement typeName = get(wrapper, "type");
 			final JsonElement data = get(wrapper, "data");
-			final java.lang.reflect.Type actualType = typeForName(typeName);
+			final Class<?> actualType = typeForName(typeName);
+
+			if (interfaceType instanceof Class && !((Class<?>) interfaceType).isAssignableFrom(actualType))
+				throw new JsonParseException(actualType.getName() + " is not a " + interfaceType.getTypeName());
+
 			return context.deserialize(data, actualType);
 		}
 
 		private Class<?> typeForName(final JsonElement typeElem) {
+			if (!typeElem.isJsonPrimitive()) throw new JsonParseException("expected a type name, got " + typeElem);
+
 			try {
-				return Class.forName(typeElem.getAsString());
+				return Class.forName(typeElem.getAsString(), false, Message.class.getClassLoader());
 			} catch (ClassNotFoundException e) {
 				throw new JsonParseException(e);
 			}
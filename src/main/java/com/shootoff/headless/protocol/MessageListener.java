@@ -1,5 +1,18 @@
 package com.shootoff.headless.protocol;
 
+import java.util.function.Consumer;
+
 public interface MessageListener {
 	void messageReceived(Message message);
+
+	/**
+	 * Handle a message from a client that can be answered directly.
+	 * 
+	 * @param reply
+	 *            sends a message to only the client that sent
+	 *            <code>message</code>
+	 */
+	default void messageReceived(Message message, Consumer<Message> reply) {
+		messageReceived(message);
+	}
 }
@@ -0,0 +1,302 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Turns messages into bytes and back for one connection.
+ * 
+ * Version 1 of the protocol sends each message as a line of JSON. Version 2
+ * sends binary frames: a four byte length, a type byte, and the payload.
+ * Messages are JSON (gzip'd when that helps) and arena snapshots are sent as
+ * a PNG or as the tiles that changed since the last snapshot the client
+ * acknowledged.
+ * 
+ * Connections start with version 1 so that existing clients keep working. A
+ * client that understands frames sends a {@link ProtocolVersionMessage}, and
+ * the server answers with the version it will send from then on. Both are
+ * decoded either way: a frame's length never starts with a byte that can
+ * start a line of JSON.
+ * 
+ * Only the server sends arena snapshots, so codecs made with the constructor
+ * refuse snapshot frames and only {@link #forClient()} codecs decode them.
+ */
+public class ProtocolCodec {
+	private static final Logger logger = LoggerFactory.getLogger(ProtocolCodec.class);
+
+	public static final int JSON_VERSION = 1;
+	public static final int BINARY_VERSION = 2;
+	public static final int CURRENT_VERSION = BINARY_VERSION;
+
+	static final byte TYPE_JSON = 1;
+	static final byte TYPE_JSON_GZIP = 2;
+	static final byte TYPE_SNAPSHOT_IMAGE = 3;
+	static final byte TYPE_SNAPSHOT_DELTA = 4;
+
+	// Messages shorter than this rarely get smaller when gzip'd
+	private static final int MIN_GZIP_LENGTH = 256;
+
+	// Keeps the first byte of a frame below any byte a JSON line starts with.
+	// Lines are held to the same limit so a client that never sends a new
+	// line can't grow the receive buffer forever.
+	static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+	private static final int HEADER_LENGTH = 5;
+
+	private final ArenaSnapshotEncoder snapshotEncoder = new ArenaSnapshotEncoder();
+	private final Optional<ArenaSnapshotDecoder> snapshotDecoder;
+
+	private volatile int outputVersion = JSON_VERSION;
+
+	private byte[] received = new byte[4096];
+	private int receivedLength = 0;
+	// How much of an incomplete line was already searched for its end
+	private int scannedLineLength = 0;
+
+	public ProtocolCodec() {
+		this(Optional.empty());
+	}
+
+	private ProtocolCodec(Optional<ArenaSnapshotDecoder> snapshotDecoder) {
+		this.snapshotDecoder = snapshotDecoder;
+	}
+
+	/**
+	 * @return a codec for the client end of a connection, which also decodes
+	 *         arena snapshot frames
+	 */
+	public static ProtocolCodec forClient() {
+		return new ProtocolCodec(Optional.of(new ArenaSnapshotDecoder()));
+	}
+
+	/**
+	 * @return the version messages are encoded with, which changes when a
+	 *         {@link ProtocolVersionMessage} is decoded
+	 */
+	public int getOutputVersion() {
+		return outputVersion;
+	}
+
+	/**
+	 * Event batches were added in version 2, so connections that didn't
+	 * negotiate it get the batch's events one at a time instead.
+	 * 
+	 * @return the messages to encode in place of <code>message</code> for the
+	 *         current output version
+	 */
+	public List<Message> expand(Message message) {
+		if (outputVersion < BINARY_VERSION && message instanceof EventBatchMessage)
+			return ((EventBatchMessage) message).getEvents();
+
+		return Collections.singletonList(message);
+	}
+
+	/**
+	 * @return <code>message</code> encoded for the current output version
+	 */
+	public synchronized byte[] encode(Message message) throws IOException {
+		if (outputVersion < BINARY_VERSION) return message.toJson().getBytes(StandardCharsets.UTF_8);
+
+		if (message instanceof CurrentArenaSnapshotMessage)
+			return snapshotEncoder.encode((CurrentArenaSnapshotMessage) message);
+
+		final byte[] json = toJsonBytes(message);
+
+		if (json.length < MIN_GZIP_LENGTH) return frame(TYPE_JSON, json);
+
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+		try (OutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(json);
+		}
+
+		return frame(TYPE_JSON_GZIP, compressed.toByteArray());
+	}
+
+	private static byte[] toJsonBytes(Message message) {
+		final String json = message.toJson();
+
+		// Drop the line terminator, frames are delimited by their length
+		return json.substring(0, json.length() - 1).getBytes(StandardCharsets.UTF_8);
+	}
+
+	static byte[] frame(byte type, byte[] payload) throws IOException {
+		if (payload.length + 1 >= MAX_FRAME_LENGTH) throw new IOException("Frame is too long: " + payload.length);
+
+		final ByteBuffer frame = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+		frame.putInt(payload.length + 1);
+		frame.put(type);
+		frame.put(payload);
+
+		return frame.array();
+	}
+
+	/**
+	 * Decode received bytes. Bytes that don't complete a message are kept
+	 * until more arrive.
+	 * 
+	 * Snapshot acknowledgements are handled here and are not returned. A
+	 * {@link ProtocolVersionMessage} switches the output version to the newest
+	 * version both sides support and is returned so that a server can answer
+	 * it with a {@link ProtocolVersionMessage} for {@link #getOutputVersion()}.
+	 * 
+	 * @throws IOException
+	 *             if the bytes can't be decoded, after which the connection
+	 *             can't be used anymore
+	 */
+	public synchronized List<Message> decode(byte[] data, int offset, int length) throws IOException {
+		if (receivedLength + length > received.length) {
+			received = Arrays.copyOf(received, Math.max(received.length * 2, receivedLength + length));
+		}
+
+		System.arraycopy(data, offset, received, receivedLength, length);
+		receivedLength += length;
+
+		final List<Message> messages = new ArrayList<>();
+		int consumed = 0;
+
+		while (consumed < receivedLength) {
+			final int first = received[consumed] & 0xFF;
+			final int used = first > (MAX_FRAME_LENGTH - 1) >>> 24 ? decodeLine(consumed, messages)
+					: decodeFrame(consumed, messages);
+
+			if (used == 0) break;
+			consumed += used;
+		}
+
+		receivedLength -= consumed;
+		System.arraycopy(received, consumed, received, 0, receivedLength);
+
+		return messages;
+	}
+
+	private int decodeLine(int start, List<Message> messages) throws IOException {
+		int end = start + scannedLineLength;
+		while (end < receivedLength && received[end] != '\n')
+			end++;
+
+		if (end == receivedLength) {
+			scannedLineLength = end - start;
+
+			if (scannedLineLength > MAX_FRAME_LENGTH)
+				throw new IOException("Line is longer than " + MAX_FRAME_LENGTH + " bytes");
+
+			return 0;
+		}
+
+		scannedLineLength = 0;
+
+		final String line = new String(received, start, end - start, StandardCharsets.UTF_8).trim();
+		if (!line.isEmpty()) addJson(line, messages);
+
+		return end - start + 1;
+	}
+
+	private int decodeFrame(int start, List<Message> messages) throws IOException {
+		if (receivedLength - start < HEADER_LENGTH) return 0;
+
+		final ByteBuffer header = ByteBuffer.wrap(received, start, HEADER_LENGTH);
+		final int frameLength = header.getInt();
+
+		if (frameLength < 1 || frameLength >= MAX_FRAME_LENGTH)
+			throw new IOException("Invalid frame length " + frameLength);
+
+		if (receivedLength - start < frameLength + 4) return 0;
+
+		final byte type = header.get();
+		final byte[] payload = Arrays.copyOfRange(received, start + HEADER_LENGTH, start + 4 + frameLength);
+
+		switch (type) {
+		case TYPE_JSON:
+			addJson(new String(payload, StandardCharsets.UTF_8), messages);
+			break;
+
+		case TYPE_JSON_GZIP:
+			try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(payload)),
+					StandardCharsets.UTF_8)) {
+				final StringBuilder json = new StringBuilder();
+				final char[] buffer = new char[4096];
+				int read;
+				while ((read = reader.read(buffer)) != -1)
+					json.append(buffer, 0, read);
+
+				addJson(json.toString(), messages);
+			}
+			break;
+
+		case TYPE_SNAPSHOT_IMAGE:
+		case TYPE_SNAPSHOT_DELTA:
+			if (!snapshotDecoder.isPresent()) throw new IOException("Unexpected arena snapshot frame");
+
+			messages.add(snapshotDecoder.get().decode(type, payload));
+			break;
+
+		default:
+			logger.warn("Ignoring frame with unknown type {}", type);
+		}
+
+		return frameLength + 4;
+	}
+
+	private void addJson(String json, List<Message> messages) {
+		logger.trace("Received message: {}", json);
+
+		final Message message;
+		try {
+			message = Message.fromJson(json);
+		} catch (final RuntimeException e) {
+			// Gson throws more than JsonParseException for well-formed JSON of
+			// the wrong shape, e.g. a bare array or a number where an object
+			// belongs
+			logger.error("Ignoring malformed message: {}", json, e);
+			return;
+		}
+
+		if (message == null) return;
+
+		if (message instanceof ArenaSnapshotAckMessage) {
+			snapshotEncoder.acknowledge(((ArenaSnapshotAckMessage) message).getSnapshotId());
+			return;
+		}
+
+		if (message instanceof ProtocolVersionMessage) {
+			final int version = ((ProtocolVersionMessage) message).getVersion();
+			outputVersion = Math.max(JSON_VERSION, Math.min(version, CURRENT_VERSION));
+		}
+
+		messages.add(message);
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless.protocol;
+
+/**
+ * Sent as a JSON line by a client that wants to use a newer protocol and
+ * answered by the server with the version both sides use from then on.
+ * Clients that never send it keep using JSON lines.
+ */
+public class ProtocolVersionMessage extends Message {
+	private final int version;
+
+	public ProtocolVersionMessage(int version) {
+		this.version = version;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.headless.protocol;
+
+/**
+ * Asks the server to send events again, starting from
+ * <code>fromSequence</code>. Only recent events can be resent, so the batch
+ * sent in response may start later than requested.
+ */
+public class ResendEventsMessage extends Message {
+	private final long fromSequence;
+
+	public ResendEventsMessage(long fromSequence) {
+		this.fromSequence = fromSequence;
+	}
+
+	public long getFromSequence() {
+		return fromSequence;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations into log-linear buckets in the style of HdrHistogram:
+ * every power of two is split into 16 equal buckets, so any recorded value is
+ * known to within about 6% while the whole range of a long fits in under a
+ * thousand buckets. Recording is a few atomic increments and never allocates,
+ * so it is safe to use on the frame processing path.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param duration
+	 *            the duration to record in nanoseconds
+	 */
+	public void record(long duration) {
+		if (duration < 0) duration = 0;
+
+		buckets.incrementAndGet(bucketIndex(duration));
+		count.increment();
+		total.add(duration);
+
+		long currentMax;
+		while (duration > (currentMax = max.get())) {
+			if (max.compareAndSet(currentMax, duration)) break;
+		}
+	}
+
+	/**
+	 * Record the time elapsed since <code>startTime</code>.
+	 *
+	 * @param startTime
+	 *            a time from {@link System#nanoTime()}
+	 */
+	public void recordSince(long startTime) {
+		record(System.nanoTime() - startTime);
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public double getMean() {
+		final long n = count.sum();
+		if (n == 0) return 0;
+
+		return (total.sum() / (double) n) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double get50thPercentile() {
+		return getPercentile(0.5);
+	}
+
+	@Override
+	public double get90thPercentile() {
+		return getPercentile(0.9);
+	}
+
+	@Override
+	public double get99thPercentile() {
+		return getPercentile(0.99);
+	}
+
+	@Override
+	public double get999thPercentile() {
+		return getPercentile(0.999);
+	}
+
+	@Override
+	public double getMax() {
+		return max.get() / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @param percentile
+	 *            the percentile to find in the range (0, 1]
+	 * @return the value at the percentile in milliseconds, accurate to the
+	 *         width of the bucket it fell in
+	 */
+	public double getPercentile(double percentile) {
+		// Buckets are read one at a time while other threads may still be
+		// recording, so the total is recomputed from what was actually read
+		final long[] counts = new long[BUCKET_COUNT];
+		long n = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			n += counts[i];
+		}
+
+		if (n == 0) return 0;
+
+		final long target = Math.max(1, (long) Math.ceil(percentile * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(bucketMidpoint(i), max.get()) / NANOS_PER_MILLI;
+			}
+		}
+
+		return getMax();
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			buckets.set(i, 0);
+
+		count.reset();
+		total.reset();
+		max.set(0);
+	}
+
+	protected static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) return (int) value;
+
+		final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	protected static long bucketLowerBound(int index) {
+		if (index < SUB_BUCKET_COUNT) return index;
+
+		final int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		final long subBucket = index % SUB_BUCKET_COUNT;
+
+		return (SUB_BUCKET_COUNT + subBucket) << (magnitude - SUB_BUCKET_BITS);
+	}
+
+	private static long bucketMidpoint(int index) {
+		if (index < SUB_BUCKET_COUNT) return index;
+
+		final int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		final long width = 1L << (magnitude - SUB_BUCKET_BITS);
+
+		return bucketLowerBound(index) + width / 2;
+	}
+}
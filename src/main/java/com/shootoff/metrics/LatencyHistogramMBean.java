@@ -0,0 +1,40 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+/**
+ * All times are in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+	public long getCount();
+
+	public double getMean();
+
+	public double get50thPercentile();
+
+	public double get90thPercentile();
+
+	public double get99thPercentile();
+
+	public double get999thPercentile();
+
+	public double getMax();
+
+	public void reset();
+}
@@ -0,0 +1,131 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds every named counter, gauge, and latency histogram and publishes them
+ * as MBeans under the <code>com.shootoff</code> JMX domain so they can be
+ * watched live with jconsole or VisualVM. Looking a metric up goes through a
+ * concurrent map, so hot paths should look their metrics up once and keep the
+ * reference.
+ */
+public final class MetricsRegistry {
+	private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+	private static final String JMX_DOMAIN = "com.shootoff";
+
+	private static final MetricsRegistry registry = new MetricsRegistry();
+
+	private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+	private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+	private MetricsRegistry() {}
+
+	public static MetricsRegistry getRegistry() {
+		return registry;
+	}
+
+	public Counter counter(String name) {
+		return getOrRegister(counters, name, "Counter", (n) -> new Counter());
+	}
+
+	public LatencyHistogram histogram(String name) {
+		return getOrRegister(histograms, name, "Latency", (n) -> new LatencyHistogram());
+	}
+
+	/**
+	 * Register a gauge, replacing any existing gauge with the same name (e.g.
+	 * when a camera is reopened).
+	 */
+	public Gauge gauge(String name, DoubleSupplier supplier) {
+		removeGauge(name);
+
+		return getOrRegister(gauges, name, "Gauge", (n) -> new Gauge(supplier));
+	}
+
+	public void removeGauge(String name) {
+		if (gauges.remove(name) != null) unregisterMBean(name, "Gauge");
+	}
+
+	public SortedMap<String, Counter> getCounters() {
+		return Collections.unmodifiableSortedMap(new TreeMap<>(counters));
+	}
+
+	public SortedMap<String, Gauge> getGauges() {
+		return Collections.unmodifiableSortedMap(new TreeMap<>(gauges));
+	}
+
+	public SortedMap<String, LatencyHistogram> getHistograms() {
+		return Collections.unmodifiableSortedMap(new TreeMap<>(histograms));
+	}
+
+	private <T> T getOrRegister(Map<String, T> metrics, String name, String type, Function<String, T> factory) {
+		return metrics.computeIfAbsent(name, (n) -> {
+			final T metric = factory.apply(n);
+			registerMBean(name, type, metric);
+			return metric;
+		});
+	}
+
+	private ObjectName getObjectName(String name, String type) throws JMException {
+		return new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+	}
+
+	void registerMBean(String name, String type, Object metric) {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName objectName = getObjectName(name, type);
+
+			if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+
+			server.registerMBean(metric, objectName);
+		} catch (final JMException e) {
+			// Metrics are still usable and reported without JMX
+			logger.warn("Failed to register metric " + name + " with JMX", e);
+		}
+	}
+
+	private void unregisterMBean(String name, String type) {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName objectName = getObjectName(name, type);
+
+			if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+		} catch (final JMException e) {
+			logger.warn("Failed to unregister metric " + name + " from JMX", e);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically writes every registered metric to the log and appends them to a
+ * CSV file, which makes it possible to see where time goes on a range machine
+ * without attaching a profiler or a JMX client.
+ */
+public final class MetricsReporter {
+	private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+	public static final String CSV_HEADER = "time,type,name,count,value,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+	public static final String SHOT_TRACE_FILE = "shot-traces.json";
+
+	private static Optional<ScheduledExecutorService> executor = Optional.empty();
+	private static long lastDumpedTraceCount = 0;
+
+	private MetricsReporter() {}
+
+	/**
+	 * Start reporting, replacing any reporter that is already running. The
+	 * most recent shot traces are also rewritten to {@link #SHOT_TRACE_FILE}
+	 * next to <code>csvFile</code> whenever new shots were traced.
+	 *
+	 * @param intervalSeconds
+	 *            how often to report
+	 * @param csvFile
+	 *            the file to append reports to
+	 */
+	public static synchronized void start(int intervalSeconds, File csvFile) {
+		stop();
+
+		final File traceFile = new File(csvFile.getAbsoluteFile().getParentFile(), SHOT_TRACE_FILE);
+
+		final ScheduledExecutorService reporterExecutor = Executors.newSingleThreadScheduledExecutor((r) -> {
+			final Thread t = new Thread(r, "MetricsReporter");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+
+		reporterExecutor.scheduleAtFixedRate(() -> {
+			// An exception would silently cancel every future report
+			try {
+				report(csvFile);
+				dumpShotTraces(traceFile);
+			} catch (final RuntimeException e) {
+				logger.error("Error reporting metrics", e);
+			}
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		executor = Optional.of(reporterExecutor);
+
+		logger.info("Reporting metrics every {} s to {}", intervalSeconds, csvFile.getAbsolutePath());
+	}
+
+	public static synchronized void stop() {
+		if (executor.isPresent()) {
+			executor.get().shutdownNow();
+			executor = Optional.empty();
+		}
+	}
+
+	private static void dumpShotTraces(File traceFile) {
+		final ShotTraceRecorder recorder = ShotTraceRecorder.getRecorder();
+		final long traceCount = recorder.getRecordedCount();
+
+		if (traceCount == lastDumpedTraceCount) return;
+
+		recorder.writeChromeTrace(traceFile);
+		lastDumpedTraceCount = traceCount;
+	}
+
+	static void report(File csvFile) {
+		final MetricsRegistry registry = MetricsRegistry.getRegistry();
+		final long now = System.currentTimeMillis();
+		final boolean writeHeader = !csvFile.exists() || csvFile.length() == 0;
+
+		try (PrintWriter csv = new PrintWriter(
+				new OutputStreamWriter(new FileOutputStream(csvFile, true), StandardCharsets.UTF_8))) {
+			if (writeHeader) csv.println(CSV_HEADER);
+
+			for (final Entry<String, Counter> counter : registry.getCounters().entrySet()) {
+				csv.println(String.format(Locale.ROOT, "%d,counter,%s,%d,,,,,,,", now, counter.getKey(),
+						counter.getValue().getCount()));
+
+				if (logger.isInfoEnabled()) logger.info("{}: {}", counter.getKey(), counter.getValue().getCount());
+			}
+
+			for (final Entry<String, Gauge> gauge : registry.getGauges().entrySet()) {
+				final double value = gauge.getValue().getValue();
+				csv.println(String.format(Locale.ROOT, "%d,gauge,%s,,%.3f,,,,,,", now, gauge.getKey(), value));
+
+				if (logger.isInfoEnabled())
+					logger.info("{}: {}", gauge.getKey(), String.format(Locale.ROOT, "%.3f", value));
+			}
+
+			for (final Entry<String, LatencyHistogram> histogram : registry.getHistograms().entrySet()) {
+				final LatencyHistogram h = histogram.getValue();
+				if (h.getCount() == 0) continue;
+
+				csv.println(String.format(Locale.ROOT, "%d,latency,%s,%d,,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f", now,
+						histogram.getKey(), h.getCount(), h.getMean(), h.get50thPercentile(), h.get90thPercentile(),
+						h.get99thPercentile(), h.get999thPercentile(), h.getMax()));
+
+				if (logger.isInfoEnabled()) {
+					logger.info("{}: count {}, mean {} ms, p50 {} ms, p99 {} ms, max {} ms", histogram.getKey(),
+							h.getCount(), String.format(Locale.ROOT, "%.3f", h.getMean()),
+							String.format(Locale.ROOT, "%.3f", h.get50thPercentile()),
+							String.format(Locale.ROOT, "%.3f", h.get99thPercentile()),
+							String.format(Locale.ROOT, "%.3f", h.getMax()));
+				}
+			}
+		} catch (final IOException e) {
+			logger.error("Failed to write metrics to " + csvFile.getPath(), e);
+		}
+	}
+}
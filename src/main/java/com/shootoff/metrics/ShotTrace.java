@@ -0,0 +1,147 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Follows one shot from the moment the frame it was found in was captured to
+ * the moment the exercise finished handling it. Each stage of the pipeline
+ * stamps the trace with {@link System#nanoTime()} as the shot passes through
+ * it, so a late hit can be pinned on a specific stage. Stamping is a single
+ * atomic write, so traces are cheap enough to keep on all the time.
+ */
+public final class ShotTrace {
+	/**
+	 * The stages a shot passes through, in pipeline order. The label of a
+	 * stage describes the work done between the previous stamped stage and
+	 * this one.
+	 */
+	public enum Stage {
+		CAPTURED("capture"),
+		DETECTION_STARTED("frame handoff"),
+		COLOR_CONVERTED("hsv conversion"),
+		PIXELS_CLUSTERED("threshold and clustering"),
+		SHOT_CREATED("shot classification"),
+		DEDUPLICATED("deduplication"),
+		SUBMITTED("notifier handoff"),
+		SHOT_PROCESSED("shot processors"),
+		SOUND_STARTED("shot sound"),
+		HIT_CHECKED("shot timer and hit check"),
+		EXERCISE_NOTIFIED("exercise shotListener"),
+		// Drawn later on the JavaFX thread, so it is not part of the sequence
+		MARKER_DRAWN("marker drawn");
+
+		private final String label;
+
+		Stage(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	private static final AtomicLong nextId = new AtomicLong(1);
+
+	private final long id;
+	private final String source;
+	private final long projectorDelay;
+	private final AtomicLongArray stamps = new AtomicLongArray(Stage.values().length);
+
+	/**
+	 * @param source
+	 *            the name of the camera that saw the shot
+	 * @param captureTime
+	 *            the {@link System#nanoTime()} the frame containing the shot
+	 *            was captured at
+	 * @param projectorDelay
+	 *            the delay between the projector showing an image and the
+	 *            camera seeing it in milliseconds, if it was measured during
+	 *            calibration
+	 */
+	public ShotTrace(String source, long captureTime, Optional<Long> projectorDelay) {
+		id = nextId.getAndIncrement();
+		this.source = source;
+		this.projectorDelay = projectorDelay.isPresent() ? TimeUnit.MILLISECONDS.toNanos(projectorDelay.get()) : -1;
+
+		stamps.set(Stage.CAPTURED.ordinal(), captureTime);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the measured projector delay in nanoseconds
+	 */
+	public Optional<Long> getProjectorDelay() {
+		if (projectorDelay < 0) return Optional.empty();
+
+		return Optional.of(projectorDelay);
+	}
+
+	public void stamp(Stage stage) {
+		stamps.set(stage.ordinal(), System.nanoTime());
+	}
+
+	public void stamp(Stage stage, long time) {
+		stamps.set(stage.ordinal(), time);
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} the shot reached
+	 *         <code>stage</code>, or empty if it never did
+	 */
+	public Optional<Long> getStamp(Stage stage) {
+		final long stamp = stamps.get(stage.ordinal());
+
+		if (stamp == 0) return Optional.empty();
+
+		return Optional.of(stamp);
+	}
+
+	public long getCaptureTime() {
+		return stamps.get(Stage.CAPTURED.ordinal());
+	}
+
+	/**
+	 * @return the time from the frame being captured to the last stamped
+	 *         stage in nanoseconds
+	 */
+	public long getLatency() {
+		final long captureTime = getCaptureTime();
+		long last = captureTime;
+
+		for (int i = 0; i < stamps.length(); i++) {
+			final long stamp = stamps.get(i);
+			if (stamp != 0 && stamp - last > 0) last = stamp;
+		}
+
+		return last - captureTime;
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.metrics.ShotTrace.Stage;
+
+/**
+ * Keeps the traces of the most recent shots in a fixed size ring so they can
+ * be dumped on demand, e.g. right after a shooter complains about a late hit.
+ * Dumps use the Chrome trace event format, which can be opened in
+ * chrome://tracing or Perfetto to see each shot's stages as a timeline.
+ */
+public final class ShotTraceRecorder implements ShotTraceRecorderMBean {
+	private static final Logger logger = LoggerFactory.getLogger(ShotTraceRecorder.class);
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private static final ShotTraceRecorder recorder = new ShotTraceRecorder(DEFAULT_CAPACITY, true);
+
+	private final AtomicReferenceArray<ShotTrace> traces;
+	private final AtomicLong recordedCount = new AtomicLong(0);
+
+	// For tests
+	ShotTraceRecorder(int capacity, boolean registerMBean) {
+		traces = new AtomicReferenceArray<>(capacity);
+
+		if (registerMBean) MetricsRegistry.getRegistry().registerMBean("shots", "ShotTrace", this);
+	}
+
+	public static ShotTraceRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Add a trace to the ring, overwriting the oldest trace if the ring is
+	 * full. The trace is kept by reference, so stages stamped after it was
+	 * recorded still show up in dumps.
+	 */
+	public void record(ShotTrace trace) {
+		final long sequence = recordedCount.getAndIncrement();
+		traces.set((int) (sequence % traces.length()), trace);
+	}
+
+	@Override
+	public long getRecordedCount() {
+		return recordedCount.get();
+	}
+
+	@Override
+	public double getLastLatency() {
+		final long count = recordedCount.get();
+		if (count == 0) return 0;
+
+		final ShotTrace trace = traces.get((int) ((count - 1) % traces.length()));
+		if (trace == null) return 0;
+
+		return trace.getLatency() / 1000000.0;
+	}
+
+	/**
+	 * @return the retained traces from oldest to newest
+	 */
+	public List<ShotTrace> getTraces() {
+		final long count = recordedCount.get();
+		final int retained = (int) Math.min(count, traces.length());
+		final List<ShotTrace> snapshot = new ArrayList<>(retained);
+
+		for (long sequence = count - retained; sequence < count; sequence++) {
+			final ShotTrace trace = traces.get((int) (sequence % traces.length()));
+			if (trace != null) snapshot.add(trace);
+		}
+
+		return snapshot;
+	}
+
+	@Override
+	public void dumpChromeTrace(String path) {
+		writeChromeTrace(new File(path));
+	}
+
+	public void writeChromeTrace(File traceFile) {
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(traceFile), StandardCharsets.UTF_8)) {
+			writeChromeTrace(writer);
+		} catch (final IOException e) {
+			logger.error("Failed to write shot traces to " + traceFile.getPath(), e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void writeChromeTrace(Writer writer) throws IOException {
+		final JSONArray events = new JSONArray();
+
+		for (final ShotTrace trace : getTraces()) {
+			addTraceEvents(events, trace);
+		}
+
+		final JSONObject document = new JSONObject();
+		document.put("traceEvents", events);
+		document.put("displayTimeUnit", "ms");
+		document.writeJSONString(writer);
+		writer.flush();
+	}
+
+	/**
+	 * Each shot gets its own row (tid) holding one span for the whole shot
+	 * with one nested span per stage. Stages that were skipped, e.g. color
+	 * conversion for detectors that don't do it, are simply left out.
+	 */
+	@SuppressWarnings("unchecked")
+	private void addTraceEvents(JSONArray events, ShotTrace trace) {
+		final long captureTime = trace.getCaptureTime();
+		final long start = trace.getProjectorDelay().isPresent() ? captureTime - trace.getProjectorDelay().get()
+				: captureTime;
+
+		final JSONObject args = new JSONObject();
+		args.put("camera", trace.getSource());
+		args.put("latency_ms", trace.getLatency() / 1000000.0);
+		if (trace.getProjectorDelay().isPresent())
+			args.put("projector_delay_ms", trace.getProjectorDelay().get() / 1000000.0);
+
+		final JSONObject shotEvent = createEvent(trace, "shot " + trace.getId(), "X", start);
+		shotEvent.put("dur", toMicros(captureTime + trace.getLatency() - start));
+		shotEvent.put("args", args);
+		events.add(shotEvent);
+
+		if (trace.getProjectorDelay().isPresent()) {
+			final JSONObject delayEvent = createEvent(trace, "projector delay", "X", start);
+			delayEvent.put("dur", toMicros(captureTime - start));
+			events.add(delayEvent);
+		}
+
+		long previous = captureTime;
+		for (final Stage stage : Stage.values()) {
+			if (stage == Stage.CAPTURED || stage == Stage.MARKER_DRAWN) continue;
+			if (!trace.getStamp(stage).isPresent()) continue;
+
+			final long stamp = trace.getStamp(stage).get();
+
+			// Stamps from before this shot's frame are stale frame stamps
+			if (stamp - previous < 0) continue;
+
+			final JSONObject stageEvent = createEvent(trace, stage.getLabel(), "X", previous);
+			stageEvent.put("dur", toMicros(stamp - previous));
+			events.add(stageEvent);
+
+			previous = stamp;
+		}
+
+		if (trace.getStamp(Stage.MARKER_DRAWN).isPresent()) {
+			final JSONObject markerEvent = createEvent(trace, Stage.MARKER_DRAWN.getLabel(), "i",
+					trace.getStamp(Stage.MARKER_DRAWN).get());
+			markerEvent.put("s", "t");
+			events.add(markerEvent);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject createEvent(ShotTrace trace, String name, String phase, long time) {
+		final JSONObject event = new JSONObject();
+		event.put("name", name);
+		event.put("cat", "shot");
+		event.put("ph", phase);
+		event.put("ts", toMicros(time));
+		event.put("pid", 1);
+		event.put("tid", trace.getId());
+
+		return event;
+	}
+
+	private static double toMicros(long nanos) {
+		return nanos / 1000.0;
+	}
+}
@@ -159,6 +159,11 @@ public class ParRandomShot extends ParForScore {
 
 		if (!foundTarget) {
 			playSound(new File("sounds/voice/shootoff-subtargets-warning.wav"));
+		} else {
+			for (final String subtarget : subtargets) {
+				if (!new File(String.format("sounds/voice/shootoff-%s.wav", subtarget)).exists())
+					TextToSpeech.prewarm(subtarget);
+			}
 		}
 	}
 
@@ -149,6 +149,12 @@ public class RandomShoot extends TrainingExerciseBase implements TrainingExercis
 		}
 
 		if (foundTarget && subtargets.size() > 0) {
+			// Subtargets without a voice actor sound file are said with TTS
+			for (final String subtarget : subtargets) {
+				if (!new File(String.format("sounds/voice/shootoff-%s.wav", subtarget)).exists())
+					TextToSpeech.prewarm("shoot " + subtarget);
+			}
+
 			return true;
 		} else {
 			TrainingExerciseBase.playSound(new File("sounds/voice/shootoff-subtargets-warning.wav"));
@@ -90,6 +90,13 @@ public class ShootDontShoot extends ProjectorTrainingExerciseBase implements Tra
 		addTargets(dontShootTargets, "targets/shoot_dont_shoot/dont_shoot.target");
 		super.showTextOnFeed("missed targets: 0\nbad hits: 0");
 
+		final List<String> phrases = new ArrayList<>();
+		phrases.add("Bad shoot!");
+		phrases.add("You missed 1 target.");
+		for (int i = 2; i <= MAX_TARGETS_PER_ROUND; i++)
+			phrases.add(String.format("You missed %d targets.", i));
+		TextToSpeech.prewarm(phrases);
+
 		currentRound = new NewRound();
 		executorService.schedule(currentRound, ROUND_DURATION, TimeUnit.SECONDS);
 	}
@@ -18,13 +18,30 @@
 
 package com.shootoff.plugins;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.audio.AudioEngine;
+import com.shootoff.audio.PcmClip;
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.LatencyHistogram;
+import com.shootoff.metrics.MetricsRegistry;
+
 import marytts.LocalMaryInterface;
 import marytts.MaryInterface;
 import marytts.exceptions.MaryConfigurationException;
@@ -36,18 +53,54 @@ import marytts.util.data.audio.AudioPlayer;
  * output. This class should be re-written if the text-to-speech library is
  * swapped for an alternative.
  * 
+ * Synthesis is slow, so it happens on a single background worker instead of
+ * the thread that asked for a phrase, and synthesized phrases are kept as
+ * decoded clips in a bounded cache. Phrases that are said again play through
+ * the {@link AudioEngine} almost immediately. Exercises that know what they
+ * will say can synthesize it ahead of time with {@link #prewarm(String...)}.
+ * 
  * @author phrack
  */
 public final class TextToSpeech {
 	private static final Logger logger = LoggerFactory.getLogger(TextToSpeech.class);
 
+	private static final long PHRASE_CACHE_BUDGET = 16L * 1024 * 1024;
+
+	private static final Counter synthesisCounter = MetricsRegistry.getRegistry().counter("tts.phrasesSynthesized");
+	private static final Counter cacheHitCounter = MetricsRegistry.getRegistry().counter("tts.phraseCacheHits");
+	private static final LatencyHistogram synthesisLatency = MetricsRegistry.getRegistry().histogram("tts.synthesis");
+
+	private static final ExecutorService worker = Executors.newSingleThreadExecutor((r) -> {
+		final Thread thread = new Thread(r, "TextToSpeech");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Only used on the worker thread
+	private static final Map<String, PcmClip> phrases = new LinkedHashMap<>(16, 0.75f, true);
+	private static long cachedSize = 0;
 	private static boolean inited = false;
-	private static boolean isSilenced = false;
 	private static MaryInterface marytts = null;
 
+	private static volatile boolean isSilenced = false;
+
 	protected TextToSpeech() {}
 
-	private static void init() throws MaryConfigurationException {
+	/**
+	 * Initialize the text-to-speech engine on its worker and wait until it is
+	 * ready. Startup runs this in the background so the first phrase doesn't
+	 * have to wait for it.
+	 */
+	public static void init() throws InterruptedException, ExecutionException {
+		worker.submit(() -> {
+			initMary();
+			return null;
+		}).get();
+	}
+
+	private static void initMary() throws MaryConfigurationException {
+		if (inited) return;
+
 		marytts = new LocalMaryInterface();
 		final Set<String> voices = marytts.getAvailableVoices();
 		marytts.setVoice(voices.iterator().next());
@@ -60,18 +113,74 @@ public final class TextToSpeech {
 			return;
 		}
 
-		try {
-			if (!inited) {
-				init();
+		if (comment.isEmpty()) return;
+
+		worker.execute(() -> {
+			final Optional<PcmClip> phrase = getPhrase(comment);
+			if (!phrase.isPresent()) return;
+
+			if (!AudioEngine.getEngine().play(phrase.get(), Optional.empty())) {
+				final AudioPlayer player = new AudioPlayer(phrase.get().getAudioInputStream());
+				player.start();
 			}
+		});
+	}
+
+	/**
+	 * Synthesize phrases in the background so that saying them later doesn't
+	 * wait on synthesis. Exercises should call this from
+	 * {@link TrainingExercise#init()} with the fixed phrases they say.
+	 * 
+	 * @param comments
+	 *            phrases exactly as they will be passed to {@link #say(String)}
+	 */
+	public static void prewarm(String... comments) {
+		prewarm(Arrays.asList(comments));
+	}
 
-			if (comment.isEmpty()) return;
+	public static void prewarm(Collection<String> comments) {
+		if (isSilenced) return;
+
+		for (final String comment : comments) {
+			if (!comment.isEmpty()) worker.execute(() -> getPhrase(comment));
+		}
+	}
+
+	private static Optional<PcmClip> getPhrase(String comment) {
+		final PcmClip cached = phrases.get(comment);
+
+		if (cached != null) {
+			cacheHitCounter.increment();
+			return Optional.of(cached);
+		}
 
+		try {
+			initMary();
+
+			final long startTime = System.nanoTime();
 			final AudioInputStream audio = marytts.generateAudio(comment);
-			final AudioPlayer player = new AudioPlayer(audio);
-			player.start();
-		} catch (MaryConfigurationException | SynthesisException e) {
+			final PcmClip phrase = PcmClip.decode(audio);
+			synthesisLatency.recordSince(startTime);
+			synthesisCounter.increment();
+
+			cachePhrase(comment, phrase);
+
+			return Optional.of(phrase);
+		} catch (MaryConfigurationException | SynthesisException | UnsupportedAudioFileException | IOException e) {
 			logger.error("Error sythesizing text to voice", e);
+			return Optional.empty();
+		}
+	}
+
+	private static void cachePhrase(String comment, PcmClip phrase) {
+		phrases.put(comment, phrase);
+		cachedSize += phrase.getSize();
+
+		// Always keep the newest phrase, even if it is larger than the budget
+		final Iterator<Map.Entry<String, PcmClip>> it = phrases.entrySet().iterator();
+		while (cachedSize > PHRASE_CACHE_BUDGET && phrases.size() > 1) {
+			cachedSize -= it.next().getValue().getSize();
+			it.remove();
 		}
 	}
 
@@ -87,4 +196,4 @@ public final class TextToSpeech {
 	public static void silence(final boolean isSilenced) {
 		TextToSpeech.isSilenced = isSilenced;
 	}
-}
\ No newline at end of file
+}
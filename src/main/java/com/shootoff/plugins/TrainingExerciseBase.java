@@ -42,6 +42,8 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.audio.AudioEngine;
+import com.shootoff.audio.PcmClip;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.CamerasSupervisor;
 import com.shootoff.camera.processors.ShotProcessor;
@@ -325,6 +327,7 @@ public abstract class TrainingExerciseBase {
 	public void addShotTimerColumn(String name, int width) {
 		final TableColumn<ShotEntry, String> newCol = new TableColumn<>(name);
 		newCol.setPrefWidth(width);
+		newCol.setSortable(false);
 		newCol.setCellValueFactory(new Callback<CellDataFeatures<ShotEntry, String>, ObservableValue<String>>() {
 			@Override
 			public ObservableValue<String> call(CellDataFeatures<ShotEntry, String> p) {
@@ -395,6 +398,8 @@ public abstract class TrainingExerciseBase {
 			config.getSessionRecorder().get().recordExerciseFeedMessage(message);
 		}
 
+		if (exerciseView != null) exerciseView.showTextOnFeed(message);
+
 		Platform.runLater(() -> {
 			for (final Label exerciseLabel : exerciseLabels.values()) {
 				exerciseLabel.setText(message);
@@ -477,9 +482,27 @@ public abstract class TrainingExerciseBase {
 	}
 
 	public static void playSound(final InputStream is) {
-		playSound(is, Optional.empty());
+		if (isSilenced) {
+			System.out.println("Playing audio for modular exercise.");
+			return;
+		}
+
+		try {
+			// The stream can only be read once, so it can't fall back to its
+			// own line if the engine can't play it
+			final PcmClip clip = PcmClip.decode(AudioSystem.getAudioInputStream(is));
+			AudioEngine.getEngine().play(clip, Optional.empty());
+		} catch (UnsupportedAudioFileException | IOException e) {
+			logger.error("Error reading sound stream to play", e);
+		}
 	}
 
+	/**
+	 * Plays an audio stream on its own output line so that
+	 * <code>listener</code> receives that line's events. Prefer
+	 * {@link #playSound(InputStream)}, which plays through the shared
+	 * {@link AudioEngine} with much lower latency.
+	 */
 	public static void playSound(final InputStream is, Optional<LineListener> listener) {
 		if (isSilenced) {
 			System.out.println("Playing audio for modular exercise.");
@@ -494,7 +517,7 @@ public abstract class TrainingExerciseBase {
 		}
 	}
 
-	private static void playSound(File soundFile, Optional<LineListener> listener) {
+	private static void playSound(File soundFile, Optional<Runnable> onFinished) {
 		if (isSilenced) {
 			System.out.println(soundFile.getPath());
 			return;
@@ -504,6 +527,17 @@ public abstract class TrainingExerciseBase {
 			soundFile = new File(System.getProperty("shootoff.home") + File.separator + soundFile.getPath());
 		}
 
+		final Optional<PcmClip> clip = AudioEngine.getEngine().getClip(soundFile);
+		if (clip.isPresent() && AudioEngine.getEngine().play(clip.get(), onFinished)) return;
+
+		// Fall back to streaming the file on its own line
+		final Optional<LineListener> listener = onFinished.map((r) -> (LineListener) (e) -> {
+			if (LineEvent.Type.STOP.equals(e.getType())) {
+				e.getLine().close();
+				r.run();
+			}
+		});
+
 		try {
 			final AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(soundFile);
 			playSound(audioInputStream, listener);
@@ -572,7 +606,7 @@ public abstract class TrainingExerciseBase {
 		}
 	}
 
-	private static class SoundQueue implements LineListener {
+	private static class SoundQueue implements Runnable {
 		private final List<File> soundFiles;
 		private int queueIndex = 0;
 
@@ -585,15 +619,11 @@ public abstract class TrainingExerciseBase {
 		}
 
 		@Override
-		public void update(final LineEvent event) {
-			if (LineEvent.Type.STOP.equals(event.getType())) {
-				event.getLine().close();
+		public void run() {
+			queueIndex++;
 
-				queueIndex++;
-
-				if (queueIndex < soundFiles.size()) {
-					playSound(soundFiles.get(queueIndex), Optional.of(this));
-				}
+			if (queueIndex < soundFiles.size()) {
+				playSound(soundFiles.get(queueIndex), Optional.of(this));
 			}
 		}
 	}
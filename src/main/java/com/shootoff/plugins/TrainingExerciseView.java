@@ -21,4 +21,10 @@ public interface TrainingExerciseView {
 	Optional<CameraView> getArenaView();
 	
 	List<Target> getTargets();
+
+	/**
+	 * Called with every message an exercise shows on the webcam feeds, for
+	 * views that show them somewhere else too.
+	 */
+	default void showTextOnFeed(String message) {}
 }
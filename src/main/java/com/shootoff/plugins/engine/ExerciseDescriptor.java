@@ -0,0 +1,94 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.plugins.engine;
+
+import java.util.Optional;
+
+import com.shootoff.plugins.ExerciseMetadata;
+import com.shootoff.plugins.ProjectorTrainingExerciseBase;
+import com.shootoff.plugins.TrainingExercise;
+
+/**
+ * Describes an exercise in exercise lists. A plugin's exercise is described by
+ * its plugin so that the plugin's classes aren't loaded until the exercise is
+ * started with {@link #load()}.
+ */
+public final class ExerciseDescriptor {
+	private final ExerciseMetadata metadata;
+	private final boolean isProjectorExercise;
+	private final Optional<TrainingExercise> exercise;
+	private final Optional<Plugin> plugin;
+
+	private ExerciseDescriptor(ExerciseMetadata metadata, boolean isProjectorExercise,
+			Optional<TrainingExercise> exercise, Optional<Plugin> plugin) {
+		this.metadata = metadata;
+		this.isProjectorExercise = isProjectorExercise;
+		this.exercise = exercise;
+		this.plugin = plugin;
+	}
+
+	/**
+	 * @return a descriptor for an exercise that is already loaded, e.g. one
+	 *         that is built into ShootOFF
+	 */
+	public static ExerciseDescriptor of(TrainingExercise exercise) {
+		return new ExerciseDescriptor(exercise.getInfo(), exercise instanceof ProjectorTrainingExerciseBase,
+				Optional.of(exercise), Optional.empty());
+	}
+
+	static ExerciseDescriptor of(Plugin plugin) {
+		return new ExerciseDescriptor(plugin.getMetadata(), PluginType.PROJECTOR_ONLY.equals(plugin.getType()),
+				Optional.empty(), Optional.of(plugin));
+	}
+
+	public ExerciseMetadata getInfo() {
+		return metadata;
+	}
+
+	/**
+	 * @return <code>true</code> if the exercise can only run on the projector
+	 *         arena
+	 */
+	public boolean isProjectorExercise() {
+		return isProjectorExercise;
+	}
+
+	/**
+	 * @return the plugin the exercise is packaged in, or empty if it is built
+	 *         in
+	 */
+	public Optional<Plugin> getPlugin() {
+		return plugin;
+	}
+
+	/**
+	 * @return the exercise to start, loading its class from its plugin if it
+	 *         isn't built in
+	 */
+	public TrainingExercise load() throws ReflectiveOperationException {
+		if (exercise.isPresent()) return exercise.get();
+
+		return plugin.get().getExerciseClass().asSubclass(TrainingExercise.class).newInstance();
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(metadata);
+	}
+}
@@ -37,22 +37,79 @@ import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import com.shootoff.plugins.ExerciseMetadata;
 import com.shootoff.plugins.ProjectorTrainingExerciseBase;
 import com.shootoff.plugins.TrainingExercise;
 import com.shootoff.plugins.TrainingExerciseBase;
 
+/**
+ * A training exercise packaged in a jar. The exercise class is only loaded
+ * when it is needed to start the exercise, everything needed to list the
+ * exercise is kept in {@link #getMetadata()}.
+ */
 public class Plugin {
 	private static final Logger logger = LoggerFactory.getLogger(Plugin.class);
 
-	private final URLClassLoader loader;
-	private final TrainingExercise exercise;
 	private final Path jarPath;
+	private final String exerciseClassName;
 	private final PluginType type;
+	private final ExerciseMetadata metadata;
+	private final ExerciseDescriptor descriptor;
+
+	private URLClassLoader loader = null;
 
+	/**
+	 * Read the plugin's settings and exercise information from its jar. The
+	 * class loader used to do this is closed again so that the plugin's
+	 * classes are only loaded once the exercise is started.
+	 */
 	public Plugin(final Path jarPath) throws ParserConfigurationException, SAXException, IOException {
 		this.jarPath = jarPath;
 
-		loader = AccessController.doPrivileged((PrivilegedAction<URLClassLoader>) () -> {
+		final URLClassLoader settingsLoader = createLoader(jarPath);
+
+		try {
+			final InputStream pluginSettings = settingsLoader.getResourceAsStream("shootoff.xml");
+
+			if (pluginSettings == null) {
+				throw new IllegalArgumentException(
+						String.format("The jarPath %s does not represent a valid ShootOFF plugin", jarPath));
+			}
+
+			final SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
+			final PluginSettingsXMLHandler handler = new PluginSettingsXMLHandler(settingsLoader);
+			saxParser.parse(pluginSettings, handler);
+
+			if (handler.getExercise() == null) {
+				throw new IllegalArgumentException(
+						String.format("Could not fetch main class for newly discovered exercise at %s", jarPath));
+			}
+
+			exerciseClassName = handler.getExercise().getClass().getName();
+			type = handler.getType();
+			metadata = handler.getExercise().getInfo();
+		} finally {
+			settingsLoader.close();
+		}
+
+		descriptor = ExerciseDescriptor.of(this);
+	}
+
+	/**
+	 * Create a plugin from information that was previously read from its jar.
+	 */
+	Plugin(final Path jarPath, final String exerciseClassName, final PluginType type,
+			final ExerciseMetadata metadata) {
+		this.jarPath = jarPath;
+		this.exerciseClassName = exerciseClassName;
+		this.type = type;
+		this.metadata = metadata;
+
+		descriptor = ExerciseDescriptor.of(this);
+	}
+
+	private static URLClassLoader createLoader(final Path jarPath) {
+		final URLClassLoader loader = AccessController.doPrivileged((PrivilegedAction<URLClassLoader>) () -> {
 			try {
 				return new URLClassLoader(new URL[] { jarPath.toUri().toURL() },
 						Thread.currentThread().getContextClassLoader());
@@ -67,30 +124,18 @@ public class Plugin {
 					String.format("The jarPath %s does not represent a valid ShootOFF plugin", jarPath));
 		}
 
-		final InputStream pluginSettings = loader.getResourceAsStream("shootoff.xml");
-
-		if (pluginSettings == null) {
-			throw new IllegalArgumentException(
-					String.format("The jarPath %s does not represent a valid ShootOFF plugin", jarPath));
-		}
-
-		final SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
-		final PluginSettingsXMLHandler handler = new PluginSettingsXMLHandler();
-		saxParser.parse(pluginSettings, handler);
-
-		if (handler.getExercise() == null) {
-			throw new IllegalArgumentException(
-					String.format("Could not fetch main class for newly discovered exercise at %s", jarPath));
-		}
-
-		exercise = handler.getExercise();
-		type = handler.getType();
+		return loader;
 	}
 
-	private class PluginSettingsXMLHandler extends DefaultHandler {
+	private static class PluginSettingsXMLHandler extends DefaultHandler {
+		private final ClassLoader loader;
 		private TrainingExercise exercise;
 		private PluginType type;
 
+		public PluginSettingsXMLHandler(ClassLoader loader) {
+			this.loader = loader;
+		}
+
 		public TrainingExercise getExercise() {
 			return exercise;
 		}
@@ -152,12 +197,44 @@ public class Plugin {
 		}
 	}
 
-	public URLClassLoader getLoader() {
+	/**
+	 * @return the class loader for the plugin's jar, creating it if the
+	 *         plugin's classes haven't been needed yet
+	 */
+	public synchronized URLClassLoader getLoader() {
+		if (loader == null) {
+			if (logger.isDebugEnabled()) logger.debug("Loading plugin {}", jarPath);
+			loader = createLoader(jarPath);
+		}
+
 		return loader;
 	}
 
-	public TrainingExercise getExercise() {
-		return exercise;
+	/**
+	 * @return <code>true</code> if the plugin's class loader was created
+	 */
+	public synchronized boolean isLoaded() {
+		return loader != null;
+	}
+
+	public Class<?> getExerciseClass() throws ClassNotFoundException {
+		return getLoader().loadClass(exerciseClassName);
+	}
+
+	public String getExerciseClassName() {
+		return exerciseClassName;
+	}
+
+	/**
+	 * @return a description of the plugin's exercise that can be listed
+	 *         without loading the exercise's class
+	 */
+	public ExerciseDescriptor getDescriptor() {
+		return descriptor;
+	}
+
+	public ExerciseMetadata getMetadata() {
+		return metadata;
 	}
 
 	public Path getJarPath() {
@@ -18,6 +18,7 @@
 
 package com.shootoff.plugins.engine;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -37,6 +38,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
 import com.shootoff.plugins.BouncingTargets;
 import com.shootoff.plugins.DuelingTree;
 import com.shootoff.plugins.ExerciseMetadata;
@@ -49,6 +52,7 @@ import com.shootoff.plugins.ShootForScore;
 import com.shootoff.plugins.SteelChallenge;
 import com.shootoff.plugins.TimedHolsterDrill;
 import com.shootoff.plugins.TrainingExercise;
+import com.shootoff.targets.io.TargetTemplateCache;
 import com.shootoff.util.VersionChecker;
 
 /**
@@ -58,21 +62,31 @@ import com.shootoff.util.VersionChecker;
  */
 public class PluginEngine implements Runnable {
 	private static final Logger logger = LoggerFactory.getLogger(PluginEngine.class);
+
+	private static final Counter indexHitCounter = MetricsRegistry.getRegistry().counter("plugins.indexHits");
+	private static final Counter jarReadCounter = MetricsRegistry.getRegistry().counter("plugins.jarsRead");
+
 	private final Path pluginDir;
 	private final PluginListener pluginListener;
 	private final PathMatcher jarMatcher = FileSystems.getDefault().getPathMatcher("glob:*.jar");
 	private final WatchService watcher = FileSystems.getDefault().newWatchService();
 	private final Set<Plugin> plugins = new HashSet<>();
+	private final PluginIndex index;
 
 	private final AtomicBoolean watching = new AtomicBoolean(false);
 
 	public PluginEngine(final PluginListener pluginListener) throws IOException {
+		this(pluginListener, new PluginIndex(getIndexFile()));
+	}
+
+	PluginEngine(final PluginListener pluginListener, final PluginIndex index) throws IOException {
 		if (pluginListener == null) {
 			throw new IllegalArgumentException("pluginListener cannot be null");
 		}
 
 		pluginDir = Paths.get(System.getProperty("shootoff.plugins"));
 		this.pluginListener = pluginListener;
+		this.index = index;
 
 		if (!Files.exists(pluginDir) && !pluginDir.toFile().mkdirs()) {
 			logger.error("The path specified by shootoff.plugins doesn't exist and we couldn't create it.");
@@ -91,30 +105,47 @@ public class PluginEngine implements Runnable {
 		pluginDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
 	}
 
+	private static Optional<File> getIndexFile() {
+		final String home = System.getProperty("shootoff.home");
+
+		if (home == null) return Optional.empty();
+
+		return Optional.of(new File(home, PluginIndex.INDEX_FILE));
+	}
+
 	private void registerDefaultStandardTrainingExercises() {
-		pluginListener.registerExercise(new ISSFStandardPistol());
-		pluginListener.registerExercise(new RandomShoot());
-		pluginListener.registerExercise(new ShootForScore());
-		pluginListener.registerExercise(new TimedHolsterDrill());
-		pluginListener.registerExercise(new ParForScore());
-		pluginListener.registerExercise(new ParRandomShot());
+		pluginListener.registerExercise(ExerciseDescriptor.of(new ISSFStandardPistol()));
+		pluginListener.registerExercise(ExerciseDescriptor.of(new RandomShoot()));
+		pluginListener.registerExercise(ExerciseDescriptor.of(new ShootForScore()));
+		pluginListener.registerExercise(ExerciseDescriptor.of(new TimedHolsterDrill()));
+		pluginListener.registerExercise(ExerciseDescriptor.of(new ParForScore()));
+		pluginListener.registerExercise(ExerciseDescriptor.of(new ParRandomShot()));
 	}
 
 	private void registerDefaultProjectorExercises() {
-		pluginListener.registerProjectorExercise(new BouncingTargets());
-		pluginListener.registerProjectorExercise(new DuelingTree());
-		pluginListener.registerProjectorExercise(new ShootDontShoot());
-		pluginListener.registerProjectorExercise(new SteelChallenge());
+		pluginListener.registerProjectorExercise(ExerciseDescriptor.of(new BouncingTargets()));
+		pluginListener.registerProjectorExercise(ExerciseDescriptor.of(new DuelingTree()));
+		pluginListener.registerProjectorExercise(ExerciseDescriptor.of(new ShootDontShoot()));
+		pluginListener.registerProjectorExercise(ExerciseDescriptor.of(new SteelChallenge()));
 	}
 
 	private boolean registerPlugin(final Path jarPath) {
+		final Optional<Plugin> indexedPlugin = index.getPlugin(jarPath);
 		final Plugin registeringPlugin;
 
-		try {
-			registeringPlugin = new Plugin(jarPath);
-		} catch (final Exception e) {
-			logger.error("Error creating new plugin", e);
-			return false;
+		if (indexedPlugin.isPresent()) {
+			registeringPlugin = indexedPlugin.get();
+			indexHitCounter.increment();
+		} else {
+			try {
+				registeringPlugin = new Plugin(jarPath);
+			} catch (final Exception e) {
+				logger.error("Error creating new plugin", e);
+				return false;
+			}
+
+			index.put(registeringPlugin);
+			jarReadCounter.increment();
 		}
 
 		// If the plugin already exists and the new plugin is newer,
@@ -125,11 +156,11 @@ public class PluginEngine implements Runnable {
 		if (existingPlugin.isPresent()) {
 			final Plugin existing = existingPlugin.get();
 
-			final ExerciseMetadata existingMetadata = existing.getExercise().getInfo();
-			final ExerciseMetadata registeringMetadata = registeringPlugin.getExercise().getInfo();
+			final ExerciseMetadata existingMetadata = existing.getMetadata();
+			final ExerciseMetadata registeringMetadata = registeringPlugin.getMetadata();
 
-			final String existingVersion = existing.getExercise().getInfo().getVersion();
-			final String loadedVersion = registeringPlugin.getExercise().getInfo().getVersion();
+			final String existingVersion = existingMetadata.getVersion();
+			final String loadedVersion = registeringMetadata.getVersion();
 			if (VersionChecker.compareVersions(existingVersion, loadedVersion) == -1) {
 				// Existing is older
 				logger.debug("Registering plugin ({}, {}, {}, {}) is a newer duplicate of an " +
@@ -153,9 +184,9 @@ public class PluginEngine implements Runnable {
 
 		if (plugins.add(registeringPlugin)) {
 			if (PluginType.STANDARD.equals(registeringPlugin.getType())) {
-				pluginListener.registerExercise(registeringPlugin.getExercise());
+				pluginListener.registerExercise(registeringPlugin.getDescriptor());
 			} else if (PluginType.PROJECTOR_ONLY.equals(registeringPlugin.getType())) {
-				pluginListener.registerProjectorExercise(registeringPlugin.getExercise());
+				pluginListener.registerProjectorExercise(registeringPlugin.getDescriptor());
 			}
 		}
 
@@ -163,26 +194,37 @@ public class PluginEngine implements Runnable {
 	}
 
 	private void unregisterPlugin(Plugin plugin) {
-		pluginListener.unregisterExercise(plugin.getExercise());
+		pluginListener.unregisterExercise(plugin.getDescriptor());
 		plugins.remove(plugin);
+
+		// Templates can only have come from the plugin if its classes were
+		// loaded
+		if (plugin.isLoaded()) TargetTemplateCache.getCache().invalidate(plugin.getLoader());
 	}
 
 	private void enumerateExistingPlugins() {
+		final Set<Path> jarPaths = new HashSet<>();
+
 		try {
 			Files.walk(pluginDir).forEach(filePath -> {
 				if (Files.isRegularFile(filePath) && jarMatcher.matches(filePath.getFileName())) {
+					jarPaths.add(filePath);
 					registerPlugin(filePath);
 				}
 			});
 		} catch (final IOException e) {
 			logger.error("Error enumerating existing external plugins", e);
+			return;
 		}
+
+		index.retain(jarPaths);
+		index.store();
 	}
 
 	private Optional<Plugin> findPlugin(Plugin plugin) {
 		for (final Plugin p : plugins) {
-			final ExerciseMetadata existingMetadata = p.getExercise().getInfo();
-			final ExerciseMetadata newMetadata = plugin.getExercise().getInfo();
+			final ExerciseMetadata existingMetadata = p.getMetadata();
+			final ExerciseMetadata newMetadata = plugin.getMetadata();
 
 			// Plugins are considered to be the same if they have the
 			// same name and creator
@@ -201,7 +243,7 @@ public class PluginEngine implements Runnable {
 
 	public Optional<Plugin> getPlugin(TrainingExercise trainingExercise) {
 		for (final Plugin p : plugins) {
-			if (p.getExercise().getInfo().equals(trainingExercise.getInfo())) return Optional.of(p);
+			if (p.getMetadata().equals(trainingExercise.getInfo())) return Optional.of(p);
 		}
 
 		return Optional.empty();
@@ -255,7 +297,10 @@ public class PluginEngine implements Runnable {
 				final Path fqUpdatedFile = pluginDir.resolve(updatedFile);
 
 				if (StandardWatchEventKinds.ENTRY_CREATE.equals(event.kind())) {
-					if (!registerPlugin(fqUpdatedFile)) continue;
+					final boolean registered = registerPlugin(fqUpdatedFile);
+					index.store();
+
+					if (!registered) continue;
 				} else if (StandardWatchEventKinds.ENTRY_DELETE.equals(event.kind())) {
 					Optional<Plugin> deletedPlugin = Optional.empty();
 
@@ -269,6 +314,9 @@ public class PluginEngine implements Runnable {
 					if (deletedPlugin.isPresent()) {
 						unregisterPlugin(deletedPlugin.get());
 					}
+
+					index.remove(fqUpdatedFile);
+					index.store();
 				} else {
 					logger.warn("Unexpected plugin watcher event {}", event.kind().toString());
 				}
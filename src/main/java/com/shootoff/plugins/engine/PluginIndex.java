@@ -0,0 +1,270 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.plugins.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.plugins.ExerciseMetadata;
+
+/**
+ * Remembers what each plugin jar contains so that plugins can be listed
+ * without opening their jars or loading their classes. An entry is trusted
+ * while the jar's size and modification time are unchanged, otherwise the
+ * jar's hash decides whether the jar has to be read again.
+ */
+public class PluginIndex {
+	private static final Logger logger = LoggerFactory.getLogger(PluginIndex.class);
+
+	public static final String INDEX_FILE = "plugins.index";
+
+	// Bump when the format changes to ignore existing indexes
+	private static final int INDEX_VERSION = 1;
+
+	private static final String VERSION_PROP = "version";
+	private static final String COUNT_PROP = "count";
+	private static final String JAR_PROP = ".jar";
+	private static final String SIZE_PROP = ".size";
+	private static final String LAST_MODIFIED_PROP = ".lastModified";
+	private static final String HASH_PROP = ".hash";
+	private static final String EXERCISE_CLASS_PROP = ".exerciseClass";
+	private static final String TYPE_PROP = ".type";
+	private static final String NAME_PROP = ".name";
+	private static final String EXERCISE_VERSION_PROP = ".exerciseVersion";
+	private static final String CREATOR_PROP = ".creator";
+	private static final String DESCRIPTION_PROP = ".description";
+
+	private static class Entry {
+		private long size;
+		private long lastModified;
+		private final String hash;
+		private final String exerciseClassName;
+		private final PluginType type;
+		private final ExerciseMetadata metadata;
+
+		public Entry(long size, long lastModified, String hash, String exerciseClassName, PluginType type,
+				ExerciseMetadata metadata) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.exerciseClassName = exerciseClassName;
+			this.type = type;
+			this.metadata = metadata;
+		}
+	}
+
+	private final Optional<File> indexFile;
+	private final Map<Path, Entry> entries = new HashMap<>();
+	private boolean isModified = false;
+
+	/**
+	 * @param indexFile
+	 *            where the index is persisted, or empty to only keep it in
+	 *            memory
+	 */
+	public PluginIndex(Optional<File> indexFile) {
+		this.indexFile = indexFile;
+
+		if (indexFile.isPresent() && indexFile.get().isFile()) {
+			try {
+				load(indexFile.get());
+			} catch (final IOException | IllegalArgumentException e) {
+				logger.warn("Ignoring unreadable plugin index {}", indexFile.get(), e);
+				entries.clear();
+			}
+		}
+	}
+
+	private void load(File file) throws IOException {
+		final Properties properties = new Properties();
+
+		try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+			properties.load(inputStream);
+		}
+
+		if (!String.valueOf(INDEX_VERSION).equals(properties.getProperty(VERSION_PROP))) return;
+
+		final int count = Integer.parseInt(properties.getProperty(COUNT_PROP, "0"));
+
+		for (int i = 0; i < count; i++) {
+			final String key = String.valueOf(i);
+			final String jar = properties.getProperty(key + JAR_PROP);
+			final String size = properties.getProperty(key + SIZE_PROP);
+			final String lastModified = properties.getProperty(key + LAST_MODIFIED_PROP);
+			final String hash = properties.getProperty(key + HASH_PROP);
+			final String exerciseClassName = properties.getProperty(key + EXERCISE_CLASS_PROP);
+			final String type = properties.getProperty(key + TYPE_PROP);
+			final String name = properties.getProperty(key + NAME_PROP);
+			final String version = properties.getProperty(key + EXERCISE_VERSION_PROP);
+			final String creator = properties.getProperty(key + CREATOR_PROP);
+			final String description = properties.getProperty(key + DESCRIPTION_PROP);
+
+			if (jar == null || size == null || lastModified == null || hash == null || exerciseClassName == null
+					|| type == null || name == null || version == null || creator == null || description == null) {
+				logger.warn("Ignoring incomplete plugin index entry {}", i);
+				continue;
+			}
+
+			entries.put(Paths.get(jar),
+					new Entry(Long.parseLong(size), Long.parseLong(lastModified), hash, exerciseClassName,
+							PluginType.valueOf(type), new ExerciseMetadata(name, version, creator, description)));
+		}
+	}
+
+	/**
+	 * @return the plugin in <code>jarPath</code> if the jar was indexed and
+	 *         hasn't changed since
+	 */
+	public synchronized Optional<Plugin> getPlugin(Path jarPath) {
+		final Entry entry = entries.get(jarPath);
+
+		if (entry == null) return Optional.empty();
+
+		try {
+			final long size = Files.size(jarPath);
+			final long lastModified = Files.getLastModifiedTime(jarPath).toMillis();
+
+			if (size != entry.size || lastModified != entry.lastModified) {
+				// The jar was touched or copied, it only needs to be read
+				// again if its contents changed
+				if (!hash(jarPath).equals(entry.hash)) {
+					entries.remove(jarPath);
+					isModified = true;
+					return Optional.empty();
+				}
+
+				entry.size = size;
+				entry.lastModified = lastModified;
+				isModified = true;
+			}
+		} catch (final IOException e) {
+			logger.warn("Error checking indexed plugin {}", jarPath, e);
+			return Optional.empty();
+		}
+
+		return Optional.of(new Plugin(jarPath, entry.exerciseClassName, entry.type, entry.metadata));
+	}
+
+	public synchronized void put(Plugin plugin) {
+		final ExerciseMetadata metadata = plugin.getMetadata();
+
+		// Properties can't hold missing values
+		if (plugin.getType() == null || metadata.getName() == null || metadata.getVersion() == null
+				|| metadata.getCreator() == null || metadata.getDescription() == null) {
+			return;
+		}
+
+		try {
+			final Path jarPath = plugin.getJarPath();
+			entries.put(jarPath, new Entry(Files.size(jarPath), Files.getLastModifiedTime(jarPath).toMillis(),
+					hash(jarPath), plugin.getExerciseClassName(), plugin.getType(), metadata));
+			isModified = true;
+		} catch (final IOException e) {
+			logger.warn("Error indexing plugin {}", plugin.getJarPath(), e);
+		}
+	}
+
+	public synchronized void remove(Path jarPath) {
+		if (entries.remove(jarPath) != null) isModified = true;
+	}
+
+	/**
+	 * Remove entries for jars that are no longer installed.
+	 */
+	public synchronized void retain(Collection<Path> jarPaths) {
+		if (entries.keySet().retainAll(jarPaths)) isModified = true;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Write the index if it changed since it was loaded or last stored.
+	 */
+	public synchronized void store() {
+		if (!isModified || !indexFile.isPresent()) return;
+
+		final Properties properties = new Properties();
+		properties.setProperty(VERSION_PROP, String.valueOf(INDEX_VERSION));
+		properties.setProperty(COUNT_PROP, String.valueOf(entries.size()));
+
+		int i = 0;
+		for (final Map.Entry<Path, Entry> indexed : entries.entrySet()) {
+			final String key = String.valueOf(i++);
+			final Entry entry = indexed.getValue();
+
+			properties.setProperty(key + JAR_PROP, indexed.getKey().toString());
+			properties.setProperty(key + SIZE_PROP, String.valueOf(entry.size));
+			properties.setProperty(key + LAST_MODIFIED_PROP, String.valueOf(entry.lastModified));
+			properties.setProperty(key + HASH_PROP, entry.hash);
+			properties.setProperty(key + EXERCISE_CLASS_PROP, entry.exerciseClassName);
+			properties.setProperty(key + TYPE_PROP, entry.type.name());
+			properties.setProperty(key + NAME_PROP, entry.metadata.getName());
+			properties.setProperty(key + EXERCISE_VERSION_PROP, entry.metadata.getVersion());
+			properties.setProperty(key + CREATOR_PROP, entry.metadata.getCreator());
+			properties.setProperty(key + DESCRIPTION_PROP, entry.metadata.getDescription());
+		}
+
+		try (OutputStream outputStream = Files.newOutputStream(indexFile.get().toPath())) {
+			properties.store(outputStream, "ShootOFF Plugin Index");
+			isModified = false;
+		} catch (final IOException e) {
+			logger.warn("Error storing plugin index {}", indexFile.get(), e);
+		}
+	}
+
+	static String hash(Path jarPath) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+
+		final byte[] buffer = new byte[8192];
+		try (InputStream inputStream = Files.newInputStream(jarPath)) {
+			int read;
+			while ((read = inputStream.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		}
+
+		final StringBuilder hash = new StringBuilder();
+		for (final byte b : digest.digest()) {
+			hash.append(String.format("%02x", b));
+		}
+
+		return hash.toString();
+	}
+}
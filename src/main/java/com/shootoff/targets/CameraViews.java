@@ -3,9 +3,8 @@ package com.shootoff.targets;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
 import com.shootoff.gui.CanvasManager;
-import com.shootoff.gui.ShotEntry;
+import com.shootoff.gui.ShotTimerModel;
 
-import javafx.collections.ObservableList;
 import javafx.scene.Node;
 import javafx.scene.layout.Pane;
 
@@ -42,5 +41,5 @@ public interface CameraViews {
 
 	void selectCameraView(CameraView cameraView);
 
-	ObservableList<ShotEntry> getShotTimerModel();
+	ShotTimerModel getShotTimerModel();
 }
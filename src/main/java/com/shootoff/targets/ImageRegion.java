@@ -48,13 +48,15 @@ public class ImageRegion extends ImageView implements TargetRegion {
 	}
 
 	public ImageRegion(final double x, final double y, final File imageFile, final InputStream imageStream) {
-		super();
+		this(x, y, imageFile, new Image(imageStream));
+	}
+
+	public ImageRegion(final double x, final double y, final File imageFile, final Image image) {
+		super(image);
 
 		setLayoutX(x);
 		setLayoutY(y);
 		this.imageFile = imageFile;
-
-		setImage(new Image(imageStream));
 	}
 	
 	public ImageRegion(Image image) {
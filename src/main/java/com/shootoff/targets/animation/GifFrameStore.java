@@ -0,0 +1,232 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.targets.animation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
+
+/**
+ * Decodes each GIF once and hands the same {@link GifFrames} to every animation
+ * that plays it. Decoded and composited frames count against a soft memory
+ * budget. When it is exceeded, the least recently displayed GIFs release their
+ * composited frames and stop being shared, so new animations decode them
+ * again while existing animations keep working and re-composite on demand.
+ */
+public class GifFrameStore {
+	public static final long DEFAULT_MEMORY_BUDGET = 128L * 1024 * 1024;
+
+	private static final GifFrameStore store = new GifFrameStore(DEFAULT_MEMORY_BUDGET);
+
+	private static final Counter decodeCounter = MetricsRegistry.getRegistry().counter("animation.gifDecodes");
+	private static final Counter sharedCounter = MetricsRegistry.getRegistry().counter("animation.gifsShared");
+	private static final Counter evictionCounter = MetricsRegistry.getRegistry().counter("animation.gifsEvicted");
+
+	private final long memoryBudget;
+	private final Map<GifKey, SharedGif> shared = new HashMap<>();
+	private final LinkedHashMap<GifFrames, GifKey> recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+	private long usedMemory = 0;
+
+	private static class GifKey {
+		private final String path;
+		private final Optional<ClassLoader> loader;
+
+		GifKey(String path, Optional<ClassLoader> loader) {
+			this.path = path;
+			this.loader = loader;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof GifKey)) return false;
+
+			final GifKey other = (GifKey) o;
+			return path.equals(other.path) && loader.equals(other.loader);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, loader);
+		}
+	}
+
+	private static class SharedGif {
+		private final GifFrames frames;
+		private final long modified;
+
+		SharedGif(GifFrames frames, long modified) {
+			this.frames = frames;
+			this.modified = modified;
+		}
+	}
+
+	protected GifFrameStore(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public static GifFrameStore getStore() {
+		return store;
+	}
+
+	public GifFrames getFrames(File gifFile) throws IOException {
+		final GifKey key = new GifKey(gifFile.getAbsolutePath(), Optional.empty());
+		final long modified = gifFile.lastModified();
+
+		final Optional<GifFrames> cached = lookup(key, modified);
+		if (cached.isPresent()) return cached.get();
+
+		try (InputStream gifStream = new FileInputStream(gifFile)) {
+			return share(key, GifFrames.decode(gifStream), modified);
+		}
+	}
+
+	/**
+	 * Get the frames of a GIF that is a resource of a plugin.
+	 */
+	public GifFrames getFrames(String resourceName, ClassLoader loader) throws IOException {
+		final URL resource = loader.getResource(resourceName);
+		if (resource == null) throw new IOException("GIF resource does not exist: " + resourceName);
+
+		final GifKey key = new GifKey(resourceName, Optional.of(loader));
+		final long modified = resource.openConnection().getLastModified();
+
+		final Optional<GifFrames> cached = lookup(key, modified);
+		if (cached.isPresent()) return cached.get();
+
+		try (InputStream gifStream = resource.openStream()) {
+			return share(key, GifFrames.decode(gifStream), modified);
+		}
+	}
+
+	private synchronized Optional<GifFrames> lookup(GifKey key, long modified) {
+		final SharedGif cached = shared.get(key);
+
+		if (cached != null && cached.modified == modified) {
+			sharedCounter.increment();
+			return Optional.of(cached.frames);
+		}
+
+		return Optional.empty();
+	}
+
+	private GifFrames share(GifKey key, GifFrames frames, long modified) {
+		decodeCounter.increment();
+		frames.setStore(this);
+
+		synchronized (this) {
+			// A GIF that changed on disk is no longer shared, but animations
+			// still using it keep counting against the budget
+			final SharedGif replaced = shared.put(key, new SharedGif(frames, modified));
+			if (replaced != null && recentlyUsed.containsKey(replaced.frames)) {
+				recentlyUsed.put(replaced.frames, null);
+				usedMemory -= replaced.frames.getRawSize();
+			}
+
+			recentlyUsed.put(frames, key);
+			usedMemory += frames.getRawSize();
+		}
+
+		frameUsed(frames, 0);
+
+		return frames;
+	}
+
+	/**
+	 * Note that a GIF's frame was displayed and how many bytes of frames were
+	 * composited to display it, releasing other GIFs if the memory budget is
+	 * exceeded.
+	 */
+	void frameUsed(GifFrames frames, long compositedSize) {
+		final List<GifFrames> evicted = new ArrayList<>();
+
+		synchronized (this) {
+			usedMemory += compositedSize;
+
+			// GIFs that were evicted but are still displayed are tracked
+			// again, they just aren't shared anymore
+			if (recentlyUsed.containsKey(frames)) {
+				recentlyUsed.get(frames);
+			} else {
+				recentlyUsed.put(frames, null);
+			}
+
+			long expectedMemory = usedMemory;
+			final Iterator<Map.Entry<GifFrames, GifKey>> it = recentlyUsed.entrySet().iterator();
+			while (expectedMemory > memoryBudget && it.hasNext()) {
+				final Map.Entry<GifFrames, GifKey> eldest = it.next();
+				final GifFrames gif = eldest.getKey();
+				if (gif == frames) continue;
+
+				if (eldest.getValue() != null) {
+					shared.remove(eldest.getValue());
+					usedMemory -= gif.getRawSize();
+					expectedMemory -= gif.getRawSize();
+				}
+
+				expectedMemory -= gif.getCompositedSize();
+				evicted.add(gif);
+				it.remove();
+			}
+		}
+
+		// Released outside of the store's lock so a GIF that is busy
+		// compositing doesn't block every other GIF
+		for (final GifFrames gif : evicted) {
+			final long released = gif.releaseCompositedFrames();
+			evictionCounter.increment();
+
+			synchronized (this) {
+				usedMemory -= released;
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		shared.clear();
+		recentlyUsed.clear();
+		usedMemory = 0;
+	}
+
+	// For testing
+	synchronized long getUsedMemory() {
+		return usedMemory;
+	}
+
+	// For testing
+	synchronized boolean isShared(GifFrames frames) {
+		for (final SharedGif gif : shared.values()) {
+			if (gif.frames == frames) return true;
+		}
+
+		return false;
+	}
+}
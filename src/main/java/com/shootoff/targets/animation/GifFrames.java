@@ -0,0 +1,312 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.targets.animation;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
+import com.shootoff.util.SwingFXUtils;
+
+import javafx.scene.image.Image;
+
+/**
+ * The frames of one GIF, shared by every animation that plays it. Only the
+ * frames as they are stored in the GIF are decoded up front. Each frame is
+ * composited onto the frames before it the first time it is displayed, and the
+ * composited frames can be released to save memory and composited again later.
+ */
+public final class GifFrames {
+	private static final Counter compositedFrameCounter = MetricsRegistry.getRegistry()
+			.counter("animation.framesComposited");
+
+	private static final String RESTORE_TO_PREVIOUS = "restoreToPrevious";
+	private static final String RESTORE_TO_BACKGROUND = "restoreToBackgroundColor";
+
+	private final int width;
+	private final int height;
+	private final BufferedImage[] rawFrames;
+	private final int[] frameX;
+	private final int[] frameY;
+	private final int[] delays;
+	private final String[] disposals;
+	private final long rawSize;
+	private final ImageFrame[] imageFrames;
+
+	private final Image[] composited;
+	private int compositedCount = 0;
+	private BufferedImage master;
+	private Graphics2D masterGraphics;
+
+	private Optional<GifFrameStore> store = Optional.empty();
+
+	private GifFrames(int width, int height, List<BufferedImage> rawFrames, List<Integer> frameX,
+			List<Integer> frameY, List<Integer> delays, List<String> disposals) {
+		this.width = width;
+		this.height = height;
+		this.rawFrames = rawFrames.toArray(new BufferedImage[rawFrames.size()]);
+		this.frameX = toArray(frameX);
+		this.frameY = toArray(frameY);
+		this.delays = toArray(delays);
+		this.disposals = disposals.toArray(new String[disposals.size()]);
+
+		long size = 0;
+		for (final BufferedImage raw : this.rawFrames)
+			size += (long) raw.getWidth() * raw.getHeight() * Math.max(1, raw.getColorModel().getPixelSize() / 8);
+		rawSize = size;
+
+		composited = new Image[this.rawFrames.length];
+
+		imageFrames = new ImageFrame[this.rawFrames.length];
+		for (int i = 0; i < imageFrames.length; i++)
+			imageFrames[i] = new ImageFrame(this, i);
+	}
+
+	private static int[] toArray(List<Integer> values) {
+		final int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = values.get(i);
+		return array;
+	}
+
+	void setStore(GifFrameStore store) {
+		this.store = Optional.of(store);
+	}
+
+	/**
+	 * Decode the frames of a GIF without compositing them.
+	 */
+	// Frame layout handling is from http://stackoverflow.com/a/17269591
+	public static GifFrames decode(InputStream stream) throws IOException {
+		final List<BufferedImage> rawFrames = new ArrayList<>();
+		final List<Integer> frameX = new ArrayList<>();
+		final List<Integer> frameY = new ArrayList<>();
+		final List<Integer> delays = new ArrayList<>();
+		final List<String> disposals = new ArrayList<>();
+
+		int width = -1;
+		int height = -1;
+
+		final ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+
+		try {
+			reader.setInput(ImageIO.createImageInputStream(stream));
+			final IIOMetadata metadata = reader.getStreamMetadata();
+			if (metadata != null) {
+				final IIOMetadataNode globalRoot = (IIOMetadataNode) metadata
+						.getAsTree(metadata.getNativeMetadataFormatName());
+
+				final NodeList globalScreenDescriptor = globalRoot.getElementsByTagName("LogicalScreenDescriptor");
+
+				if (globalScreenDescriptor.getLength() > 0) {
+					final IIOMetadataNode screenDescriptor = (IIOMetadataNode) globalScreenDescriptor.item(0);
+
+					if (screenDescriptor != null) {
+						width = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenWidth"));
+						height = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenHeight"));
+					}
+				}
+			}
+
+			for (int frameIndex = 0;; frameIndex++) {
+				BufferedImage image;
+				try {
+					image = reader.read(frameIndex);
+				} catch (final IndexOutOfBoundsException io) {
+					break;
+				}
+
+				if (width == -1 || height == -1) {
+					width = image.getWidth();
+					height = image.getHeight();
+				}
+
+				final IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(frameIndex)
+						.getAsTree("javax_imageio_gif_image_1.0");
+				final IIOMetadataNode gce = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension")
+						.item(0);
+
+				int x = 0;
+				int y = 0;
+
+				final NodeList children = root.getChildNodes();
+				for (int nodeIndex = 0; nodeIndex < children.getLength(); nodeIndex++) {
+					final Node nodeItem = children.item(nodeIndex);
+					if (nodeItem.getNodeName().equals("ImageDescriptor")) {
+						final NamedNodeMap map = nodeItem.getAttributes();
+						x = Integer.parseInt(map.getNamedItem("imageLeftPosition").getNodeValue());
+						y = Integer.parseInt(map.getNamedItem("imageTopPosition").getNodeValue());
+					}
+				}
+
+				rawFrames.add(image);
+				frameX.add(x);
+				frameY.add(y);
+
+				if (gce != null) {
+					delays.add(Integer.parseInt(gce.getAttribute("delayTime")) * 10);
+					disposals.add(gce.getAttribute("disposalMethod"));
+				} else {
+					delays.add(-1);
+					disposals.add("none");
+				}
+			}
+		} finally {
+			reader.dispose();
+		}
+
+		if (rawFrames.isEmpty()) throw new IOException("GIF does not contain any frames");
+
+		return new GifFrames(width, height, rawFrames, frameX, frameY, delays, disposals);
+	}
+
+	public int getFrameCount() {
+		return rawFrames.length;
+	}
+
+	public int getDelay(int frameNumber) {
+		return delays[frameNumber];
+	}
+
+	public String getDisposal(int frameNumber) {
+		return disposals[frameNumber];
+	}
+
+	/**
+	 * @return frames that share this GIF's decoded data, suitable for a
+	 *         {@link SpriteAnimation}
+	 */
+	public ImageFrame[] getImageFrames() {
+		return imageFrames.clone();
+	}
+
+	/**
+	 * Get a frame as it should be displayed, compositing it and any frames
+	 * before it that have not been composited yet.
+	 */
+	public Image getImage(int frameNumber) {
+		final Image image;
+		final long compositedSize;
+
+		synchronized (this) {
+			final int before = compositedCount;
+
+			while (composited[frameNumber] == null)
+				compositeNextFrame();
+
+			image = composited[frameNumber];
+			compositedSize = (compositedCount - before) * getFrameSize();
+		}
+
+		// Called outside of the lock because the store may release other
+		// GIFs' frames
+		if (store.isPresent()) store.get().frameUsed(this, compositedSize);
+
+		return image;
+	}
+
+	private void compositeNextFrame() {
+		final int frameNumber = compositedCount;
+
+		if (master == null) {
+			master = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			masterGraphics = master.createGraphics();
+			masterGraphics.setBackground(new Color(0, 0, 0, 0));
+		}
+
+		final boolean restoreToPrevious = RESTORE_TO_PREVIOUS.equals(disposals[frameNumber]);
+		final BufferedImage previous = restoreToPrevious ? new BufferedImage(master.getColorModel(),
+				master.copyData(null), master.isAlphaPremultiplied(), null) : null;
+
+		masterGraphics.drawImage(rawFrames[frameNumber], frameX[frameNumber], frameY[frameNumber], null);
+		composited[frameNumber] = SwingFXUtils.toFXImage(master, null);
+		compositedCount++;
+		compositedFrameCounter.increment();
+
+		if (restoreToPrevious) {
+			masterGraphics.dispose();
+			master = previous;
+			masterGraphics = master.createGraphics();
+			masterGraphics.setBackground(new Color(0, 0, 0, 0));
+		} else if (RESTORE_TO_BACKGROUND.equals(disposals[frameNumber])) {
+			masterGraphics.clearRect(frameX[frameNumber], frameY[frameNumber], rawFrames[frameNumber].getWidth(),
+					rawFrames[frameNumber].getHeight());
+		}
+
+		// The working image is only needed until the last frame is composited
+		if (compositedCount == composited.length) {
+			masterGraphics.dispose();
+			masterGraphics = null;
+			master = null;
+		}
+	}
+
+	/**
+	 * Drop every composited frame. They are composited again the next time
+	 * they are displayed.
+	 * 
+	 * @return how many bytes were released
+	 */
+	synchronized long releaseCompositedFrames() {
+		final long released = compositedCount * getFrameSize();
+
+		for (int i = 0; i < composited.length; i++)
+			composited[i] = null;
+
+		compositedCount = 0;
+
+		if (masterGraphics != null) masterGraphics.dispose();
+		masterGraphics = null;
+		master = null;
+
+		return released;
+	}
+
+	synchronized int getCompositedFrameCount() {
+		return compositedCount;
+	}
+
+	synchronized long getCompositedSize() {
+		return compositedCount * getFrameSize();
+	}
+
+	private long getFrameSize() {
+		return (long) width * height * 4;
+	}
+
+	long getRawSize() {
+		return rawSize;
+	}
+}
@@ -29,11 +29,17 @@ public class ImageFrame {
 	private final Image image;
 	private final String disposal;
 
+	// Set for frames of a shared GIF, which are composited when first shown
+	private final GifFrames gifFrames;
+	private final int frameNumber;
+
 	public ImageFrame(BufferedImage image, int delay, String disposal) {
 		bufferedImage = image;
 		this.image = SwingFXUtils.toFXImage(image, null);
 		this.delay = delay;
 		this.disposal = disposal;
+		gifFrames = null;
+		frameNumber = -1;
 	}
 
 	public ImageFrame(BufferedImage image) {
@@ -41,13 +47,28 @@ public class ImageFrame {
 		this.image = SwingFXUtils.toFXImage(image, null);
 		delay = -1;
 		disposal = null;
+		gifFrames = null;
+		frameNumber = -1;
+	}
+
+	ImageFrame(GifFrames gifFrames, int frameNumber) {
+		bufferedImage = null;
+		image = null;
+		delay = gifFrames.getDelay(frameNumber);
+		disposal = gifFrames.getDisposal(frameNumber);
+		this.gifFrames = gifFrames;
+		this.frameNumber = frameNumber;
 	}
 
 	public BufferedImage getBufferedImage() {
+		if (gifFrames != null) return SwingFXUtils.fromFXImage(getImage(), null);
+
 		return bufferedImage;
 	}
 
 	public Image getImage() {
+		if (gifFrames != null) return gifFrames.getImage(frameNumber);
+
 		return image;
 	}
 
@@ -21,6 +21,7 @@ package com.shootoff.targets.io;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -129,6 +130,7 @@ public class TargetIO {
 		}
 
 		visitor.visitEnd(targetTags);
+		TargetTemplateCache.getCache().invalidate(targetFile);
 	}
 
 	public static Optional<TargetComponents> loadTarget(final File targetFile) {
@@ -141,16 +143,30 @@ public class TargetIO {
 	}
 
 	public static Optional<TargetComponents> loadTarget(final File targetFile, boolean playAnimations) {
-		final TargetReader reader;
-
-		if (targetFile.getName().endsWith("target")) {
-			reader = new XMLTargetReader(targetFile, playAnimations);
-		} else {
+		if (!targetFile.getName().endsWith("target")) {
 			logger.error("Unknown target file type.");
 			return Optional.empty();
 		}
 
-		return Optional.of(new TargetComponents(processVisualTags(reader.getTargetNodes()), reader.getTargetTags()));
+		final Optional<TargetTemplate> template = TargetTemplateCache.getCache().getTemplate(targetFile);
+		if (!template.isPresent()) return Optional.empty();
+
+		return Optional.of(createComponents(template.get(), playAnimations));
+	}
+
+	// Used for loading targets that are resources of a plugin, the template
+	// is cached per plugin class loader
+	public static Optional<TargetComponents> loadTarget(final String resourceName, boolean playAnimations,
+			final ClassLoader loader) {
+		final Optional<TargetTemplate> template = TargetTemplateCache.getCache().getTemplate(resourceName, loader);
+		if (!template.isPresent()) return Optional.empty();
+
+		return Optional.of(createComponents(template.get(), playAnimations));
+	}
+
+	private static TargetComponents createComponents(TargetTemplate template, boolean playAnimations) {
+		return new TargetComponents(processVisualTags(template.createRegions(playAnimations)),
+				new HashMap<>(template.getTargetTags()));
 	}
 
 	// Used for loading targets from resource files for modular exercises
@@ -0,0 +1,227 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.targets.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.shootoff.targets.EllipseRegion;
+import com.shootoff.targets.ImageRegion;
+import com.shootoff.targets.PolygonRegion;
+import com.shootoff.targets.RectangleRegion;
+import com.shootoff.targets.TargetRegion;
+import com.shootoff.targets.animation.GifAnimation;
+import com.shootoff.targets.animation.ImageFrame;
+import com.shootoff.targets.animation.SpriteAnimation;
+
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * An immutable, parsed target. Region geometry, tags, and decoded images are
+ * read once and new target nodes are created from them as often as needed.
+ * Decoded images and GIF frames are shared by every target created from the
+ * same template, which is safe because JavaFX images are immutable.
+ */
+public class TargetTemplate {
+	private final Map<String, String> targetTags;
+	private final List<RegionTemplate> regions;
+	private final Map<File, Long> sourceFiles;
+	private final long estimatedSize;
+
+	TargetTemplate(Map<String, String> targetTags, List<RegionTemplate> regions, Map<File, Long> sourceFiles) {
+		this.targetTags = Collections.unmodifiableMap(new HashMap<>(targetTags));
+		this.regions = Collections.unmodifiableList(new ArrayList<>(regions));
+		this.sourceFiles = Collections.unmodifiableMap(new HashMap<>(sourceFiles));
+
+		long size = 0;
+		for (final RegionTemplate region : regions)
+			size += region.getEstimatedSize();
+		estimatedSize = size;
+	}
+
+	public Map<String, String> getTargetTags() {
+		return targetTags;
+	}
+
+	/**
+	 * Create new region nodes for one instance of this target.
+	 * 
+	 * @param playAnimations
+	 *            <code>true</code> to play each animated image once
+	 */
+	public List<Node> createRegions(boolean playAnimations) {
+		final List<Node> nodes = new ArrayList<>(regions.size());
+
+		for (final RegionTemplate region : regions) {
+			final TargetRegion targetRegion = region.createRegion(playAnimations);
+			targetRegion.setTags(region.tags);
+			nodes.add((Node) targetRegion);
+		}
+
+		return nodes;
+	}
+
+	/**
+	 * @return <code>true</code> if a file this template was read from was
+	 *         changed or removed since it was read
+	 */
+	boolean isStale() {
+		for (final Map.Entry<File, Long> source : sourceFiles.entrySet()) {
+			if (source.getKey().lastModified() != source.getValue()) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return roughly how many bytes the decoded images of this template take
+	 */
+	long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	abstract static class RegionTemplate {
+		private final Map<String, String> tags;
+
+		protected RegionTemplate(Map<String, String> tags) {
+			this.tags = Collections.unmodifiableMap(new HashMap<>(tags));
+		}
+
+		abstract TargetRegion createRegion(boolean playAnimations);
+
+		long getEstimatedSize() {
+			return 0;
+		}
+	}
+
+	static class RectangleTemplate extends RegionTemplate {
+		private final double x, y, width, height;
+		private final Color fill;
+
+		RectangleTemplate(double x, double y, double width, double height, Color fill, Map<String, String> tags) {
+			super(tags);
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			this.fill = fill;
+		}
+
+		@Override
+		TargetRegion createRegion(boolean playAnimations) {
+			final RectangleRegion region = new RectangleRegion(x, y, width, height);
+			region.setFill(fill);
+			return region;
+		}
+	}
+
+	static class EllipseTemplate extends RegionTemplate {
+		private final double centerX, centerY, radiusX, radiusY;
+		private final Color fill;
+
+		EllipseTemplate(double centerX, double centerY, double radiusX, double radiusY, Color fill,
+				Map<String, String> tags) {
+			super(tags);
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.radiusX = radiusX;
+			this.radiusY = radiusY;
+			this.fill = fill;
+		}
+
+		@Override
+		TargetRegion createRegion(boolean playAnimations) {
+			final EllipseRegion region = new EllipseRegion(centerX, centerY, radiusX, radiusY);
+			region.setFill(fill);
+			return region;
+		}
+	}
+
+	static class PolygonTemplate extends RegionTemplate {
+		private final double[] points;
+		private final Color fill;
+
+		PolygonTemplate(double[] points, Color fill, Map<String, String> tags) {
+			super(tags);
+			this.points = points.clone();
+			this.fill = fill;
+		}
+
+		@Override
+		TargetRegion createRegion(boolean playAnimations) {
+			final PolygonRegion region = new PolygonRegion(points.clone());
+			region.setFill(fill);
+			return region;
+		}
+	}
+
+	static class ImageTemplate extends RegionTemplate {
+		private final double x, y;
+		private final File imageFile;
+		private final Image image;
+		private final Optional<ImageFrame[]> frames;
+
+		ImageTemplate(double x, double y, File imageFile, Image image, Optional<ImageFrame[]> frames,
+				Map<String, String> tags) {
+			super(tags);
+			this.x = x;
+			this.y = y;
+			this.imageFile = imageFile;
+			this.image = image;
+			this.frames = frames;
+		}
+
+		@Override
+		TargetRegion createRegion(boolean playAnimations) {
+			final ImageRegion region = new ImageRegion(x, y, imageFile, image);
+
+			if (frames.isPresent() && frames.get().length > 1) {
+				region.setAnimation(new GifAnimation(region, frames.get()));
+
+				if (playAnimations) {
+					final SpriteAnimation animation = region.getAnimation().get();
+					animation.setCycleCount(1);
+
+					animation.setOnFinished((e) -> {
+						animation.reset();
+						animation.setOnFinished(null);
+					});
+
+					animation.play();
+				}
+			}
+
+			return region;
+		}
+
+		// GIF frames are shared through the GifFrameStore, which has its own
+		// budget, so only the first frame is counted
+		@Override
+		long getEstimatedSize() {
+			return (long) (image.getWidth() * image.getHeight()) * 4;
+		}
+	}
+}
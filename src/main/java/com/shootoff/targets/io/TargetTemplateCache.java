@@ -0,0 +1,237 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.targets.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.metrics.Counter;
+import com.shootoff.metrics.MetricsRegistry;
+
+/**
+ * Keeps recently loaded {@link TargetTemplate}s so that loading the same target
+ * again, e.g. for every target in a course or for an exercise that adds many
+ * copies of one target, doesn't parse the target and decode its images again.
+ * Templates are keyed by the target's path and modification time (and the
+ * plugin class loader for targets that are plugin resources) and the least
+ * recently used templates are dropped once the decoded images of all cached
+ * templates exceed a memory budget.
+ */
+public class TargetTemplateCache {
+	private static final Logger logger = LoggerFactory.getLogger(TargetTemplateCache.class);
+
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+	private static final TargetTemplateCache cache = new TargetTemplateCache(DEFAULT_MEMORY_BUDGET);
+
+	private static final Counter hitCounter = MetricsRegistry.getRegistry().counter("targets.templateCacheHits");
+	private static final Counter missCounter = MetricsRegistry.getRegistry().counter("targets.templateCacheMisses");
+
+	private final long memoryBudget;
+	private final LinkedHashMap<TemplateKey, CachedTemplate> templates = new LinkedHashMap<>(16, 0.75f, true);
+	private long usedMemory = 0;
+
+	private static class TemplateKey {
+		private final String path;
+		private final Optional<ClassLoader> loader;
+
+		TemplateKey(String path, Optional<ClassLoader> loader) {
+			this.path = path;
+			this.loader = loader;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof TemplateKey)) return false;
+
+			final TemplateKey other = (TemplateKey) o;
+			return path.equals(other.path) && loader.equals(other.loader);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, loader);
+		}
+	}
+
+	private static class CachedTemplate {
+		private final TargetTemplate template;
+		private final long modified;
+
+		CachedTemplate(TargetTemplate template, long modified) {
+			this.template = template;
+			this.modified = modified;
+		}
+	}
+
+	protected TargetTemplateCache(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public static TargetTemplateCache getCache() {
+		return cache;
+	}
+
+	public Optional<TargetTemplate> getTemplate(File targetFile) {
+		final TemplateKey key = new TemplateKey(targetFile.getAbsolutePath(), Optional.empty());
+		final long modified = targetFile.lastModified();
+
+		final Optional<TargetTemplate> cached = lookup(key, modified);
+		if (cached.isPresent()) return cached;
+
+		if (!targetFile.isFile()) {
+			logger.error("Target file does not exist: {}", targetFile.getPath());
+			return Optional.empty();
+		}
+
+		final TargetTemplate template = new XMLTargetReader(targetFile, false).getTemplate();
+		store(key, template, modified);
+
+		return Optional.of(template);
+	}
+
+	/**
+	 * Get the template for a target that is a resource of a plugin.
+	 * 
+	 * @param resourceName
+	 *            the target's resource name, without the leading '@'
+	 * @param loader
+	 *            the plugin's class loader, which is also used to load the
+	 *            target's images
+	 */
+	public Optional<TargetTemplate> getTemplate(String resourceName, ClassLoader loader) {
+		final TemplateKey key = new TemplateKey(resourceName, Optional.of(loader));
+		final URL resource = loader.getResource(resourceName);
+
+		if (resource == null) {
+			logger.error("Target resource does not exist: {}", resourceName);
+			return Optional.empty();
+		}
+
+		long modified;
+		try {
+			modified = resource.openConnection().getLastModified();
+		} catch (final IOException e) {
+			modified = 0;
+		}
+
+		final Optional<TargetTemplate> cached = lookup(key, modified);
+		if (cached.isPresent()) return cached;
+
+		final TargetTemplate template;
+		try (InputStream targetStream = resource.openStream()) {
+			template = new XMLTargetReader(targetStream, false, loader).getTemplate();
+		} catch (final IOException e) {
+			logger.error("Error reading target resource {}", resourceName, e);
+			return Optional.empty();
+		}
+
+		store(key, template, modified);
+
+		return Optional.of(template);
+	}
+
+	private synchronized Optional<TargetTemplate> lookup(TemplateKey key, long modified) {
+		final CachedTemplate cached = templates.get(key);
+
+		if (cached != null) {
+			if (cached.modified == modified && !cached.template.isStale()) {
+				hitCounter.increment();
+				return Optional.of(cached.template);
+			}
+
+			remove(key);
+		}
+
+		missCounter.increment();
+		return Optional.empty();
+	}
+
+	private synchronized void store(TemplateKey key, TargetTemplate template, long modified) {
+		final long size = template.getEstimatedSize();
+
+		// A target this large would push everything else out
+		if (size > memoryBudget) return;
+
+		remove(key);
+
+		templates.put(key, new CachedTemplate(template, modified));
+		usedMemory += size;
+
+		final Iterator<Map.Entry<TemplateKey, CachedTemplate>> it = templates.entrySet().iterator();
+		while (usedMemory > memoryBudget && it.hasNext()) {
+			final Map.Entry<TemplateKey, CachedTemplate> eldest = it.next();
+			usedMemory -= eldest.getValue().template.getEstimatedSize();
+			it.remove();
+		}
+	}
+
+	private void remove(TemplateKey key) {
+		final CachedTemplate removed = templates.remove(key);
+		if (removed != null) usedMemory -= removed.template.getEstimatedSize();
+	}
+
+	/**
+	 * Drop the cached template for a target file, e.g. after the target was
+	 * saved by the target editor.
+	 */
+	public synchronized void invalidate(File targetFile) {
+		remove(new TemplateKey(targetFile.getAbsolutePath(), Optional.empty()));
+	}
+
+	/**
+	 * Drop every template that was loaded through a class loader, e.g. when the
+	 * plugin it belongs to is unloaded.
+	 */
+	public synchronized void invalidate(ClassLoader loader) {
+		final Iterator<Map.Entry<TemplateKey, CachedTemplate>> it = templates.entrySet().iterator();
+		while (it.hasNext()) {
+			final Map.Entry<TemplateKey, CachedTemplate> entry = it.next();
+			if (entry.getKey().loader.isPresent() && entry.getKey().loader.get() == loader) {
+				usedMemory -= entry.getValue().template.getEstimatedSize();
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		templates.clear();
+		usedMemory = 0;
+	}
+
+	// For testing
+	synchronized int size() {
+		return templates.size();
+	}
+
+	// For testing
+	synchronized long getUsedMemory() {
+		return usedMemory;
+	}
+}
@@ -40,29 +40,32 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.shootoff.gui.controller.TargetEditorController;
-import com.shootoff.targets.EllipseRegion;
-import com.shootoff.targets.ImageRegion;
-import com.shootoff.targets.PolygonRegion;
-import com.shootoff.targets.RectangleRegion;
-import com.shootoff.targets.TargetRegion;
-import com.shootoff.targets.animation.GifAnimation;
-import com.shootoff.targets.animation.SpriteAnimation;
+import com.shootoff.targets.animation.GifFrameStore;
+import com.shootoff.targets.animation.GifFrames;
+import com.shootoff.targets.animation.ImageFrame;
+import com.shootoff.targets.io.TargetTemplate.EllipseTemplate;
+import com.shootoff.targets.io.TargetTemplate.ImageTemplate;
+import com.shootoff.targets.io.TargetTemplate.PolygonTemplate;
+import com.shootoff.targets.io.TargetTemplate.RectangleTemplate;
+import com.shootoff.targets.io.TargetTemplate.RegionTemplate;
 
 import javafx.scene.Node;
+import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Shape;
 
 public class XMLTargetReader implements TargetReader {
 	private static final Logger logger = LoggerFactory.getLogger(XMLTargetReader.class);
 
-	private final List<Node> targetNodes = new ArrayList<>();
-	private final Map<String, String> targetTags = new HashMap<>();
 	private final boolean playAnimations;
 	private final Optional<ClassLoader> loader;
+	private final Map<File, Long> sourceFiles = new HashMap<>();
+	private TargetTemplate template = new TargetTemplate(new HashMap<>(), new ArrayList<>(), new HashMap<>());
+	private List<Node> targetNodes = null;
 
 	public XMLTargetReader(File targetFile, boolean playAnimations) {
 		this.playAnimations = playAnimations;
 		loader = Optional.empty();
+		sourceFiles.put(targetFile, targetFile.lastModified());
 
 		try (InputStream is = new FileInputStream(targetFile)) {
 			load(is);
@@ -85,12 +88,22 @@ public class XMLTargetReader implements TargetReader {
 
 	@Override
 	public List<Node> getTargetNodes() {
+		if (targetNodes == null) targetNodes = template.createRegions(playAnimations);
+
 		return targetNodes;
 	}
 
 	@Override
 	public Map<String, String> getTargetTags() {
-		return targetTags;
+		return new HashMap<>(template.getTargetTags());
+	}
+
+	/**
+	 * @return the parsed target that new target nodes can be created from
+	 *         without reading the target again
+	 */
+	public TargetTemplate getTemplate() {
+		return template;
 	}
 
 	private void load(InputStream targetStream) {
@@ -99,8 +112,7 @@ public class XMLTargetReader implements TargetReader {
 			final TargetXMLHandler handler = new TargetXMLHandler();
 			saxParser.parse(targetStream, handler);
 
-			targetNodes.addAll(handler.getRegions());
-			targetTags.putAll(handler.getTags());
+			template = new TargetTemplate(handler.getTags(), handler.getRegions(), sourceFiles);
 
 			return;
 		} catch (IOException | ParserConfigurationException | SAXException e) {
@@ -116,15 +128,38 @@ public class XMLTargetReader implements TargetReader {
 		}
 	}
 
+	private InputStream openImage(File savedFile, File imageFile) throws FileNotFoundException {
+		if ('@' == savedFile.toString().charAt(0) && loader.isPresent()) {
+			final InputStream imageStream = loader.get()
+					.getResourceAsStream(savedFile.toString().substring(1).replace("\\", "/"));
+			if (imageStream != null) return imageStream;
+		}
+
+		final InputStream imageStream = new FileInputStream(imageFile);
+		sourceFiles.put(imageFile, imageFile.lastModified());
+		return imageStream;
+	}
+
+	private GifFrames getGifFrames(File savedFile, File imageFile) throws IOException {
+		if ('@' == savedFile.toString().charAt(0) && loader.isPresent()) {
+			final String resourceName = savedFile.toString().substring(1).replace("\\", "/");
+			if (loader.get().getResource(resourceName) != null)
+				return GifFrameStore.getStore().getFrames(resourceName, loader.get());
+		}
+
+		sourceFiles.put(imageFile, imageFile.lastModified());
+		return GifFrameStore.getStore().getFrames(imageFile);
+	}
+
 	private class TargetXMLHandler extends DefaultHandler {
 		private final Map<String, String> targetTags = new HashMap<>();
-		private final List<Node> regions = new ArrayList<>();
-		private TargetRegion currentRegion;
+		private final List<RegionTemplate> regions = new ArrayList<>();
+		private Optional<RegionFactory> currentRegion = Optional.empty();
 		private List<Double> polygonPoints = null;
 		private Color polygonFill = null;
 		private Map<String, String> currentTags;
 
-		public List<Node> getRegions() {
+		public List<RegionTemplate> getRegions() {
 			return regions;
 		}
 
@@ -148,16 +183,12 @@ public class XMLTargetReader implements TargetReader {
 
 				break;
 
-			case "image":
+			case "image": {
 				currentTags = new HashMap<>();
+				currentRegion = Optional.empty();
 
 				final File savedFile = new File(attributes.getValue("file"));
 
-				InputStream imageStream = null;
-				if ('@' == savedFile.toString().charAt(0) && loader.isPresent()) {
-					imageStream = loader.get().getResourceAsStream(savedFile.toString().substring(1).replace("\\", "/"));
-				}
-
 				File imageFile;
 				if (savedFile.isAbsolute() || '@' == savedFile.toString().charAt(0)) {
 					imageFile = savedFile;
@@ -166,68 +197,52 @@ public class XMLTargetReader implements TargetReader {
 							System.getProperty("shootoff.home") + File.separator + attributes.getValue("file"));
 				}
 
-				ImageRegion imageRegion;
-				if (imageStream != null) {
-					imageRegion = new ImageRegion(Double.parseDouble(attributes.getValue("x")),
-							Double.parseDouble(attributes.getValue("y")), imageFile, imageStream);
-				} else {
-					try {
-						imageRegion = new ImageRegion(Double.parseDouble(attributes.getValue("x")),
-								Double.parseDouble(attributes.getValue("y")), imageFile);
-					} catch (final FileNotFoundException e) {
-						logger.error("Failed to load target image from file: {}", e);
-						return;
-					}
-				}
-
-				try {
-					final int firstDot = imageFile.getName().indexOf('.') + 1;
-					final String extension = imageFile.getName().substring(firstDot);
-
-					if (extension.endsWith("gif") && '@' == savedFile.toString().charAt(0) && loader.isPresent()) {
-						final InputStream gifStream = loader.get().getResourceAsStream(savedFile.toString().substring(1).replace("\\", "/"));
-						final GifAnimation gif = new GifAnimation(imageRegion, gifStream);
-						imageRegion.setImage(gif.getFirstFrame());
-						if (gif.getFrameCount() > 1) imageRegion.setAnimation(gif);
-					} else if (extension.endsWith("gif")) {
-						final GifAnimation gif = new GifAnimation(imageRegion, imageRegion.getImageFile());
-						imageRegion.setImage(gif.getFirstFrame());
-						if (gif.getFrameCount() > 1) imageRegion.setAnimation(gif);
-					}
+				final double x = Double.parseDouble(attributes.getValue("x"));
+				final double y = Double.parseDouble(attributes.getValue("y"));
 
-					if (imageRegion.getAnimation().isPresent() && playAnimations) {
-						final SpriteAnimation animation = imageRegion.getAnimation().get();
-						animation.setCycleCount(1);
+				final int firstDot = imageFile.getName().indexOf('.') + 1;
+				final String extension = imageFile.getName().substring(firstDot);
 
-						animation.setOnFinished((e) -> {
-							animation.reset();
-							animation.setOnFinished(null);
-						});
-
-						animation.play();
+				try {
+					if (extension.endsWith("gif")) {
+						final ImageFrame[] frames = getGifFrames(savedFile, imageFile).getImageFrames();
+						currentRegion = Optional.of((tags) -> new ImageTemplate(x, y, imageFile,
+								frames[0].getImage(), Optional.of(frames), tags));
+					} else {
+						try (InputStream imageStream = openImage(savedFile, imageFile)) {
+							final Image image = new Image(imageStream);
+							currentRegion = Optional
+									.of((tags) -> new ImageTemplate(x, y, imageFile, image, Optional.empty(), tags));
+						}
 					}
+				} catch (final FileNotFoundException e) {
+					logger.error("Failed to load target image from file: {}", e);
 				} catch (final IOException e) {
 					logger.error("Error reading animation from XML target", e);
 				}
-
-				currentRegion = imageRegion;
-
-				break;
-			case "rectangle":
+			}
+			break;
+			case "rectangle": {
 				currentTags = new HashMap<>();
-				currentRegion = new RectangleRegion(Double.parseDouble(attributes.getValue("x")),
-						Double.parseDouble(attributes.getValue("y")), Double.parseDouble(attributes.getValue("width")),
-						Double.parseDouble(attributes.getValue("height")));
-				((Shape) currentRegion).setFill(TargetEditorController.createColor(attributes.getValue("fill")));
-				break;
-			case "ellipse":
+				final double x = Double.parseDouble(attributes.getValue("x"));
+				final double y = Double.parseDouble(attributes.getValue("y"));
+				final double width = Double.parseDouble(attributes.getValue("width"));
+				final double height = Double.parseDouble(attributes.getValue("height"));
+				final Color fill = TargetEditorController.createColor(attributes.getValue("fill"));
+				currentRegion = Optional.of((tags) -> new RectangleTemplate(x, y, width, height, fill, tags));
+			}
+			break;
+			case "ellipse": {
 				currentTags = new HashMap<>();
-				currentRegion = new EllipseRegion(Double.parseDouble(attributes.getValue("centerX")),
-						Double.parseDouble(attributes.getValue("centerY")),
-						Double.parseDouble(attributes.getValue("radiusX")),
-						Double.parseDouble(attributes.getValue("radiusY")));
-				((Shape) currentRegion).setFill(TargetEditorController.createColor(attributes.getValue("fill")));
-				break;
+				final double centerX = Double.parseDouble(attributes.getValue("centerX"));
+				final double centerY = Double.parseDouble(attributes.getValue("centerY"));
+				final double radiusX = Double.parseDouble(attributes.getValue("radiusX"));
+				final double radiusY = Double.parseDouble(attributes.getValue("radiusY"));
+				final Color fill = TargetEditorController.createColor(attributes.getValue("fill"));
+				currentRegion = Optional
+						.of((tags) -> new EllipseTemplate(centerX, centerY, radiusX, radiusY, fill, tags));
+			}
+			break;
 			case "polygon":
 				currentTags = new HashMap<>();
 				polygonPoints = new ArrayList<>();
@@ -252,15 +267,21 @@ public class XMLTargetReader implements TargetReader {
 				for (int i = 0; i < polygonPoints.size(); i++)
 					points[i] = polygonPoints.get(i);
 
-				currentRegion = new PolygonRegion(points);
-				((Shape) currentRegion).setFill(polygonFill);
+				final Color fill = polygonFill;
+				currentRegion = Optional.of((tags) -> new PolygonTemplate(points, fill, tags));
 			case "image":
 			case "rectangle":
 			case "ellipse":
-				currentRegion.setTags(currentTags);
-				regions.add((Node) currentRegion);
+				// Images that failed to load are left out of the target
+				if (currentRegion.isPresent()) regions.add(currentRegion.get().create(currentTags));
+				currentRegion = Optional.empty();
 				break;
 			}
 		}
 	}
+
+	// Regions are created once their tags have been read
+	private interface RegionFactory {
+		RegionTemplate create(Map<String, String> tags);
+	}
 }
@@ -0,0 +1,339 @@
+/*
+ * ShootOFF - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.metrics.MetricsRegistry;
+
+/**
+ * Runs the phases of ShootOFF's startup as a dependency graph so that
+ * independent subsystems (e.g. extracting OpenCV, enumerating cameras and
+ * loading the configuration) initialize in parallel.
+ * 
+ * Eager phases start as soon as their dependencies finish. Deferred phases
+ * are for work the first frame doesn't need, such as text-to-speech or
+ * scanning plugin jars. They wait until {@link #startDeferredPhases()} is
+ * called once the UI is up, then run one at a time on a low priority thread.
+ * Awaiting a deferred phase starts it early. If a phase fails, the phases that
+ * depend on it are skipped.
+ * 
+ * Every phase's start time, duration and thread are logged as a timeline once
+ * all registered phases are done. Durations are also recorded in
+ * <code>startup.&lt;phase&gt;</code> histograms.
+ */
+public final class StartupOrchestrator {
+	private static final Logger logger = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+	private static final int EAGER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	private static final long THREAD_KEEP_ALIVE = 5; // s
+
+	private static final StartupOrchestrator startup = new StartupOrchestrator();
+
+	@FunctionalInterface
+	public interface StartupTask {
+		void run() throws Exception;
+	}
+
+	private static class Phase {
+		private final String name;
+		private final StartupTask task;
+		private final List<Phase> dependencies;
+		private final boolean deferred;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+		private boolean scheduled = false;
+
+		private volatile long startTime = -1;
+		private volatile long endTime = -1;
+		private volatile String threadName = "";
+		private volatile String outcome = "pending";
+
+		public Phase(String name, StartupTask task, List<Phase> dependencies, boolean deferred) {
+			this.name = name;
+			this.task = task;
+			this.dependencies = dependencies;
+			this.deferred = deferred;
+		}
+	}
+
+	private final long creationTime = System.nanoTime();
+	private final Executor eagerExecutor;
+	private final Executor deferredExecutor;
+
+	// Guarded by this
+	private final Map<String, Phase> phases = new LinkedHashMap<>();
+	private boolean deferredStarted = false;
+	private boolean timelineLogged = false;
+
+	StartupOrchestrator() {
+		eagerExecutor = createExecutor("Startup", EAGER_THREADS, Thread.NORM_PRIORITY);
+		deferredExecutor = createExecutor("DeferredStartup", 1, Thread.MIN_PRIORITY);
+	}
+
+	StartupOrchestrator(Executor eagerExecutor, Executor deferredExecutor) {
+		this.eagerExecutor = eagerExecutor;
+		this.deferredExecutor = deferredExecutor;
+	}
+
+	public static StartupOrchestrator getStartup() {
+		return startup;
+	}
+
+	private static Executor createExecutor(String namePrefix, int threads, int priority) {
+		final AtomicInteger counter = new AtomicInteger();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<>(), (r) -> {
+					final Thread thread = new Thread(r, String.format("%s-%d", namePrefix, counter.incrementAndGet()));
+					thread.setDaemon(true);
+					thread.setPriority(priority);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
+	}
+
+	/**
+	 * Add a phase that starts as soon as all of its dependencies are done.
+	 * 
+	 * @param dependencies
+	 *            names of phases that must already be added
+	 */
+	public void addPhase(String name, StartupTask task, String... dependencies) {
+		add(name, task, dependencies, false);
+	}
+
+	/**
+	 * Add a phase that isn't needed to show the first frame. It runs after
+	 * {@link #startDeferredPhases()} and its dependencies are done.
+	 */
+	public void addDeferredPhase(String name, StartupTask task, String... dependencies) {
+		add(name, task, dependencies, true);
+	}
+
+	private synchronized void add(String name, StartupTask task, String[] dependencyNames, boolean deferred) {
+		if (phases.containsKey(name)) throw new IllegalArgumentException("Startup phase already exists: " + name);
+
+		final List<Phase> dependencies = new ArrayList<>();
+		for (final String dependencyName : dependencyNames) {
+			final Phase dependency = phases.get(dependencyName);
+
+			if (dependency == null) {
+				throw new IllegalArgumentException(
+						String.format("Startup phase %s depends on unknown phase %s", name, dependencyName));
+			}
+
+			dependencies.add(dependency);
+		}
+
+		final Phase phase = new Phase(name, task, dependencies, deferred);
+		phases.put(name, phase);
+
+		if (!deferred || deferredStarted) schedule(phase);
+	}
+
+	/**
+	 * Run a phase on the calling thread, e.g. for work that has to happen on
+	 * the JavaFX thread, so that it still shows up in the timeline.
+	 * 
+	 * @return the result of <code>task</code>
+	 * @throws Exception
+	 *             whatever <code>task</code> threw, after recording the phase
+	 *             as failed
+	 */
+	public <T> T runPhase(String name, Callable<T> task) throws Exception {
+		final Phase phase;
+		synchronized (this) {
+			if (phases.containsKey(name)) throw new IllegalArgumentException("Startup phase already exists: " + name);
+
+			phase = new Phase(name, null, new ArrayList<>(), false);
+			phase.scheduled = true;
+			phases.put(name, phase);
+		}
+
+		final List<T> result = new ArrayList<>(1);
+		run(phase, () -> result.add(task.call()));
+		logTimelineIfDone();
+
+		if (phase.done.isCompletedExceptionally()) {
+			try {
+				phase.done.get();
+			} catch (final ExecutionException e) {
+				throw (Exception) e.getCause();
+			}
+		}
+
+		return result.get(0);
+	}
+
+	private synchronized void schedule(Phase phase) {
+		if (phase.scheduled) return;
+		phase.scheduled = true;
+
+		// A deferred phase that is needed early pulls its dependencies along
+		final CompletableFuture<?>[] dependencies = new CompletableFuture<?>[phase.dependencies.size()];
+		for (int i = 0; i < dependencies.length; i++) {
+			final Phase dependency = phase.dependencies.get(i);
+			schedule(dependency);
+			dependencies[i] = dependency.done;
+		}
+
+		final Executor executor = phase.deferred ? deferredExecutor : eagerExecutor;
+
+		CompletableFuture.allOf(dependencies).whenCompleteAsync((result, dependencyFailure) -> {
+			if (dependencyFailure != null) {
+				phase.outcome = "skipped";
+				logger.warn("Skipping startup phase {} because a phase it depends on failed", phase.name);
+				phase.done.completeExceptionally(dependencyFailure);
+			} else {
+				run(phase, phase.task);
+			}
+
+			logTimelineIfDone();
+		}, executor);
+	}
+
+	private void run(Phase phase, StartupTask task) {
+		phase.threadName = Thread.currentThread().getName();
+		phase.startTime = System.nanoTime();
+
+		try {
+			task.run();
+			phase.outcome = "done";
+			phase.done.complete(null);
+		} catch (final Exception e) {
+			phase.outcome = "failed";
+			// Phases run with runPhase rethrow to their caller instead
+			if (phase.task != null) logger.error("Startup phase {} failed", phase.name, e);
+			phase.done.completeExceptionally(e);
+		} finally {
+			phase.endTime = System.nanoTime();
+
+			// Don't leave anyone awaiting a phase that threw an Error
+			if (!phase.done.isDone()) {
+				phase.outcome = "failed";
+				phase.done.completeExceptionally(new IllegalStateException("Startup phase " + phase.name + " failed"));
+			}
+
+			MetricsRegistry.getRegistry().histogram("startup." + phase.name).record(phase.endTime - phase.startTime);
+		}
+	}
+
+	/**
+	 * Start every deferred phase. Call this once the first frame is showing.
+	 */
+	public synchronized void startDeferredPhases() {
+		if (deferredStarted) return;
+		deferredStarted = true;
+
+		if (logger.isDebugEnabled()) logger.debug("First frame shown after {} ms, starting deferred phases",
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - creationTime));
+
+		for (final Phase phase : new ArrayList<>(phases.values())) {
+			if (phase.deferred) schedule(phase);
+		}
+	}
+
+	/**
+	 * Block until a phase is done, starting it first if it is deferred.
+	 * 
+	 * @return <tt>true</tt> if the phase finished successfully, <tt>false</tt>
+	 *         if it or a phase it depends on failed
+	 * @throws IllegalArgumentException
+	 *             if no phase has the given name
+	 */
+	public boolean await(String name) {
+		final Phase phase;
+		synchronized (this) {
+			phase = phases.get(name);
+			if (phase == null) throw new IllegalArgumentException("Unknown startup phase: " + name);
+
+			schedule(phase);
+		}
+
+		try {
+			phase.done.get();
+			return true;
+		} catch (final ExecutionException e) {
+			return false;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	public synchronized boolean isDone(String name) {
+		final Phase phase = phases.get(name);
+		return phase != null && phase.done.isDone();
+	}
+
+	private void logTimelineIfDone() {
+		final List<Phase> finished;
+
+		synchronized (this) {
+			if (timelineLogged || !deferredStarted) return;
+
+			for (final Phase phase : phases.values()) {
+				if (!phase.done.isDone()) return;
+			}
+
+			timelineLogged = true;
+			finished = new ArrayList<>(phases.values());
+		}
+
+		if (logger.isInfoEnabled()) logger.info("Startup timeline:\n{}", formatTimeline(finished));
+	}
+
+	synchronized String getTimeline() {
+		return formatTimeline(new ArrayList<>(phases.values()));
+	}
+
+	private String formatTimeline(List<Phase> timeline) {
+		timeline.sort(Comparator.comparingLong((Phase p) -> p.startTime < 0 ? Long.MAX_VALUE : p.startTime));
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-20s %10s %10s  %-8s %s%n", "phase", "start(ms)", "took(ms)", "outcome", "thread"));
+
+		for (final Phase phase : timeline) {
+			final long start = phase.startTime < 0 ? -1
+					: TimeUnit.NANOSECONDS.toMillis(phase.startTime - creationTime);
+			final long took = phase.endTime < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(phase.endTime - phase.startTime);
+
+			sb.append(String.format("%-20s %10d %10d  %-8s %s%s%n", phase.name, start, took, phase.outcome,
+					phase.threadName, phase.deferred ? " (deferred)" : ""));
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,113 @@
+package com.shootoff.audio;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.Test;
+
+public class TestClipMixer {
+	// 8 samples (4 stereo frames) per chunk
+	private final byte[] chunk = new byte[16];
+
+	private short sampleAt(int index) {
+		return (short) ((chunk[index * 2] & 0xFF) | (chunk[index * 2 + 1] << 8));
+	}
+
+	private PcmClip createClip(int frames, short value) {
+		final short[] samples = new short[frames * 2];
+		for (int i = 0; i < samples.length; i++)
+			samples[i] = value;
+
+		return new PcmClip(samples, 0);
+	}
+
+	@Test
+	public void testDecodeConvertsToOutputFormat() throws IOException, UnsupportedAudioFileException {
+		// 23040 mono frames at 44.1 kHz
+		final PcmClip beep = PcmClip.decode(new File("sounds" + File.separator + "beep.wav"));
+		assertEquals(23040, beep.getFrameCount());
+
+		// 55746 stereo frames at 96 kHz
+		final PcmClip walther = PcmClip.decode(new File("sounds" + File.separator + "walther_ppq.wav"));
+		assertEquals(55746L * 44100 / 96000, walther.getFrameCount(), 1);
+	}
+
+	@Test
+	public void testToStereoDuplicatesMono() {
+		final short[] stereo = PcmClip.toStereo(new byte[] { 0x34, 0x12, (byte) 0xFF, (byte) 0xFF }, 1);
+
+		assertArrayEquals(new short[] { 0x1234, 0x1234, -1, -1 }, stereo);
+	}
+
+	@Test
+	public void testResampleInterpolates() {
+		final short[] resampled = PcmClip.resample(new short[] { 0, 0, 100, -100 }, 22050, 44100);
+
+		assertArrayEquals(new short[] { 0, 0, 50, -50, 100, -100, 100, -100 }, resampled);
+	}
+
+	@Test
+	public void testOverlappingClipsAreSummedAndClamped() {
+		final ClipMixer mixer = new ClipMixer();
+		final List<ClipMixer.Voice> started = new ArrayList<>();
+		final List<ClipMixer.Voice> finished = new ArrayList<>();
+
+		mixer.add(new ClipMixer.Voice(createClip(4, (short) 1000), Optional.empty(), 0));
+		mixer.add(new ClipMixer.Voice(createClip(2, (short) 500), Optional.empty(), 0));
+		mixer.add(new ClipMixer.Voice(createClip(6, Short.MAX_VALUE), Optional.empty(), 0));
+		mixer.mix(chunk, started, finished);
+
+		assertEquals(3, started.size());
+		assertEquals(2, finished.size());
+		assertEquals(1, mixer.getVoiceCount());
+		assertEquals(Short.MAX_VALUE, sampleAt(0));
+
+		started.clear();
+		finished.clear();
+		mixer.mix(chunk, started, finished);
+
+		assertTrue(started.isEmpty());
+		assertEquals(1, finished.size());
+		assertTrue(mixer.isIdle());
+		assertEquals(Short.MAX_VALUE, sampleAt(3));
+
+		// Silence after the last voice ends
+		assertEquals(0, sampleAt(4));
+	}
+
+	@Test
+	public void testNegativeSamplesClamp() {
+		final ClipMixer mixer = new ClipMixer();
+
+		mixer.add(new ClipMixer.Voice(createClip(4, Short.MIN_VALUE), Optional.empty(), 0));
+		mixer.add(new ClipMixer.Voice(createClip(4, (short) -2), Optional.empty(), 0));
+		mixer.add(new ClipMixer.Voice(createClip(4, (short) -3000), Optional.empty(), 0));
+		mixer.mix(chunk, new ArrayList<>(), new ArrayList<>());
+
+		assertEquals(Short.MIN_VALUE, sampleAt(7));
+	}
+
+	@Test
+	public void testCompletionCallbackIsKept() {
+		final AtomicInteger calls = new AtomicInteger();
+		final ClipMixer.Voice voice = new ClipMixer.Voice(createClip(1, (short) 1), Optional.of(calls::incrementAndGet),
+				0);
+
+		final List<ClipMixer.Voice> finished = new ArrayList<>();
+		final ClipMixer mixer = new ClipMixer();
+		mixer.add(voice);
+		mixer.mix(chunk, new ArrayList<>(), finished);
+
+		assertSame(voice, finished.get(0));
+		finished.get(0).getOnFinished().get().run();
+		assertEquals(1, calls.get());
+	}
+}
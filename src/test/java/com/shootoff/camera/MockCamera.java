@@ -4,6 +4,7 @@ import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,7 +74,8 @@ public class MockCamera extends MediaListenerAdapter implements Camera {
 			do {} while (false);
 	}
 
-	private long initialSystemTimeAtVideoStart = -1;
+	private boolean videoStarted = false;
+	private long initialSystemTimeAtVideoStart;
 	protected long currentFrameTimestamp = -1;
 	private int frameCount = 0;
 	public static final int DEFAULT_FPS = 30;
@@ -83,9 +85,12 @@ public class MockCamera extends MediaListenerAdapter implements Camera {
 	public void onVideoPicture(IVideoPictureEvent event) {
 		BufferedImage currentFrame = event.getImage();
 
-		if (initialSystemTimeAtVideoStart == -1) initialSystemTimeAtVideoStart = System.currentTimeMillis();
+		if (!videoStarted) {
+			videoStarted = true;
+			initialSystemTimeAtVideoStart = System.nanoTime();
+		}
 
-		currentFrameTimestamp = (event.getTimeStamp() / 1000) + initialSystemTimeAtVideoStart;
+		currentFrameTimestamp = TimeUnit.MICROSECONDS.toNanos(event.getTimeStamp()) + initialSystemTimeAtVideoStart;
 
 		if (frameCount == 0) {
 			if (cameraEventListener.isPresent())
@@ -103,7 +108,8 @@ public class MockCamera extends MediaListenerAdapter implements Camera {
 		lastVideoTimestamp = event.getTimeStamp();
 
 		if (cameraEventListener.isPresent())
-			cameraEventListener.get().newFrame(new Frame(Camera.bufferedImageToMat(currentFrame), currentFrameTimestamp));
+			cameraEventListener.get().newFrame(new Frame(Camera.bufferedImageToMat(currentFrame),
+					currentFrameTimestamp, TimeUnit.NANOSECONDS));
 		
 		frameCount++;
 	}
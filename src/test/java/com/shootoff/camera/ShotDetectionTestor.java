@@ -13,6 +13,7 @@ import org.junit.Ignore;
 import org.junit.rules.ErrorCollector;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.camera.batch.ShotComparison;
 import com.shootoff.camera.shot.DisplayShot;
 import com.shootoff.config.Configuration;
 import com.shootoff.gui.MockCanvasManager;
@@ -24,8 +25,6 @@ import static org.hamcrest.core.IsEqual.equalTo;
 
 @Ignore
 public class ShotDetectionTestor implements VideoFinishedListener {
-	private static int ALLOWED_COORD_VARIANCE = 3;
-
 	@BeforeClass
 	public static void setUpBaseClass() {
 		System.setProperty("shootoff.home", System.getProperty("user.dir"));
@@ -118,15 +117,7 @@ public class ShotDetectionTestor implements VideoFinishedListener {
 	}
 
 	public Optional<Shot> findPotentialShotMatch(List<Shot> actualShots, Shot testedShot) {
-		for (Shot shot : actualShots) {
-			if (Math.abs(shot.getX() - testedShot.getX()) <= ALLOWED_COORD_VARIANCE
-					&& Math.abs(shot.getY() - testedShot.getY()) <= ALLOWED_COORD_VARIANCE) {
-
-				return Optional.of(shot);
-			}
-		}
-
-		return Optional.empty();
+		return ShotComparison.findMatch(actualShots, testedShot);
 	}
 
 	Object processingLock = new Object();
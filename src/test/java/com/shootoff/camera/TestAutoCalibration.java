@@ -95,8 +95,8 @@ public class TestAutoCalibration implements VideoFinishedListener {
 			public void setExercise(TrainingExercise exercise) {}
 
 			@Override
-			public PluginEngine getPluginEngine() {
-				return null;
+			public Optional<PluginEngine> getPluginEngine() {
+				return Optional.empty();
 			}
 		}));
 		cameraManager.enableAutoCalibration(false);
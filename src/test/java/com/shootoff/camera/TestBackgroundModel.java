@@ -0,0 +1,102 @@
+package com.shootoff.camera;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.shootoff.camera.shotdetection.BackgroundModel;
+import com.shootoff.camera.shotdetection.BackgroundModelType;
+
+public class TestBackgroundModel {
+	private static final int PERIOD = 6;
+
+	private BackgroundModel createModel(BackgroundModelType type, int initialLum) {
+		final BackgroundModel model = type.create();
+		model.setFrameSize(2, 2);
+		model.setPeriod(PERIOD);
+		model.initialize(0, 0, initialLum, 0);
+
+		return model;
+	}
+
+	@Test
+	public void testUninitialized() {
+		for (final BackgroundModelType type : BackgroundModelType.values()) {
+			final BackgroundModel model = type.create();
+			model.setFrameSize(2, 2);
+
+			assertFalse(model.isInitialized(1, 1));
+
+			model.initialize(1, 1, 100, 200);
+
+			assertTrue(model.isInitialized(1, 1));
+			assertEquals(100, model.getLum(1, 1));
+			assertEquals(200, model.getColorDistance(1, 1));
+
+			model.reset();
+
+			assertFalse(model.isInitialized(1, 1));
+		}
+	}
+
+	@Test
+	public void testFixedPointMatchesMovingAverage() {
+		final BackgroundModel movingAverage = createModel(BackgroundModelType.MOVING_AVERAGE, 10000);
+		final BackgroundModel exponential = createModel(BackgroundModelType.FIXED_POINT_EMA, 10000);
+
+		final int[] samples = { 12000, 15000, 9000, 30000, 30000, 30000, 11000, 10000, 500, 64000 };
+
+		for (final int sample : samples) {
+			movingAverage.update(0, 0, sample, sample * 10);
+			exponential.update(0, 0, sample, sample * 10);
+
+			// Both compute avg + (sample - avg) / period, they just round
+			// differently
+			assertEquals(movingAverage.getLum(0, 0), exponential.getLum(0, 0), 20);
+			assertEquals(movingAverage.getColorDistance(0, 0), exponential.getColorDistance(0, 0), 200);
+		}
+	}
+
+	@Test
+	public void testFixedPointConverges() {
+		final BackgroundModel exponential = createModel(BackgroundModelType.FIXED_POINT_EMA, 0);
+
+		for (int i = 0; i < 200; i++)
+			exponential.update(0, 0, 40000, 0);
+
+		// Integer averages stop moving once the remaining difference rounds
+		// to zero, which happens within half a period of the target
+		assertEquals(40000, exponential.getLum(0, 0), PERIOD / 2);
+	}
+
+	@Test
+	public void testRunningMedianIgnoresFlicker() {
+		final BackgroundModel movingAverage = createModel(BackgroundModelType.MOVING_AVERAGE, 10000);
+		final BackgroundModel median = createModel(BackgroundModelType.RUNNING_MEDIAN, 10000);
+
+		// Every third frame the pixel flickers to full brightness
+		for (int i = 0; i < 30; i++) {
+			final int sample = i % 3 == 0 ? 65025 : 10000;
+			movingAverage.update(0, 0, sample, 0);
+			median.update(0, 0, sample, 0);
+		}
+
+		assertTrue(median.getLum(0, 0) < movingAverage.getLum(0, 0));
+		assertEquals(10000, median.getLum(0, 0), 1000);
+	}
+
+	@Test
+	public void testRunningMedianTracksStepChange() {
+		final BackgroundModel median = createModel(BackgroundModelType.RUNNING_MEDIAN, 10000);
+
+		for (int i = 0; i < 500; i++)
+			median.update(0, 0, 30000, 0);
+
+		assertEquals(30000, median.getLum(0, 0));
+
+		for (int i = 0; i < 500; i++)
+			median.update(0, 0, 5000, 0);
+
+		assertEquals(5000, median.getLum(0, 0));
+	}
+}
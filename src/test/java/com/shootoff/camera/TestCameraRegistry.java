@@ -0,0 +1,187 @@
+package com.shootoff.camera;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shootoff.camera.CameraRegistry.CameraInfo;
+import com.shootoff.camera.cameratypes.Camera;
+
+public class TestCameraRegistry {
+	private static class NamedCamera extends MockCamera {
+		private final String name;
+		private boolean isOpen = false;
+		private int opens = 0;
+
+		public NamedCamera(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public boolean open() {
+			opens++;
+			isOpen = true;
+			return true;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return isOpen;
+		}
+
+		@Override
+		public void close() {
+			isOpen = false;
+		}
+
+		@Override
+		public BufferedImage getBufferedImage() {
+			return new BufferedImage(4, 3, BufferedImage.TYPE_3BYTE_BGR);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof NamedCamera && ((NamedCamera) obj).name.equals(name);
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode();
+		}
+	}
+
+	private List<String> connected;
+	private int discoveries;
+	private CameraRegistry registry;
+
+	@Before
+	public void setUp() {
+		connected = new ArrayList<>(Arrays.asList("video0", "video1"));
+		discoveries = 0;
+
+		registry = new CameraRegistry(() -> {
+			discoveries++;
+
+			final List<Camera> cameras = new ArrayList<>();
+			for (final String device : connected)
+				cameras.add(new NamedCamera(device));
+
+			return cameras;
+		}, () -> {
+			final Set<String> devices = new TreeSet<>(connected);
+			return Optional.of(devices);
+		});
+	}
+
+	private CameraInfo fetchInfo(Camera camera) throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<CameraInfo> info = new AtomicReference<>();
+
+		registry.fetchInfo(camera, (i) -> {
+			info.set(i);
+			latch.countDown();
+		});
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+		return info.get();
+	}
+
+	@Test
+	public void testDiscoversOnce() {
+		final List<Camera> cameras = registry.getCameras();
+
+		assertEquals(2, cameras.size());
+		assertSame(cameras, registry.getCameras());
+		assertEquals("video0", registry.getDefault().get().getName());
+		assertEquals(1, discoveries);
+	}
+
+	@Test
+	public void testPollOnlyDiscoversWhenDevicesChange() {
+		final Camera first = registry.getCameras().get(0);
+		final List<List<Camera>> notified = new ArrayList<>();
+		registry.addListener(notified::add);
+
+		registry.pollDevices();
+		assertEquals(1, discoveries);
+		assertTrue(notified.isEmpty());
+
+		connected.add("video2");
+		registry.pollDevices();
+
+		assertEquals(2, discoveries);
+		assertEquals(1, notified.size());
+		assertEquals(3, notified.get(0).size());
+
+		// Cameras that are still connected keep their instance because they
+		// may be open
+		assertSame(first, registry.getCameras().get(0));
+	}
+
+	@Test
+	public void testRequestedRefreshRunsOnRegistryThread() throws InterruptedException {
+		registry.getCameras();
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<String> notifiedThread = new AtomicReference<>();
+		final AtomicReference<List<Camera>> notified = new AtomicReference<>();
+		registry.addListener((cameras) -> {
+			notifiedThread.set(Thread.currentThread().getName());
+			notified.set(cameras);
+			latch.countDown();
+		});
+
+		connected.add("video2");
+		registry.requestRefresh();
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals("CameraRegistry", notifiedThread.get());
+		assertEquals(3, notified.get().size());
+		assertEquals(3, registry.getCameras().size());
+	}
+
+	@Test
+	public void testInfoIsCachedUntilRemoved() throws InterruptedException {
+		final NamedCamera camera = (NamedCamera) registry.getCameras().get(1);
+
+		final CameraInfo info = fetchInfo(camera);
+
+		assertEquals(4, info.getThumbnail().get().getWidth());
+		assertFalse(camera.isOpen());
+		assertSame(info, fetchInfo(camera));
+		assertSame(info, registry.getInfo(camera).get());
+		assertEquals(1, camera.opens);
+
+		connected.remove("video1");
+		registry.pollDevices();
+
+		assertEquals(1, registry.getCameras().size());
+		assertFalse(registry.getInfo(camera).isPresent());
+	}
+
+	@Test
+	public void testNoCameras() {
+		connected.clear();
+
+		assertTrue(registry.getCameras().isEmpty());
+		assertFalse(registry.getDefault().isPresent());
+	}
+}
@@ -0,0 +1,99 @@
+package com.shootoff.camera;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.shootoff.camera.shotdetection.DetectionParameter;
+import com.shootoff.camera.shotdetection.DetectionParameters;
+
+public class TestDetectionParameters {
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDefaults() {
+		for (final DetectionParameter parameter : DetectionParameter.values()) {
+			assertEquals(parameter.getDefaultValue(), DetectionParameters.DEFAULT.get(parameter), 0);
+			assertTrue(parameter.getKey(), parameter.getMinimum() <= parameter.getDefaultValue());
+			assertTrue(parameter.getKey(), parameter.getMaximum() >= parameter.getDefaultValue());
+		}
+
+		assertEquals("defaults", DetectionParameters.DEFAULT.toString());
+	}
+
+	@Test
+	public void testWith() {
+		final DetectionParameters changed = DetectionParameters.DEFAULT
+				.with(DetectionParameter.MINIMUM_DENSITY, .75).with(DetectionParameter.SMALL_SHOT_THRESHOLD, 20.4);
+
+		assertEquals(.75, changed.get(DetectionParameter.MINIMUM_DENSITY), 0);
+		assertEquals(20, changed.getInt(DetectionParameter.SMALL_SHOT_THRESHOLD));
+		assertEquals(20.0, changed.get(DetectionParameter.SMALL_SHOT_THRESHOLD), 0);
+		assertEquals("minimum-density=0.75, small-shot-threshold=20", changed.toString());
+
+		// The original is unchanged
+		assertEquals(DetectionParameter.MINIMUM_DENSITY.getDefaultValue(),
+				DetectionParameters.DEFAULT.get(DetectionParameter.MINIMUM_DENSITY), 0);
+		assertNotEquals(DetectionParameters.DEFAULT, changed);
+	}
+
+	@Test
+	public void testStoreAndLoad() throws IOException {
+		final DetectionParameters parameters = DetectionParameters.DEFAULT
+				.with(DetectionParameter.MINIMUM_BRIGHTNESS_INCREASE, .2)
+				.with(DetectionParameter.EXCESSIVE_PIXEL_CUTOFF, 500);
+
+		final File profile = folder.newFile("profile.properties");
+		parameters.store(profile, "test profile");
+
+		final DetectionParameters loaded = DetectionParameters.load(profile);
+
+		assertEquals(parameters, loaded);
+		assertEquals(parameters.hashCode(), loaded.hashCode());
+	}
+
+	@Test
+	public void testDefaultsAreWrittenRounded() throws IOException {
+		assertEquals(3.66f, DetectionParameter.MINIMUM_CONNECTEDNESS.getDefaultValue(), 0);
+		assertEquals("3.66", DetectionParameters.DEFAULT.format(DetectionParameter.MINIMUM_CONNECTEDNESS));
+		assertEquals("0.69", DetectionParameters.DEFAULT.format(DetectionParameter.MINIMUM_DENSITY));
+		assertEquals("0.117", DetectionParameters.DEFAULT.format(DetectionParameter.MINIMUM_BRIGHTNESS_INCREASE));
+
+		assertEquals(DetectionParameters.DEFAULT,
+				DetectionParameters.fromProperties(DetectionParameters.DEFAULT.toProperties()));
+	}
+
+	@Test
+	public void testPartialProfile() throws IOException {
+		final Properties properties = new Properties();
+		properties.setProperty("MINIMUM-DENSITY", " 0.8 ");
+
+		final DetectionParameters parameters = DetectionParameters.fromProperties(properties);
+
+		assertEquals(.8, parameters.get(DetectionParameter.MINIMUM_DENSITY), 0);
+		assertEquals(DetectionParameters.DEFAULT, parameters.with(DetectionParameter.MINIMUM_DENSITY,
+				DetectionParameter.MINIMUM_DENSITY.getDefaultValue()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownParameter() throws IOException {
+		final Properties properties = new Properties();
+		properties.setProperty("maximum-density", "0.8");
+
+		DetectionParameters.fromProperties(properties);
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidValue() throws IOException {
+		final Properties properties = new Properties();
+		properties.setProperty("minimum-density", "dense");
+
+		DetectionParameters.fromProperties(properties);
+	}
+}
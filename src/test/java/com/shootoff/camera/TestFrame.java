@@ -0,0 +1,76 @@
+package com.shootoff.camera;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import com.shootoff.metrics.MetricsRegistry;
+
+public class TestFrame {
+	private Frame frame;
+
+	@Before
+	public void setUp() {
+		nu.pattern.OpenCV.loadShared();
+
+		frame = new Frame(new Mat(48, 64, CvType.CV_8UC3, new Scalar(255, 0, 0)), 0, TimeUnit.NANOSECONDS);
+	}
+
+	private long getAvoidedConversions() {
+		return MetricsRegistry.getRegistry().counter("frame.conversionsAvoided").getCount();
+	}
+
+	@Test
+	public void testBufferedImageIsMemoized() {
+		final long avoided = getAvoidedConversions();
+
+		final BufferedImage image = frame.getOriginalBufferedImage();
+
+		assertEquals(BufferedImage.TYPE_3BYTE_BGR, image.getType());
+		assertSame(image, frame.getOriginalBufferedImage());
+		assertSame(image, frame.getRecordingImage());
+		assertTrue(getAvoidedConversions() >= avoided + 2);
+	}
+
+	@Test
+	public void testHSVIsMemoized() {
+		final Mat hsv = frame.getHSVMat();
+
+		assertEquals(3, hsv.channels());
+		assertSame(hsv, frame.getHSVMat());
+
+		// Pure blue has a hue of 120, which OpenCV halves
+		assertEquals(120, hsv.get(0, 0)[0], 0.5);
+	}
+
+	@Test
+	public void testInvalidateDerivedViews() {
+		final BufferedImage image = frame.getOriginalBufferedImage();
+
+		frame.getOriginalMat().setTo(new Scalar(0, 0, 255));
+		frame.invalidateDerivedViews();
+
+		final BufferedImage updated = frame.getOriginalBufferedImage();
+		assertNotSame(image, updated);
+
+		// Red in BGR
+		assertEquals(0xFF0000, updated.getRGB(0, 0) & 0xFFFFFF);
+	}
+
+	@Test
+	public void testGrayscaleRecordingImage() {
+		final Frame grayFrame = new Frame(new Mat(48, 64, CvType.CV_8UC1, new Scalar(128)), 0,
+				TimeUnit.NANOSECONDS);
+
+		assertEquals(BufferedImage.TYPE_BYTE_GRAY, grayFrame.getOriginalBufferedImage().getType());
+		assertEquals(BufferedImage.TYPE_3BYTE_BGR, grayFrame.getRecordingImage().getType());
+		assertSame(grayFrame.getRecordingImage(), grayFrame.getRecordingImage());
+	}
+}
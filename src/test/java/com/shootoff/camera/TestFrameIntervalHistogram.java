@@ -0,0 +1,84 @@
+package com.shootoff.camera;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestFrameIntervalHistogram {
+	private static final long FRAME_INTERVAL = TimeUnit.MILLISECONDS.toNanos(33);
+
+	@Test
+	public void testEmpty() {
+		final FrameIntervalHistogram histogram = new FrameIntervalHistogram();
+		histogram.record(1000);
+
+		final FrameIntervalHistogram.Summary summary = histogram.summarize();
+
+		assertEquals(0, summary.getSampleCount());
+		assertEquals(0, summary.getDroppedFrames());
+	}
+
+	@Test
+	public void testSteadyFrames() {
+		final FrameIntervalHistogram histogram = new FrameIntervalHistogram();
+
+		for (int i = 0; i <= 100; i++)
+			histogram.record(i * FRAME_INTERVAL);
+
+		final FrameIntervalHistogram.Summary summary = histogram.summarize();
+
+		assertEquals(100, summary.getSampleCount());
+		assertEquals(33.0, summary.getMedian(), 0.001);
+		assertEquals(33.0, summary.get99thPercentile(), 0.001);
+		assertEquals(33.0, summary.getMaxGap(), 0.001);
+		assertEquals(0, summary.getDroppedFrames());
+	}
+
+	@Test
+	public void testGapsAndDroppedFrames() {
+		final FrameIntervalHistogram histogram = new FrameIntervalHistogram();
+
+		long captureTime = 0;
+		for (int i = 0; i < 100; i++) {
+			histogram.record(captureTime);
+			captureTime += FRAME_INTERVAL;
+		}
+
+		// Establish the expected interval before frames go missing
+		histogram.summarize();
+
+		// Skip three frames
+		captureTime += FRAME_INTERVAL * 3;
+		histogram.record(captureTime);
+
+		final FrameIntervalHistogram.Summary summary = histogram.summarize();
+
+		assertEquals(33.0, summary.getMedian(), 0.001);
+		assertEquals(132.0, summary.getMaxGap(), 0.001);
+		assertEquals(3, summary.getDroppedFrames());
+	}
+
+	@Test
+	public void testWindowRollsOver() {
+		final FrameIntervalHistogram histogram = new FrameIntervalHistogram(10);
+
+		long captureTime = 0;
+		histogram.record(captureTime);
+
+		// One long gap followed by more than a window of steady frames
+		captureTime += FRAME_INTERVAL * 10;
+		histogram.record(captureTime);
+
+		for (int i = 0; i < 10; i++) {
+			captureTime += FRAME_INTERVAL;
+			histogram.record(captureTime);
+		}
+
+		final FrameIntervalHistogram.Summary summary = histogram.summarize();
+
+		assertEquals(10, summary.getSampleCount());
+		assertEquals(33.0, summary.getMaxGap(), 0.001);
+	}
+}
@@ -0,0 +1,186 @@
+package com.shootoff.camera;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shootoff.camera.cameratypes.MJPEGStreamReader;
+
+public class TestMJPEGStreamReader {
+	private static final String BOUNDARY = "--myboundary";
+
+	private byte[] jpeg;
+
+	@Before
+	public void setUp() throws IOException {
+		final BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_3BYTE_BGR);
+		final Graphics2D g = image.createGraphics();
+		g.setColor(Color.RED);
+		g.fillRect(0, 0, 16, 24);
+		g.dispose();
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpeg", out);
+		jpeg = out.toByteArray();
+	}
+
+	/**
+	 * @return the test JPEG with another JPEG embedded in an EXIF segment,
+	 *         like cameras that include a thumbnail
+	 */
+	private byte[] addThumbnail() throws IOException {
+		final byte[] exif = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+		final int segmentLength = 2 + exif.length + jpeg.length;
+
+		final ByteArrayOutputStream withThumbnail = new ByteArrayOutputStream();
+		withThumbnail.write(jpeg, 0, 2);
+		withThumbnail.write(new byte[] { (byte) 0xFF, (byte) 0xE1, (byte) (segmentLength >> 8), (byte) segmentLength });
+		withThumbnail.write(exif);
+		withThumbnail.write(jpeg);
+		withThumbnail.write(jpeg, 2, jpeg.length - 2);
+
+		return withThumbnail.toByteArray();
+	}
+
+	private void writePart(ByteArrayOutputStream stream, boolean includeLength) throws IOException {
+		final StringBuilder headers = new StringBuilder();
+		headers.append(BOUNDARY).append("\r\n");
+		headers.append("Content-Type: image/jpeg\r\n");
+		if (includeLength) headers.append("Content-Length: ").append(jpeg.length).append("\r\n");
+		headers.append("\r\n");
+
+		stream.write(headers.toString().getBytes(StandardCharsets.US_ASCII));
+		stream.write(jpeg);
+		stream.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private MJPEGStreamReader createReader(boolean includeLength, int frames) throws IOException {
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		for (int i = 0; i < frames; i++)
+			writePart(stream, includeLength);
+
+		return new MJPEGStreamReader(new ByteArrayInputStream(stream.toByteArray()));
+	}
+
+	private void assertFrameMatches(MJPEGStreamReader reader) {
+		assertEquals(jpeg.length, reader.getFrameLength());
+		assertArrayEquals(jpeg, Arrays.copyOf(reader.getFrameBuffer(), reader.getFrameLength()));
+	}
+
+	@Test
+	public void testContentLengthFrames() throws IOException {
+		try (MJPEGStreamReader reader = createReader(true, 3)) {
+			for (int i = 0; i < 3; i++) {
+				assertEquals(jpeg.length, reader.readFrame());
+				assertFrameMatches(reader);
+			}
+
+			assertEquals(-1, reader.readFrame());
+		}
+	}
+
+	@Test
+	public void testMarkerDelimitedFrames() throws IOException {
+		try (MJPEGStreamReader reader = createReader(false, 3)) {
+			for (int i = 0; i < 3; i++) {
+				assertEquals(jpeg.length, reader.readFrame());
+				assertFrameMatches(reader);
+			}
+
+			assertEquals(-1, reader.readFrame());
+		}
+	}
+
+	@Test
+	public void testMarkerDelimitedFrameWithThumbnail() throws IOException {
+		jpeg = addThumbnail();
+
+		try (MJPEGStreamReader reader = createReader(false, 2)) {
+			for (int i = 0; i < 2; i++) {
+				assertEquals(jpeg.length, reader.readFrame());
+				assertFrameMatches(reader);
+			}
+
+			assertEquals(32, reader.decodeFrame(Optional.empty()).getWidth());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testContentLengthOverLimit() throws IOException {
+		final String headers = BOUNDARY + "\r\nContent-Type: image/jpeg\r\nContent-Length: 2000000000\r\n\r\n";
+
+		try (MJPEGStreamReader reader = new MJPEGStreamReader(
+				new ByteArrayInputStream(headers.getBytes(StandardCharsets.US_ASCII)), 1024)) {
+			reader.readFrame();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMarkerDelimitedFrameOverLimit() throws IOException {
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writePart(stream, false);
+
+		try (MJPEGStreamReader reader = new MJPEGStreamReader(new ByteArrayInputStream(stream.toByteArray()),
+				jpeg.length / 2)) {
+			reader.readFrame();
+		}
+	}
+
+	@Test
+	public void testMaxFrameLength() {
+		assertEquals(MJPEGStreamReader.DEFAULT_MAX_FRAME_LENGTH, MJPEGStreamReader.getMaxFrameLength(null));
+		assertEquals(MJPEGStreamReader.DEFAULT_MAX_FRAME_LENGTH,
+				MJPEGStreamReader.getMaxFrameLength(new Dimension(640, 480)));
+		assertEquals(3840 * 2160 * 3 * 4, MJPEGStreamReader.getMaxFrameLength(new Dimension(3840, 2160)));
+	}
+
+	@Test
+	public void testDecodeReusesDestination() throws IOException {
+		try (MJPEGStreamReader reader = createReader(true, 2)) {
+			reader.readFrame();
+			final BufferedImage first = reader.decodeFrame(Optional.empty());
+
+			assertEquals(32, first.getWidth());
+			assertEquals(24, first.getHeight());
+
+			reader.readFrame();
+			final BufferedImage second = reader.decodeFrame(Optional.of(first));
+
+			assertSame(first, second);
+
+			// Left half is red, right half is black
+			final Color left = new Color(second.getRGB(4, 12));
+			final Color right = new Color(second.getRGB(28, 12));
+			assertTrue(left.getRed() > 200 && left.getGreen() < 50);
+			assertTrue(right.getRed() < 50);
+		}
+	}
+
+	@Test
+	public void testDecodeIgnoresMismatchedDestination() throws IOException {
+		try (MJPEGStreamReader reader = createReader(true, 1)) {
+			reader.readFrame();
+			final BufferedImage wrongSize = new BufferedImage(8, 8, BufferedImage.TYPE_3BYTE_BGR);
+
+			final BufferedImage decoded = reader.decodeFrame(Optional.of(wrongSize));
+
+			assertNotSame(wrongSize, decoded);
+			assertEquals(32, decoded.getWidth());
+		}
+	}
+}
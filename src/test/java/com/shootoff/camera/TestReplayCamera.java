@@ -0,0 +1,139 @@
+package com.shootoff.camera;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.highgui.Highgui;
+
+import com.shootoff.camera.cameratypes.CameraEventListener;
+import com.shootoff.camera.cameratypes.ReplayCamera;
+
+public class TestReplayCamera {
+	private static final int FRAME_COUNT = 10;
+
+	@Rule
+	public TemporaryFolder frameDump = new TemporaryFolder();
+
+	private static class CountingListener implements CameraEventListener {
+		private int frames = 0;
+		private boolean closed = false;
+
+		@Override
+		public void newFrame(Frame frame) {
+			assertEquals(64, frame.getOriginalMat().cols());
+			frames++;
+		}
+
+		@Override
+		public void newFrame(Frame frame, boolean shouldDedistort) {
+			newFrame(frame);
+		}
+
+		@Override
+		public void newFPS(double cameraFPS) {}
+
+		@Override
+		public void cameraClosed() {
+			closed = true;
+		}
+
+		@Override
+		public void setFeedResolution(int width, int height) {}
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		nu.pattern.OpenCV.loadShared();
+
+		for (int i = 0; i < FRAME_COUNT; i++) {
+			final Mat frame = new Mat(48, 64, CvType.CV_8UC3, new Scalar(i * 20, 0, 0));
+			Highgui.imwrite(new File(frameDump.getRoot(), String.format("frame-%03d.png", i)).getPath(), frame);
+		}
+	}
+
+	@Test
+	public void testUnpacedReplayOnce() {
+		final ReplayCamera camera = new ReplayCamera(frameDump.getRoot(), "replay", ReplayCamera.Pacing.UNPACED,
+				false);
+		final CountingListener listener = new CountingListener();
+		camera.setCameraEventListener(listener);
+
+		assertTrue(camera.open());
+		assertEquals(64, camera.getViewSize().width);
+		assertEquals(48, camera.getViewSize().height);
+
+		camera.run();
+
+		assertEquals(FRAME_COUNT, listener.frames);
+		assertTrue(listener.closed);
+		assertFalse(camera.isOpen());
+	}
+
+	@Test
+	public void testLoopingReplay() {
+		final ReplayCamera camera = new ReplayCamera(frameDump.getRoot(), "replay", ReplayCamera.Pacing.UNPACED,
+				true);
+
+		assertTrue(camera.open());
+
+		for (int i = 0; i < FRAME_COUNT * 3; i++) {
+			assertNotNull(camera.getFrame());
+		}
+
+		assertEquals(2, camera.getLoopCount());
+
+		camera.close();
+		assertNull(camera.getFrame());
+	}
+
+	@Test
+	public void testUnpacedFramesUseReplayClock() {
+		final ReplayCamera camera = new ReplayCamera(frameDump.getRoot(), "replay", ReplayCamera.Pacing.UNPACED,
+				true);
+
+		assertTrue(camera.open());
+
+		final long frameInterval = TimeUnit.SECONDS.toNanos(1) / ReplayCamera.DEFAULT_FRAME_DUMP_FPS;
+		long lastCaptureTime = camera.getFrame().getCaptureTime();
+
+		// Frames are delivered as fast as they can be read but are spaced the
+		// way they were recorded, including across the loop
+		for (int i = 1; i < FRAME_COUNT * 2; i++) {
+			final long captureTime = camera.getFrame().getCaptureTime();
+			assertEquals(frameInterval, captureTime - lastCaptureTime, 1);
+			lastCaptureTime = captureTime;
+		}
+
+		assertEquals(1, camera.getLoopCount());
+
+		camera.close();
+	}
+
+	@Test
+	public void testRealTimePacing() {
+		final ReplayCamera camera = new ReplayCamera(frameDump.getRoot(), "replay", ReplayCamera.Pacing.REAL_TIME,
+				false);
+		camera.setCameraEventListener(new CountingListener());
+
+		assertTrue(camera.open());
+
+		final long startTime = System.nanoTime();
+		camera.run();
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+		// The last frame is due (FRAME_COUNT - 1) frame intervals after the
+		// first
+		final long expected = (FRAME_COUNT - 1) * 1000 / ReplayCamera.DEFAULT_FRAME_DUMP_FPS;
+		assertTrue("Replay finished in " + elapsed + " ms", elapsed >= expected - 5);
+	}
+}
@@ -0,0 +1,115 @@
+package com.shootoff.camera.batch;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.shootoff.camera.batch.BenchmarkResult.HardwareStatus;
+import com.shootoff.camera.batch.BenchmarkResult.Recommendation;
+import com.shootoff.camera.batch.BenchmarkResult.ResolutionResult;
+
+public class TestBenchmarkResult {
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private BenchmarkResult createResult(double... fps) {
+		final List<ResolutionResult> resolutions = new ArrayList<>();
+		resolutions.add(new ResolutionResult(640, 480, fps[0], fps[1]));
+		resolutions.add(new ResolutionResult(1280, 720, fps[2], fps[3]));
+		resolutions.add(new ResolutionResult(1920, 1080, fps[4], fps[5]));
+
+		return new BenchmarkResult("test machine", DetectionBenchmark.BENCHMARK_VERSION, resolutions);
+	}
+
+	@Test
+	public void testSupportedCameras() {
+		final ResolutionResult resolution = new ResolutionResult(640, 480, 40, 150);
+
+		// 30 FPS needs 36 FPS of detection with headroom
+		assertEquals(4, resolution.getSupportedCameras(30));
+		assertEquals(8, resolution.getSupportedCameras(15));
+
+		// Throughput can't make up for one camera falling behind
+		assertEquals(0, new ResolutionResult(640, 480, 30, 150).getSupportedCameras(30));
+
+		// A single fast enough camera is supported even if throughput was
+		// measured lower
+		assertEquals(1, new ResolutionResult(640, 480, 40, 20).getSupportedCameras(30));
+	}
+
+	@Test
+	public void testRecommendationPrefersFrameRate() {
+		// 720p keeps up at 30 FPS, 1080p only at 15 FPS
+		final BenchmarkResult result = createResult(200, 800, 80, 300, 25, 100);
+		final Optional<Recommendation> recommendation = result.getRecommendation();
+
+		assertTrue(recommendation.isPresent());
+		assertEquals(1280, recommendation.get().getWidth());
+		assertEquals(720, recommendation.get().getHeight());
+		assertEquals(30, recommendation.get().getFPS());
+		assertEquals(8, recommendation.get().getCameras());
+		assertEquals(HardwareStatus.EXCELLENT, result.getHardwareStatus());
+	}
+
+	@Test
+	public void testRecommendationFallsBackToLowerFrameRate() {
+		final BenchmarkResult result = createResult(20, 30, 10, 15, 5, 7);
+		final Optional<Recommendation> recommendation = result.getRecommendation();
+
+		assertTrue(recommendation.isPresent());
+		assertEquals(640, recommendation.get().getWidth());
+		assertEquals(15, recommendation.get().getFPS());
+		assertEquals(1, recommendation.get().getCameras());
+		assertEquals(HardwareStatus.POOR, result.getHardwareStatus());
+	}
+
+	@Test
+	public void testNoRecommendation() {
+		final BenchmarkResult result = createResult(10, 12, 5, 6, 2, 3);
+
+		assertFalse(result.getRecommendation().isPresent());
+		assertEquals(HardwareStatus.POOR, result.getHardwareStatus());
+	}
+
+	@Test
+	public void testPassable() {
+		final BenchmarkResult result = createResult(40, 40, 20, 20, 10, 10);
+
+		assertEquals(HardwareStatus.PASSABLE, result.getHardwareStatus());
+	}
+
+	@Test
+	public void testStoreAndLoad() throws IOException {
+		final BenchmarkResult result = createResult(200, 800, 80, 300, 25, 100);
+		final File resultFile = folder.newFile(DetectionBenchmark.RESULT_FILE);
+
+		result.store(resultFile);
+		final Optional<BenchmarkResult> loaded = BenchmarkResult.load(resultFile);
+
+		assertTrue(loaded.isPresent());
+		assertEquals("test machine", loaded.get().getMachine());
+		assertEquals(DetectionBenchmark.BENCHMARK_VERSION, loaded.get().getVersion());
+		assertEquals(3, loaded.get().getResolutions().size());
+		assertEquals(1920, loaded.get().getResolutions().get(2).getWidth());
+		assertEquals(25, loaded.get().getResolutions().get(2).getSingleCameraFPS(), 0.001);
+		assertEquals(300, loaded.get().getResolutions().get(1).getThroughputFPS(), 0.001);
+		assertEquals(result.getRecommendation().get().toString(), loaded.get().getRecommendation().get().toString());
+	}
+
+	@Test
+	public void testIncompleteProperties() {
+		final Properties properties = createResult(200, 800, 80, 300, 25, 100).toProperties();
+		properties.remove("1280x720.throughput.fps");
+
+		assertFalse(BenchmarkResult.fromProperties(properties).isPresent());
+		assertFalse(BenchmarkResult.fromProperties(new Properties()).isPresent());
+	}
+}
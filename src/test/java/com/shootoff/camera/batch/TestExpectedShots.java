@@ -0,0 +1,82 @@
+package com.shootoff.camera.batch;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.shootoff.camera.Shot;
+import com.shootoff.camera.shot.ShotColor;
+
+public class TestExpectedShots {
+	private ExpectedShots parse(String csv) throws IOException {
+		return new ExpectedShots(new BufferedReader(new StringReader(csv)));
+	}
+
+	@Test
+	public void testParse() throws IOException {
+		final ExpectedShots expected = parse("# lane 1\n\n100.5,200,red\n50,60,GREEN,optional\n");
+
+		assertEquals(1, expected.getRequiredShots().size());
+		assertEquals(1, expected.getOptionalShots().size());
+
+		final Shot required = expected.getRequiredShots().get(0);
+		assertEquals(100.5, required.getX(), 0.001);
+		assertEquals(200, required.getY(), 0.001);
+		assertEquals(ShotColor.RED, required.getColor());
+		assertEquals(ShotColor.GREEN, expected.getOptionalShots().get(0).getColor());
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseMissingColor() throws IOException {
+		parse("100,200\n");
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseBadColor() throws IOException {
+		parse("100,200,blue\n");
+	}
+
+	@Test
+	public void testCompare() throws IOException {
+		final ExpectedShots expected = parse("100,100,red\n200,200,green\n300,300,red,optional\n");
+
+		final List<Shot> actual = new ArrayList<>();
+		actual.add(new Shot(ShotColor.RED, 102, 99, 0));
+		actual.add(new Shot(ShotColor.RED, 200, 201, 0));
+		actual.add(new Shot(ShotColor.GREEN, 400, 400, 0));
+
+		final ShotComparison comparison = expected.compare(actual);
+
+		assertEquals(2, comparison.getMatchedShotCount());
+		assertTrue(comparison.getMissedShots().isEmpty());
+		assertEquals(1, comparison.getMissedOptionalShots().size());
+		assertEquals(1, comparison.getWrongColorShots().size());
+		assertEquals(200, comparison.getWrongColorShots().get(0).getX(), 0.001);
+		assertEquals(1, comparison.getUnexpectedShots().size());
+		assertFalse(comparison.passed());
+
+		// The wrong color shot is both a false positive and a false negative
+		assertEquals(1, comparison.getTruePositiveCount());
+		assertEquals(2, comparison.getFalsePositiveCount());
+		assertEquals(1, comparison.getFalseNegativeCount());
+	}
+
+	@Test
+	public void testComparePassed() throws IOException {
+		final ExpectedShots expected = parse("100,100,red\n300,300,red,optional\n");
+
+		final List<Shot> actual = new ArrayList<>();
+		actual.add(new Shot(ShotColor.RED, 97, 103, 0));
+
+		final ShotComparison comparison = expected.compare(actual);
+
+		assertEquals(1, comparison.getMatchedShotCount());
+		assertTrue(comparison.passed());
+	}
+}
@@ -13,7 +13,6 @@ import com.shootoff.gui.controller.ShootOFFController;
 import com.shootoff.gui.targets.TargetView;
 import com.shootoff.targets.Target;
 
-import javafx.collections.FXCollections;
 import javafx.embed.swing.JFXPanel;
 import javafx.scene.Group;
 
@@ -26,7 +25,7 @@ public class MockCanvasManager extends CanvasManager {
 
 	public MockCanvasManager(Configuration config) {
 		super(new Group(), new ShootOFFController(), String.format("%d", System.nanoTime()),
-				FXCollections.observableArrayList());
+				new ShotTimerModel(config.getShotTimerRows()));
 		new JFXPanel(); // Initialize the JFX toolkit
 		this.config = config;
 		this.cameraName = "Default";
@@ -35,7 +34,7 @@ public class MockCanvasManager extends CanvasManager {
 
 	public MockCanvasManager(Configuration config, boolean useShotProcessors) {
 		super(new Group(), new ShootOFFController(), String.format("%d", System.nanoTime()),
-				FXCollections.observableArrayList());
+				new ShotTimerModel(config.getShotTimerRows()));
 		new JFXPanel(); // Initialize the JFX toolkit
 		this.config = config;
 		this.cameraName = "Default";
@@ -23,8 +23,6 @@ import com.shootoff.targets.Hit;
 import com.shootoff.targets.Target;
 import com.shootoff.targets.TargetRegion;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.Group;
 import javafx.scene.shape.Shape;
 
@@ -33,7 +31,7 @@ public class TestCanvasManager {
 
 	private CanvasManager cm;
 	private Target ipscTarget;
-	private ObservableList<ShotEntry> shotEntries = FXCollections.observableArrayList();
+	private ShotTimerModel shotEntries = new ShotTimerModel(100);
 
 	private Configuration config;
 
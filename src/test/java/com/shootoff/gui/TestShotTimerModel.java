@@ -0,0 +1,144 @@
+package com.shootoff.gui;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.camera.shot.ShotColor;
+
+import javafx.collections.ListChangeListener;
+
+public class TestShotTimerModel {
+	private static final int CAPACITY = 10;
+
+	private ShotTimerModel model;
+	private int nextSecond = 0;
+
+	@Before
+	public void setUp() {
+		model = new ShotTimerModel(CAPACITY);
+	}
+
+	@After
+	public void tearDown() {
+		model.close();
+	}
+
+	private void addShots(int count) {
+		final int start = nextSecond;
+		nextSecond += count;
+
+		for (int i = start; i < start + count; i++) {
+			final ShotEntry entry = model.addShot(new DisplayShot(ShotColor.RED, i, i, i * 1000, 2), Optional.empty(),
+					false, i % 7 == 0);
+			entry.setExerciseValue("Shot", String.valueOf(i));
+		}
+	}
+
+	private long getSecond(int index) {
+		return model.get(index).getShot().getTimestamp() / 1000;
+	}
+
+	@Test
+	public void testKeepsNewestShots() {
+		addShots(25);
+
+		assertEquals(CAPACITY, model.size());
+		assertEquals(15, getSecond(0));
+		assertEquals(24, getSecond(CAPACITY - 1));
+		assertTrue(model.hasOlder());
+		assertTrue(model.isFollowing());
+	}
+
+	@Test
+	public void testSplitsAcrossEvictions() {
+		addShots(CAPACITY + 1);
+
+		assertEquals("1.00", model.get(0).getSplit().getSplit());
+		assertEquals("1.00", model.get(CAPACITY - 1).getSplit().getSplit());
+	}
+
+	@Test
+	public void testEvictionIsSeparateChange() {
+		addShots(CAPACITY);
+
+		final List<Integer> addedSizes = new ArrayList<>();
+		model.addListener((ListChangeListener<ShotEntry>) change -> {
+			change.next();
+			addedSizes.add(change.getAddedSize());
+		});
+
+		addShots(1);
+
+		// Listeners that only look at the first change still see the new
+		// entry
+		assertEquals(2, addedSizes.size());
+		assertEquals(0, (int) addedSizes.get(0));
+		assertEquals(1, (int) addedSizes.get(1));
+	}
+
+	@Test
+	public void testPageOlderAndNewer() {
+		addShots(25);
+
+		assertEquals(CAPACITY / 2, model.showOlder());
+		assertFalse(model.isFollowing());
+		assertEquals(CAPACITY, model.size());
+		assertEquals(10, getSecond(0));
+		assertEquals(19, getSecond(CAPACITY - 1));
+
+		// Paged in entries keep the data exercises added to them
+		assertEquals("10", model.get(0).getExerciseValue("Shot"));
+		assertTrue(model.get(4).getSplit().hadReload());
+
+		model.showOlder();
+		model.showOlder();
+		assertEquals(0, getSecond(0));
+		assertFalse(model.hasOlder());
+		assertEquals(0, model.showOlder());
+
+		model.showNewer();
+		model.showNewer();
+		assertFalse(model.isFollowing());
+		assertEquals(10, getSecond(0));
+
+		model.showNewer();
+		assertTrue(model.isFollowing());
+		assertEquals(15, getSecond(0));
+	}
+
+	@Test
+	public void testAddReturnsToNewest() {
+		addShots(25);
+		model.showOlder();
+
+		addShots(1);
+
+		assertTrue(model.isFollowing());
+		assertEquals(25, getSecond(CAPACITY - 1));
+		assertEquals("1.00", model.get(CAPACITY - 1).getSplit().getSplit());
+	}
+
+	@Test
+	public void testClear() {
+		addShots(25);
+		model.showOlder();
+
+		model.clear();
+		nextSecond = 0;
+
+		assertEquals(0, model.size());
+		assertTrue(model.isFollowing());
+		assertFalse(model.hasOlder());
+
+		addShots(1);
+		assertEquals("-", model.get(0).getSplit().getSplit());
+	}
+}
@@ -0,0 +1,183 @@
+package com.shootoff.headless;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.shootoff.camera.shot.ShotColor;
+import com.shootoff.headless.protocol.EventBatchMessage;
+import com.shootoff.headless.protocol.ExerciseFeedMessage;
+import com.shootoff.headless.protocol.Message;
+import com.shootoff.headless.protocol.MoveTargetMessage;
+import com.shootoff.headless.protocol.NewShotMessage;
+import com.shootoff.headless.protocol.ResizeTargetMessage;
+
+public class TestEventStream {
+	private static final int TIMEOUT = 5000; // ms
+
+	private final BlockingQueue<EventBatchMessage> sent = new LinkedBlockingQueue<>();
+	private EventStream stream;
+
+	@After
+	public void tearDown() {
+		if (stream != null) stream.close();
+	}
+
+	private Message createShot(int timestamp) {
+		return new NewShotMessage(ShotColor.RED, 10, 20, timestamp, 640, 480);
+	}
+
+	private EventBatchMessage nextBatch() throws InterruptedException {
+		final EventBatchMessage batch = sent.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		assertNotNull(batch);
+		return batch;
+	}
+
+	@Test
+	public void testEventsAreBatched() throws InterruptedException {
+		stream = new EventStream((message) -> sent.add((EventBatchMessage) message), 100, 32, 1024);
+
+		for (int i = 0; i < 3; i++)
+			stream.publish(createShot(i));
+
+		final EventBatchMessage batch = nextBatch();
+		assertEquals(1, batch.getFirstSequence());
+		assertEquals(3, batch.getLastSequence());
+		assertEquals(2, ((NewShotMessage) batch.getEvents().get(2)).getTimestamp());
+
+		stream.publish(createShot(3));
+		assertEquals(4, nextBatch().getFirstSequence());
+	}
+
+	@Test
+	public void testFullBatchIsSentImmediately() throws InterruptedException {
+		stream = new EventStream((message) -> sent.add((EventBatchMessage) message), 60000, 4, 1024);
+
+		for (int i = 0; i < 3; i++)
+			stream.publish(createShot(i));
+
+		assertTrue(sent.isEmpty());
+		stream.publish(createShot(3));
+
+		assertEquals(4, nextBatch().getEvents().size());
+	}
+
+	@Test
+	public void testCoalesce() {
+		final UUID first = UUID.randomUUID();
+		final UUID second = UUID.randomUUID();
+
+		final List<Message> coalesced = EventStream.coalesce(Arrays.asList(new MoveTargetMessage(first, 1, 1),
+				new ExerciseFeedMessage("Ready"), createShot(0), new MoveTargetMessage(second, 2, 2),
+				new ResizeTargetMessage(first, 10, 10), new MoveTargetMessage(first, 3, 3), createShot(1),
+				new ExerciseFeedMessage("Shooter 2")));
+
+		assertEquals(6, coalesced.size());
+		assertTrue(coalesced.get(0) instanceof NewShotMessage);
+		assertEquals(second, ((MoveTargetMessage) coalesced.get(1)).getUuid());
+		assertTrue(coalesced.get(2) instanceof ResizeTargetMessage);
+		assertEquals(3, ((MoveTargetMessage) coalesced.get(3)).getNewX(), 0.001);
+		assertTrue(coalesced.get(4) instanceof NewShotMessage);
+		assertEquals("Shooter 2", ((ExerciseFeedMessage) coalesced.get(5)).getMessage());
+	}
+
+	@Test
+	public void testResendFromReplayBuffer() throws InterruptedException {
+		stream = new EventStream((message) -> sent.add((EventBatchMessage) message), 60000, 4, 8);
+		final BlockingQueue<EventBatchMessage> resent = new LinkedBlockingQueue<>();
+
+		for (int i = 0; i < 12; i++)
+			stream.publish(createShot(i));
+
+		for (int i = 0; i < 3; i++)
+			nextBatch();
+
+		stream.resend(6, (message) -> resent.add((EventBatchMessage) message));
+		final EventBatchMessage batch = resent.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+		assertEquals(6, batch.getFirstSequence());
+		assertEquals(12, batch.getLastSequence());
+		assertEquals(5, ((NewShotMessage) batch.getEvents().get(0)).getTimestamp());
+
+		// The first batch no longer fits in the buffer
+		stream.resend(1, (message) -> resent.add((EventBatchMessage) message));
+		assertEquals(5, resent.poll(TIMEOUT, TimeUnit.MILLISECONDS).getFirstSequence());
+
+		stream.resend(13, (message) -> resent.add((EventBatchMessage) message));
+		stream.publish(createShot(12));
+		stream.publish(createShot(13));
+		stream.publish(createShot(14));
+		stream.publish(createShot(15));
+		assertEquals(13, nextBatch().getFirstSequence());
+
+		// Resent events only go to the client that asked for them
+		assertTrue(sent.isEmpty());
+		assertTrue(resent.isEmpty());
+	}
+
+	@Test
+	public void testPublishDoesNotWaitForSender() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<EventBatchMessage> delivered = new ArrayList<>();
+
+		stream = new EventStream((message) -> {
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			synchronized (delivered) {
+				delivered.add((EventBatchMessage) message);
+			}
+		}, 10, 32, 1024);
+
+		final long start = System.currentTimeMillis();
+		for (int i = 0; i < 1000; i++)
+			stream.publish(createShot(i));
+		assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+
+		release.countDown();
+		stream.close();
+		stream = null;
+
+		// Every shot is still delivered once the connection catches up
+		final long end = System.currentTimeMillis() + TIMEOUT;
+		int events = 0;
+		while (events < 1000 && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+
+			synchronized (delivered) {
+				events = 0;
+				for (final EventBatchMessage batch : delivered)
+					events += batch.getEvents().size();
+			}
+		}
+
+		assertEquals(1000, events);
+	}
+
+	@Test
+	public void testBatchJson() {
+		final UUID target = UUID.randomUUID();
+		final EventBatchMessage batch = new EventBatchMessage(7,
+				Arrays.asList(createShot(1), new MoveTargetMessage(target, 4, 5), new ExerciseFeedMessage("Go")));
+
+		final EventBatchMessage decoded = (EventBatchMessage) Message.fromJson(batch.toJson());
+
+		assertEquals(7, decoded.getFirstSequence());
+		assertEquals(3, decoded.getEvents().size());
+		assertEquals(1, ((NewShotMessage) decoded.getEvents().get(0)).getTimestamp());
+		assertEquals(target, ((MoveTargetMessage) decoded.getEvents().get(1)).getUuid());
+		assertEquals("Go", ((ExerciseFeedMessage) decoded.getEvents().get(2)).getMessage());
+	}
+}
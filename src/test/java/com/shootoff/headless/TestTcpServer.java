@@ -0,0 +1,370 @@
+package com.shootoff.headless;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shootoff.camera.shot.ShotColor;
+import com.shootoff.headless.protocol.ErrorMessage;
+import com.shootoff.headless.protocol.EventBatchMessage;
+import com.shootoff.headless.protocol.ErrorMessage.ErrorType;
+import com.shootoff.headless.protocol.HeartbeatMessage;
+import com.shootoff.headless.protocol.Message;
+import com.shootoff.headless.protocol.MessageListener;
+import com.shootoff.headless.protocol.NewShotMessage;
+import com.shootoff.headless.protocol.ProtocolCodec;
+import com.shootoff.headless.protocol.ProtocolVersionMessage;
+import com.shootoff.headless.protocol.ResendEventsMessage;
+import com.shootoff.headless.protocol.ResetMessage;
+
+public class TestTcpServer {
+	private static final int TIMEOUT = 5000; // ms
+
+	private final BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+	private volatile int connections = 0;
+	private TcpServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		startServer(TcpServer.DEFAULT_MAX_QUEUED_BYTES);
+	}
+
+	@After
+	public void tearDown() {
+		server.close();
+	}
+
+	private void startServer(int maxQueuedBytes) throws IOException {
+		if (server != null) server.close();
+
+		server = new TcpServer(0, maxQueuedBytes);
+		server.startReading(new ConnectionListener() {
+			@Override
+			public void connectionEstablished() {
+				connections++;
+			}
+
+			@Override
+			public void bluetoothDisconnected() {}
+		}, received::add);
+	}
+
+	private Socket connect() throws IOException {
+		final Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		socket.setSoTimeout(TIMEOUT);
+		return socket;
+	}
+
+	private void waitFor(BooleanSupplier condition) throws InterruptedException {
+		final long end = System.currentTimeMillis() + TIMEOUT;
+
+		while (!condition.getAsBoolean()) {
+			assertTrue("Timed out", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	private BufferedReader createReader(Socket client) throws IOException {
+		return new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+	}
+
+	private <T extends Message> T readFrame(InputStream input, ProtocolCodec codec, Class<T> type)
+			throws IOException {
+		final byte[] buffer = new byte[4096];
+
+		while (true) {
+			final int read = input.read(buffer);
+			assertTrue(read > 0);
+
+			for (final Message message : codec.decode(buffer, 0, read)) {
+				if (type.isInstance(message)) return type.cast(message);
+			}
+		}
+	}
+
+	private Message readLine(BufferedReader reader) throws IOException {
+		Message message;
+
+		do {
+			message = Message.fromJson(reader.readLine());
+		} while (message instanceof HeartbeatMessage);
+
+		return message;
+	}
+
+	@Test
+	public void testReceiveMessage() throws IOException, InterruptedException {
+		try (Socket client = connect()) {
+			client.getOutputStream().write(new ResetMessage().toJson().getBytes(StandardCharsets.UTF_8));
+
+			assertTrue(received.poll(TIMEOUT, TimeUnit.MILLISECONDS) instanceof ResetMessage);
+			assertEquals(1, connections);
+		}
+	}
+
+	@Test
+	public void testShotsAreBroadcast() throws IOException, InterruptedException {
+		try (Socket first = connect(); Socket second = connect()) {
+			waitFor(() -> server.getClientCount() == 2);
+
+			assertTrue(server.sendMessage(new NewShotMessage(ShotColor.GREEN, 10, 20, 30, 640, 480)));
+
+			for (final Socket client : new Socket[] { first, second }) {
+				final BufferedReader reader = new BufferedReader(
+						new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+				final NewShotMessage shot = (NewShotMessage) readLine(reader);
+
+				assertEquals(ShotColor.GREEN, shot.getColor());
+				assertEquals(20, shot.getY(), 0.001);
+			}
+		}
+
+		waitFor(() -> server.getClientCount() == 0);
+		assertFalse(server.sendMessage(new HeartbeatMessage()));
+	}
+
+	@Test
+	public void testVersionIsNegotiatedPerClient() throws IOException, InterruptedException {
+		try (Socket client = connect()) {
+			final ProtocolCodec codec = ProtocolCodec.forClient();
+			client.getOutputStream().write(codec.encode(new ProtocolVersionMessage(ProtocolCodec.CURRENT_VERSION)));
+
+			final InputStream input = client.getInputStream();
+			final byte[] buffer = new byte[4096];
+			ProtocolVersionMessage answer = null;
+
+			while (answer == null) {
+				final int read = input.read(buffer);
+				assertTrue(read > 0);
+
+				for (final Message message : codec.decode(buffer, 0, read)) {
+					if (message instanceof ProtocolVersionMessage) answer = (ProtocolVersionMessage) message;
+				}
+			}
+
+			assertEquals(ProtocolCodec.BINARY_VERSION, answer.getVersion());
+
+			server.sendMessage(new ErrorMessage("Camera disconnected", ErrorType.CAMERA));
+
+			ErrorMessage error = null;
+			while (error == null) {
+				final int read = input.read(buffer);
+				assertTrue(read > 0);
+
+				// Binary frames never start with a JSON brace
+				for (final Message message : codec.decode(buffer, 0, read)) {
+					if (message instanceof ErrorMessage) error = (ErrorMessage) message;
+				}
+			}
+
+			assertEquals("Camera disconnected", error.getMessage());
+		}
+	}
+
+	@Test
+	public void testBatchesAreExpandedForJsonClients() throws IOException, InterruptedException {
+		try (Socket jsonClient = connect(); Socket binaryClient = connect()) {
+			final ProtocolCodec codec = ProtocolCodec.forClient();
+			binaryClient.getOutputStream()
+					.write(codec.encode(new ProtocolVersionMessage(ProtocolCodec.CURRENT_VERSION)));
+			readFrame(binaryClient.getInputStream(), codec, ProtocolVersionMessage.class);
+
+			jsonClient.getOutputStream().write('\n');
+			waitFor(() -> server.getClientCount() == 2);
+
+			server.sendMessage(new EventBatchMessage(1, Arrays.asList(
+					new NewShotMessage(ShotColor.RED, 1, 2, 3, 640, 480),
+					new NewShotMessage(ShotColor.GREEN, 4, 5, 6, 640, 480))));
+
+			final BufferedReader reader = createReader(jsonClient);
+			assertEquals(ShotColor.RED, ((NewShotMessage) readLine(reader)).getColor());
+			assertEquals(ShotColor.GREEN, ((NewShotMessage) readLine(reader)).getColor());
+
+			final EventBatchMessage batch = readFrame(binaryClient.getInputStream(), codec,
+					EventBatchMessage.class);
+			assertEquals(2, batch.getEvents().size());
+		}
+	}
+
+	@Test
+	public void testResendOnlyGoesToRequester() throws IOException, InterruptedException {
+		server.close();
+		server = new TcpServer(0, TcpServer.DEFAULT_MAX_QUEUED_BYTES);
+
+		final EventStream events = new EventStream(server::sendMessage, 10, 32, 1024);
+		server.startReading(null, new MessageListener() {
+			@Override
+			public void messageReceived(Message message) {
+				received.add(message);
+			}
+
+			@Override
+			public void messageReceived(Message message, Consumer<Message> reply) {
+				if (message instanceof ResendEventsMessage) {
+					events.resend(((ResendEventsMessage) message).getFromSequence(), reply);
+				} else {
+					messageReceived(message);
+				}
+			}
+		});
+
+		try (Socket requester = connect(); Socket other = connect()) {
+			requester.getOutputStream().write('\n');
+			other.getOutputStream().write('\n');
+			waitFor(() -> server.getClientCount() == 2);
+
+			for (int i = 0; i < 3; i++)
+				events.publish(new NewShotMessage(ShotColor.RED, 10, 20, i, 640, 480));
+
+			final BufferedReader requesterReader = createReader(requester);
+			final BufferedReader otherReader = createReader(other);
+			for (final BufferedReader reader : new BufferedReader[] { requesterReader, otherReader }) {
+				for (int i = 0; i < 3; i++)
+					assertEquals(i, ((NewShotMessage) readLine(reader)).getTimestamp());
+			}
+
+			requester.getOutputStream()
+					.write(new ResendEventsMessage(2).toJson().getBytes(StandardCharsets.UTF_8));
+
+			assertEquals(1, ((NewShotMessage) readLine(requesterReader)).getTimestamp());
+			assertEquals(2, ((NewShotMessage) readLine(requesterReader)).getTimestamp());
+
+			// The other client goes straight to the next broadcast
+			server.sendMessage(new ResetMessage());
+			assertTrue(readLine(requesterReader) instanceof ResetMessage);
+			assertTrue(readLine(otherReader) instanceof ResetMessage);
+		} finally {
+			events.close();
+		}
+	}
+
+	@Test
+	public void testWebSocket() throws IOException, InterruptedException {
+		try (Socket client = connect()) {
+			final OutputStream output = client.getOutputStream();
+			output.write(("GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+					+ "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n")
+							.getBytes(StandardCharsets.ISO_8859_1));
+
+			final DataInputStream input = new DataInputStream(client.getInputStream());
+			final StringBuilder response = new StringBuilder();
+			while (response.indexOf("\r\n\r\n") == -1)
+				response.append((char) input.readByte());
+
+			assertTrue(response.toString().startsWith("HTTP/1.1 101"));
+			assertTrue(response.toString().contains("s3pPLMBiTxaQ9kYGzzhZRbK+xOo="));
+
+			// Masked text frame with a message and no new line
+			final byte[] payload = new ResetMessage().toJson().trim().getBytes(StandardCharsets.UTF_8);
+			final byte[] mask = { 1, 2, 3, 4 };
+			output.write(new byte[] { (byte) 0x81, (byte) (0x80 | payload.length) });
+			output.write(mask);
+			for (int i = 0; i < payload.length; i++)
+				output.write(payload[i] ^ mask[i % 4]);
+
+			assertTrue(received.poll(TIMEOUT, TimeUnit.MILLISECONDS) instanceof ResetMessage);
+
+			server.sendMessage(new ResetMessage());
+
+			Message message;
+			do {
+				assertEquals(0x80 | WebSocketCodec.OPCODE_TEXT, input.readUnsignedByte());
+				final byte[] text = new byte[input.readUnsignedByte()];
+				input.readFully(text);
+				message = Message.fromJson(new String(text, StandardCharsets.UTF_8));
+			} while (message instanceof HeartbeatMessage);
+
+			assertTrue(message instanceof ResetMessage);
+		}
+	}
+
+	@Test
+	public void testSlowClientIsEvicted() throws IOException, InterruptedException {
+		startServer(64 * 1024);
+
+		try (Socket slow = connect(); Socket fast = connect()) {
+			slow.getOutputStream().write('\n');
+			fast.getOutputStream().write('\n');
+			waitFor(() -> server.getClientCount() == 2);
+
+			final BufferedReader reader = new BufferedReader(
+					new InputStreamReader(fast.getInputStream(), StandardCharsets.UTF_8));
+			final StringBuilder text = new StringBuilder();
+			for (int i = 0; i < 1024; i++)
+				text.append("Lost sight of the target. ");
+
+			// The slow client never reads, so its queue eventually fills up
+			// while the fast client keeps receiving messages
+			for (int i = 0; i < 1000 && server.getClientCount() == 2; i++) {
+				server.sendMessage(new ErrorMessage(text.toString(), ErrorType.TARGET));
+				assertTrue(readLine(reader) instanceof ErrorMessage);
+			}
+
+			assertEquals(1, server.getClientCount());
+		}
+	}
+
+	@Test
+	public void testClientWithoutNewLinesIsDisconnected() throws IOException, InterruptedException {
+		try (Socket client = connect()) {
+			waitFor(() -> server.getClientCount() == 1);
+
+			final byte[] chunk = new byte[1024 * 1024];
+			Arrays.fill(chunk, (byte) 'a');
+			chunk[0] = '{';
+
+			try {
+				final OutputStream output = client.getOutputStream();
+				for (int i = 0; i < 128 && server.getClientCount() == 1; i++)
+					output.write(chunk);
+			} catch (final IOException e) {
+				// The server closed the connection while we were writing
+			}
+
+			waitFor(() -> server.getClientCount() == 0);
+			assertTrue(received.isEmpty());
+		}
+	}
+
+	@Test
+	public void testDecodeFragmentedWebSocketMessage() throws IOException {
+		final WebSocketCodec codec = new WebSocketCodec();
+		final byte[] mask = { 0, 0, 0, 0 };
+
+		final byte[] first = { 0x01, (byte) 0x82, 0, 0, 0, 0, 'a', 'b' };
+		final byte[] ping = { (byte) 0x89, (byte) 0x80, 0, 0, 0, 0 };
+		final byte[] last = { (byte) 0x80, (byte) 0x81, mask[0], mask[1], mask[2], mask[3], 'c' };
+
+		assertTrue(codec.decode(first, 0, first.length).isEmpty());
+
+		final List<WebSocketCodec.Frame> frames = codec.decode(ping, 0, ping.length);
+		assertEquals(1, frames.size());
+		assertEquals(WebSocketCodec.OPCODE_PING, frames.get(0).getOpcode());
+
+		// Split a frame across reads
+		assertTrue(codec.decode(last, 0, 3).isEmpty());
+		final List<WebSocketCodec.Frame> message = codec.decode(last, 3, last.length - 3);
+		assertEquals(1, message.size());
+		assertEquals(WebSocketCodec.OPCODE_TEXT, message.get(0).getOpcode());
+		assertEquals("abc", new String(message.get(0).getPayload(), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,220 @@
+package com.shootoff.headless.protocol;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shootoff.camera.shot.ShotColor;
+import com.shootoff.headless.protocol.ErrorMessage.ErrorType;
+
+public class TestProtocolCodec {
+	private static final int WIDTH = 200;
+	private static final int HEIGHT = 100;
+
+	private ProtocolCodec server;
+	private ProtocolCodec client;
+
+	@Before
+	public void setUp() {
+		server = new ProtocolCodec();
+		client = ProtocolCodec.forClient();
+	}
+
+	private List<Message> decode(ProtocolCodec codec, byte[] data) throws IOException {
+		return codec.decode(data, 0, data.length);
+	}
+
+	private void negotiate() throws IOException {
+		final List<Message> request = decode(server,
+				client.encode(new ProtocolVersionMessage(ProtocolCodec.CURRENT_VERSION)));
+		assertEquals(1, request.size());
+		assertEquals(ProtocolCodec.BINARY_VERSION, server.getOutputVersion());
+
+		final List<Message> answer = decode(client,
+				server.encode(new ProtocolVersionMessage(server.getOutputVersion())));
+		assertEquals(ProtocolCodec.BINARY_VERSION, ((ProtocolVersionMessage) answer.get(0)).getVersion());
+		assertEquals(ProtocolCodec.BINARY_VERSION, client.getOutputVersion());
+	}
+
+	private int[] createPixels() {
+		final int[] pixels = new int[WIDTH * HEIGHT];
+		for (int i = 0; i < pixels.length; i++)
+			pixels[i] = 0xFF000000 | (i % WIDTH) << 8 | (i / WIDTH);
+
+		return pixels;
+	}
+
+	@Test
+	public void testJsonClientsAreUnchanged() throws IOException {
+		final Message shot = new NewShotMessage(ShotColor.RED, 1, 2, 3, 4, 5);
+
+		assertEquals(ProtocolCodec.JSON_VERSION, server.getOutputVersion());
+		assertArrayEquals(shot.toJson().getBytes(StandardCharsets.UTF_8), server.encode(shot));
+
+		// Lines can be split across reads
+		final byte[] line = new HeartbeatMessage().toJson().getBytes(StandardCharsets.UTF_8);
+		assertTrue(decode(server, Arrays.copyOf(line, 5)).isEmpty());
+
+		final List<Message> messages = server.decode(line, 5, line.length - 5);
+		assertEquals(1, messages.size());
+		assertTrue(messages.get(0) instanceof HeartbeatMessage);
+	}
+
+	@Test
+	public void testMessagesAfterNegotiation() throws IOException {
+		negotiate();
+
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			text.append("Failed to find target").append(i).append(".target. ");
+
+		final ErrorMessage error = new ErrorMessage(text.toString(), ErrorType.TARGET);
+		final byte[] json = error.toJson().getBytes(StandardCharsets.UTF_8);
+		final byte[] frame = server.encode(error);
+		assertTrue(frame.length < json.length / 4);
+
+		// Frames can be split across reads and mixed with JSON lines
+		final byte[] heartbeat = new HeartbeatMessage().toJson().getBytes(StandardCharsets.UTF_8);
+		final byte[] data = new byte[heartbeat.length + frame.length];
+		System.arraycopy(heartbeat, 0, data, 0, heartbeat.length);
+		System.arraycopy(frame, 0, data, heartbeat.length, frame.length);
+
+		final List<Message> messages = new ArrayList<>();
+		for (int i = 0; i < data.length; i += 7)
+			messages.addAll(client.decode(data, i, Math.min(7, data.length - i)));
+
+		assertEquals(2, messages.size());
+		assertTrue(messages.get(0) instanceof HeartbeatMessage);
+		assertEquals(text.toString(), ((ErrorMessage) messages.get(1)).getMessage());
+	}
+
+	@Test
+	public void testSnapshotDeltas() throws IOException {
+		negotiate();
+
+		final int[] pixels = createPixels();
+		final byte[] imageFrame = server.encode(new CurrentArenaSnapshotMessage(pixels, WIDTH, HEIGHT));
+		final CurrentArenaSnapshotMessage first = (CurrentArenaSnapshotMessage) decode(client, imageFrame).get(0);
+
+		assertEquals(ProtocolCodec.TYPE_SNAPSHOT_IMAGE, imageFrame[4]);
+		assertArrayEquals(pixels, first.getArenaSnapshotPixels());
+
+		// Nothing to base a delta on until the client acknowledges a snapshot
+		final int[] changed = pixels.clone();
+		changed[WIDTH * 50 + 100] = 0xFFFF0000;
+		assertEquals(ProtocolCodec.TYPE_SNAPSHOT_IMAGE,
+				server.encode(new CurrentArenaSnapshotMessage(changed, WIDTH, HEIGHT))[4]);
+
+		decode(server, client.encode(new ArenaSnapshotAckMessage(first.getSnapshotId())));
+
+		final byte[] deltaFrame = server.encode(new CurrentArenaSnapshotMessage(changed, WIDTH, HEIGHT));
+		assertEquals(ProtocolCodec.TYPE_SNAPSHOT_DELTA, deltaFrame[4]);
+		assertTrue(deltaFrame.length < imageFrame.length / 4);
+
+		final CurrentArenaSnapshotMessage second = (CurrentArenaSnapshotMessage) decode(client, deltaFrame).get(0);
+		assertTrue(second.getSnapshotId() > first.getSnapshotId());
+		assertArrayEquals(changed, second.getArenaSnapshotPixels());
+	}
+
+	@Test(expected = IOException.class)
+	public void testServerRejectsSnapshots() throws IOException {
+		negotiate();
+
+		final ProtocolCodec otherServer = new ProtocolCodec();
+		decode(otherServer, client.encode(new ProtocolVersionMessage(ProtocolCodec.CURRENT_VERSION)));
+		decode(server, otherServer.encode(new CurrentArenaSnapshotMessage(createPixels(), WIDTH, HEIGHT)));
+	}
+
+	@Test
+	public void testMalformedDeltasAreRejected() throws IOException {
+		// Offsets of the tile size, the tile count and the first tile's x in
+		// a delta frame
+		final int[][] corruptions = { { 22, 0 }, { 21, 0x80 }, { 23, 0x7F }, { 27, 0x7F } };
+
+		for (final int[] corruption : corruptions) {
+			// A codec that failed to decode keeps the bad frame, so start over
+			setUp();
+			negotiate();
+
+			final int[] pixels = createPixels();
+			final CurrentArenaSnapshotMessage first = (CurrentArenaSnapshotMessage) decode(client,
+					server.encode(new CurrentArenaSnapshotMessage(pixels, WIDTH, HEIGHT))).get(0);
+			decode(server, client.encode(new ArenaSnapshotAckMessage(first.getSnapshotId())));
+
+			final int[] changed = pixels.clone();
+			changed[WIDTH * 50 + 100] = 0xFFFF0000;
+			final byte[] delta = server.encode(new CurrentArenaSnapshotMessage(changed, WIDTH, HEIGHT));
+			assertEquals(ProtocolCodec.TYPE_SNAPSHOT_DELTA, delta[4]);
+			delta[corruption[0]] = (byte) corruption[1];
+
+			try {
+				decode(client, delta);
+				fail("Decoded a delta with byte " + corruption[0] + " set to " + corruption[1]);
+			} catch (final IOException e) {}
+		}
+	}
+
+	@Test
+	public void testLargeChangesAreSentAsImages() throws IOException {
+		negotiate();
+
+		final int[] pixels = createPixels();
+		final CurrentArenaSnapshotMessage first = (CurrentArenaSnapshotMessage) decode(client,
+				server.encode(new CurrentArenaSnapshotMessage(pixels, WIDTH, HEIGHT))).get(0);
+		decode(server, client.encode(new ArenaSnapshotAckMessage(first.getSnapshotId())));
+
+		final int[] inverted = new int[pixels.length];
+		for (int i = 0; i < pixels.length; i++)
+			inverted[i] = ~pixels[i] | 0xFF000000;
+
+		final byte[] frame = server.encode(new CurrentArenaSnapshotMessage(inverted, WIDTH, HEIGHT));
+		assertEquals(ProtocolCodec.TYPE_SNAPSHOT_IMAGE, frame[4]);
+		assertArrayEquals(inverted,
+				((CurrentArenaSnapshotMessage) decode(client, frame).get(0)).getArenaSnapshotPixels());
+	}
+
+	@Test
+	public void testLongLineIsRejected() throws IOException {
+		final byte[] chunk = new byte[1024 * 1024];
+		Arrays.fill(chunk, (byte) ' ');
+		chunk[0] = '{';
+
+		// A long line arriving in many reads still decodes
+		for (int i = 0; i < 4; i++)
+			assertTrue(decode(server, chunk).isEmpty());
+		final byte[] line = new HeartbeatMessage().toJson().getBytes(StandardCharsets.UTF_8);
+		assertTrue(decode(server, new byte[] { '\n' }).isEmpty());
+		assertEquals(1, decode(server, line).size());
+
+		try {
+			for (int i = 0; i <= ProtocolCodec.MAX_FRAME_LENGTH / chunk.length; i++)
+				decode(server, chunk);
+
+			fail("A line without an end was buffered forever");
+		} catch (final IOException e) {
+			assertTrue(e.getMessage().startsWith("Line is longer"));
+		}
+	}
+
+	@Test
+	public void testWrongShapedJsonIsIgnored() throws IOException {
+		for (final String json : new String[] { "[]\n", "42\n", "{\"type\":[],\"data\":{}}\n",
+				"{\"type\":\"java.lang.String\",\"data\":\"x\"}\n" }) {
+			assertTrue(json, decode(server, json.getBytes(StandardCharsets.UTF_8)).isEmpty());
+		}
+
+		assertEquals(1, decode(server, new HeartbeatMessage().toJson().getBytes(StandardCharsets.UTF_8)).size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFrameLength() throws IOException {
+		decode(server, new byte[] { 0, 0, 0, 0, ProtocolCodec.TYPE_JSON });
+	}
+}
@@ -0,0 +1,84 @@
+package com.shootoff.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+	@Test
+	public void testBucketsCoverRange() {
+		int lastIndex = -1;
+
+		for (long value = 0; value < 100000; value++) {
+			final int index = LatencyHistogram.bucketIndex(value);
+
+			assertTrue(index == lastIndex || index == lastIndex + 1);
+			assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+
+			lastIndex = index;
+		}
+
+		assertTrue(LatencyHistogram.bucketIndex(Long.MAX_VALUE) < 960);
+	}
+
+	@Test
+	public void testEmpty() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean(), 0);
+		assertEquals(0, histogram.get99thPercentile(), 0);
+	}
+
+	@Test
+	public void testPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		// 1 ms to 100 ms
+		for (int i = 1; i <= 100; i++)
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(50.5, histogram.getMean(), 0.001);
+		assertEquals(100, histogram.getMax(), 0.001);
+
+		// Buckets are within about 6% of the recorded value
+		assertEquals(50, histogram.get50thPercentile(), 50 * 0.07);
+		assertEquals(90, histogram.get90thPercentile(), 90 * 0.07);
+		assertEquals(99, histogram.get99thPercentile(), 99 * 0.07);
+		assertTrue(histogram.get999thPercentile() <= histogram.getMax());
+	}
+
+	@Test
+	public void testReset() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax(), 0);
+		assertEquals(0, histogram.get50thPercentile(), 0);
+	}
+
+	@Test
+	public void testRegistryReturnsSameMetric() {
+		final MetricsRegistry registry = MetricsRegistry.getRegistry();
+
+		final Counter counter = registry.counter("test.counter");
+		counter.increment();
+		counter.add(2);
+
+		assertSame(counter, registry.counter("test.counter"));
+		assertEquals(3, registry.getCounters().get("test.counter").getCount());
+
+		assertSame(registry.histogram("test.histogram"), registry.histogram("test.histogram"));
+
+		registry.gauge("test.gauge", () -> 42);
+		assertEquals(42, registry.getGauges().get("test.gauge").getValue(), 0);
+
+		registry.removeGauge("test.gauge");
+		assertFalse(registry.getGauges().containsKey("test.gauge"));
+	}
+}
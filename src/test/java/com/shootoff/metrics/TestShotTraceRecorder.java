@@ -0,0 +1,76 @@
+package com.shootoff.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.shootoff.metrics.ShotTrace.Stage;
+
+public class TestShotTraceRecorder {
+	private ShotTraceRecorder recorder;
+
+	@Before
+	public void setUp() {
+		recorder = new ShotTraceRecorder(4, false);
+	}
+
+	@Test
+	public void testRingKeepsNewestTraces() {
+		final ShotTrace[] traces = new ShotTrace[6];
+		for (int i = 0; i < traces.length; i++) {
+			traces[i] = new ShotTrace("camera", i + 1, Optional.empty());
+			recorder.record(traces[i]);
+		}
+
+		final List<ShotTrace> retained = recorder.getTraces();
+
+		assertEquals(6, recorder.getRecordedCount());
+		assertEquals(4, retained.size());
+		for (int i = 0; i < retained.size(); i++) {
+			assertSame(traces[i + 2], retained.get(i));
+		}
+	}
+
+	@Test
+	public void testLatencyIsLastStamp() {
+		final ShotTrace trace = new ShotTrace("camera", 1000, Optional.empty());
+		trace.stamp(Stage.SHOT_CREATED, 3000);
+		trace.stamp(Stage.EXERCISE_NOTIFIED, 9000);
+		trace.stamp(Stage.MARKER_DRAWN, 5000);
+
+		assertEquals(8000, trace.getLatency());
+		assertFalse(trace.getStamp(Stage.COLOR_CONVERTED).isPresent());
+		assertEquals(3000, (long) trace.getStamp(Stage.SHOT_CREATED).get());
+	}
+
+	@Test
+	public void testChromeTrace() throws IOException {
+		final long captureTime = TimeUnit.MILLISECONDS.toNanos(100);
+		final ShotTrace trace = new ShotTrace("camera", captureTime, Optional.of(40L));
+		trace.stamp(Stage.DETECTION_STARTED, captureTime + TimeUnit.MILLISECONDS.toNanos(2));
+		trace.stamp(Stage.SHOT_CREATED, captureTime + TimeUnit.MILLISECONDS.toNanos(10));
+		trace.stamp(Stage.EXERCISE_NOTIFIED, captureTime + TimeUnit.MILLISECONDS.toNanos(25));
+		recorder.record(trace);
+
+		assertEquals(25.0, recorder.getLastLatency(), 0.001);
+		assertEquals(40, TimeUnit.NANOSECONDS.toMillis(trace.getProjectorDelay().get()));
+
+		final StringWriter writer = new StringWriter();
+		recorder.writeChromeTrace(writer);
+		final String json = writer.toString();
+
+		assertTrue(json.contains("\"traceEvents\""));
+		assertTrue(json.contains("\"shot " + trace.getId() + "\""));
+		assertTrue(json.contains("\"projector delay\""));
+		assertTrue(json.contains("\"" + Stage.DETECTION_STARTED.getLabel() + "\""));
+		assertTrue(json.contains("\"" + Stage.EXERCISE_NOTIFIED.getLabel() + "\""));
+		assertFalse(json.contains("\"" + Stage.COLOR_CONVERTED.getLabel() + "\""));
+	}
+}
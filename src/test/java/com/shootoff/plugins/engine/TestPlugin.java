@@ -28,19 +28,24 @@ public class TestPlugin {
 	}
 
 	@Test
-	public void testStandardPlugin() throws ParserConfigurationException, SAXException, IOException {
+	public void testStandardPlugin()
+			throws ParserConfigurationException, SAXException, IOException, ClassNotFoundException {
 		Plugin p = new Plugin(pluginDir.resolve(Paths.get("ShotScore.jar")));
-		assertEquals("com.shootoff.plugins.ShotScore", p.getExercise().getClass().getName());
-		assertEquals("Shot Score", p.getExercise().getInfo().getName());
+		assertFalse(p.isLoaded());
+		assertEquals("com.shootoff.plugins.ShotScore", p.getExerciseClass().getName());
+		assertEquals("Shot Score", p.getDescriptor().getInfo().getName());
 		assertEquals(PluginType.STANDARD, p.getType());
+		assertFalse(p.getDescriptor().isProjectorExercise());
 	}
 
 	@Test
-	public void testProjectorPlugin() throws ParserConfigurationException, SAXException, IOException {
+	public void testProjectorPlugin()
+			throws ParserConfigurationException, SAXException, IOException, ClassNotFoundException {
 		Plugin p = new Plugin(pluginDir.resolve(Paths.get("SteelContest.jar")));
-		assertEquals("com.shootoff.plugins.SteelContest", p.getExercise().getClass().getName());
-		assertEquals("Steel Contest", p.getExercise().getInfo().getName());
+		assertEquals("com.shootoff.plugins.SteelContest", p.getExerciseClass().getName());
+		assertEquals("Steel Contest", p.getDescriptor().getInfo().getName());
 		assertEquals(PluginType.PROJECTOR_ONLY, p.getType());
+		assertTrue(p.getDescriptor().isProjectorExercise());
 	}
 
 	@Test(expected = IllegalArgumentException.class)
@@ -8,8 +8,6 @@ import java.io.IOException;
 import org.junit.Before;
 import org.junit.Test;
 
-import com.shootoff.plugins.TrainingExercise;
-
 public class TestPluginEngine {
 	private String pluginsPath;
 	private PluginEngine pe;
@@ -22,13 +20,13 @@ public class TestPluginEngine {
 
 		pe = new PluginEngine(new PluginListener() {
 			@Override
-			public void registerExercise(TrainingExercise exercise) {}
+			public void registerExercise(ExerciseDescriptor exercise) {}
 
 			@Override
-			public void registerProjectorExercise(TrainingExercise exercise) {}
+			public void registerProjectorExercise(ExerciseDescriptor exercise) {}
 
 			@Override
-			public void unregisterExercise(TrainingExercise exercise) {}
+			public void unregisterExercise(ExerciseDescriptor exercise) {}
 		});
 	}
 
@@ -36,4 +34,13 @@ public class TestPluginEngine {
 	public void testExistingPlugins() {
 		assertEquals(2, pe.getPlugins().size());
 	}
+
+	@Test
+	public void testPluginsAreListedWithoutLoading() {
+		for (final Plugin p : pe.getPlugins()) {
+			assertFalse(p.isLoaded());
+			assertSame(p, p.getDescriptor().getPlugin().get());
+			assertEquals(p.getMetadata(), p.getDescriptor().getInfo());
+		}
+	}
 }
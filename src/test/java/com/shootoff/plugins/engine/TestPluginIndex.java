@@ -0,0 +1,105 @@
+package com.shootoff.plugins.engine;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Optional;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+import com.shootoff.gui.JavaFXThreadingRule;
+
+public class TestPluginIndex {
+	@Rule public JavaFXThreadingRule javafxRule = new JavaFXThreadingRule();
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path jarPath;
+	private File indexFile;
+
+	@Before
+	public void setUp() throws IOException {
+		final Path pluginDir = Paths.get(System.getProperty("user.dir") + File.separator + "src" + File.separator
+				+ "test" + File.separator + "exercises");
+
+		jarPath = folder.getRoot().toPath().resolve("ShotScore.jar");
+		Files.copy(pluginDir.resolve("ShotScore.jar"), jarPath);
+		indexFile = new File(folder.getRoot(), PluginIndex.INDEX_FILE);
+	}
+
+	private PluginIndex createIndex() throws ParserConfigurationException, SAXException, IOException {
+		final PluginIndex index = new PluginIndex(Optional.of(indexFile));
+		index.put(new Plugin(jarPath));
+		index.store();
+
+		return index;
+	}
+
+	@Test
+	public void testIndexedPluginIsNotLoaded() throws Exception {
+		final Plugin original = new Plugin(jarPath);
+		createIndex();
+
+		final Optional<Plugin> indexed = new PluginIndex(Optional.of(indexFile)).getPlugin(jarPath);
+
+		assertTrue(indexed.isPresent());
+		assertFalse(indexed.get().isLoaded());
+		assertEquals(original.getMetadata(), indexed.get().getMetadata());
+		assertEquals(original.getMetadata(), indexed.get().getDescriptor().getInfo());
+		assertEquals(PluginType.STANDARD, indexed.get().getType());
+		assertFalse(indexed.get().isLoaded());
+
+		assertEquals("com.shootoff.plugins.ShotScore", indexed.get().getExerciseClass().getName());
+		assertTrue(indexed.get().isLoaded());
+	}
+
+	@Test
+	public void testTouchedJarIsStillIndexed() throws Exception {
+		createIndex();
+
+		assertTrue(jarPath.toFile().setLastModified(jarPath.toFile().lastModified() + 2000));
+
+		assertTrue(new PluginIndex(Optional.of(indexFile)).getPlugin(jarPath).isPresent());
+	}
+
+	@Test
+	public void testChangedJarIsNotIndexed() throws Exception {
+		final PluginIndex index = createIndex();
+
+		try (OutputStream out = Files.newOutputStream(jarPath, StandardOpenOption.APPEND)) {
+			out.write(0);
+		}
+
+		assertFalse(index.getPlugin(jarPath).isPresent());
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void testRetain() throws Exception {
+		final PluginIndex index = createIndex();
+
+		index.retain(Collections.emptySet());
+		index.store();
+
+		assertEquals(0, new PluginIndex(Optional.of(indexFile)).size());
+	}
+
+	@Test
+	public void testUnreadableIndexIsIgnored() throws IOException {
+		Files.write(indexFile.toPath(), "version=1\ncount=x\n".getBytes("UTF-8"));
+
+		assertEquals(0, new PluginIndex(Optional.of(indexFile)).size());
+	}
+}
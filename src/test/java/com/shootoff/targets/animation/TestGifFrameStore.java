@@ -0,0 +1,88 @@
+package com.shootoff.targets.animation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.shootoff.gui.JavaFXThreadingRule;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+public class TestGifFrameStore {
+	@Rule public JavaFXThreadingRule javafxRule = new JavaFXThreadingRule();
+
+	private final File chickenGif = new File("targets" + File.separator + "chicken.gif");
+	private final File popperGif = new File("targets" + File.separator + "ipsc_popper_falling.gif");
+
+	private GifFrameStore store;
+
+	@Before
+	public void setUp() {
+		store = new GifFrameStore(GifFrameStore.DEFAULT_MEMORY_BUDGET);
+	}
+
+	@Test
+	public void testFramesAreShared() throws IOException {
+		final GifFrames first = store.getFrames(chickenGif);
+
+		assertSame(first, store.getFrames(chickenGif));
+		assertTrue(store.isShared(first));
+	}
+
+	@Test
+	public void testFramesAreCompositedLazily() throws IOException {
+		final GifFrames frames = store.getFrames(chickenGif);
+
+		assertEquals(5, frames.getFrameCount());
+		assertEquals(0, frames.getCompositedFrameCount());
+
+		final Image third = frames.getImage(2);
+
+		assertEquals(3, frames.getCompositedFrameCount());
+		assertSame(third, frames.getImage(2));
+		assertEquals(3, frames.getCompositedFrameCount());
+	}
+
+	@Test
+	public void testAnimationsUseTheirOwnFrames() throws IOException {
+		// Frames used to be kept in a static field, so the last GIF read
+		// determined the delay of every animation
+		final GifAnimation chicken = new GifAnimation(new ImageView(), chickenGif);
+		final GifAnimation popper = new GifAnimation(new ImageView(), popperGif);
+
+		assertEquals(5, chicken.getFrameCount());
+		assertEquals(21, popper.getFrameCount());
+		assertNotSame(chicken.getFrame(0), popper.getFrame(0));
+	}
+
+	@Test
+	public void testBudgetReleasesLeastRecentlyUsed() throws IOException {
+		final GifFrames chicken = new GifFrameStore(Long.MAX_VALUE).getFrames(chickenGif);
+		chicken.getImage(chicken.getFrameCount() - 1);
+		final long chickenSize = chicken.getRawSize() + chicken.getCompositedSize();
+
+		// Only room for the fully composited chicken
+		final GifFrameStore smallStore = new GifFrameStore(chickenSize + 1);
+		final GifFrames smallChicken = smallStore.getFrames(chickenGif);
+		final Image lastFrame = smallChicken.getImage(smallChicken.getFrameCount() - 1);
+
+		final GifFrames popper = smallStore.getFrames(popperGif);
+		popper.getImage(0);
+
+		assertEquals(0, smallChicken.getCompositedFrameCount());
+		assertFalse(smallStore.isShared(smallChicken));
+		assertTrue(smallStore.getUsedMemory() <= popper.getRawSize() + popper.getCompositedSize());
+
+		// Released frames are composited again when they are displayed
+		final Image recomposited = smallChicken.getImage(smallChicken.getFrameCount() - 1);
+		assertNotSame(lastFrame, recomposited);
+		assertEquals(lastFrame.getWidth(), recomposited.getWidth(), 0.1);
+		assertNotSame(smallChicken, smallStore.getFrames(chickenGif));
+	}
+}
@@ -0,0 +1,112 @@
+package com.shootoff.targets.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.shootoff.gui.JavaFXThreadingRule;
+import com.shootoff.targets.ImageRegion;
+import com.shootoff.targets.TargetRegion;
+
+import javafx.scene.Node;
+
+public class TestTargetTemplateCache {
+	@Rule public JavaFXThreadingRule javafxRule = new JavaFXThreadingRule();
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private final File ipscTarget = new File("targets" + File.separator + "IPSC.target");
+	private final File chickenTarget = new File("targets" + File.separator + "Chicken_Silhouette.target");
+	private final File popperTarget = new File("targets" + File.separator + "Pepper_Popper.target");
+
+	private TargetTemplateCache cache;
+
+	@Before
+	public void setUp() {
+		System.setProperty("shootoff.home", System.getProperty("user.dir"));
+
+		cache = new TargetTemplateCache(TargetTemplateCache.DEFAULT_MEMORY_BUDGET);
+	}
+
+	@Test
+	public void testTemplateIsReused() {
+		final Optional<TargetTemplate> first = cache.getTemplate(ipscTarget);
+		final Optional<TargetTemplate> second = cache.getTemplate(ipscTarget);
+
+		assertTrue(first.isPresent());
+		assertSame(first.get(), second.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testRegionsAreNewButShareImages() {
+		final TargetTemplate template = cache.getTemplate(chickenTarget).get();
+
+		final List<Node> first = template.createRegions(false);
+		final List<Node> second = template.createRegions(false);
+
+		assertEquals(first.size(), second.size());
+		assertFalse(first.isEmpty());
+
+		for (int i = 0; i < first.size(); i++) {
+			assertNotSame(first.get(i), second.get(i));
+			assertEquals(((TargetRegion) first.get(i)).getAllTags(), ((TargetRegion) second.get(i)).getAllTags());
+
+			if (first.get(i) instanceof ImageRegion) {
+				assertSame(((ImageRegion) first.get(i)).getImage(), ((ImageRegion) second.get(i)).getImage());
+			}
+		}
+	}
+
+	@Test
+	public void testModifiedTargetIsReloaded() throws IOException {
+		final File copy = new File(folder.getRoot(), "IPSC.target");
+		Files.copy(ipscTarget.toPath(), copy.toPath());
+
+		final TargetTemplate first = cache.getTemplate(copy).get();
+		assertTrue(copy.setLastModified(copy.lastModified() + 2000));
+		final TargetTemplate second = cache.getTemplate(copy).get();
+
+		assertNotSame(first, second);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testInvalidate() {
+		final TargetTemplate first = cache.getTemplate(ipscTarget).get();
+		cache.invalidate(ipscTarget);
+
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getUsedMemory());
+		assertNotSame(first, cache.getTemplate(ipscTarget).get());
+	}
+
+	@Test
+	public void testMemoryBudgetEvictsLeastRecentlyUsed() {
+		final long chickenSize = cache.getTemplate(chickenTarget).get().getEstimatedSize();
+		final long popperSize = cache.getTemplate(popperTarget).get().getEstimatedSize();
+		assertTrue(chickenSize > 0 && popperSize > 0);
+
+		final TargetTemplateCache smallCache = new TargetTemplateCache(chickenSize + popperSize - 1);
+		final TargetTemplate chicken = smallCache.getTemplate(chickenTarget).get();
+		smallCache.getTemplate(popperTarget);
+
+		assertEquals(1, smallCache.size());
+		assertEquals(popperSize, smallCache.getUsedMemory());
+		assertNotSame(chicken, smallCache.getTemplate(chickenTarget).get());
+	}
+
+	@Test
+	public void testMissingTarget() {
+		assertFalse(cache.getTemplate(new File("targets" + File.separator + "missing.target")).isPresent());
+		assertEquals(0, cache.size());
+	}
+}
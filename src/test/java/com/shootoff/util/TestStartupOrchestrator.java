@@ -0,0 +1,119 @@
+package com.shootoff.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStartupOrchestrator {
+	private ExecutorService eagerExecutor;
+	private ExecutorService deferredExecutor;
+	private StartupOrchestrator startup;
+	private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+	@Before
+	public void setUp() {
+		eagerExecutor = Executors.newFixedThreadPool(4);
+		deferredExecutor = Executors.newSingleThreadExecutor();
+		startup = new StartupOrchestrator(eagerExecutor, deferredExecutor);
+	}
+
+	@After
+	public void tearDown() {
+		eagerExecutor.shutdownNow();
+		deferredExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testIndependentPhasesRunInParallel() throws InterruptedException {
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		final StartupOrchestrator.StartupTask waitForOther = () -> {
+			bothStarted.countDown();
+			if (!bothStarted.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("Ran serially");
+		};
+
+		startup.addPhase("a", waitForOther);
+		startup.addPhase("b", waitForOther);
+
+		assertTrue(startup.await("a"));
+		assertTrue(startup.await("b"));
+	}
+
+	@Test
+	public void testDependenciesRunFirst() {
+		startup.addPhase("config", () -> {
+			Thread.sleep(50);
+			order.add("config");
+		});
+		startup.addPhase("cameras", () -> order.add("cameras"), "config");
+
+		assertTrue(startup.await("cameras"));
+		assertEquals(2, order.size());
+		assertEquals("config", order.get(0));
+	}
+
+	@Test
+	public void testDeferredPhasesWait() throws InterruptedException {
+		startup.addDeferredPhase("tts", () -> order.add("tts"));
+		startup.addPhase("opencv", () -> order.add("opencv"));
+
+		assertTrue(startup.await("opencv"));
+		Thread.sleep(50);
+		assertFalse(startup.isDone("tts"));
+
+		startup.startDeferredPhases();
+		assertTrue(startup.await("tts"));
+		assertEquals(2, order.size());
+	}
+
+	@Test
+	public void testAwaitStartsDeferredPhase() {
+		startup.addDeferredPhase("plugins", () -> order.add("plugins"));
+
+		assertTrue(startup.await("plugins"));
+		assertEquals(1, order.size());
+	}
+
+	@Test
+	public void testFailedPhaseSkipsDependents() {
+		startup.addPhase("opencv", () -> {
+			throw new IOException("Extraction failed");
+		});
+		startup.addPhase("cameras", () -> order.add("cameras"), "opencv");
+		startup.addPhase("fonts", () -> order.add("fonts"));
+
+		assertFalse(startup.await("cameras"));
+		assertTrue(startup.await("fonts"));
+		assertEquals(Collections.singletonList("fonts"), order);
+		assertTrue(startup.getTimeline().contains("skipped"));
+	}
+
+	@Test
+	public void testRunPhaseReturnsResult() throws Exception {
+		assertEquals("loaded", startup.runPhase("config", () -> "loaded"));
+		assertTrue(startup.isDone("config"));
+		assertTrue(startup.getTimeline().contains(Thread.currentThread().getName()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRunPhaseRethrows() throws Exception {
+		startup.runPhase("fxml", () -> {
+			throw new IOException("Missing FXML");
+		});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownDependency() {
+		startup.addPhase("cameras", () -> {}, "opencv");
+	}
+}